@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.builders.BatchSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Measures the throughput of the {@link BatchSigner} in signed documents per second for a different number of worker
+ * threads. With enough available cores the throughput should increase almost linearly with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BatchSigningBenchmark {
+
+	private static final int BATCH_SIZE = 64;
+
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	private byte[]			content;
+	private ForkJoinPool	pool;
+	private BatchSigner		signer;
+	private List<Document>	batch;
+
+	@Setup(Level.Trial)
+	public void createSigner() {
+		content = BenchmarkData.getDocumentBytes();
+		pool = new ForkJoinPool(threads);
+		signer = new BatchSigner(new BasicEnvelopedSignatureBuilder().setKeyPair(BenchmarkData.getKeyPair())
+																	 .buildProfile(), pool);
+	}
+
+	@Setup(Level.Invocation)
+	public void createBatch() {
+		batch = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++)
+			batch.add(BenchmarkData.parse(content));
+	}
+
+	@TearDown(Level.Trial)
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public List<BatchSigner.Result> signBatch() throws InterruptedException {
+		return signer.signAll(batch);
+	}
+}
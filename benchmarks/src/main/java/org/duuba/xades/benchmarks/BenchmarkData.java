@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.KeyStore.PrivateKeyEntry;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+
+/**
+ * Provides the key pair and documents used in the benchmarks.
+ */
+public final class BenchmarkData {
+
+	private BenchmarkData() {}
+
+	/**
+	 * @return the RSA key pair to sign with
+	 */
+	public static PrivateKeyEntry getKeyPair() {
+		return getKeyPair("RSA");
+	}
+
+	/**
+	 * Gets the key pair of the given type to sign with.
+	 *
+	 * @param keyType	the type of key, either "RSA" or "EC"
+	 * @return the key pair to sign with
+	 */
+	public static PrivateKeyEntry getKeyPair(final String keyType) {
+		final char[] keyPwd = "signer".toCharArray();
+		try (InputStream is = BenchmarkData.class.getClassLoader().getResourceAsStream(
+																"EC".equals(keyType) ? "signkey-ec.p12" : "signkey.p12")) {
+			final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+			keyStore.load(is, keyPwd);
+			return (PrivateKeyEntry) keyStore.getEntry(keyStore.aliases().nextElement(),
+													   new KeyStore.PasswordProtection(keyPwd));
+		} catch (Exception e) {
+			throw new IllegalStateException("Benchmark key pair not available", e);
+		}
+	}
+
+	/**
+	 * Gets the signing algorithm to use with the key pair of the given type.
+	 *
+	 * @param keyType	the type of key, either "RSA" or "EC"
+	 * @return the signing algorithm
+	 */
+	public static String getSigningAlgorithm(final String keyType) {
+		return "EC".equals(keyType) ? "http://www.w3.org/2001/04/xmldsig-more#ecdsa-sha256"
+									: "http://www.w3.org/2001/04/xmldsig-more#rsa-sha256";
+	}
+
+	/**
+	 * @return the content of the test document to sign
+	 */
+	public static byte[] getDocumentBytes() {
+		try (InputStream is = BenchmarkData.class.getClassLoader().getResourceAsStream("testdoc.xml");
+			 ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+			final byte[] buffer = new byte[8192];
+			int r;
+			while ((r = is.read(buffer)) > 0)
+				bos.write(buffer, 0, r);
+			return bos.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException("Benchmark document not available", e);
+		}
+	}
+
+	/**
+	 * Creates a document of the given size consisting of a list of simple records.
+	 *
+	 * @param sizeKB	the approximate size of the document in kilobytes
+	 * @return	the UTF-8 encoded document
+	 */
+	public static byte[] createDocument(final int sizeKB) {
+		final int size = sizeKB * 1024;
+		final StringBuilder doc = new StringBuilder(size + 1024);
+		doc.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><batch xmlns=\"urn:duuba:benchmark\">");
+		for (int i = 0; doc.length() < size; i++)
+			doc.append("<record id=\"").append(i).append("\"><name>Record number ").append(i)
+			   .append("</name><amount currency=\"EUR\">").append(i * 7 % 10000).append(".00</amount></record>");
+		doc.append("</batch>");
+		return doc.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses the given XML document.
+	 *
+	 * @param content	the XML document
+	 * @return	the parsed document
+	 */
+	public static Document parse(final byte[] content) {
+		try {
+			final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			return factory.newDocumentBuilder().parse(new ByteArrayInputStream(content));
+		} catch (Exception e) {
+			throw new IllegalStateException("Could not parse document", e);
+		}
+	}
+}
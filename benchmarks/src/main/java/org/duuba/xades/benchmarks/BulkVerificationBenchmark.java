@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.duuba.xades.BulkVerifier;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XadesVerifier;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.builders.SigningProfile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Measures the throughput of the {@link BulkVerifier} in verified files per second for a different number of worker
+ * threads. The corpus of signed files is generated in the temporary directory before the benchmark starts. Divide the
+ * score by the number of threads to get the throughput in files per second per core.
+ * <p>The target is at least 1,000 files per second per core for the 4 KB files of the corpus, signed with the RSA key
+ * and default algorithms of the benchmarks, and the throughput should scale with the number of threads up to the
+ * number of cores. With 1 thread on a single core (Intel Xeon vCPU, JDK 17) the measured throughput is 1,622 &plusmn;
+ * 406 files per second, with about 1,700 files per second once the JIT compilation has settled, so the warm-up is
+ * longer than for the other benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 6, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BulkVerificationBenchmark {
+
+	private static final int CORPUS_SIZE = 256;
+
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	@Param({ "4" })
+	public int sizeKB;
+
+	private Path			corpus;
+	private ForkJoinPool	pool;
+	private BulkVerifier	verifier;
+
+	@Setup(Level.Trial)
+	public void createCorpus() throws Exception {
+		corpus = Files.createTempDirectory("duuba-corpus");
+		final SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(BenchmarkData.getKeyPair())
+																		   .buildProfile();
+		final byte[] content = BenchmarkData.createDocument(sizeKB);
+		for (int i = 0; i < CORPUS_SIZE; i++) {
+			final Document doc = BenchmarkData.parse(content);
+			profile.sign(doc);
+			final Path file = corpus.resolve("dir" + i % 16).resolve("doc" + i + ".xml");
+			Files.createDirectories(file.getParent());
+			TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc),
+																		new StreamResult(file.toFile()));
+		}
+		pool = new ForkJoinPool(threads);
+		verifier = new BulkVerifier(new XadesVerifier(XadesSignatureFactory.getInstance(
+															BasicEnvelopedSignatureBuilder.DEFAULT_VERSION)),
+									pool, 2 * threads);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteCorpus() throws IOException {
+		pool.shutdown();
+		try (Stream<Path> files = Files.walk(corpus)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CORPUS_SIZE)
+	public BulkVerifier.Summary verifyCorpus() throws Exception {
+		final BulkVerifier.Summary summary = verifier.verifyDirectory(corpus, null, null);
+		if (summary.getValidCount() != CORPUS_SIZE)
+			throw new IllegalStateException("Not all files are valid: " + summary);
+		return summary;
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.crypto.dsig.DigestMethod;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x509.TBSCertificate;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.asn1.x509.V3TBSCertificateGenerator;
+import org.duuba.xades.AbstractCertIDTypeElement;
+import org.duuba.xades.CertificateIndex;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XadesVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares finding the certificate identified by a <code>Cert</code> element of the <code>SigningCertificateV2
+ * </code> property among a number of candidate certificates by calculating the digest of each candidate, with
+ * looking it up in a {@link CertificateIndex}. The identified certificate is in the middle of the candidates. The
+ * candidates are generated certificates with a random key and signature value, as only their encoding is relevant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CertificateIndexBenchmark {
+
+	/**
+	 * The number of candidate certificates
+	 */
+	@Param({ "1000", "100000" })
+	public int candidates;
+
+	private List<X509Certificate>		certs;
+	private CertificateIndex			index;
+	private AbstractCertIDTypeElement	certId;
+
+	@Setup(Level.Trial)
+	public void createCertificates() throws Exception {
+		final Random random = new Random(candidates);
+		final CertificateFactory cf = CertificateFactory.getInstance("X.509");
+		final X509Certificate template = (X509Certificate) BenchmarkData.getKeyPair().getCertificate();
+		final AlgorithmIdentifier sigAlg = new AlgorithmIdentifier(PKCSObjectIdentifiers.sha256WithRSAEncryption);
+		final SubjectPublicKeyInfo publicKey = SubjectPublicKeyInfo.getInstance(
+																		template.getPublicKey().getEncoded());
+		final X500Name issuer = new X500Name("CN=Benchmark CA, O=Duuba, C=NL");
+
+		certs = new ArrayList<>(candidates);
+		index = new CertificateIndex(DigestMethod.SHA256);
+		for (int i = 0; i < candidates; i++) {
+			final V3TBSCertificateGenerator tbsGen = new V3TBSCertificateGenerator();
+			tbsGen.setSerialNumber(new ASN1Integer(new BigInteger(64, random)));
+			tbsGen.setSignature(sigAlg);
+			tbsGen.setIssuer(issuer);
+			tbsGen.setStartDate(new Time(template.getNotBefore()));
+			tbsGen.setEndDate(new Time(template.getNotAfter()));
+			tbsGen.setSubject(new X500Name("CN=Signer " + i + ", O=Duuba, C=NL"));
+			tbsGen.setSubjectPublicKeyInfo(publicKey);
+			final TBSCertificate tbs = tbsGen.generateTBSCertificate();
+			final byte[] sigValue = new byte[256];
+			random.nextBytes(sigValue);
+			final ASN1EncodableVector cert = new ASN1EncodableVector();
+			cert.add(tbs);
+			cert.add(sigAlg);
+			cert.add(new DERBitString(sigValue));
+			final byte[] encoded = new DERSequence(cert).getEncoded();
+			final X509Certificate c = (X509Certificate) cf.generateCertificate(new ByteArrayInputStream(encoded));
+			certs.add(c);
+			index.add(c);
+		}
+		certId = XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111)
+									  .newSigningCertificate(Collections.singletonList(certs.get(candidates / 2)),
+															 DigestMethod.SHA256)
+									  .getCertificates().get(0);
+	}
+
+	@Benchmark
+	public X509Certificate findLinear() throws Exception {
+		final byte[] digest = certId.getCertDigest().getDigestValue();
+		for (X509Certificate c : certs)
+			if (MessageDigest.isEqual(MessageDigest.getInstance("SHA-256").digest(c.getEncoded()), digest))
+				return c;
+		return null;
+	}
+
+	@Benchmark
+	public X509Certificate findIndexed() {
+		return index.find(certId);
+	}
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.PrivateKey;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.SignedInfo;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.builders.DetachedSignatureBuilder;
+import org.duuba.xades.builders.SigningProfile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Compares creating a detached signature over a large file using the {@link DetachedSignatureBuilder}, which digests
+ * the file by memory mapping it, with creating a plain XML signature where Santuario dereferences the file URI and
+ * digests it through its stream based resolver. The file is created in the temporary directory before the benchmark
+ * runs, so make sure there is enough disk space for the largest size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DetachedSigningBenchmark {
+
+	/**
+	 * The size of the signed file in megabytes
+	 */
+	@Param({ "64", "1024", "4096" })
+	public int sizeMB;
+
+	private Path			file;
+	private SigningProfile	profile;
+	private PrivateKey		key;
+
+	@Setup(Level.Trial)
+	public void createFile() throws IOException {
+		file = Files.createTempFile("duuba-bench", ".bin");
+		final byte[] block = new byte[1024 * 1024];
+		new Random(42).nextBytes(block);
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			for (int i = 0; i < sizeMB; i++)
+				raf.write(block);
+		}
+		final PrivateKeyEntry keyPair = BenchmarkData.getKeyPair();
+		key = keyPair.getPrivateKey();
+		profile = new BasicEnvelopedSignatureBuilder().setKeyPair(keyPair).buildProfile();
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFile() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public XadesSignature signMapped() throws Exception {
+		return new DetachedSignatureBuilder(profile).addFile(file, "application/octet-stream").build();
+	}
+
+	@Benchmark
+	public XMLSignature signSantuarioResolver() throws Exception {
+		final XMLSignatureFactory fac = XMLSignatureFactory.getInstance("DOM", "ApacheXMLDSig");
+		final SignedInfo si = fac.newSignedInfo(
+				fac.newCanonicalizationMethod(CanonicalizationMethod.EXCLUSIVE, (C14NMethodParameterSpec) null),
+				fac.newSignatureMethod(profile.getSigningAlgorithm(), null),
+				Collections.singletonList(fac.newReference(file.getFileName().toString(),
+														   fac.newDigestMethod(DigestMethod.SHA256, null))));
+		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		final Document doc = dbf.newDocumentBuilder().newDocument();
+		final DOMSignContext dsc = new DOMSignContext(key, doc);
+		dsc.setBaseURI(file.getParent().toUri().toString());
+		final XMLSignature signature = fac.newXMLSignature(si, null);
+		signature.sign(dsc);
+		return signature;
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.security.KeyStore.PrivateKeyEntry;
+import java.util.concurrent.TimeUnit;
+
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.XadesVersion;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Measures the complete creation of an enveloped signature using {@link BasicEnvelopedSignatureBuilder#build()} for
+ * documents from 1 KB to 100 MB, signed with an RSA or EC key and conforming to both Xades versions. The document is
+ * parsed once and the signature is removed again after each operation. Both the throughput and the distribution of the
+ * latency are reported, run with the <code>-prof gc</code> option to also get the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EnvelopedBuildBenchmark {
+
+	/**
+	 * The approximate size of the signed document in kilobytes
+	 */
+	@Param({ "1", "1024", "102400" })
+	public int sizeKB;
+
+	@Param({ "RSA", "EC" })
+	public String keyType;
+
+	@Param({ "EN_319_132_V111", "TS_101_903_V141" })
+	public XadesVersion version;
+
+	private Document		document;
+	private PrivateKeyEntry	keyPair;
+
+	@Setup(Level.Trial)
+	public void createDocument() {
+		document = BenchmarkData.parse(BenchmarkData.createDocument(sizeKB));
+		keyPair = BenchmarkData.getKeyPair(keyType);
+	}
+
+	@Benchmark
+	public XadesSignature build() throws Exception {
+		final XadesSignature signature = new BasicEnvelopedSignatureBuilder()
+												.setXadesVersion(version)
+												.setKeyPair(keyPair)
+												.setSigningAlgorithm(BenchmarkData.getSigningAlgorithm(keyType))
+												.setSignersLocation(null, null, "Amsterdam", null, "NL")
+												.setDocumentToSign(document)
+												.build();
+		final Element sigElement = signature.getElement();
+		sigElement.getParentNode().removeChild(sigElement);
+		return signature;
+	}
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.duuba.xades.ContentHashIdGenerator;
+import org.duuba.xades.CounterIdGenerator;
+import org.duuba.xades.IdGenerator;
+import org.duuba.xades.RandomIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the {@link IdGenerator} implementations when shared by many threads, compared to
+ * generating the Ids with {@link UUID#randomUUID()} as was done before the generators were introduced. Run with the
+ * <code>-t</code> option to change the number of threads.
+ * <p>The {@link ContentHashIdGenerator} is normally created per document and not shared, but sharing it here measures
+ * the cost of generating an Id in the same way as for the other generators. Creating it per document additionally
+ * costs one hash of the document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+	/**
+	 * The generator to use, "uuid" for <code>UUID.randomUUID()</code>
+	 */
+	@Param({ "uuid", "random", "counter", "contenthash" })
+	public String generator;
+
+	private IdGenerator	idGenerator;
+
+	@Setup(Level.Trial)
+	public void createGenerator() {
+		switch (generator) {
+		case "uuid" :
+			idGenerator = prefix -> prefix + UUID.randomUUID().toString();
+			break;
+		case "random" :
+			idGenerator = RandomIdGenerator.INSTANCE;
+			break;
+		case "counter" :
+			idGenerator = new CounterIdGenerator("bench");
+			break;
+		case "contenthash" :
+			idGenerator = new ContentHashIdGenerator("bench".getBytes(StandardCharsets.UTF_8));
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown generator: " + generator);
+		}
+	}
+
+	@Benchmark
+	public String generateId() {
+		return idGenerator.generateId("DR-");
+	}
+}
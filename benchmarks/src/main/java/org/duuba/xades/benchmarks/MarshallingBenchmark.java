@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.jcp.xml.dsig.internal.dom.XmlWriterToTree;
+import org.duuba.xades.Constants;
+import org.duuba.xades.QualifyingProperties;
+import org.duuba.xades.XmlWriterToStream;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Compares marshalling the <code>QualifyingProperties</code> of a signature to a DOM tree, as Santuario does, and
+ * serialising the tree, with writing them directly to a stream using the {@link XmlWriterToStream}. Run with the
+ * <code>-prof gc</code> option to compare the memory allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarshallingBenchmark {
+
+	private QualifyingProperties	qualifyingProperties;
+	private DOMSignContext			context;
+	private DocumentBuilderFactory	dbf;
+	private Transformer				serializer;
+	private ByteArrayOutputStream	out;
+
+	@Setup(Level.Trial)
+	public void createQualifyingProperties() throws Exception {
+		qualifyingProperties = new BasicEnvelopedSignatureBuilder()
+										.setKeyPair(BenchmarkData.getKeyPair())
+										.setSignersLocation("Main Street 1", "1234 AB", "Amsterdam", null, "NL")
+										.setDocumentToSign(BenchmarkData.parse(BenchmarkData.getDocumentBytes()))
+										.build().getQualifyingProperties();
+
+		dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		final Document doc = dbf.newDocumentBuilder().newDocument();
+		context = new DOMSignContext(BenchmarkData.getKeyPair().getPrivateKey(), doc);
+		context.putNamespacePrefix(XMLSignature.XMLNS, "ds");
+		context.putNamespacePrefix(Constants.XADES_132_NS_URI, Constants.XADES_132_NS_PREFIX);
+		serializer = TransformerFactory.newInstance().newTransformer();
+		out = new ByteArrayOutputStream(8192);
+	}
+
+	@Benchmark
+	public Document marshalToDOM() throws Exception {
+		final Document doc = dbf.newDocumentBuilder().newDocument();
+		qualifyingProperties.marshal(new XmlWriterToTree(Collections.emptyList(), doc), "ds", context);
+		return doc;
+	}
+
+	@Benchmark
+	public ByteArrayOutputStream marshalToDOMAndSerialize() throws Exception {
+		out.reset();
+		serializer.transform(new DOMSource(marshalToDOM()), new StreamResult(out));
+		return out;
+	}
+
+	@Benchmark
+	public ByteArrayOutputStream marshalToStream() throws Exception {
+		out.reset();
+		final XmlWriterToStream xwriter = new XmlWriterToStream(out);
+		qualifyingProperties.marshal(xwriter, "ds", context);
+		xwriter.flush();
+		return out;
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.NoSuchProviderException;
+import java.security.Security;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XadesVersion;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of multiple threads signing concurrently when every signature looks up the security
+ * provider and creates its own <code>XMLSignatureFactory</code>, as was done before the factories were shared, with
+ * using the shared {@link XadesSignatureFactory}. Both the factory acquisition by itself and the complete signing of a
+ * small document are measured. Use the <code>-t</code> option to change the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class SharedFactoryBenchmark {
+
+	private final PrivateKeyEntry	keyPair = BenchmarkData.getKeyPair();
+	private final byte[]			content = BenchmarkData.getDocumentBytes();
+
+	@Setup(Level.Trial)
+	public void installProvider() {
+		// Registers the Santuario provider, which before was done by the first factory created
+		XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111);
+	}
+
+	@Benchmark
+	public XMLSignatureFactory factoryPerSignature() throws NoSuchProviderException {
+		return lookupFactory();
+	}
+
+	@Benchmark
+	public XadesSignatureFactory sharedFactory() {
+		return XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111);
+	}
+
+	@Benchmark
+	public XadesSignature signWithFactoryPerSignature() throws Exception {
+		lookupFactory();
+		return sign();
+	}
+
+	@Benchmark
+	public XadesSignature signWithSharedFactory() throws Exception {
+		return sign();
+	}
+
+	/**
+	 * Performs the synchronised provider look ups that were done for every signature before the factories were shared.
+	 */
+	private static XMLSignatureFactory lookupFactory() throws NoSuchProviderException {
+		Security.getProvider("ApacheXMLDSig");
+		return XMLSignatureFactory.getInstance("DOM", "ApacheXMLDSig");
+	}
+
+	private XadesSignature sign() throws Exception {
+		return new BasicEnvelopedSignatureBuilder().setKeyPair(keyPair).setDocumentToSign(BenchmarkData.parse(content))
+												   .build();
+	}
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.crypto.dsig.XMLSignatureException;
+
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.builders.StreamingEnvelopedSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares signing a small document using the {@link StreamingEnvelopedSigner} by creating and marshalling the DOM of
+ * the signature with creating the signature from the pre-serialised signature template. As the document is small,
+ * the difference is mainly the cost of creating the signature structure. The signature value calculation is the same
+ * for both methods and still dominates the time, run with the <code>-prof gc</code> option to also compare the
+ * memory allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureTemplateBenchmark {
+
+	private byte[]						content;
+	private StreamingEnvelopedSigner	signer;
+
+	@Setup(Level.Trial)
+	public void createSigner() throws XMLSignatureException {
+		content = BenchmarkData.getDocumentBytes();
+		signer = new StreamingEnvelopedSigner(new BasicEnvelopedSignatureBuilder()
+															.setKeyPair(BenchmarkData.getKeyPair())
+															.setSignersLocation(null, null, "Amsterdam", null, "NL")
+															.buildProfile());
+		// Create the template before measuring
+		signer.signWithTemplate(new ByteArrayInputStream(content), new ByteArrayOutputStream());
+	}
+
+	@Benchmark
+	public OutputStream signMarshalled() throws XMLSignatureException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + 8192);
+		signer.sign(new ByteArrayInputStream(content), out);
+		return out;
+	}
+
+	@Benchmark
+	public OutputStream signWithTemplate() throws XMLSignatureException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + 8192);
+		signer.signWithTemplate(new ByteArrayInputStream(content), out);
+		return out;
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.cert.X509Certificate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignatureMethod;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XadesVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Compares signing a document with the digest of the <code>SignedProperties</code> calculated directly while they are
+ * marshalled in canonical form with letting Santuario canonicalise the <code>SignedProperties</code> element in the 
+ * DOM tree. Run with the <code>-prof gc</code> option to compare the memory allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignedPropertiesDigestBenchmark {
+
+	/**
+	 * Whether the digest of the <code>SignedProperties</code> is calculated directly 
+	 */
+	@Param({ "true", "false" })
+	public boolean	direct;
+
+	private XadesSignatureFactory	xadesFactory;
+	private PrivateKeyEntry			keyPair;
+	private X509Certificate			certificate;
+	private ZonedDateTime			signingTime;
+	private byte[]					content;
+
+	@Setup(Level.Trial)
+	public void createFactory() {
+		xadesFactory = XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111);
+		keyPair = BenchmarkData.getKeyPair();
+		certificate = (X509Certificate) keyPair.getCertificate();
+		signingTime = ZonedDateTime.now(ZoneOffset.UTC);
+		content = BenchmarkData.getDocumentBytes();
+	}
+
+	@Benchmark
+	public XadesSignature sign() throws Exception {
+		final Document doc = BenchmarkData.parse(content);
+		final XMLSignatureFactory f = xadesFactory.getXMLSignatureFactory();
+		final Reference docRef = f.newReference("", f.newDigestMethod(DigestMethod.SHA256, null),
+							Collections.singletonList(f.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null)),
+							null, null);
+		final XadesSignature signature = xadesFactory.newXadesSignature("sig-1", DigestMethod.SHA256, 
+								SignatureMethod.RSA_SHA256, CanonicalizationMethod.EXCLUSIVE, 
+								xadesFactory.newKeyInfo(certificate), Collections.singletonList(docRef),
+								xadesFactory.newQualifyingProperties("#sig-1", xadesFactory.newSignedProperties("sp-1", 
+										xadesFactory.newSignedSignatureProperties(signingTime, 
+												xadesFactory.newSigningCertificate(Collections.singletonList(certificate),
+																				   DigestMethod.SHA256), 
+												null,
+												xadesFactory.newSignatureProductionPlace("Amsterdam", "Main Street 1", 
+																						 "1234 AB", null, "NL"),
+												null, null)), null),
+								null);
+		final DOMSignContext context = new DOMSignContext(keyPair.getPrivateKey(), doc.getDocumentElement());
+		context.setProperty(XadesSignature.DIRECT_DIGEST_PROPERTY, direct);
+		signature.sign(context);
+		return signature;
+	}
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.jcp.xml.dsig.internal.dom.XmlWriterToTree;
+import org.duuba.xades.CertIDCache;
+import org.duuba.xades.Constants;
+import org.duuba.xades.QualifyingProperties;
+import org.duuba.xades.SigningCertificate;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XadesVersion;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Measures the steps of the signing pipeline that do not depend on the document being signed: constructing a {@link
+ * XadesSignatureFactory}, creating the <code>SigningCertificate(V2)</code> property, with and without the digest and
+ * issuer/serial of the certificate in the {@link CertIDCache}, and marshalling the <code>QualifyingProperties</code>
+ * to a DOM. Both the throughput and the distribution of the latency are reported, run with the <code>-prof gc</code>
+ * option to also get the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SigningComponentsBenchmark {
+
+	@Param({ "RSA", "EC" })
+	public String keyType;
+
+	@Param({ "EN_319_132_V111", "TS_101_903_V141" })
+	public XadesVersion version;
+
+	private XadesSignatureFactory	factory;
+	private List<X509Certificate>	certificates;
+	private QualifyingProperties	qualifyingProperties;
+	private DOMSignContext			context;
+	private DocumentBuilderFactory	dbf;
+
+	@Setup(Level.Trial)
+	public void createProperties() throws Exception {
+		final PrivateKeyEntry keyPair = BenchmarkData.getKeyPair(keyType);
+		factory = XadesSignatureFactory.getInstance(version);
+		certificates = Collections.singletonList((X509Certificate) keyPair.getCertificate());
+		qualifyingProperties = new BasicEnvelopedSignatureBuilder()
+										.setXadesVersion(version)
+										.setKeyPair(keyPair)
+										.setSigningAlgorithm(BenchmarkData.getSigningAlgorithm(keyType))
+										.setSignersLocation("Main Street 1", "1234 AB", "Amsterdam", null, "NL")
+										.setDocumentToSign(BenchmarkData.parse(BenchmarkData.getDocumentBytes()))
+										.build().getQualifyingProperties();
+
+		dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		context = new DOMSignContext(keyPair.getPrivateKey(), dbf.newDocumentBuilder().newDocument());
+		context.putNamespacePrefix(XMLSignature.XMLNS, "ds");
+		context.putNamespacePrefix(Constants.XADES_132_NS_URI, Constants.XADES_132_NS_PREFIX);
+	}
+
+	@Benchmark
+	public XadesSignatureFactory newFactory() {
+		return new XadesSignatureFactory(version, null);
+	}
+
+	@Benchmark
+	public SigningCertificate newSigningCertificate() throws NoSuchAlgorithmException {
+		return factory.newSigningCertificate(certificates, DigestMethod.SHA256);
+	}
+
+	@Benchmark
+	public SigningCertificate newSigningCertificateUncached() throws NoSuchAlgorithmException {
+		CertIDCache.getInstance().clear();
+		return factory.newSigningCertificate(certificates, DigestMethod.SHA256);
+	}
+
+	@Benchmark
+	public Document marshalQualifyingProperties() throws Exception {
+		final Document doc = dbf.newDocumentBuilder().newDocument();
+		qualifyingProperties.marshal(new XmlWriterToTree(Collections.emptyList(), doc), "ds", context);
+		return doc;
+	}
+}
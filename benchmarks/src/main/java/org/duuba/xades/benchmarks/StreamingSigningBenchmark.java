@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.builders.SigningProfile;
+import org.duuba.xades.builders.StreamingEnvelopedSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Compares signing a document read from a byte array by parsing it into a DOM, signing it with the {@link
+ * SigningProfile} and serialising it again, with signing it using the {@link StreamingEnvelopedSigner}. Run with the
+ * <code>-prof gc</code> option to also compare the memory allocation of both methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StreamingSigningBenchmark {
+
+	/**
+	 * The approximate size of the signed document in megabytes
+	 */
+	@Param({ "1", "50" })
+	public int sizeMB;
+
+	private byte[]						content;
+	private SigningProfile				profile;
+	private StreamingEnvelopedSigner	streamingSigner;
+
+	@Setup(Level.Trial)
+	public void createDocument() {
+		content = BenchmarkData.createDocument(sizeMB * 1024);
+
+		profile = new BasicEnvelopedSignatureBuilder().setKeyPair(BenchmarkData.getKeyPair()).buildProfile();
+		streamingSigner = new StreamingEnvelopedSigner(profile);
+	}
+
+	@Benchmark
+	public OutputStream signDOM() throws Exception {
+		final Document doc = BenchmarkData.parse(content);
+		profile.sign(doc);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + 8192);
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(out));
+		return out;
+	}
+
+	@Benchmark
+	public OutputStream signStreaming() throws XMLSignatureException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + 8192);
+		streamingSigner.sign(new ByteArrayInputStream(content), out);
+		return out;
+	}
+}
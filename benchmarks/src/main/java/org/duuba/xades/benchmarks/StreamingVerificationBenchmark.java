@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+
+import org.duuba.xades.StreamingEnvelopedVerifier;
+import org.duuba.xades.VerificationReport;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XadesVerifier;
+import org.duuba.xades.XadesVersion;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.builders.StreamingEnvelopedSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Compares verifying a signed document read from a byte array by parsing it into a DOM and validating the signature
+ * with the {@link XadesVerifier}, with verifying it using the {@link StreamingEnvelopedVerifier}. Run with the
+ * <code>-prof gc</code> option to also compare the memory allocation of both methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StreamingVerificationBenchmark {
+
+	/**
+	 * The approximate size of the signed document in megabytes
+	 */
+	@Param({ "1", "50" })
+	public int sizeMB;
+
+	private byte[]						signed;
+	private XadesVerifier				verifier;
+	private StreamingEnvelopedVerifier	streamingVerifier;
+
+	@Setup(Level.Trial)
+	public void createDocument() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(sizeMB * 1024 * 1024 + 8192);
+		new StreamingEnvelopedSigner(new BasicEnvelopedSignatureBuilder().setKeyPair(BenchmarkData.getKeyPair())
+																		 .buildProfile())
+				.sign(new ByteArrayInputStream(BenchmarkData.createDocument(sizeMB * 1024)), out);
+		signed = out.toByteArray();
+
+		verifier = new XadesVerifier(XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111));
+		streamingVerifier = new StreamingEnvelopedVerifier(verifier);
+		if (!verifyDOM().isValid() || !verifyStreaming().isValid())
+			throw new IllegalStateException("Signature of the benchmark document is not valid");
+	}
+
+	@Benchmark
+	public VerificationReport verifyDOM() throws Exception {
+		final Document doc = BenchmarkData.parse(signed);
+		return verifier.verify(new DOMValidateContext(BenchmarkData.getKeyPair().getCertificate().getPublicKey(),
+								doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature").item(0)));
+	}
+
+	@Benchmark
+	public VerificationReport verifyStreaming() throws Exception {
+		return streamingVerifier.verify(new ByteArrayInputStream(signed));
+	}
+}
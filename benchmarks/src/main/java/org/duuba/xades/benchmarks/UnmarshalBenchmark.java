@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.crypto.dom.DOMStructure;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.duuba.xades.QualifyingProperties;
+import org.duuba.xades.SignedSignatureProperties;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XadesVersion;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Unmarshals all signatures of a large document that is signed multiple times, each signature including all signed 
+ * properties supported by the <code>BasicEnvelopedSignatureBuilder</code>. Compares only unmarshalling the XML 
+ * signatures by Santuario with unmarshalling the Xades signatures and accessing only the signing time and signing
+ * certificate, which thanks to the lazy parsing of the qualifying properties does not decode the other properties, 
+ * and accessing all properties. 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnmarshalBenchmark {
+
+	@Param({ "10", "100" })
+	public int	signatures;
+
+	private XMLSignatureFactory		sigFactory;
+	private XadesSignatureFactory	xadesFactory;
+	private List<Element>			sigElements;
+
+	@Setup(Level.Trial)
+	public void createSignedDocument() throws Exception {
+		xadesFactory = XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111);
+		sigFactory = xadesFactory.getXMLSignatureFactory();
+
+		Document doc = BenchmarkData.parse(BenchmarkData.createDocument(256));
+		final Element role = doc.createElementNS("urn:duuba:benchmark:roles", "r:Role");
+		role.setAttributeNS("http://www.w3.org/2000/xmlns/", "xmlns:r", "urn:duuba:benchmark:roles");
+		role.setTextContent("Accountant");
+		for (int i = 0; i < signatures; i++)
+			new BasicEnvelopedSignatureBuilder()
+					.setKeyPair(BenchmarkData.getKeyPair())
+					.setSignersLocation("Main Street 1", "1234 AB", "Amsterdam", "Noord-Holland", "NL")
+					.setClaimedRoles(Collections.singletonList(role))
+					.setRoleAssertions(Collections.singletonList(role))
+					.setSignedDocumentDescription("Batch of records")
+					.addCommitmentIndication(xadesFactory.newObjectIdentifier("http://uri.etsi.org/01903/v1.2.2#"
+																			 + "ProofOfApproval"))
+					.setDocumentToSign(doc)
+					.build();
+
+		// Parse the serialised document, as a verifier would do
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(bos));
+		doc = BenchmarkData.parse(bos.toByteArray());
+		final NodeList signatureNodes = doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature");
+		sigElements = new ArrayList<>(signatureNodes.getLength());
+		for (int i = 0; i < signatureNodes.getLength(); i++)
+			sigElements.add((Element) signatureNodes.item(i));
+	}
+
+	@Benchmark
+	public void xmlSignatureOnly(final Blackhole bh) throws Exception {
+		for (Element e : sigElements)
+			bh.consume(sigFactory.unmarshalXMLSignature(new DOMStructure(e)));
+	}
+
+	@Benchmark
+	public void signingTimeAndCertificate(final Blackhole bh) throws Exception {
+		for (Element e : sigElements) {
+			final SignedSignatureProperties ssp = xadesFactory.unmarshalXadesSignature(e).getQualifyingProperties()
+															  .getSignedProperties().getSignatureProperties();
+			bh.consume(ssp.getSigningTime());
+			bh.consume(ssp.getSigningCertificate());
+		}
+	}
+
+	@Benchmark
+	public void allProperties(final Blackhole bh) throws Exception {
+		for (Element e : sigElements) {
+			final QualifyingProperties qp = xadesFactory.unmarshalXadesSignature(e).getQualifyingProperties();
+			final SignedSignatureProperties ssp = qp.getSignedProperties().getSignatureProperties();
+			bh.consume(ssp.getSigningTime());
+			bh.consume(ssp.getSigningCertificate());
+			bh.consume(ssp.getSignaturePolicyIdentifier());
+			bh.consume(ssp.getSignatureProductionPlace());
+			bh.consume(ssp.getSignerRole());
+			bh.consume(ssp.getOtherContent());
+			bh.consume(qp.getSignedProperties().getDataObjectProperties());
+			bh.consume(qp.getUnsignedProperties());
+		}
+	}
+}
@@ -29,6 +29,7 @@ import javax.xml.namespace.QName;
 
 import org.apache.jcp.xml.dsig.internal.dom.XmlWriter;
 import org.apache.xml.security.algorithms.JCEMapper;
+import org.holodeckb2b.commons.util.Utils;
 
 /**
  * Is a base class for the representation of elements that are of type <code>CertIDType</code> as defined in <i>ETSI TS 
@@ -60,17 +61,57 @@ public abstract class AbstractCertIDTypeElement extends XadesElement {
 	
 	AbstractCertIDTypeElement(X509Certificate cert, String digestMethod) throws CertificateEncodingException, 
 																		NoSuchAlgorithmException {
-		final String algId = JCEMapper.translateURItoJCEID(digestMethod);
+		final String algId = digestMethod != null ? JCEMapper.translateURItoJCEID(digestMethod) : null;
 		if (algId == null)
 			throw new NoSuchAlgorithmException();
 		this.certDigest = new CertDigest(digestMethod, MessageDigest.getInstance(algId).digest(cert.getEncoded()));
 		setIssuerSerial(cert);
 	}
 
+	/**
+	 * Creates a new element using the already calculated certificate information.
+	 * 
+	 * @param certID	the certificate information to include
+	 * @throws CertificateEncodingException when the issuer and serial number cannot be encoded
+	 */
+	AbstractCertIDTypeElement(CertIDCache.Entry certID) throws CertificateEncodingException {
+		this.certDigest = new CertDigest(certID.getDigestMethod(), certID.getDigestValue());
+		setIssuerSerial(certID);
+	}
+
+	/**
+	 * Creates a new element with the certificate information read from an existing signature.
+	 * 
+	 * @param certDigest	the digest of the certificate
+	 * @param issuerSerial	the issuer and serial number of the certificate, may be <code>null</code> for the V2 
+	 * 						element which does not require it
+	 */
+	AbstractCertIDTypeElement(CertDigest certDigest, IssuerSerial issuerSerial) {
+		this.certDigest = certDigest;
+		this.issuerSerial = issuerSerial;
+	}
+
+	/**
+	 * Sets the issuer and serial number of the given certificate. This method is called when the element is created 
+	 * for a certificate, subclasses can override it to use another representation of the issuer and serial number. 
+	 * 
+	 * @param cert	the certificate
+	 * @throws CertificateEncodingException when the issuer and serial number cannot be encoded
+	 */
 	protected void setIssuerSerial(X509Certificate cert) throws CertificateEncodingException {
 		this.issuerSerial = new IssuerSerial(cert);
 	}
 
+	/**
+	 * Sets the issuer and serial number of the certificate.
+	 * 
+	 * @param certID	the certificate information
+	 * @throws CertificateEncodingException when the issuer and serial number cannot be encoded
+	 */
+	void setIssuerSerial(CertIDCache.Entry certID) throws CertificateEncodingException {
+		this.issuerSerial = new IssuerSerial(certID);
+	}
+
 	/**
 	 * @return the digest algorithm that is used
 	 */
@@ -91,7 +132,8 @@ public abstract class AbstractCertIDTypeElement extends XadesElement {
         // create and append CertDigest element
 		certDigest.marshal(xwriter, dsPrefix, context);        
         // create and append IssuerSerial element
-		issuerSerial.marshal(xwriter, dsPrefix, context);
+		if (issuerSerial != null)
+			issuerSerial.marshal(xwriter, dsPrefix, context);
 	}
 	
 	/**
@@ -107,7 +149,8 @@ public abstract class AbstractCertIDTypeElement extends XadesElement {
 			return false;
 		
 		AbstractCertIDTypeElement other = (AbstractCertIDTypeElement) o;
-		return this.certDigest.equals(other.certDigest) && this.issuerSerial.equals(other.issuerSerial);
+		return this.certDigest.equals(other.certDigest) 
+			&& Utils.nullSafeEqual(this.issuerSerial, other.issuerSerial);
 	}
 	
 	/**
@@ -138,8 +181,16 @@ public abstract class AbstractCertIDTypeElement extends XadesElement {
 		protected BigInteger	serialNo;
 		
 		IssuerSerial(X509Certificate cert) {
-			this.issuerName = cert.getIssuerX500Principal().getName();
-			this.serialNo = cert.getSerialNumber();
+			this(cert.getIssuerX500Principal().getName(), cert.getSerialNumber());
+		}
+		
+		IssuerSerial(CertIDCache.Entry certID) {
+			this(certID.getIssuerName(), certID.getSerialNo());
+		}
+		
+		IssuerSerial(String issuerName, BigInteger serialNo) {
+			this.issuerName = issuerName;
+			this.serialNo = serialNo;
 		}
 		
 		/**
@@ -162,7 +213,8 @@ public abstract class AbstractCertIDTypeElement extends XadesElement {
 				return false;
 			else {
 				IssuerSerial other = (IssuerSerial) o;
-				return this.issuerName.equals(other.issuerName) && this.serialNo.equals(other.serialNo);
+				return Utils.nullSafeEqual(this.getIssuerName(), other.getIssuerName()) 
+					&& Utils.nullSafeEqual(this.getSerialNo(), other.getSerialNo());
 			}
 		}
 		
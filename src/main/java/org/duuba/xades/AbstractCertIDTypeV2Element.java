@@ -16,6 +16,7 @@
  ******************************************************************************/
 package org.duuba.xades;
 
+import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
@@ -26,8 +27,8 @@ import javax.xml.namespace.QName;
 
 import org.apache.jcp.xml.dsig.internal.dom.XmlWriter;
 import org.apache.xml.security.utils.XMLUtils;
+import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.GeneralName;
-import org.bouncycastle.asn1.x509.GeneralNames;
 
 /**
  * Is a base class for the representation of elements that are of type <code>CertIDTypeV2</code> as defined in 
@@ -56,10 +57,35 @@ public abstract class AbstractCertIDTypeV2Element extends AbstractCertIDTypeElem
 		super(cert, digestMethod);
 	}
 
+	/**
+	 * Creates a new element using the already calculated certificate information.
+	 * 
+	 * @param certID	the certificate information to include
+	 * @throws CertificateEncodingException when the issuer and serial number cannot be encoded
+	 */
+	AbstractCertIDTypeV2Element(CertIDCache.Entry certID) throws CertificateEncodingException {
+		super(certID);
+	}
+
+	/**
+	 * Creates a new element with the certificate information read from an existing signature.
+	 * 
+	 * @param certDigest	the digest of the certificate
+	 * @param issuerSerial	the issuer and serial number of the certificate, may be <code>null</code>
+	 */
+	AbstractCertIDTypeV2Element(CertDigest certDigest, IssuerSerialV2 issuerSerial) {
+		super(certDigest, issuerSerial);
+	}
+
 	@Override
 	protected void setIssuerSerial(X509Certificate cert) throws CertificateEncodingException {
 		this.issuerSerial = new IssuerSerialV2(cert);
 	}
+
+	@Override
+	void setIssuerSerial(CertIDCache.Entry certID) throws CertificateEncodingException {
+		this.issuerSerial = new IssuerSerialV2(certID);
+	}
 	
 	/**
 	 * A representation of the <code>IssuerSerialV2</code> element.
@@ -73,15 +99,56 @@ public abstract class AbstractCertIDTypeV2Element extends AbstractCertIDTypeElem
 		
 		IssuerSerialV2(X509Certificate cert) throws CertificateEncodingException {
 			super(cert);
-			
+			b64encoded = CertIDCache.encodeIssuerSerialV2(issuerName, serialNo);
+		}
+		
+		IssuerSerialV2(CertIDCache.Entry certID) throws CertificateEncodingException {
+			super(certID);
+			b64encoded = certID.getIssuerSerialV2();
+		}
+		
+		/**
+		 * Creates a new element from the base64 encoded DER encoding of the <code>IssuerSerial</code> structure as
+		 * defined in RFC5035. The structure is only decoded when the issuer name or serial number is requested.
+		 * 
+		 * @param b64encoded	the base64 encoded content of the element
+		 */
+		IssuerSerialV2(String b64encoded) {
+			super(null, null);
+			this.b64encoded = b64encoded;
+		}
+		
+		@Override
+		public String getIssuerName() {
+			if (serialNo == null)
+				decode();
+			return issuerName;
+		}
+		
+		@Override
+		public BigInteger getSerialNo() {
+			if (serialNo == null)
+				decode();
+			return serialNo;
+		}
+		
+		/**
+		 * Decodes the issuer name and serial number from the encoded <code>IssuerSerial</code> structure. The issuer 
+		 * name is only read from the structure when it is a directory name and is converted to a string in the same 
+		 * way as it is parsed when the element is created for a certificate.
+		 * 
+		 * @throws IllegalStateException when the content is not a valid encoded <code>IssuerSerial</code>
+		 */
+		private void decode() {
 			try {
-				final GeneralName generalName = new GeneralName(GeneralName.directoryName, issuerName);
-				final GeneralNames generalNames = new GeneralNames(generalName);
-				final org.bouncycastle.asn1.x509.IssuerSerial issuerSerial = 
-													new org.bouncycastle.asn1.x509.IssuerSerial(generalNames, serialNo);		
-				b64encoded = XMLUtils.encodeToString(issuerSerial.getEncoded("DER"));				
-			} catch (Exception e) {
-				throw new CertificateEncodingException("Could not extract Issuer / SerialNo from certificate");
+				final org.bouncycastle.asn1.x509.IssuerSerial decoded =
+									org.bouncycastle.asn1.x509.IssuerSerial.getInstance(XMLUtils.decode(b64encoded));
+				for (GeneralName n : decoded.getIssuer().getNames())
+					if (n.getTagNo() == GeneralName.directoryName && issuerName == null)
+						issuerName = X500Name.getInstance(n.getName()).toString();
+				serialNo = decoded.getSerial().getValue();
+			} catch (RuntimeException invalid) {
+				throw new IllegalStateException("Invalid IssuerSerialV2 content", invalid);
 			}
 		}
 				
@@ -16,11 +16,17 @@
  ******************************************************************************/
 package org.duuba.xades;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
 import javax.xml.crypto.MarshalException;
 import javax.xml.crypto.XMLCryptoContext;
 
 import org.apache.jcp.xml.dsig.internal.dom.XmlWriter;
-import org.apache.xml.security.utils.XMLUtils;
 import org.bouncycastle.util.Arrays;
 import org.holodeckb2b.commons.util.Utils;
 
@@ -64,15 +70,30 @@ public abstract class AbstractEncapsulatedPKIDataTypeElement extends XadesElemen
 		}
 	}
 	
-	protected String	id;
-	protected byte[]	data;
-	protected Encoding	encoding;
+	protected String		id;
+	protected byte[]		data;
+	protected ContentSource	content;
+	protected Encoding		encoding;
 	
 	public AbstractEncapsulatedPKIDataTypeElement(final String id, final byte[] data, final Encoding encoding) {
 		this.id = id;
 		this.data = data;
 		this.encoding = encoding;
 	}
+
+	/**
+	 * Creates a new element of which the encoded data is read from the given source when the element is marshalled. 
+	 * 
+	 * @param id		the Id of the element
+	 * @param content	the source of the encoded data
+	 * @param encoding	the encoding of the data
+	 */
+	public AbstractEncapsulatedPKIDataTypeElement(final String id, final ContentSource content, 
+												  final Encoding encoding) {
+		this.id = id;
+		this.content = content;
+		this.encoding = encoding;
+	}
 	
 	/**
 	 * @return the Id assigned to this element
@@ -82,10 +103,45 @@ public abstract class AbstractEncapsulatedPKIDataTypeElement extends XadesElemen
 	}
 	
 	/**
+	 * Gets the encoded data. When the element was created with a {@link ContentSource} the data is read completely into
+	 * memory, use {@link #getContent()} to access it as a stream.
+	 * 
 	 * @return the encoded data 
+	 * @throws UncheckedIOException when the data cannot be read from the content source
 	 */
 	public byte[] getData() {
-		return data;
+		if (data != null || content == null)
+			return data;
+		try {
+			return content.readAll();
+		} catch (IOException readError) {
+			throw new UncheckedIOException(readError);
+		}
+	}
+	
+	/**
+	 * @return the source of the encoded data 
+	 */
+	public ContentSource getContent() {
+		return content != null || data == null ? content : ContentSource.of(data);
+	}
+	
+	/**
+	 * Parses the encoded data as a X.509 certificate, reading it from the content source when the element was created 
+	 * with one.
+	 * 
+	 * @return the certificate contained in this element
+	 * @throws UncheckedIOException when the data cannot be read from the content source
+	 * @throws IllegalStateException when the data is not a valid X.509 certificate
+	 */
+	X509Certificate parseCertificate() {
+		try (InputStream in = getContent().openStream()) {
+			return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(in);
+		} catch (IOException readError) {
+			throw new UncheckedIOException(readError);
+		} catch (CertificateException invalidCert) {
+			throw new IllegalStateException("Content is not a valid X.509 certificate", invalidCert);
+		}
 	}
 	
 	/**
@@ -97,7 +153,8 @@ public abstract class AbstractEncapsulatedPKIDataTypeElement extends XadesElemen
 	
 	/**
 	 * Determines whether the other object is an instance of the same class and represents the same element, i.e. has
-	 * the same content.
+	 * the same content. The encoded data is compared by content, also when it is provided by a {@link ContentSource},
+	 * in which case it is read from the source. Data that cannot be read is not equal to any other data.
 	 * 
 	 * @param o 	the other object
 	 * @return 		<code>true</code> iff <code>o</code> represents the same element, i.e. has the same qualified name
@@ -109,8 +166,28 @@ public abstract class AbstractEncapsulatedPKIDataTypeElement extends XadesElemen
 			return false;
 		
 		AbstractEncapsulatedPKIDataTypeElement other = (AbstractEncapsulatedPKIDataTypeElement) o;
-		return Arrays.areEqual(this.data, other.data) && this.encoding == other.encoding
-				&& Utils.nullSafeEqual(this.id, other.id);
+		return this.encoding == other.encoding
+				&& Utils.nullSafeEqual(this.id, other.id)
+				&& (this.content == null && other.content == null ? Arrays.areEqual(this.data, other.data)
+																  : contentEquals(getContent(), other.getContent()));
+	}
+	
+	/**
+	 * Determines whether both sources provide the same content.
+	 * 
+	 * @param c1	the first source, may be <code>null</code>
+	 * @param c2	the second source, may be <code>null</code>
+	 * @return	<code>true</code> if both are <code>null</code> or provide the same content, <code>false</code> if the
+	 * 			content differs or cannot be read 
+	 */
+	static boolean contentEquals(final ContentSource c1, final ContentSource c2) {
+		if (c1 == null || c2 == null)
+			return c1 == c2;
+		try {
+			return c1.contentEquals(c2);
+		} catch (IOException readError) {
+			return false;
+		}
 	}
 	
 	@Override
@@ -119,11 +196,14 @@ public abstract class AbstractEncapsulatedPKIDataTypeElement extends XadesElemen
 	
 		// Write attributes
 		if (!Utils.isNullOrEmpty(id))
-			xwriter.writeIdAttribute("", Constants.XADES_132_NS_URI, "Id", id);    
+			xwriter.writeIdAttribute("", null, "Id", id);    
 		if (encoding != null)
-			xwriter.writeAttribute("", Constants.XADES_132_NS_URI, "Encoding", encoding.uri());
+			xwriter.writeAttribute("", null, "Encoding", encoding.uri());
 		// write the base64 encoded bytes
-		xwriter.writeCharacters(XMLUtils.encodeToString(data));		
+		if (content != null)
+			Base64Output.write(xwriter, content);
+		else
+			Base64Output.write(xwriter, data);
 	}
 
 }
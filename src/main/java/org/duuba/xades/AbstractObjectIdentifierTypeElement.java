@@ -135,7 +135,7 @@ public abstract class AbstractObjectIdentifierTypeElement extends XadesElement i
         // create and append Identifier element
 		xwriter.writeStartElement(nsPrefix, "Identifier", Constants.XADES_132_NS_URI);        
         if (qualifier != null)
-        	xwriter.writeAttribute("", Constants.XADES_132_NS_URI, "Qualifier", qualifier.toString());
+        	xwriter.writeAttribute("", null, "Qualifier", qualifier.toString());
         xwriter.writeCharacters(identifier);
         xwriter.writeEndElement();
         
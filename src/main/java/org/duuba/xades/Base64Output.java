@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
+
+import javax.xml.crypto.MarshalException;
+
+import org.apache.jcp.xml.dsig.internal.dom.XmlWriter;
+import org.apache.xml.security.utils.XMLUtils;
+
+/**
+ * Writes binary content Base64 encoded to a {@link XmlWriter} in fixed size chunks of text, so the complete encoded
+ * content does not need to be held in memory. The output is identical to the result of {@link
+ * XMLUtils#encodeToString(byte[])}, i.e. it includes line breaks after every 76 characters unless Santuario is
+ * configured to ignore line breaks.
+ * <p>Note that when the writer builds a DOM tree, each chunk results in a separate text node.
+ */
+final class Base64Output {
+
+	/**
+	 * The maximum number of characters written to the XML writer at once
+	 */
+	static final int CHUNK_SIZE = 64 * 1024;
+
+	private Base64Output() {}
+
+	/**
+	 * Writes the given bytes Base64 encoded to the XML writer.
+	 *
+	 * @param xwriter	the XML writer
+	 * @param data		the bytes to write
+	 */
+	static void write(final XmlWriter xwriter, final byte[] data) {
+		if (data.length <= CHUNK_SIZE / 2) {
+			// Small content fits in one chunk anyway
+			xwriter.writeCharacters(XMLUtils.encodeToString(data));
+			return;
+		}
+		try (OutputStream out = encoder().wrap(new TextChunkOutputStream(xwriter))) {
+			out.write(data);
+		} catch (IOException cannotHappen) {
+			throw new IllegalStateException(cannotHappen);
+		}
+	}
+
+	/**
+	 * Writes the content of the given source Base64 encoded to the XML writer.
+	 *
+	 * @param xwriter	the XML writer
+	 * @param content	the source of the content to write
+	 * @throws MarshalException when the content cannot be read
+	 */
+	static void write(final XmlWriter xwriter, final ContentSource content) throws MarshalException {
+		try (InputStream in = content.openStream();
+			 OutputStream out = encoder().wrap(new TextChunkOutputStream(xwriter))) {
+			final byte[] buffer = new byte[CHUNK_SIZE / 4 * 3];
+			int r;
+			while ((r = in.read(buffer)) >= 0)
+				out.write(buffer, 0, r);
+		} catch (IOException readError) {
+			throw new MarshalException("Could not read the content to include", readError);
+		}
+	}
+
+	/**
+	 * @return the Base64 encoder that produces the same output as {@link XMLUtils#encodeToString(byte[])}
+	 */
+	private static Base64.Encoder encoder() {
+		return XMLUtils.ignoreLineBreaks() ? Base64.getEncoder() : Base64.getMimeEncoder();
+	}
+
+	/**
+	 * Collects the encoded characters and writes them to the XML writer each time a chunk is full and when closed.
+	 */
+	private static final class TextChunkOutputStream extends OutputStream {
+		private final XmlWriter	xwriter;
+		private final char[]	chunk = new char[CHUNK_SIZE];
+		private int				length;
+
+		TextChunkOutputStream(final XmlWriter xwriter) {
+			this.xwriter = xwriter;
+		}
+
+		@Override
+		public void write(final int b) {
+			if (length == chunk.length)
+				flush();
+			chunk[length++] = (char) b;
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) {
+			while (len > 0) {
+				if (length == chunk.length)
+					flush();
+				final int n = Math.min(len, chunk.length - length);
+				for (int i = 0; i < n; i++)
+					chunk[length++] = (char) b[off++];
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() {
+			if (length > 0)
+				xwriter.writeCharacters(new String(chunk, 0, length));
+			length = 0;
+		}
+
+		@Override
+		public void close() {
+			flush();
+		}
+	}
+}
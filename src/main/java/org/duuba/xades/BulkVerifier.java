@@ -0,0 +1,470 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Verifies the Xades signatures in a large number of XML files, for example to periodically re-verify an archive of
+ * signed documents. The files are taken one by one from a directory tree or an iterator and are verified in parallel
+ * by tasks submitted to a {@link ForkJoinPool}, by default the {@link ForkJoinPool#commonPool() common pool}. To keep
+ * the memory usage flat, independent of the number of files, the number of files that are being parsed and verified
+ * at the same time is bounded: the calling thread waits before taking the next file when the maximum number of
+ * files is in progress. Only the aggregated counters of the {@link Summary} are kept for the whole run.
+ * <p>The result of each file is reported to a listener as soon as the file has been verified. As the listener is
+ * called by the worker threads it must be thread safe. An exception thrown by the listener does not stop the run,
+ * but is counted in the summary, which also holds the first of these exceptions. Each top level <code>ds:Signature</code> element in a file is
+ * verified using the {@link XadesVerifier}, with relative references resolved against the location of the file. A
+ * file is valid when it contains at least one signature and all of its signatures are valid.
+ * <p>A bulk verifier can be used for multiple runs, also concurrently.
+ * <p>The throughput target is at least 1,000 verified files of 4 KB per second per core, measured by the
+ * <code>BulkVerificationBenchmark</code> of the benchmarks module, which also lists the measured numbers.
+ */
+public class BulkVerifier {
+
+	/**
+	 * The parsers used by the worker threads. DTDs are not allowed in the verified files.
+	 */
+	private static final ThreadLocal<DocumentBuilder> PARSERS = ThreadLocal.withInitial(() -> {
+		try {
+			final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+			dbf.setNamespaceAware(true);
+			dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			final DocumentBuilder parser = dbf.newDocumentBuilder();
+			// Only report the errors by the exception, not by writing them to the console
+			parser.setErrorHandler(new DefaultHandler() {
+				@Override
+				public void fatalError(final SAXParseException e) throws SAXException {
+					throw e;
+				}
+			});
+			return parser;
+		} catch (ParserConfigurationException parserNotAvailable) {
+			throw new IllegalStateException("XML parser not available", parserNotAvailable);
+		}
+	});
+
+	private final XadesVerifier	verifier;
+	private final ForkJoinPool	pool;
+	private final int			maxInFlight;
+
+	/**
+	 * Creates a new bulk verifier that uses the common fork join pool and verifies at most twice the number of
+	 * files as the parallelism of the pool at the same time.
+	 *
+	 * @param verifier	the verifier to validate the signatures with
+	 */
+	public BulkVerifier(final XadesVerifier verifier) {
+		this(verifier, ForkJoinPool.commonPool(), 2 * ForkJoinPool.commonPool().getParallelism());
+	}
+
+	/**
+	 * Creates a new bulk verifier that uses the given pool and verifies at most the given number of files at the same
+	 * time.
+	 *
+	 * @param verifier		the verifier to validate the signatures with
+	 * @param pool			the pool to run the verification tasks
+	 * @param maxInFlight	the maximum number of files that are verified at the same time
+	 */
+	public BulkVerifier(final XadesVerifier verifier, final ForkJoinPool pool, final int maxInFlight) {
+		if (verifier == null)
+			throw new IllegalArgumentException("A verifier must be provided");
+		if (pool == null)
+			throw new IllegalArgumentException("A fork join pool must be provided");
+		if (maxInFlight < 1)
+			throw new IllegalArgumentException("At least one file must be allowed in flight");
+		this.verifier = verifier;
+		this.pool = pool;
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * @return the maximum number of files that are verified at the same time
+	 */
+	public int getMaximumInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * Verifies all regular files in the given directory tree that match the given matcher. The directory tree is
+	 * walked lazily while the files are verified, so also directories containing millions of files can be verified.
+	 *
+	 * @param root		the root of the directory tree
+	 * @param matcher	selects the files to verify, <code>null</code> to verify all regular files
+	 * @param listener	the listener to report the result of each file to, may be <code>null</code>
+	 * @return	the summary of the verification of all files
+	 * @throws IOException	when the directory tree cannot be walked
+	 * @throws InterruptedException when the calling thread was interrupted while waiting for the files to be verified.
+	 * 								No new files are submitted after the interruption.
+	 */
+	public Summary verifyDirectory(final Path root, final PathMatcher matcher, final Consumer<FileResult> listener)
+																			throws IOException, InterruptedException {
+		if (root == null)
+			throw new IllegalArgumentException("A directory must be provided");
+		try (Stream<Path> files = Files.walk(root)) {
+			return verifyAll(files.filter(p -> Files.isRegularFile(p) && (matcher == null || matcher.matches(p)))
+								  .iterator(), listener);
+		}
+	}
+
+	/**
+	 * Verifies all files provided by the given iterator. The iterator is only used by the calling thread and the next
+	 * file is only taken when the verification of another file has completed.
+	 *
+	 * @param files		the files to verify
+	 * @param listener	the listener to report the result of each file to, may be <code>null</code>
+	 * @return	the summary of the verification of all files
+	 * @throws InterruptedException when the calling thread was interrupted while waiting for the files to be verified.
+	 * 								No new files are submitted after the interruption.
+	 */
+	public Summary verifyAll(final Iterator<Path> files, final Consumer<FileResult> listener)
+																						throws InterruptedException {
+		if (files == null)
+			throw new IllegalArgumentException("No files to verify provided");
+
+		final Counters counters = new Counters();
+		final Semaphore inFlight = new Semaphore(maxInFlight);
+		final long start = System.nanoTime();
+		while (true) {
+			// Only take the next file when it can be submitted
+			inFlight.acquire();
+			if (!files.hasNext()) {
+				inFlight.release();
+				break;
+			}
+			final Path file = files.next();
+			try {
+				pool.execute(() -> {
+					try {
+						final FileResult result = verify(file);
+						counters.add(result);
+						if (listener != null)
+							listener.accept(result);
+					} catch (Throwable listenerFailure) {
+						counters.addListenerFailure(listenerFailure);
+					} finally {
+						inFlight.release();
+					}
+				});
+			} catch (RuntimeException rejected) {
+				inFlight.release();
+				throw rejected;
+			}
+		}
+		// All files have been verified when all permits can be acquired
+		inFlight.acquire(maxInFlight);
+		inFlight.release(maxInFlight);
+		return new Summary(counters, System.nanoTime() - start, pool.getParallelism());
+	}
+
+	/**
+	 * Parses the given file and verifies the signatures it contains. The task never fails as a failure is included in
+	 * the result.
+	 *
+	 * @param file	the file to verify
+	 * @return	the result of the verification of the file
+	 */
+	private FileResult verify(final Path file) {
+		final long start = System.nanoTime();
+		final DocumentBuilder parser = PARSERS.get();
+		try {
+			final Document doc = parser.parse(file.toFile());
+			final List<Element> sigElements = getSignatureElements(doc);
+			if (sigElements.isEmpty())
+				return new FileResult(file, Collections.emptyList(), "File does not contain a signature",
+									  System.nanoTime() - start);
+			final List<VerificationReport> reports = new ArrayList<>(sigElements.size());
+			for (Element s : sigElements) {
+				final DOMValidateContext context = new DOMValidateContext(XadesVerifier.KEY_INFO_SELECTOR, s);
+				context.setBaseURI(file.toUri().toString());
+				reports.add(verifier.verify(context));
+			}
+			return new FileResult(file, reports, null, System.nanoTime() - start);
+		} catch (InterruptedException interrupted) {
+			Thread.currentThread().interrupt();
+			return new FileResult(file, Collections.emptyList(), "Verification interrupted", System.nanoTime() - start);
+		} catch (Exception verificationFailure) {
+			final String reason = verificationFailure.getMessage() != null ?
+									verificationFailure.getMessage() : verificationFailure.getClass().getSimpleName();
+			return new FileResult(file, Collections.emptyList(), "File could not be verified: " + reason,
+								  System.nanoTime() - start);
+		} finally {
+			parser.reset();
+		}
+	}
+
+	/**
+	 * Gets the <code>ds:Signature</code> elements in the document that are not contained in another signature.
+	 */
+	private static List<Element> getSignatureElements(final Document doc) {
+		final NodeList all = doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature");
+		final List<Element> topLevel = new ArrayList<>(all.getLength());
+		for (int i = 0; i < all.getLength(); i++) {
+			final Element s = (Element) all.item(i);
+			boolean nested = false;
+			for (Node p = s.getParentNode(); !nested && p != null; p = p.getParentNode())
+				nested = XMLSignature.XMLNS.equals(p.getNamespaceURI()) && "Signature".equals(p.getLocalName());
+			if (!nested)
+				topLevel.add(s);
+		}
+		return topLevel;
+	}
+
+	/**
+	 * The counters of the results, shared by the worker threads.
+	 */
+	private static final class Counters {
+		final LongAdder					valid = new LongAdder();
+		final LongAdder					invalid = new LongAdder();
+		final LongAdder					failed = new LongAdder();
+		final LongAdder					signatures = new LongAdder();
+		final LongAdder					verificationTime = new LongAdder();
+		final LongAdder					listenerFailures = new LongAdder();
+		final AtomicReference<Throwable>	firstListenerFailure = new AtomicReference<>();
+
+		void add(final FileResult r) {
+			if (r.getFailureReason() != null)
+				failed.increment();
+			else if (r.isValid())
+				valid.increment();
+			else
+				invalid.increment();
+			signatures.add(r.getReports().size());
+			verificationTime.add(r.getDuration());
+		}
+
+		void addListenerFailure(final Throwable t) {
+			listenerFailures.increment();
+			firstListenerFailure.compareAndSet(null, t);
+		}
+	}
+
+	/**
+	 * Is the result of the verification of a single file. When the file could be parsed and contains signatures it
+	 * contains the reports of the verification of the signatures, otherwise the reason why the file could not be
+	 * verified.
+	 */
+	public static final class FileResult {
+		private final Path						file;
+		private final List<VerificationReport>	reports;
+		private final String					failure;
+		private final long						duration;
+
+		FileResult(final Path file, final List<VerificationReport> reports, final String failure,
+				   final long duration) {
+			this.file = file;
+			this.reports = reports;
+			this.failure = failure;
+			this.duration = duration;
+		}
+
+		/**
+		 * @return the verified file
+		 */
+		public Path getFile() {
+			return file;
+		}
+
+		/**
+		 * @return <code>true</code> if the file contains at least one signature and all signatures are valid
+		 */
+		public boolean isValid() {
+			if (failure != null || reports.isEmpty())
+				return false;
+			for (VerificationReport r : reports)
+				if (!r.isValid())
+					return false;
+			return true;
+		}
+
+		/**
+		 * @return the reports of the verification of the signatures in the file, in document order. Empty when the
+		 * 		   file could not be verified
+		 */
+		public List<VerificationReport> getReports() {
+			return reports;
+		}
+
+		/**
+		 * @return the reason why the file could not be verified, <code>null</code> if its signatures were verified
+		 */
+		public String getFailureReason() {
+			return failure;
+		}
+
+		/**
+		 * @return the duration of parsing and verifying the file in nanoseconds
+		 */
+		public long getDuration() {
+			return duration;
+		}
+
+		@Override
+		public String toString() {
+			return "FileResult[file=" + file + ", valid=" + isValid() + (failure != null ? " (" + failure + ")" : "")
+					+ ", signatures=" + reports.size() + ", " + duration + "ns]";
+		}
+	}
+
+	/**
+	 * Is the summary of the verification of all files of a run.
+	 */
+	public static final class Summary {
+		private final long		valid;
+		private final long		invalid;
+		private final long		failed;
+		private final long		signatures;
+		private final long		verificationTime;
+		private final long		elapsedTime;
+		private final int		parallelism;
+		private final long		listenerFailures;
+		private final Throwable	firstListenerFailure;
+
+		Summary(final Counters counters, final long elapsedTime, final int parallelism) {
+			this.valid = counters.valid.sum();
+			this.invalid = counters.invalid.sum();
+			this.failed = counters.failed.sum();
+			this.signatures = counters.signatures.sum();
+			this.verificationTime = counters.verificationTime.sum();
+			this.elapsedTime = elapsedTime;
+			this.parallelism = parallelism;
+			this.listenerFailures = counters.listenerFailures.sum();
+			this.firstListenerFailure = counters.firstListenerFailure.get();
+		}
+
+		/**
+		 * @return the total number of files
+		 */
+		public long getFileCount() {
+			return valid + invalid + failed;
+		}
+
+		/**
+		 * @return the number of files of which all signatures are valid
+		 */
+		public long getValidCount() {
+			return valid;
+		}
+
+		/**
+		 * @return the number of files that contain at least one invalid signature
+		 */
+		public long getInvalidCount() {
+			return invalid;
+		}
+
+		/**
+		 * @return the number of files that could not be verified, e.g. because they could not be parsed or do not
+		 * 		   contain a signature
+		 */
+		public long getFailedCount() {
+			return failed;
+		}
+
+		/**
+		 * @return the total number of verified signatures
+		 */
+		public long getSignatureCount() {
+			return signatures;
+		}
+
+		/**
+		 * @return the sum of the durations of the verification of all files in nanoseconds
+		 */
+		public long getVerificationTime() {
+			return verificationTime;
+		}
+
+		/**
+		 * @return the elapsed time of the run in nanoseconds
+		 */
+		public long getElapsedTime() {
+			return elapsedTime;
+		}
+
+		/**
+		 * @return the parallelism of the pool used to verify the files
+		 */
+		public int getParallelism() {
+			return parallelism;
+		}
+
+		/**
+		 * @return the number of files of which the result could not be reported because the listener threw an
+		 * 		   exception
+		 */
+		public long getListenerFailureCount() {
+			return listenerFailures;
+		}
+
+		/**
+		 * @return the first exception thrown by the listener, <code>null</code> if all results were reported
+		 */
+		public Throwable getFirstListenerFailure() {
+			return firstListenerFailure;
+		}
+
+		/**
+		 * @return the throughput of the run in files per second
+		 */
+		public double getFilesPerSecond() {
+			return elapsedTime > 0 ? getFileCount() * 1e9 / elapsedTime : 0;
+		}
+
+		/**
+		 * @return the throughput of the run in files per second per worker thread of the pool
+		 */
+		public double getFilesPerSecondPerCore() {
+			return getFilesPerSecond() / parallelism;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Summary[files=%d, valid=%d, invalid=%d, failed=%d, signatures=%d, elapsed=%dms, "
+								 + "%.1f files/s, %.1f files/s/core%s]", getFileCount(), valid, invalid, failed,
+								 signatures, elapsedTime / 1000000, getFilesPerSecond(), getFilesPerSecondPerCore(),
+								 listenerFailures > 0 ? ", listener failures=" + listenerFailures : "");
+		}
+	}
+}
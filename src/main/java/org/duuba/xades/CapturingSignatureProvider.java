@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.io.ByteArrayOutputStream;
+import java.security.InvalidKeyException;
+import java.security.InvalidParameterException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.SignatureSpi;
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * Is a security provider used in the first phase of two-phase signing to capture the data to be signed, i.e. the
+ * canonicalised <code>SignedInfo</code>, when the XML signature is signed. It provides a single signature algorithm
+ * which does not calculate a signature but only collects the data it is given and returns a placeholder value that
+ * will be replaced by the actual signature value in the second phase. As the provider holds the captured data, a new
+ * instance must be used for each signature.
+ */
+final class CapturingSignatureProvider extends Provider {
+	private static final long serialVersionUID = 4373316094117208254L;
+
+	/**
+	 * The name of the XML signing context property to set the provider to use for the signature algorithm
+	 */
+	static final String SIGNATURE_PROVIDER_PROPERTY = "org.jcp.xml.dsig.internal.dom.SignatureProvider";
+
+	/**
+	 * The key used to "sign" the data. As the signature is not calculated, this is just a placeholder.
+	 */
+	static final PrivateKey PLACEHOLDER_KEY = new PrivateKey() {
+		private static final long serialVersionUID = -3096318231226385020L;
+
+		@Override
+		public String getAlgorithm() {
+			return "NONE";
+		}
+
+		@Override
+		public String getFormat() {
+			return null;
+		}
+
+		@Override
+		public byte[] getEncoded() {
+			return null;
+		}
+	};
+
+	/**
+	 * The placeholder signature value. Its structure is a DER encoded ECDSA signature value as Santuario converts
+	 * ECDSA values to their XML Signature representation, for other algorithms the value is used as is.
+	 */
+	private static final byte[] PLACEHOLDER_VALUE = new byte[] { 0x30, 0x06, 0x02, 0x01, 0x01, 0x02, 0x01, 0x01 };
+
+	private final ByteArrayOutputStream captured = new ByteArrayOutputStream(1024);
+
+	/**
+	 * Creates a new provider that captures the data for the given signature algorithm.
+	 *
+	 * @param jcaAlgorithm	the JCA name of the signature algorithm
+	 */
+	@SuppressWarnings("deprecation")
+	CapturingSignatureProvider(final String jcaAlgorithm) {
+		super("DuubaCapture", 1.0, "Captures the data to be signed");
+		final CapturingSpi spi = new CapturingSpi();
+		putService(new Service(this, "Signature", jcaAlgorithm, CapturingSpi.class.getName(), null, null) {
+			@Override
+			public Object newInstance(final Object constructorParameter) {
+				return spi;
+			}
+		});
+	}
+
+	/**
+	 * @return the data that was given to the signature algorithm
+	 */
+	byte[] getCapturedData() {
+		return captured.toByteArray();
+	}
+
+	/**
+	 * The signature implementation that captures the data to be signed.
+	 */
+	private final class CapturingSpi extends SignatureSpi {
+
+		@Override
+		protected void engineInitSign(final PrivateKey privateKey) throws InvalidKeyException {
+			captured.reset();
+		}
+
+		@Override
+		protected void engineUpdate(final byte b) throws SignatureException {
+			captured.write(b);
+		}
+
+		@Override
+		protected void engineUpdate(final byte[] b, final int off, final int len) throws SignatureException {
+			captured.write(b, off, len);
+		}
+
+		@Override
+		protected byte[] engineSign() throws SignatureException {
+			return PLACEHOLDER_VALUE.clone();
+		}
+
+		@Override
+		protected void engineInitVerify(final PublicKey publicKey) throws InvalidKeyException {
+			throw new InvalidKeyException("Verification is not supported");
+		}
+
+		@Override
+		protected boolean engineVerify(final byte[] sigBytes) throws SignatureException {
+			throw new SignatureException("Verification is not supported");
+		}
+
+		@Override
+		protected void engineSetParameter(final AlgorithmParameterSpec params) {
+			// The parameters only affect the signature calculation, so they can be ignored
+		}
+
+		@Override
+		@Deprecated
+		protected void engineSetParameter(final String param, final Object value) throws InvalidParameterException {
+			throw new InvalidParameterException("Parameters are not supported");
+		}
+
+		@Override
+		@Deprecated
+		protected Object engineGetParameter(final String param) throws InvalidParameterException {
+			throw new InvalidParameterException("Parameters are not supported");
+		}
+	}
+}
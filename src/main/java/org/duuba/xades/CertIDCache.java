@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.apache.xml.security.utils.XMLUtils;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+
+/**
+ * Is a bounded cache of the certificate information included in the <code>Cert</code> elements of the <code>
+ * SigningCertificate</code> and <code>SigningCertificateV2</code> qualifying properties. As the same certificates are
+ * normally used to create many signatures, this cache prevents that the digest of the certificate and the encoding of
+ * its issuer and serial number are calculated again for each signature.
+ * <p>The cache is keyed by the DER encoding of the certificate and the URI of the digest algorithm. Although the hash
+ * code of the encoding is used for the lookup, the complete encoding is compared so two different certificates can
+ * never share an entry. When the maximum number of entries is reached an arbitrary entry is removed before a new one
+ * is added. The cache is safe to use by multiple threads.
+ * <p>The cache used by the {@link SigningCertificate} and {@link SigningCertificateV2} elements can be retrieved using
+ * {@link #getInstance()}.
+ */
+public final class CertIDCache {
+	/**
+	 * The default maximum number of entries in the cache
+	 */
+	public static final int DEFAULT_MAX_SIZE = 256;
+
+	private static final CertIDCache INSTANCE = new CertIDCache(DEFAULT_MAX_SIZE);
+
+	private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+	private final LongAdder	hits = new LongAdder();
+	private final LongAdder	misses = new LongAdder();
+	private volatile int	maxSize;
+
+	/**
+	 * Creates a new cache with the given maximum size.
+	 *
+	 * @param maxSize	the maximum number of entries
+	 */
+	CertIDCache(final int maxSize) {
+		setMaximumSize(maxSize);
+	}
+
+	/**
+	 * @return the cache used when creating the <code>SigningCertificate(V2)</code> elements
+	 */
+	public static CertIDCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Sets the maximum number of entries in the cache. When the cache currently contains more entries than the new
+	 * maximum, the surplus will be removed when the next entry is added.
+	 *
+	 * @param maxSize	the maximum number of entries, a value of 0 disables caching
+	 */
+	public void setMaximumSize(final int maxSize) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException("Maximum size must not be negative");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the maximum number of entries in the cache
+	 */
+	public int getMaximumSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the current number of entries in the cache
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of look ups for which the information was available in the cache
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of look ups for which the information had to be calculated
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Removes all entries from the cache and resets the hit and miss counters.
+	 */
+	public void clear() {
+		entries.clear();
+		hits.reset();
+		misses.reset();
+	}
+
+	/**
+	 * Gets the information on the given certificate that is needed to create a <code>Cert</code> element, using the
+	 * specified digest algorithm for the certificate digest.
+	 *
+	 * @param cert			the certificate
+	 * @param digestMethod	URI of the digest algorithm
+	 * @return	the certificate information
+	 * @throws CertificateEncodingException	when the certificate cannot be DER encoded
+	 * @throws NoSuchAlgorithmException		when the specified digest algorithm is not available
+	 */
+	Entry get(final X509Certificate cert, final String digestMethod) throws CertificateEncodingException,
+																			 NoSuchAlgorithmException {
+		if (digestMethod == null)
+			throw new NoSuchAlgorithmException();
+
+		final CertDigestEvent event = new CertDigestEvent();
+		event.begin();
+		final byte[] encoded = cert.getEncoded();
+		final Key key = new Key(encoded, digestMethod);
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			hits.increment();
+			commit(event, cert, encoded, digestMethod, true);
+			return entry;
+		}
+
+		misses.increment();
+		entry = new Entry(cert, encoded, digestMethod);
+		if (maxSize > 0) {
+			// Make room for the new entry if needed
+			final Iterator<Key> keys = entries.keySet().iterator();
+			while (entries.size() >= maxSize && keys.hasNext()) {
+				keys.next();
+				keys.remove();
+			}
+			final Entry existing = entries.putIfAbsent(key, entry);
+			if (existing != null)
+				entry = existing;
+		}
+		commit(event, cert, encoded, digestMethod, false);
+		return entry;
+	}
+
+	/**
+	 * Commits the Flight Recorder event for the look up of the certificate information, if it is recorded.
+	 */
+	private static void commit(final CertDigestEvent event, final X509Certificate cert, final byte[] encoded,
+							   final String digestMethod, final boolean cached) {
+		if (!event.shouldCommit())
+			return;
+		event.digestAlgorithm = digestMethod;
+		event.subject = cert.getSubjectX500Principal().getName();
+		event.certificateSize = encoded.length;
+		event.cached = cached;
+		event.commit();
+	}
+
+	/**
+	 * The key of the cache, i.e. the combination of certificate encoding and digest algorithm.
+	 */
+	private static final class Key {
+		private final byte[]	encoded;
+		private final String	digestMethod;
+		private final int		hash;
+
+		Key(final byte[] encoded, final String digestMethod) {
+			this.encoded = encoded;
+			this.digestMethod = digestMethod;
+			this.hash = 31 * Arrays.hashCode(encoded) + digestMethod.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+			final Key other = (Key) o;
+			return hash == other.hash && digestMethod.equals(other.digestMethod)
+				&& Arrays.equals(encoded, other.encoded);
+		}
+	}
+
+	/**
+	 * Contains the information about a certificate that is included in a <code>Cert</code> element. The encoded
+	 * <code>IssuerSerialV2</code> is only calculated when it is first requested.
+	 */
+	static final class Entry {
+		private final String		digestMethod;
+		private final byte[]		digestValue;
+		private final String		issuerName;
+		private final BigInteger	serialNo;
+		private volatile String		issuerSerialV2;
+
+		/**
+		 * Calculates the information for the given certificate.
+		 *
+		 * @param cert			the certificate
+		 * @param digestMethod	URI of the digest algorithm
+		 * @throws CertificateEncodingException	when the certificate cannot be DER encoded
+		 * @throws NoSuchAlgorithmException		when the specified digest algorithm is not available
+		 */
+		Entry(final X509Certificate cert, final String digestMethod) throws CertificateEncodingException,
+																			NoSuchAlgorithmException {
+			this(cert, cert.getEncoded(), digestMethod);
+		}
+
+		private Entry(final X509Certificate cert, final byte[] encoded, final String digestMethod)
+																					throws NoSuchAlgorithmException {
+			final String algId = digestMethod != null ? JCEMapper.translateURItoJCEID(digestMethod) : null;
+			if (algId == null)
+				throw new NoSuchAlgorithmException();
+			this.digestMethod = digestMethod;
+			this.digestValue = MessageDigest.getInstance(algId).digest(encoded);
+			this.issuerName = cert.getIssuerX500Principal().getName();
+			this.serialNo = cert.getSerialNumber();
+		}
+
+		String getDigestMethod() {
+			return digestMethod;
+		}
+
+		/**
+		 * @return a copy of the certificate's digest value
+		 */
+		byte[] getDigestValue() {
+			return digestValue.clone();
+		}
+
+		String getIssuerName() {
+			return issuerName;
+		}
+
+		BigInteger getSerialNo() {
+			return serialNo;
+		}
+
+		/**
+		 * @return the base64 encoded DER encoding of the <code>IssuerSerial</code> structure as defined in RFC5035
+		 * @throws CertificateEncodingException when the issuer and serial number cannot be encoded
+		 */
+		String getIssuerSerialV2() throws CertificateEncodingException {
+			String encoded = issuerSerialV2;
+			if (encoded == null) {
+				encoded = encodeIssuerSerialV2(issuerName, serialNo);
+				issuerSerialV2 = encoded;
+			}
+			return encoded;
+		}
+	}
+
+	/**
+	 * Encodes the given issuer name and serial number as the content of the <code>IssuerSerialV2</code> element.
+	 *
+	 * @param issuerName	the issuer name
+	 * @param serialNo		the serial number
+	 * @return the base64 encoded DER encoding of the <code>IssuerSerial</code> structure as defined in RFC5035
+	 * @throws CertificateEncodingException when the issuer and serial number cannot be encoded
+	 */
+	static String encodeIssuerSerialV2(final String issuerName, final BigInteger serialNo)
+																		throws CertificateEncodingException {
+		try {
+			final GeneralName generalName = new GeneralName(GeneralName.directoryName, issuerName);
+			final GeneralNames generalNames = new GeneralNames(generalName);
+			final org.bouncycastle.asn1.x509.IssuerSerial issuerSerial =
+												new org.bouncycastle.asn1.x509.IssuerSerial(generalNames, serialNo);
+			return XMLUtils.encodeToString(issuerSerial.getEncoded("DER"));
+		} catch (Exception e) {
+			throw new CertificateEncodingException("Could not extract Issuer / SerialNo from certificate");
+		}
+	}
+}
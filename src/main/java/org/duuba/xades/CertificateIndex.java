@@ -0,0 +1,394 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import javax.xml.crypto.dsig.DigestMethod;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.duuba.xades.AbstractCertIDTypeElement.CertDigest;
+import org.duuba.xades.AbstractCertIDTypeElement.IssuerSerial;
+
+/**
+ * Is an index of certificates that finds the certificate identified by the <code>CertDigest</code> or <code>
+ * IssuerSerial(V2)</code> of a <code>Cert</code> element of the <code>SigningCertificate(V2)</code> property in
+ * constant time, without calculating the digest of the candidate certificates or decoding them.
+ * <p>The certificates are indexed by their digest for each of the digest algorithms specified when the index is
+ * created and by their issuer and serial number. To keep the memory footprint low also when hundreds of thousands of
+ * certificates are indexed, only the DER encoding of the certificates is kept and a certificate is decoded when it is
+ * found. The issuer name is indexed by its hash code, which like the comparison of the issuer names in {@link
+ * XadesVerifier}, does not depend on the order of the RDNs, and the issuer name of a found certificate is compared
+ * completely.
+ * <p>An index can be populated from key stores, directories or individual certificates and is safe to use by multiple
+ * threads, also while certificates are added.
+ *
+ * @see XadesVerifier#XadesVerifier(XadesSignatureFactory, java.util.concurrent.Executor, CertificateIndex)
+ */
+public final class CertificateIndex {
+	/**
+	 * The digest algorithms for which the certificates are indexed by default
+	 */
+	public static final List<String> DEFAULT_DIGEST_METHODS = Collections.unmodifiableList(
+									Arrays.asList(DigestMethod.SHA1, DigestMethod.SHA256, DigestMethod.SHA512));
+
+	private static final ThreadLocal<CertificateFactory> CERT_FACTORIES = ThreadLocal.withInitial(() -> {
+		try {
+			return CertificateFactory.getInstance("X.509");
+		} catch (CertificateException notAvailable) {
+			throw new IllegalStateException("X.509 certificate factory not available", notAvailable);
+		}
+	});
+
+	private final Map<String, String>								algIds;
+	private final Map<String, ConcurrentHashMap<DigestKey, byte[]>>	byDigest;
+	private final ConcurrentHashMap<IssuerSerialKey, byte[][]>		byIssuerSerial = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<DigestKey, byte[]>				primary;
+	private final String											primaryMethod;
+
+	/**
+	 * Creates a new, empty index that indexes the certificates by their digest for the {@link
+	 * #DEFAULT_DIGEST_METHODS default} digest algorithms.
+	 */
+	public CertificateIndex() {
+		this(DEFAULT_DIGEST_METHODS.toArray(new String[0]));
+	}
+
+	/**
+	 * Creates a new, empty index that indexes the certificates by their digest for the given digest algorithms.
+	 *
+	 * @param digestMethods	URIs of the digest algorithms to index the certificates for
+	 * @throws IllegalArgumentException when no digest algorithm is specified or one of them is not available
+	 */
+	public CertificateIndex(final String... digestMethods) {
+		if (digestMethods == null || digestMethods.length == 0)
+			throw new IllegalArgumentException("At least one digest algorithm must be specified");
+		// The mapping of the algorithm URIs is only available once the Santuario library is initialised
+		Init.init();
+		this.algIds = new HashMap<>(digestMethods.length * 2);
+		this.byDigest = new LinkedHashMap<>(digestMethods.length * 2);
+		for (String dm : digestMethods) {
+			final String algId = dm != null ? JCEMapper.translateURItoJCEID(dm) : null;
+			try {
+				if (algId == null)
+					throw new NoSuchAlgorithmException();
+				MessageDigest.getInstance(algId);
+			} catch (NoSuchAlgorithmException unknown) {
+				throw new IllegalArgumentException("Digest algorithm not available: " + dm);
+			}
+			algIds.put(dm, algId);
+			byDigest.put(dm, new ConcurrentHashMap<>());
+		}
+		this.primaryMethod = digestMethods[0];
+		this.primary = byDigest.get(primaryMethod);
+	}
+
+	/**
+	 * @return the URIs of the digest algorithms for which the certificates are indexed
+	 */
+	public List<String> getDigestMethods() {
+		return Collections.unmodifiableList(Arrays.asList(byDigest.keySet().toArray(new String[0])));
+	}
+
+	/**
+	 * @param digestMethod	URI of a digest algorithm
+	 * @return	<code>true</code> if the certificates are indexed by their digest for the given algorithm
+	 */
+	public boolean isIndexed(final String digestMethod) {
+		return digestMethod != null && byDigest.containsKey(digestMethod);
+	}
+
+	/**
+	 * @return the number of certificates in the index
+	 */
+	public int size() {
+		return primary.size();
+	}
+
+	/**
+	 * Adds the given certificate to the index.
+	 *
+	 * @param cert	the certificate to add
+	 * @return	<code>true</code> if the certificate was added, <code>false</code> if it was already in the index
+	 * @throws CertificateEncodingException when the certificate cannot be DER encoded
+	 */
+	public boolean add(final X509Certificate cert) throws CertificateEncodingException {
+		if (cert == null)
+			throw new IllegalArgumentException("No certificate provided");
+		final byte[] encoded = cert.getEncoded();
+		// The certificate is only indexed by the thread that added it to the primary index
+		if (primary.putIfAbsent(new DigestKey(digest(primaryMethod, encoded)), encoded) != null)
+			return false;
+		for (Map.Entry<String, ConcurrentHashMap<DigestKey, byte[]>> e : byDigest.entrySet())
+			if (e.getValue() != primary)
+				e.getValue().put(new DigestKey(digest(e.getKey(), encoded)), encoded);
+		final IssuerSerialKey key = new IssuerSerialKey(
+							X500Name.getInstance(cert.getIssuerX500Principal().getEncoded()).hashCode(),
+							cert.getSerialNumber());
+		byIssuerSerial.merge(key, new byte[][] { encoded }, (existing, added) -> {
+			final byte[][] merged = Arrays.copyOf(existing, existing.length + 1);
+			merged[existing.length] = added[0];
+			return merged;
+		});
+		return true;
+	}
+
+	/**
+	 * Adds all X.509 certificates contained in the given key store to the index, i.e. both the trusted certificates
+	 * and the certificate chains of the private keys.
+	 *
+	 * @param keyStore	the loaded key store
+	 * @return	the number of certificates added to the index
+	 * @throws KeyStoreException when the certificates cannot be read from the key store
+	 * @throws CertificateEncodingException when a certificate cannot be DER encoded
+	 */
+	public int addAll(final KeyStore keyStore) throws KeyStoreException, CertificateEncodingException {
+		if (keyStore == null)
+			throw new IllegalArgumentException("No key store provided");
+		int added = 0;
+		final Enumeration<String> aliases = keyStore.aliases();
+		while (aliases.hasMoreElements()) {
+			final String alias = aliases.nextElement();
+			final Certificate[] chain = keyStore.isKeyEntry(alias) ? keyStore.getCertificateChain(alias)
+														: new Certificate[] { keyStore.getCertificate(alias) };
+			if (chain != null)
+				for (Certificate c : chain)
+					if (c instanceof X509Certificate && add((X509Certificate) c))
+						added++;
+		}
+		return added;
+	}
+
+	/**
+	 * Adds the certificates contained in the regular files in the given directory tree that match the given matcher to
+	 * the index. A file may contain one or more DER or PEM encoded certificates. The directory tree is walked lazily,
+	 * so also directories containing very many certificate files can be indexed.
+	 *
+	 * @param root		the root of the directory tree
+	 * @param matcher	selects the files to read, <code>null</code> to read all regular files
+	 * @return	the number of certificates added to the index
+	 * @throws IOException	when the directory tree cannot be walked or a selected file does not contain certificates
+	 */
+	public int addDirectory(final Path root, final PathMatcher matcher) throws IOException {
+		if (root == null)
+			throw new IllegalArgumentException("A directory must be provided");
+		int added = 0;
+		try (Stream<Path> files = Files.walk(root)) {
+			final Iterator<Path> it = files.filter(p -> Files.isRegularFile(p) && (matcher == null
+																				   || matcher.matches(p))).iterator();
+			while (it.hasNext()) {
+				final Path file = it.next();
+				try (InputStream is = Files.newInputStream(file)) {
+					final Collection<? extends Certificate> certs = CERT_FACTORIES.get().generateCertificates(is);
+					if (certs.isEmpty())
+						throw new CertificateException("No certificates found");
+					for (Certificate c : certs)
+						if (c instanceof X509Certificate && add((X509Certificate) c))
+							added++;
+				} catch (CertificateException invalidFile) {
+					throw new IOException("Could not read certificates from " + file, invalidFile);
+				}
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Finds the certificate with the given digest.
+	 *
+	 * @param digestMethod	URI of the digest algorithm
+	 * @param digestValue	the digest value of the certificate
+	 * @return	the certificate with the given digest, or <code>null</code> if there is no such certificate in the
+	 * 			index or the certificates are not indexed for the given digest algorithm
+	 */
+	public X509Certificate findByDigest(final String digestMethod, final byte[] digestValue) {
+		final ConcurrentHashMap<DigestKey, byte[]> index = digestMethod != null ? byDigest.get(digestMethod) : null;
+		if (index == null || digestValue == null)
+			return null;
+		final byte[] encoded = index.get(new DigestKey(digestValue));
+		return encoded != null ? decode(encoded) : null;
+	}
+
+	/**
+	 * Finds the certificate with the given issuer and serial number. The issuer names are compared independently of
+	 * the order of their RDNs.
+	 *
+	 * @param issuerName	the issuer name as string representation of the distinguished name
+	 * @param serialNo		the serial number
+	 * @return	the certificate with the given issuer and serial number, or <code>null</code> if there is no such
+	 * 			certificate in the index
+	 */
+	public X509Certificate findByIssuerSerial(final String issuerName, final BigInteger serialNo) {
+		if (issuerName == null || serialNo == null)
+			return null;
+		final X500Name issuer;
+		try {
+			issuer = new X500Name(issuerName);
+		} catch (IllegalArgumentException invalidName) {
+			return null;
+		}
+		final byte[][] candidates = byIssuerSerial.get(new IssuerSerialKey(issuer.hashCode(), serialNo));
+		if (candidates != null)
+			for (byte[] encoded : candidates) {
+				final X509Certificate cert = decode(encoded);
+				if (issuer.equals(X500Name.getInstance(cert.getIssuerX500Principal().getEncoded())))
+					return cert;
+			}
+		return null;
+	}
+
+	/**
+	 * Finds the certificate identified by the given <code>Cert</code> element. When the certificates are indexed for
+	 * the digest algorithm of its <code>CertDigest</code> the certificate is found by its digest and, if the element
+	 * also contains the issuer and serial number, these must match the found certificate. Otherwise the certificate is
+	 * found by its issuer and serial number and its digest is calculated to check that it matches the <code>CertDigest
+	 * </code>.
+	 *
+	 * @param certId	the <code>Cert</code> element of a <code>SigningCertificate(V2)</code> property
+	 * @return	the certificate identified by the element, or <code>null</code> if there is no such certificate in the
+	 * 			index
+	 */
+	public X509Certificate find(final AbstractCertIDTypeElement certId) {
+		if (certId == null || certId.getCertDigest() == null)
+			return null;
+		final CertDigest certDigest = certId.getCertDigest();
+		final IssuerSerial issuerSerial = certId.getIssuerSerial();
+		if (isIndexed(certDigest.getDigestMethod())) {
+			final X509Certificate cert = findByDigest(certDigest.getDigestMethod(), certDigest.getDigestValue());
+			return cert != null && (issuerSerial == null || XadesVerifier.matches(issuerSerial, cert)) ? cert : null;
+		}
+		if (issuerSerial == null)
+			return null;
+		final X509Certificate cert = findByIssuerSerial(issuerSerial.getIssuerName(), issuerSerial.getSerialNo());
+		final String algId = JCEMapper.translateURItoJCEID(certDigest.getDigestMethod());
+		if (cert == null || algId == null)
+			return null;
+		try {
+			return MessageDigest.isEqual(MessageDigest.getInstance(algId).digest(cert.getEncoded()),
+										 certDigest.getDigestValue()) ? cert : null;
+		} catch (NoSuchAlgorithmException | CertificateEncodingException notComparable) {
+			return null;
+		}
+	}
+
+	/**
+	 * Removes all certificates from the index.
+	 */
+	public void clear() {
+		for (ConcurrentHashMap<DigestKey, byte[]> index : byDigest.values())
+			index.clear();
+		byIssuerSerial.clear();
+	}
+
+	private byte[] digest(final String digestMethod, final byte[] encoded) {
+		try {
+			return MessageDigest.getInstance(algIds.get(digestMethod)).digest(encoded);
+		} catch (NoSuchAlgorithmException checkedOnCreation) {
+			throw new IllegalStateException(checkedOnCreation);
+		}
+	}
+
+	private static X509Certificate decode(final byte[] encoded) {
+		try {
+			return (X509Certificate) CERT_FACTORIES.get().generateCertificate(new ByteArrayInputStream(encoded));
+		} catch (CertificateException encodedByCertificate) {
+			// Cannot happen as the encoding was created by a decoded certificate
+			throw new IllegalStateException(encodedByCertificate);
+		}
+	}
+
+	/**
+	 * The key of the digest indexes. As the digest values are uniformly distributed, the hash code is taken from the
+	 * first bytes of the digest.
+	 */
+	private static final class DigestKey {
+		private final byte[]	digest;
+
+		DigestKey(final byte[] digest) {
+			this.digest = digest;
+		}
+
+		@Override
+		public int hashCode() {
+			return digest.length >= 4 ? (digest[0] << 24) | ((digest[1] & 0xff) << 16) | ((digest[2] & 0xff) << 8)
+										| (digest[3] & 0xff)
+									  : Arrays.hashCode(digest);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return this == o || (o instanceof DigestKey && Arrays.equals(digest, ((DigestKey) o).digest));
+		}
+	}
+
+	/**
+	 * The key of the issuer and serial number index, consisting of the order independent hash code of the issuer name
+	 * and the serial number.
+	 */
+	private static final class IssuerSerialKey {
+		private final int			issuerHash;
+		private final BigInteger	serialNo;
+
+		IssuerSerialKey(final int issuerHash, final BigInteger serialNo) {
+			this.issuerHash = issuerHash;
+			this.serialNo = serialNo;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * issuerHash + serialNo.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof IssuerSerialKey))
+				return false;
+			final IssuerSerialKey other = (IssuerSerialKey) o;
+			return issuerHash == other.issuerHash && serialNo.equals(other.serialNo);
+		}
+	}
+}
@@ -49,13 +49,33 @@ public class CertifiedRoleV1 extends AbstractEncapsulatedPKIDataTypeElement impl
 		this.attrCert = cert;
 	}
 
+	/**
+	 * Creates a new element of which the DER encoded attribute certificate is read from the given source when the 
+	 * element is marshalled.
+	 * 
+	 * @param id		the Id of the element
+	 * @param content	the source of the DER encoded certificate
+	 */
+	CertifiedRoleV1(String id, ContentSource content) {
+		super(id, content, Encoding.DER);
+	}
+
 	@Override
 	protected QName getName() {
 		return ELEMENT_NAME;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>When the element was created with a {@link ContentSource} the certificate is parsed from the source when it 
+	 * is first requested.
+	 * 
+	 * @throws IllegalStateException when the content of the source is not a valid X.509 certificate
+	 */
 	@Override
 	public X509Certificate getX509AttributeCertificate() {
+		if (attrCert == null && content != null)
+			attrCert = parseCertificate();
 		return this.attrCert;
 	}
 }
@@ -67,12 +67,27 @@ public class CertifiedRoleV2 extends XadesElement implements CertifiedRole {
 		this.x509Cert = new X509AttributeCertificate(id, attrCert);
 	}
 	
+	CertifiedRoleV2(final String id, final ContentSource attrCert) {
+		this.x509Cert = new X509AttributeCertificate(id, attrCert);
+	}
+	
 	CertifiedRoleV2(List<Node> otherData) {
 		this.otherCert = new OtherAttributeCertificate(otherData);
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <p>When the element was created with a {@link ContentSource} the certificate is parsed from the source when it 
+	 * is first requested.
+	 * 
+	 * @throws IllegalStateException when the content of the source is not a valid X.509 certificate
+	 */
 	@Override
 	public X509Certificate getX509AttributeCertificate() {
+		if (x509Cert == null)
+			return null;
+		if (x509Cert.attrCert == null && x509Cert.content != null)
+			x509Cert.attrCert = x509Cert.parseCertificate();
 		return x509Cert.attrCert;
 	}
 	
@@ -124,6 +139,10 @@ public class CertifiedRoleV2 extends XadesElement implements CertifiedRole {
 			super(id, cert.getEncoded(), Encoding.DER);
 			this.attrCert = cert;
 		}
+		
+		X509AttributeCertificate(String id, ContentSource content) {
+			super(id, content, Encoding.DER);
+		}
 
 		@Override
 		protected QName getName() {
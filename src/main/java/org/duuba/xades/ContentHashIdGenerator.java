@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Is an {@link IdGenerator} that derives the identifiers from a hash of the given content. Each identifier is the
+ * SHA-256 hash of the hash of the content, a sequence number and the prefix, truncated to 128 bits. This makes the
+ * identifiers reproducible, the same content always results in the same sequence of identifiers, without revealing the
+ * order in which they were created. It also does not need any random source.
+ * <p>Unlike the other generators, a content hash generator is meant to be used for a single document: create it for
+ * the content of the document that is signed and set it on the {@link
+ * org.duuba.xades.builders.BasicEnvelopedSignatureBuilder} that creates the signature of that document. It must not be
+ * set on a builder whose {@link org.duuba.xades.builders.SigningProfile} is shared to sign many documents, for example
+ * using a <code>BatchSigner</code>, as the identifiers would then be derived from the same content for all documents
+ * and not from the document they are part of. Note that two generators created for the same content generate the same
+ * identifiers, so the content must be unique for the scope in which the identifiers must be unique.
+ */
+public class ContentHashIdGenerator implements IdGenerator {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	/**
+	 * Getting a message digest instance is relatively expensive, so each thread re-uses its own instance
+	 */
+	private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(ContentHashIdGenerator::newDigest);
+
+	private final byte[]		contentHash;
+	private final AtomicLong	counter = new AtomicLong();
+
+	/**
+	 * Creates a new generator that derives the identifiers from the given content.
+	 *
+	 * @param content	the content to derive the identifiers from
+	 */
+	public ContentHashIdGenerator(final byte[] content) {
+		if (content == null)
+			throw new IllegalArgumentException("Content must be provided");
+		this.contentHash = DIGEST.get().digest(content);
+	}
+
+	@Override
+	public String generateId(final String prefix) {
+		final long n = counter.incrementAndGet();
+		final MessageDigest md = DIGEST.get();
+		md.update(contentHash);
+		for (int i = 56; i >= 0; i -= 8)
+			md.update((byte) (n >>> i));
+		md.update(prefix.getBytes(StandardCharsets.UTF_8));
+		final byte[] hash = md.digest();
+
+		final StringBuilder id = new StringBuilder(prefix.length() + 32).append(prefix);
+		for (int i = 0; i < 16; i++)
+			id.append(HEX[(hash[i] >> 4) & 0xf]).append(HEX[hash[i] & 0xf]);
+		return id.toString();
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException noSHA256) {
+			// Every Java platform must support SHA-256
+			throw new IllegalStateException("SHA-256 not available", noSHA256);
+		}
+	}
+}
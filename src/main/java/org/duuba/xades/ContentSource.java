@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Is a source of binary content that is included Base64 encoded in the signature, like the data of an <code>
+ * EncapsulatedTimeStamp</code> or a <code>SignaturePolicyDocument</code>. Instead of holding the complete content in
+ * memory, it is read from the stream provided by the source when the element is marshalled and written to the XML in
+ * fixed size chunks. This way large payloads, like policy documents of several MB, do not need to be loaded in memory
+ * as a whole.
+ * <p>As an element can be marshalled more than once, for example when the signature is written to multiple documents,
+ * each call to {@link #openStream()} must return a new stream that provides the complete content. The static factory
+ * methods of this interface provide sources for the most common cases.
+ */
+@FunctionalInterface
+public interface ContentSource {
+
+	/**
+	 * Opens a new stream to read the content from. The caller is responsible for closing the stream.
+	 *
+	 * @return	a new stream providing the complete content
+	 * @throws IOException	when the content cannot be opened
+	 */
+	InputStream openStream() throws IOException;
+
+	/**
+	 * Reads the complete content into a byte array.
+	 *
+	 * @return	the content
+	 * @throws IOException	when the content cannot be read
+	 */
+	default byte[] readAll() throws IOException {
+		try (InputStream in = openStream()) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int r;
+			while ((r = in.read(buffer)) > 0)
+				out.write(buffer, 0, r);
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * Determines whether the given source provides the same content as this source. The content of both sources is 
+	 * read and compared in chunks, so it does not need to be loaded into memory.
+	 *
+	 * @param other	the other source, may be <code>null</code>
+	 * @return	<code>true</code> if both sources provide the same bytes, <code>false</code> otherwise
+	 * @throws IOException	when the content of one of the sources cannot be read
+	 */
+	default boolean contentEquals(final ContentSource other) throws IOException {
+		if (other == this)
+			return true;
+		if (other == null)
+			return false;
+		try (InputStream in = openStream(); InputStream otherIn = other.openStream()) {
+			final byte[] buffer = new byte[8192];
+			final byte[] otherBuffer = new byte[buffer.length];
+			int r;
+			while ((r = in.read(buffer)) >= 0) {
+				// Read the same number of bytes from the other source
+				for (int o = 0; o < r; ) {
+					final int ro = otherIn.read(otherBuffer, o, r - o);
+					if (ro < 0)
+						return false;
+					o += ro;
+				}
+				for (int i = 0; i < r; i++)
+					if (buffer[i] != otherBuffer[i])
+						return false;
+			}
+			return otherIn.read() < 0;
+		}
+	}
+
+	/**
+	 * Creates a source that provides the content of the given byte array. Note that the array is not copied.
+	 *
+	 * @param data	the content
+	 * @return	a content source for the byte array
+	 */
+	static ContentSource of(final byte[] data) {
+		if (data == null)
+			throw new IllegalArgumentException("Content must be provided");
+		return () -> new ByteArrayInputStream(data);
+	}
+
+	/**
+	 * Creates a source that provides the remaining bytes of the given buffer, i.e. the bytes between its current
+	 * position and limit at the time of this call. The position of the given buffer is not changed when the content is
+	 * read, so the buffer's content must not be changed while the source is in use.
+	 *
+	 * @param buffer	the buffer holding the content, may be a direct or mapped buffer
+	 * @return	a content source for the buffer
+	 */
+	static ContentSource of(final ByteBuffer buffer) {
+		if (buffer == null)
+			throw new IllegalArgumentException("Content must be provided");
+		final ByteBuffer content = buffer.slice();
+		return () -> new ByteBufferInputStream(content.duplicate());
+	}
+
+	/**
+	 * Creates a source that provides the content of the given file. The file is read only when the content is needed.
+	 *
+	 * @param file	path to the file
+	 * @return	a content source for the file
+	 */
+	static ContentSource of(final Path file) {
+		if (file == null)
+			throw new IllegalArgumentException("File must be provided");
+		return () -> Files.newInputStream(file);
+	}
+
+	/**
+	 * Creates a source that provides a region of the given file, for example the time stamp token or policy document
+	 * stored in a larger container file. The region is memory mapped when the content is read.
+	 *
+	 * @param file		path to the file
+	 * @param offset	position in the file where the region starts
+	 * @param length	length of the region, cannot exceed {@link Integer#MAX_VALUE}
+	 * @return	a content source for the file region
+	 */
+	static ContentSource of(final Path file, final long offset, final long length) {
+		if (file == null)
+			throw new IllegalArgumentException("File must be provided");
+		if (offset < 0 || length < 0 || length > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid file region");
+		return () -> {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				if (offset + length > channel.size())
+					throw new IOException("Region exceeds size of file " + file);
+				return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+			}
+		};
+	}
+}
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Is an {@link IdGenerator} that generates identifiers from a node identifier and a monotonic counter. The identifiers
+ * have the format <i>«prefix»«node id»-«start time»-«counter»</i>, where the start time is the time the generator was
+ * created, so identifiers generated by different instances on the same node are also unique as long as they are not
+ * created in the same millisecond. Both the start time and counter are hexadecimal encoded.
+ * <p>Generating an identifier only requires the atomic increment of the counter and is therefore much cheaper than
+ * generating a random identifier. The identifiers are however predictable and reveal the order in which they were
+ * created.
+ */
+public class CounterIdGenerator implements IdGenerator {
+
+	private static final Pattern VALID_NODE_ID = Pattern.compile("[A-Za-z0-9._-]*");
+
+	private final String		nodePrefix;
+	private final AtomicLong	counter = new AtomicLong();
+
+	/**
+	 * Creates a new generator for the given node.
+	 *
+	 * @param nodeId	identifier of the node, must only contain letters, digits, '.', '_' or '-'
+	 */
+	public CounterIdGenerator(final String nodeId) {
+		if (nodeId == null || !VALID_NODE_ID.matcher(nodeId).matches())
+			throw new IllegalArgumentException("Node id must only contain letters, digits, '.', '_' or '-'");
+		this.nodePrefix = (nodeId.isEmpty() ? "" : nodeId + "-") + Long.toHexString(System.currentTimeMillis()) + "-";
+	}
+
+	@Override
+	public String generateId(final String prefix) {
+		return prefix + nodePrefix + Long.toHexString(counter.incrementAndGet());
+	}
+}
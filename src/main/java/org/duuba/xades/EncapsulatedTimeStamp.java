@@ -34,6 +34,10 @@ public class EncapsulatedTimeStamp extends AbstractEncapsulatedPKIDataTypeElemen
 	EncapsulatedTimeStamp(String id, byte[] data, Encoding encoding) {
 		super(id, data, encoding);
 	}	
+
+	EncapsulatedTimeStamp(String id, ContentSource content, Encoding encoding) {
+		super(id, content, encoding);
+	}	
 	
 	@Override
 	protected QName getName() {
@@ -0,0 +1,488 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.XMLCryptoContext;
+import javax.xml.crypto.XMLStructure;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.namespace.QName;
+
+import org.apache.jcp.xml.dsig.internal.dom.DOMStructure;
+import org.apache.jcp.xml.dsig.internal.dom.DOMUtils;
+import org.apache.jcp.xml.dsig.internal.dom.XmlWriter;
+import org.apache.xml.security.c14n.helper.C14nHelper;
+import org.apache.xml.security.c14n.implementations.NameSpaceSymbTable;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Is an implementation of Santuario's {@link XmlWriter} that writes the elements directly in their exclusive
+ * canonical form (without comments) to an output stream. It is used by {@link #writeSignedProperties(
+ * QualifyingProperties, DOMSignContext, OutputStream)} to calculate the digest of the <code>SignedProperties</code>
+ * element while it is marshalled, so the DOM tree does not need to be canonicalised again when the signature is
+ * created.
+ * <p>The output is byte-identical to the output of Santuario's exclusive canonicaliser for the subtree of the
+ * element that would be created by the <code>XmlWriterToTree</code>. Therefore the namespace declarations are handled
+ * in the same way: only namespaces that are declared explicitly, using {@link #writeNamespace(String, String)} or
+ * attributes in the <code>xmlns</code> namespace, or that are used by the ancestors of the written element are
+ * rendered.
+ * <p>Like the <code>XmlWriterToStream</code>, {@link #getCurrentNodeAsStructure()} returns a temporary element of
+ * which the attributes and children are included when the start tag of the current element is completed. Content
+ * that cannot be handled this way, like unknown structures or relative namespace URIs, is reported to the caller,
+ * which should then fall back to the canonicalisation of the DOM tree. That also reports the errors.
+ */
+final class ExcC14NXmlWriter implements XmlWriter {
+
+	/**
+	 * Indicates that content was written that is not supported by the writer.
+	 */
+	private static final class UnsupportedContentException extends RuntimeException {
+		private static final long serialVersionUID = 7125416316466049528L;
+
+		UnsupportedContentException(final String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Orders the attributes in the same way as Santuario's <code>AttrCompare</code>, i.e. attributes without namespace
+	 * by their name before the attributes in a namespace, sorted by namespace URI and local name.
+	 */
+	private static final Comparator<Attribute> ATTR_ORDER = (a0, a1) -> {
+		if (a0.namespaceURI == null)
+			return a1.namespaceURI == null ? a0.name.compareTo(a1.name) : -1;
+		else if (a1.namespaceURI == null)
+			return 1;
+		final int c = a0.namespaceURI.compareTo(a1.namespaceURI);
+		return c != 0 ? c : a0.localName.compareTo(a1.localName);
+	};
+
+	private static final Comparator<Attr> NS_DECL_ORDER = (ns0, ns1) ->
+										nsDeclPrefix(ns0).compareTo(nsDeclPrefix(ns1));
+
+	private final Utf8XmlOutput			output;
+	private final Document				attrFactory;
+	private final NameSpaceSymbTable	ns = new NameSpaceSymbTable();
+	private boolean						ancestorsDone;
+
+	/**
+	 * The qualified names of the open elements, the first one is the current element
+	 */
+	private final Deque<String>			elements = new ArrayDeque<>();
+	private final Deque<String>			localNames = new ArrayDeque<>();
+	/**
+	 * The start tag of the current element that has not been written yet, <code>null</code> if there is none
+	 */
+	private String						pendingStartTag;
+	private String						pendingNamespaceURI;
+	/**
+	 * The temporary DOM element of the current element returned by {@link #getCurrentNodeAsStructure()}
+	 */
+	private Element						scratch;
+	private final List<Attribute>		pendingAttributes = new ArrayList<>();
+	private final List<String>			visiblyUtilized = new ArrayList<>();
+	private final List<Attr>			nsDeclarations = new ArrayList<>();
+
+	/**
+	 * Creates a new writer.
+	 *
+	 * @param out			the stream to write the canonical form to
+	 * @param attrFactory	document used to create the namespace declaration nodes for the symbol table
+	 */
+	private ExcC14NXmlWriter(final OutputStream out, final Document attrFactory) {
+		this.output = new Utf8XmlOutput(out, 4096);
+		this.attrFactory = attrFactory;
+	}
+
+	/**
+	 * Writes the exclusive canonical form of the <code>SignedProperties</code> element of the given qualifying 
+	 * properties as it will be created when the signature is signed using the given sign context.
+	 *
+	 * @param qProperties	the qualifying properties of the signature
+	 * @param signContext	the context that will be used to sign the signature
+	 * @param out			the stream to write the canonical form to
+	 * @return	<code>true</code> if the canonical form was written, <code>false</code> if the signed properties contain
+	 * 			content that is not supported by this writer. In that case only part of the canonical form may have
+	 * 			been written. 
+	 * @throws MarshalException when the signed properties cannot be marshalled
+	 */
+	static boolean writeSignedProperties(final QualifyingProperties qProperties, final DOMSignContext signContext,
+										 final OutputStream out) throws MarshalException {
+		final Node parent = signContext.getParent();
+		final ExcC14NXmlWriter c14nWriter = new ExcC14NXmlWriter(out, parent.getNodeType() == Node.DOCUMENT_NODE ?
+																	(Document) parent : parent.getOwnerDocument());
+		c14nWriter.addAncestorNamespaces(parent);
+		// The Signature element declares the namespace of the XML Signature, the Object element uses the same
+		final String dsPrefix = DOMUtils.getSignaturePrefix(signContext);
+		c14nWriter.addAncestorNamespace(dsPrefix, XMLSignature.XMLNS);
+		final QName qpName = qProperties.getName();
+		c14nWriter.addAncestorNamespace(signContext.getNamespacePrefix(qpName.getNamespaceURI(), qpName.getPrefix()),
+										qpName.getNamespaceURI());
+		try {
+			qProperties.getSignedProperties().marshal(c14nWriter, dsPrefix != null ? dsPrefix : "", signContext);
+			c14nWriter.flush();
+			return true;
+		} catch (UnsupportedContentException unsupported) {
+			return false;
+		}
+	}
+
+	/**
+	 * Adds the namespaces used or declared by the given node and its ancestor elements to the namespaces that can be
+	 * rendered in the output. Must be called before the first element is written.
+	 *
+	 * @param parent	the node that will be the parent of the written element
+	 */
+	private void addAncestorNamespaces(final Node parent) {
+		if (parent == null || parent.getNodeType() != Node.ELEMENT_NODE)
+			return;
+		addAncestorNamespaces(parent.getParentNode());
+		final Element e = (Element) parent;
+		final NamedNodeMap attrs = e.getAttributes();
+		for (int i = 0; i < attrs.getLength(); i++) {
+			final Attr attr = (Attr) attrs.item(i);
+			if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attr.getNamespaceURI())
+				&& !(XMLConstants.XML_NS_PREFIX.equals(attr.getLocalName())
+					 && XMLConstants.XML_NS_URI.equals(attr.getValue())))
+				ns.addMapping(attr.getLocalName(), attr.getValue(), attr);
+		}
+		if (e.getNamespaceURI() != null)
+			addAncestorNamespace(e.getPrefix(), e.getNamespaceURI());
+	}
+
+	/**
+	 * Adds the namespace of an ancestor element that is not available as DOM node to the namespaces that can be
+	 * rendered in the output. Must be called before the first element is written.
+	 *
+	 * @param prefix	the prefix of the ancestor element, <code>null</code> or empty for the default namespace
+	 * @param nsURI		the namespace URI of the ancestor element
+	 */
+	private void addAncestorNamespace(final String prefix, final String nsURI) {
+		final boolean isDefault = prefix == null || prefix.isEmpty();
+		ns.addMapping(isDefault ? XMLConstants.XMLNS_ATTRIBUTE : prefix, nsURI,
+					  nsDeclaration(isDefault ? null : prefix, nsURI));
+	}
+
+	@Override
+	public void writeStartElement(final String prefix, final String localName, final String namespaceURI) {
+		closeStartTag();
+		if (!ancestorsDone) {
+			// Same as the final step of CanonicalizerBase.getParentNameSpaces()
+			final Attr defaultNS = ns.getMappingWithoutRendered(XMLConstants.XMLNS_ATTRIBUTE);
+			if (defaultNS != null && defaultNS.getValue().isEmpty())
+				ns.addMappingAndRender(XMLConstants.XMLNS_ATTRIBUTE, "", nsDeclaration(null, ""));
+			ancestorsDone = true;
+		}
+		ns.outputNodePush();
+		pendingStartTag = qName(prefix, localName);
+		pendingNamespaceURI = isNullOrEmpty(namespaceURI) ? null : namespaceURI;
+		elements.push(pendingStartTag);
+		localNames.push(localName);
+		visiblyUtilized.add(!isNullOrEmpty(namespaceURI) && !isNullOrEmpty(prefix) ? prefix
+																				   : XMLConstants.XMLNS_ATTRIBUTE);
+	}
+
+	@Override
+	public void writeEndElement() {
+		closeStartTag();
+		localNames.pop();
+		writeAscii("</");
+		writeUtf8(elements.pop());
+		writeByte('>');
+		ns.outputNodePop();
+	}
+
+	@Override
+	public void writeTextElement(final String prefix, final String localName, final String namespaceURI,
+								 final String value) {
+		writeStartElement(prefix, localName, namespaceURI);
+		writeCharacters(value);
+		writeEndElement();
+	}
+
+	@Override
+	public void writeNamespace(final String prefix, final String namespaceURI) {
+		if (isNullOrEmpty(prefix))
+			writeAttribute(null, XMLConstants.XMLNS_ATTRIBUTE_NS_URI, XMLConstants.XMLNS_ATTRIBUTE, namespaceURI);
+		else
+			writeAttribute(XMLConstants.XMLNS_ATTRIBUTE, XMLConstants.XMLNS_ATTRIBUTE_NS_URI, prefix, namespaceURI);
+	}
+
+	@Override
+	public Attr writeAttribute(final String prefix, final String namespaceURI, final String localName,
+							   final String value) {
+		if (value == null)
+			return null;
+		if (pendingStartTag == null)
+			throw new IllegalStateException("Attribute can only be written directly after start of element");
+		final String nsURI = isNullOrEmpty(namespaceURI) ? null : namespaceURI;
+		if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(nsURI)) {
+			if (!(XMLConstants.XML_NS_PREFIX.equals(localName) && XMLConstants.XML_NS_URI.equals(value))
+				&& ns.addMapping(localName, value, nsDeclaration(XMLConstants.XMLNS_ATTRIBUTE.equals(localName) ? null
+																							 : localName, value))
+				&& C14nHelper.namespaceIsRelative(value))
+				throw new UnsupportedContentException("Relative namespace URI " + value);
+		} else {
+			if (!isNullOrEmpty(prefix) && !XMLConstants.XML_NS_PREFIX.equals(prefix)
+				&& !XMLConstants.XMLNS_ATTRIBUTE.equals(prefix))
+				visiblyUtilized.add(prefix);
+			final Attribute attr = new Attribute(nsURI, localName, qName(prefix, localName), value);
+			// Like in the DOM a new attribute replaces the existing one with the same name
+			for (int i = 0; i < pendingAttributes.size(); i++) {
+				final Attribute a = pendingAttributes.get(i);
+				if (localName.equals(a.localName) && (nsURI == null ? a.namespaceURI == null
+																	: nsURI.equals(a.namespaceURI))) {
+					pendingAttributes.set(i, attr);
+					return null;
+				}
+			}
+			pendingAttributes.add(attr);
+		}
+		return null;
+	}
+
+	@Override
+	public void writeIdAttribute(final String prefix, final String namespaceURI, final String localName,
+								 final String value) {
+		writeAttribute(prefix, namespaceURI, localName, value);
+	}
+
+	@Override
+	public void writeCharacters(final String text) {
+		closeStartTag();
+		if (text != null)
+			writeEscaped(text, false);
+	}
+
+	/**
+	 * Comments are not included in the exclusive canonical form without comments, so they are ignored.
+	 */
+	@Override
+	public void writeComment(final String text) {
+	}
+
+	@Override
+	public String getCurrentLocalName() {
+		return localNames.peek();
+	}
+
+	/**
+	 * Gets a temporary DOM element that represents the current element. The attributes and child nodes that are added
+	 * to it are included in the output when the start tag of the current element is completed. 
+	 *
+	 * @return	a {@link javax.xml.crypto.dom.DOMStructure} holding the temporary element
+	 * @throws UnsupportedContentException when the start tag of the current element is already written
+	 */
+	@Override
+	public XMLStructure getCurrentNodeAsStructure() {
+		if (pendingStartTag == null)
+			throw new UnsupportedContentException("DOM node of element requested after its start tag");
+		if (scratch == null)
+			scratch = attrFactory.createElementNS(pendingNamespaceURI, pendingStartTag);
+		return new javax.xml.crypto.dom.DOMStructure(scratch);
+	}
+
+	@Override
+	public void marshalStructure(final XMLStructure toMarshal, final String dsPrefix, final XMLCryptoContext context)
+			throws MarshalException {
+		if (toMarshal instanceof javax.xml.crypto.dom.DOMStructure)
+			writeNode(((javax.xml.crypto.dom.DOMStructure) toMarshal).getNode(), true);
+		else if (toMarshal instanceof DOMStructure)
+			((DOMStructure) toMarshal).marshal(this, dsPrefix, context);
+		else
+			throw new UnsupportedContentException("Unsupported structure " + toMarshal.getClass().getName());
+	}
+
+	/**
+	 * Writes the pending output to the stream.
+	 */
+	private void flush() {
+		output.writeBuffer();
+	}
+
+	/**
+	 * Writes the given DOM node. When the node is copied from a marshalled structure this is done in the same way as
+	 * Santuario's <code>Marshaller</code> copies generic nodes into the document, i.e. only elements, attributes, text
+	 * and comments are copied. Nodes added to the temporary element of the current element are written as they are.
+	 *
+	 * @param node		the node to write
+	 * @param copied	indicates whether the node is copied from a marshalled structure
+	 */
+	private void writeNode(final Node node, final boolean copied) {
+		switch (node.getNodeType()) {
+		case Node.ATTRIBUTE_NODE :
+			if (node.getNamespaceURI() == null && node.getLocalName() == null)
+				writeAttribute(null, null, node.getNodeName(), node.getTextContent());
+			else
+				writeAttribute(node.getPrefix(), node.getNamespaceURI(), node.getLocalName(), node.getTextContent());
+			break;
+		case Node.ELEMENT_NODE :
+			if (node.getLocalName() == null)
+				throw new UnsupportedContentException("Element without local name");
+			writeStartElement(node.getPrefix(), node.getLocalName(), node.getNamespaceURI());
+			final NamedNodeMap attrs = node.getAttributes();
+			for (int i = 0; i < attrs.getLength(); i++)
+				writeNode(attrs.item(i), copied);
+			for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+				writeNode(child, copied);
+			writeEndElement();
+			break;
+		case Node.TEXT_NODE :
+			writeCharacters(node.getNodeValue());
+			break;
+		case Node.CDATA_SECTION_NODE :
+			if (!copied)
+				writeCharacters(node.getNodeValue());
+			break;
+		case Node.PROCESSING_INSTRUCTION_NODE :
+			if (!copied)
+				throw new UnsupportedContentException("Processing instruction");
+			break;
+		default:
+			// Comments are not canonicalised and other nodes do not occur in element content
+		}
+	}
+
+	/**
+	 * Writes the start tag of the current element if not done yet, including the namespace declarations and
+	 * attributes in canonical order.
+	 */
+	private void closeStartTag() {
+		if (pendingStartTag == null)
+			return;
+		final Element current = scratch;
+		scratch = null;
+		if (current != null)
+			writeAttributes(current.getAttributes());
+		writeByte('<');
+		writeUtf8(pendingStartTag);
+
+		Collections.sort(visiblyUtilized);
+		String last = null;
+		for (String prefix : visiblyUtilized) {
+			if (!prefix.equals(last)) {
+				final Attr decl = ns.getMapping(prefix);
+				if (decl != null)
+					nsDeclarations.add(decl);
+			}
+			last = prefix;
+		}
+		nsDeclarations.sort(NS_DECL_ORDER);
+		for (Attr decl : nsDeclarations)
+			writeAttr(decl.getNodeName(), decl.getNodeValue());
+		pendingAttributes.sort(ATTR_ORDER);
+		for (Attribute a : pendingAttributes)
+			writeAttr(a.name, a.value);
+		writeByte('>');
+
+		pendingStartTag = null;
+		pendingAttributes.clear();
+		visiblyUtilized.clear();
+		nsDeclarations.clear();
+
+		if (current != null)
+			for (Node child = current.getFirstChild(); child != null; child = child.getNextSibling())
+				writeNode(child, false);
+	}
+
+	private void writeAttributes(final NamedNodeMap attrs) {
+		for (int i = 0; i < attrs.getLength(); i++)
+			writeNode(attrs.item(i), false);
+	}
+
+	private void writeAttr(final String name, final String value) {
+		writeByte(' ');
+		writeUtf8(name);
+		writeAscii("=\"");
+		writeEscaped(value, true);
+		writeByte('"');
+	}
+
+	/**
+	 * Creates the node for a namespace declaration to add to the symbol table.
+	 */
+	private Attr nsDeclaration(final String prefix, final String nsURI) {
+		final Attr decl = attrFactory.createAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+														qName(prefix != null ? XMLConstants.XMLNS_ATTRIBUTE : null,
+															  prefix != null ? prefix : XMLConstants.XMLNS_ATTRIBUTE));
+		decl.setValue(nsURI);
+		return decl;
+	}
+
+	private static String nsDeclPrefix(final Attr decl) {
+		final String localName = decl.getLocalName();
+		return XMLConstants.XMLNS_ATTRIBUTE.equals(localName) ? "" : localName;
+	}
+
+	private static String qName(final String prefix, final String localName) {
+		return isNullOrEmpty(prefix) ? localName : prefix + ':' + localName;
+	}
+
+	private static boolean isNullOrEmpty(final String s) {
+		return s == null || s.isEmpty();
+	}
+
+	private void writeEscaped(final String s, final boolean inAttribute) {
+		if (inAttribute)
+			output.writeAttributeValue(s);
+		else
+			output.writeText(s);
+	}
+
+	private void writeUtf8(final String s) {
+		output.writeUtf8(s);
+	}
+
+	private void writeAscii(final String s) {
+		output.writeAscii(s);
+	}
+
+	private void writeByte(final int b) {
+		output.writeByte(b);
+	}
+
+	/**
+	 * Holds an attribute of the start tag that is not written yet.
+	 */
+	private static final class Attribute {
+		final String	namespaceURI;
+		final String	localName;
+		final String	name;
+		final String	value;
+
+		Attribute(final String namespaceURI, final String localName, final String name, final String value) {
+			this.namespaceURI = namespaceURI;
+			this.localName = localName;
+			this.name = name;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Is a {@link SigningListener} that keeps histograms of the durations of the signing phases in memory, so percentiles
+ * of the signing latency can be reported without any external metrics library. The durations are counted in buckets
+ * that each cover a range of 1/8 of a power of two, so the value reported for a percentile is at most 12.5% larger
+ * than the actual duration, independent of its magnitude. The histograms have a fixed size and recording a duration
+ * only increments an atomic counter, so the listener can be shared by all threads creating signatures.
+ * <p>The counts of the individual phases and of the total duration are updated independently, so reading the
+ * histograms while signatures are created may give a slightly inconsistent view, e.g. a percentile of a phase that
+ * includes a signature that is not yet included in the total.
+ */
+public class HistogramSigningListener implements SigningListener {
+
+	/**
+	 * Number of sub buckets per power of two, must be a power of two itself
+	 */
+	private static final int SUB_BUCKETS = 8;
+	private static final int SUB_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+	/**
+	 * Number of buckets needed to cover all positive long values
+	 */
+	static final int BUCKET_COUNT = bucketOf(Long.MAX_VALUE) + 1;
+
+	private final AtomicLongArray[]	phases;
+	private final AtomicLongArray	totals = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder			count = new LongAdder();
+	private final LongAdder			streamedBytesDigested = new LongAdder();
+	private final LongAdder			elements = new LongAdder();
+
+	public HistogramSigningListener() {
+		phases = new AtomicLongArray[SigningPhase.values().length];
+		for (int i = 0; i < phases.length; i++)
+			phases[i] = new AtomicLongArray(BUCKET_COUNT);
+	}
+
+	@Override
+	public void signatureCreated(final SigningMetrics metrics) {
+		for (SigningPhase p : SigningPhase.values())
+			phases[p.ordinal()].incrementAndGet(bucketOf(metrics.getDuration(p)));
+		totals.incrementAndGet(bucketOf(metrics.getTotalDuration()));
+		streamedBytesDigested.add(metrics.getStreamedBytesDigested());
+		elements.add(metrics.getElementCount());
+		count.increment();
+	}
+
+	/**
+	 * @return the number of signatures recorded
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the total number of streamed bytes digested by all recorded signatures
+	 * @see SigningMetrics#getStreamedBytesDigested()
+	 */
+	public long getTotalStreamedBytesDigested() {
+		return streamedBytesDigested.sum();
+	}
+
+	/**
+	 * @return the total number of elements of all recorded signatures
+	 */
+	public long getTotalElementCount() {
+		return elements.sum();
+	}
+
+	/**
+	 * Gets the given percentile of the duration of the given phase.
+	 *
+	 * @param phase			the signing phase
+	 * @param percentile	the percentile, between 0 and 100
+	 * @return	the upper bound of the bucket containing the percentile in nanoseconds, 0 if no signatures are
+	 * 			recorded
+	 */
+	public long getPercentile(final SigningPhase phase, final double percentile) {
+		return percentile(phases[phase.ordinal()], percentile);
+	}
+
+	/**
+	 * Gets the given percentile of the total duration of the signature creation.
+	 *
+	 * @param percentile	the percentile, between 0 and 100
+	 * @return	the upper bound of the bucket containing the percentile in nanoseconds, 0 if no signatures are
+	 * 			recorded
+	 */
+	public long getTotalPercentile(final double percentile) {
+		return percentile(totals, percentile);
+	}
+
+	/**
+	 * Resets all histograms and counters.
+	 */
+	public void reset() {
+		for (AtomicLongArray h : phases)
+			clear(h);
+		clear(totals);
+		count.reset();
+		streamedBytesDigested.reset();
+		elements.reset();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("HistogramSigningListener[count=").append(getCount());
+		for (SigningPhase p : SigningPhase.values())
+			sb.append(", ").append(p).append(".p50=").append(getPercentile(p, 50))
+			  .append("ns, ").append(p).append(".p99=").append(getPercentile(p, 99)).append("ns");
+		return sb.append(", total.p50=").append(getTotalPercentile(50)).append("ns, total.p99=")
+				 .append(getTotalPercentile(99)).append("ns]").toString();
+	}
+
+	private static long percentile(final AtomicLongArray histogram, final double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Percentile must be between 0 and 100");
+
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			total += histogram.get(i);
+		if (total == 0)
+			return 0;
+
+		final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += histogram.get(i);
+			if (seen >= rank)
+				return upperBoundOf(i);
+		}
+		// The histogram has been updated concurrently, use the last non empty bucket
+		for (int i = BUCKET_COUNT - 1; i > 0; i--)
+			if (histogram.get(i) > 0)
+				return upperBoundOf(i);
+		return 0;
+	}
+
+	private static void clear(final AtomicLongArray histogram) {
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			histogram.set(i, 0);
+	}
+
+	/**
+	 * Gets the index of the bucket the given value is counted in. Values smaller than the number of sub buckets each
+	 * have their own bucket, larger values are counted in the sub bucket of their power of two determined by the bits
+	 * following the highest set bit.
+	 *
+	 * @param value	the value, negative values are counted as 0
+	 * @return	the index of the bucket
+	 */
+	static int bucketOf(final long value) {
+		if (value < SUB_BUCKETS)
+			return value > 0 ? (int) value : 0;
+		final int exp = 63 - Long.numberOfLeadingZeros(value);
+		return SUB_BUCKETS * (exp - SUB_BITS + 1) + (int) ((value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Gets the largest value that is counted in the given bucket.
+	 *
+	 * @param bucket	the index of the bucket
+	 * @return	the upper bound of the bucket
+	 */
+	static long upperBoundOf(final int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		final int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exp - SUB_BITS);
+		return lower + (1L << (exp - SUB_BITS)) - 1;
+	}
+}
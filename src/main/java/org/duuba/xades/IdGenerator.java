@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+/**
+ * Defines the interface of the components that generate the values of the <code>Id</code> attributes of the elements
+ * in a Xades signature, like the <code>ds:Signature</code>, <code>ds:Reference</code> and <code>SignedProperties
+ * </code> elements. The generated values must be unique within the document that contains the signature and must be
+ * valid XML IDs, i.e. they must be a valid <code>NCName</code>.
+ * <p>Implementations must be thread safe as a generator is normally shared by all signatures created with the same
+ * settings. This library provides three implementations: the {@link RandomIdGenerator}, which is used by default, the
+ * {@link CounterIdGenerator} and the {@link ContentHashIdGenerator}, which is created per document and therefore must
+ * not be shared.
+ */
+public interface IdGenerator {
+
+	/**
+	 * Generates a new identifier that starts with the given prefix.
+	 *
+	 * @param prefix	the prefix of the identifier, indicating the type of element, e.g. "DR-" for the reference to
+	 * 					the signed document. Always starts with a letter.
+	 * @return	a new unique identifier
+	 */
+	String generateId(String prefix);
+}
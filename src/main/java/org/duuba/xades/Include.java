@@ -93,10 +93,10 @@ public class Include extends XadesElement {
 			throws MarshalException {
 
 		// Write attributes
-		xwriter.writeIdAttribute("", Constants.XADES_132_NS_URI, "URI", uri);         
+		xwriter.writeIdAttribute("", null, "URI", uri);         
         
 		if (referencedData != null)
-			xwriter.writeIdAttribute("", Constants.XADES_132_NS_URI, "referencedData", referencedData.toString());         
+			xwriter.writeIdAttribute("", null, "referencedData", referencedData.toString());         
 			
 	}
 	
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+/**
+ * Is the base class of the Flight Recorder events when running on Java 8. It provides the same methods as <code>
+ * jdk.jfr.Event</code> so the events can be created and committed in the same way on all Java versions, but as Flight
+ * Recorder events are not supported on Java 8 the events are never enabled.
+ * <p>On Java 11 and later the events from the <code>META-INF/versions/11</code> section of the multi-release jar are
+ * used instead, which extend <code>jdk.jfr.Event</code>.
+ */
+abstract class NoopEvent {
+
+	final void begin() {
+	}
+
+	final void end() {
+	}
+
+	final void commit() {
+	}
+
+	final boolean isEnabled() {
+		return false;
+	}
+
+	final boolean shouldCommit() {
+		return false;
+	}
+}
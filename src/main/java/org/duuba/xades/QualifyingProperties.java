@@ -52,13 +52,20 @@ public class QualifyingProperties extends XadesElement {
 	private String				target;
 	private SignedProperties 	signedProps;
 	private UnsignedProperties 	unsignedProps;
+	private XadesVersion		version;
 	
 	public QualifyingProperties(final String id, final String target, 
 								final SignedProperties signedProps, final UnsignedProperties unsignedProps) {
+		this(id, target, signedProps, unsignedProps, null);
+	}
+
+	QualifyingProperties(final String id, final String target, final SignedProperties signedProps, 
+						 final UnsignedProperties unsignedProps, final XadesVersion version) {
 		this.id = id;
 		this.target = target;
 		this.signedProps = signedProps;
 		this.unsignedProps = unsignedProps;
+		this.version = version;
 	}
 	
     /**
@@ -110,8 +117,8 @@ public class QualifyingProperties extends XadesElement {
 		
 		return Utils.nullSafeEqual(this.id, other.id)
 			&& Utils.nullSafeEqual(this.target, other.target)
-			&& Utils.nullSafeEqual(this.signedProps, other.signedProps)
-			&& Utils.nullSafeEqual(this.unsignedProps, other.unsignedProps);
+			&& Utils.nullSafeEqual(this.getSignedProperties(), other.getSignedProperties())
+			&& Utils.nullSafeEqual(this.getUnsignedProperties(), other.getUnsignedProperties());
 	}
 
 	@Override
@@ -119,6 +126,20 @@ public class QualifyingProperties extends XadesElement {
 		return ELEMENT_NAME;
 	}
 	
+	@Override
+	public void marshal(XmlWriter xwriter, String dsPrefix, XMLCryptoContext context) throws MarshalException {
+		final XadesMarshalEvent event = new XadesMarshalEvent();
+		event.begin();
+		super.marshal(xwriter, dsPrefix, context);
+		if (event.shouldCommit()) {
+			event.xadesVersion = version != null ? version.name() : null;
+			event.target = target;
+			event.output = xwriter instanceof XmlWriterToStream ? "Stream" : "DOM";
+			event.unsignedProperties = getUnsignedProperties() != null;
+			event.commit();
+		}
+	}
+	
 	@Override
 	protected void writeContent(XmlWriter xwriter, String nsPrefix, String dsPrefix, XMLCryptoContext context)
 			throws MarshalException {		
@@ -129,8 +150,10 @@ public class QualifyingProperties extends XadesElement {
 		xwriter.writeAttribute("", null, "Target", target);
         
 		// Write child elements
+		final SignedProperties signedProps = getSignedProperties();
 		if (signedProps != null)
 			signedProps.marshal(xwriter, dsPrefix, context);
+		final UnsignedProperties unsignedProps = getUnsignedProperties();
 		if (unsignedProps != null)
 			unsignedProps.marshal(xwriter, dsPrefix, context);
 							
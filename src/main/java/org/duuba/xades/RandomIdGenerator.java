@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Is an {@link IdGenerator} that generates random identifiers with the same format as a random UUID. Unlike {@link
+ * UUID#randomUUID()}, which uses a shared {@link java.security.SecureRandom}, the random values are taken from the
+ * {@link ThreadLocalRandom} of the calling thread, so generating identifiers does not contend between threads and
+ * never blocks waiting for entropy. As the identifiers only need to be unique and not unpredictable, a non secure
+ * random generator is sufficient.
+ */
+public class RandomIdGenerator implements IdGenerator {
+
+	/**
+	 * A shared instance of the generator. As the generator does not have state, this instance can be used everywhere.
+	 */
+	public static final RandomIdGenerator INSTANCE = new RandomIdGenerator();
+
+	@Override
+	public String generateId(final String prefix) {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		// Set the version and variant bits of a random UUID
+		final long msb = (random.nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+		final long lsb = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+		return prefix + new UUID(msb, lsb).toString();
+	}
+}
@@ -97,9 +97,9 @@ public class ReferenceInfo extends AbstractDigestAlgAndValueTypeElement {
 		
 		// Write attributes
 		if (id != null && !id.isEmpty())
-			xwriter.writeIdAttribute("", Constants.XADES_141_NS_URI, "Id", id);         
+			xwriter.writeIdAttribute("", null, "Id", id);         
 		if (uri != null && !uri.isEmpty())
-			xwriter.writeIdAttribute("", Constants.XADES_132_NS_URI, "URI", uri);         
+			xwriter.writeIdAttribute("", null, "URI", uri);         
         
 		super.writeContent(xwriter, nsPrefix, dsPrefix, context);         	
 	}
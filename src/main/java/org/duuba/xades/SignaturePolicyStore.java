@@ -16,12 +16,14 @@
  ******************************************************************************/
 package org.duuba.xades;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 import javax.xml.crypto.MarshalException;
 import javax.xml.crypto.XMLCryptoContext;
 import javax.xml.namespace.QName;
 
 import org.apache.jcp.xml.dsig.internal.dom.XmlWriter;
-import org.apache.xml.security.utils.XMLUtils;
 import org.bouncycastle.util.Arrays;
 import org.holodeckb2b.commons.util.Utils;
 
@@ -60,6 +62,7 @@ public class SignaturePolicyStore extends XadesElement {
 	
 	private SPDocSpecification	spDocId;
 	private byte[]				spDocContent;
+	private ContentSource		spDocSource;
 	private String				spDocReference;
 	private String				id;
 	
@@ -69,6 +72,12 @@ public class SignaturePolicyStore extends XadesElement {
 		this.spDocReference = spDocReference;
 		this.id = id;
 	}
+
+	SignaturePolicyStore(IObjectIdentifier spDocId, ContentSource spDocSource, String id) {
+		this.spDocId = new SPDocSpecification(spDocId);
+		this.spDocSource = spDocSource;
+		this.id = id;
+	}
 	
     /**
      * @return the <code>Id</code> attribute (may be <code>null</code> if not specified)
@@ -86,10 +95,28 @@ public class SignaturePolicyStore extends XadesElement {
 	}
 	
 	/**
+	 * Gets the signature policy document. When the store was created with a {@link ContentSource} the document is read
+	 * completely into memory, use {@link #getSignaturePolicyDocumentSource()} to access it as a stream.
+	 * 
 	 * @return	the signature policy document, <code>null</code> when the policy document is only referenced
+	 * @throws UncheckedIOException when the document cannot be read from the content source
 	 */
 	public byte[] getSignaturePolicyDocument() {
-		return spDocContent;
+		if (spDocContent != null || spDocSource == null)
+			return spDocContent;
+		try {
+			return spDocSource.readAll();
+		} catch (IOException readError) {
+			throw new UncheckedIOException(readError);
+		}
+	}
+	
+	/**
+	 * @return	the source of the signature policy document, <code>null</code> when the policy document is only 
+	 * 			referenced
+	 */
+	public ContentSource getSignaturePolicyDocumentSource() {
+		return spDocSource != null || spDocContent == null ? spDocSource : ContentSource.of(spDocContent);
 	}
 	
 	/**
@@ -101,7 +128,9 @@ public class SignaturePolicyStore extends XadesElement {
 	
 	/**
 	 * Determines whether the other object is an instance of the same class and represents the same element, i.e. has
-	 * the same content.
+	 * the same content. The policy document is compared by content, also when it is provided by a {@link 
+	 * ContentSource}, in which case it is read from the source. A document that cannot be read is not equal to any 
+	 * other document.
 	 * 
 	 * @param o 	the other object
 	 * @return 		<code>true</code> iff <code>o</code> represents the same element, i.e. has the same qualified name
@@ -117,7 +146,11 @@ public class SignaturePolicyStore extends XadesElement {
 		return Utils.nullSafeEqual(this.id, other.id)
 			&& Utils.nullSafeEqual(this.spDocReference, other.spDocReference)
 			&& Utils.nullSafeEqual(this.spDocId, other.spDocId)
-			&& Arrays.areEqual(this.spDocContent, other.spDocContent);
+			&& (this.spDocSource == null && other.spDocSource == null ? 
+										Arrays.areEqual(this.spDocContent, other.spDocContent)
+									  : AbstractEncapsulatedPKIDataTypeElement.contentEquals(
+																		getSignaturePolicyDocumentSource(), 
+																		other.getSignaturePolicyDocumentSource()));
 	}
 	
 	@Override
@@ -131,14 +164,18 @@ public class SignaturePolicyStore extends XadesElement {
 		
 		// Write attributes
 		if (id != null && !id.isEmpty())
-			xwriter.writeIdAttribute("", Constants.XADES_141_NS_URI, "Id", id);         
+			xwriter.writeIdAttribute("", null, "Id", id);         
 		
 		// Write child elements
 		spDocId.marshal(xwriter, dsPrefix, context);		
-		if (spDocContent != null)
-			xwriter.writeTextElement(nsPrefix, "SignaturePolicyDocument",
-										Constants.XADES_141_NS_URI, XMLUtils.encodeToString(spDocContent));
-		else {
+		if (spDocContent != null || spDocSource != null) {
+			xwriter.writeStartElement(nsPrefix, "SignaturePolicyDocument", Constants.XADES_141_NS_URI);
+			if (spDocSource != null)
+				Base64Output.write(xwriter, spDocSource);
+			else
+				Base64Output.write(xwriter, spDocContent);
+			xwriter.writeEndElement();
+		} else {
 			xwriter.writeTextElement(nsPrefix, "SigPolDocLocalURI", Constants.XADES_141_NS_URI, spDocReference);
 		}
 	}
@@ -97,8 +97,8 @@ public class SignedProperties extends XadesElement {
 		SignedProperties other = (SignedProperties) o;
 		
 		return Utils.nullSafeEqual(this.id, other.id)
-			&& Utils.nullSafeEqual(this.signatureProps, other.signatureProps)
-			&& Utils.nullSafeEqual(this.dataObjectProps, other.dataObjectProps);
+			&& Utils.nullSafeEqual(this.getSignatureProperties(), other.getSignatureProperties())
+			&& Utils.nullSafeEqual(this.getDataObjectProperties(), other.getDataObjectProperties());
 	}
 
     
@@ -116,8 +116,10 @@ public class SignedProperties extends XadesElement {
 			xwriter.writeIdAttribute("", null, "Id", id);         
 		
 		// Write child elements
+		final SignedSignatureProperties signatureProps = getSignatureProperties();
 		if (signatureProps != null)
 			signatureProps.marshal(xwriter, dsPrefix, context);
+		final SignedDataObjectProperties dataObjectProps = getDataObjectProperties();
 		if (dataObjectProps != null)
 			dataObjectProps.marshal(xwriter, dsPrefix, context);
 	} 
@@ -120,7 +120,7 @@ public class SignedSignatureProperties extends XadesElement {
 	 * @return depending on the Xades version used, either a {@link SignatureProductionPlace} (for TS 101 903) or
 	 * 			{@link SignatureProductionPlaceV2} (for EN 319 132) instance
 	 */
-	SignatureProductionPlace getSignatureProductionPlace() {
+	public SignatureProductionPlace getSignatureProductionPlace() {
 		return productionPlace;
 	}
 	
@@ -130,14 +130,14 @@ public class SignedSignatureProperties extends XadesElement {
 	 * @return depending on the Xades version used, either a {@link SignerRole} (for TS 101 903) or 
 	 * 		   {@link SignerRoleV2} (for EN 319 132) instance
 	 */
-	SignerRole getSignerRole() {
+	public SignerRole getSignerRole() {
 		return signerRole;
 	}
 	
 	/**
 	 * @return	other elements that may be included in the signed signature properties
 	 */
-	List<Node> getOtherContent() {
+	public List<Node> getOtherContent() {
 		return otherContent;
 	}
 	
@@ -157,12 +157,12 @@ public class SignedSignatureProperties extends XadesElement {
 		SignedSignatureProperties other = (SignedSignatureProperties) o;
 		
 		return Utils.nullSafeEqual(this.id, other.id)
-			&& Utils.nullSafeEqual(this.certInfo, other.certInfo)
-			&& Utils.nullSafeEqual(this.signaturePolicy, other.signaturePolicy)
-			&& Utils.nullSafeEqual(this.signerRole, other.signerRole)
-			&& Utils.nullSafeEqual(this.productionPlace, other.productionPlace)
-			&& Utils.nullSafeEqual(this.signingTime, other.signingTime)
-			&& Utils.areEqual(this.otherContent, other.otherContent);			
+			&& Utils.nullSafeEqual(this.getSigningCertificate(), other.getSigningCertificate())
+			&& Utils.nullSafeEqual(this.getSignaturePolicyIdentifier(), other.getSignaturePolicyIdentifier())
+			&& Utils.nullSafeEqual(this.getSignerRole(), other.getSignerRole())
+			&& Utils.nullSafeEqual(this.getSignatureProductionPlace(), other.getSignatureProductionPlace())
+			&& Utils.nullSafeEqual(this.getSigningTime(), other.getSigningTime())
+			&& Utils.areEqual(this.getOtherContent(), other.getOtherContent());			
 	}
 
 	
@@ -177,20 +177,26 @@ public class SignedSignatureProperties extends XadesElement {
 		
 		// Write attribute
 		if (id != null && !id.isEmpty())
-			xwriter.writeIdAttribute("", Constants.XADES_132_NS_URI, "Id", id);         
+			xwriter.writeIdAttribute("", null, "Id", id);         
         
 		// Write child elements
+		final ZonedDateTime signingTime = getSigningTime();
 		if (signingTime != null)
 			xwriter.writeTextElement(nsPrefix, "SigningTime", Constants.XADES_132_NS_URI, 
 										XadesSignatureFactory.convertToXMLString(signingTime));
+		final SigningCertificate certInfo = getSigningCertificate();
 		if (certInfo != null)
 			certInfo.marshal(xwriter, dsPrefix, context);
+		final SignaturePolicyIdentifier signaturePolicy = getSignaturePolicyIdentifier();
 		if (signaturePolicy != null)
 			signaturePolicy.marshal(xwriter, dsPrefix, context);
+		final SignatureProductionPlace productionPlace = getSignatureProductionPlace();
 		if (productionPlace != null)
 			productionPlace.marshal(xwriter, dsPrefix, context);
+		final SignerRole signerRole = getSignerRole();
 		if (signerRole != null)
 			signerRole.marshal(xwriter, dsPrefix, context);
+		final List<Node> otherContent = getOtherContent();
 		if (otherContent != null && !otherContent.isEmpty())
 			for (Node n : otherContent)
 				xwriter.marshalStructure(new javax.xml.crypto.dom.DOMStructure(n), dsPrefix, context);										
@@ -27,6 +27,8 @@ import javax.xml.crypto.XMLCryptoContext;
 import javax.xml.namespace.QName;
 
 import org.apache.jcp.xml.dsig.internal.dom.XmlWriter;
+import org.duuba.xades.AbstractCertIDTypeElement.CertDigest;
+import org.duuba.xades.AbstractCertIDTypeElement.IssuerSerial;
 import org.holodeckb2b.commons.util.Utils;
 
 /**
@@ -69,8 +71,28 @@ public class SigningCertificate extends XadesElement {
 		}		
 	}
 	
+	/**
+	 * Creates a new, still empty, element to which the certificate information read from an existing signature is
+	 * added using {@link #addCertificate(CertDigest, IssuerSerial)}.
+	 */
+	SigningCertificate() {
+		certInfo = new ArrayList<>(1);
+	}
+	
+	/**
+	 * Adds a <code>Cert</code> element with the certificate information read from an existing signature.
+	 * 
+	 * @param digest		the digest of the certificate
+	 * @param issuerSerial	the issuer and serial number of the certificate
+	 */
+	void addCertificate(CertDigest digest, IssuerSerial issuerSerial) {
+		certInfo.add(createCertElement(digest, issuerSerial));
+	}
+	
 	/**
 	 * Creates a new <code>Cert</code> element that should be added to this <code>SigningCertificate</code> element.
+	 * The certificate information is retrieved from the {@link CertIDCache} so the digest and issuer information 
+	 * only need to be calculated the first time a certificate is used.
 	 *  
 	 * @param c				the certificate which information should be captured in the new element
 	 * @param digestMethod	digest method to use for creating hash of the certificate
@@ -80,7 +102,18 @@ public class SigningCertificate extends XadesElement {
 	 */
 	protected AbstractCertIDTypeElement createCertElement(X509Certificate c, String digestMethod) 
 														throws CertificateEncodingException, NoSuchAlgorithmException {
-		return new Cert(c, digestMethod);
+		return new Cert(CertIDCache.getInstance().get(c, digestMethod));
+	}
+
+	/**
+	 * Creates a new <code>Cert</code> element with the given certificate information. 
+	 *  
+	 * @param digest		the digest of the certificate
+	 * @param issuerSerial	the issuer and serial number of the certificate
+	 * @return	a new <code>Cert</code> element
+	 */
+	protected AbstractCertIDTypeElement createCertElement(CertDigest digest, IssuerSerial issuerSerial) {
+		return new Cert(digest, issuerSerial);
 	}
 
 	/**
@@ -129,8 +162,12 @@ public class SigningCertificate extends XadesElement {
 	 */
 	public class Cert extends AbstractCertIDTypeElement {
 		
-		Cert(X509Certificate cert, String digestMethod) throws CertificateEncodingException, NoSuchAlgorithmException {
-			super(cert, digestMethod);			
+		Cert(CertIDCache.Entry certID) throws CertificateEncodingException {
+			super(certID);			
+		}
+		
+		Cert(CertDigest digest, IssuerSerial issuerSerial) {
+			super(digest, issuerSerial);
 		}
 
 		@Override
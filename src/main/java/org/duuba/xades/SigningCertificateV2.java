@@ -23,6 +23,10 @@ import java.util.List;
 
 import javax.xml.namespace.QName;
 
+import org.duuba.xades.AbstractCertIDTypeElement.CertDigest;
+import org.duuba.xades.AbstractCertIDTypeElement.IssuerSerial;
+import org.duuba.xades.AbstractCertIDTypeV2Element.IssuerSerialV2;
+
 /**
  * A representation of the <code>SigningCertificateV2</code> element as defined in the <i>ETSI EN 319 132 V1.1.1</i> 
  * standard. The XML schema is defined as:
@@ -53,8 +57,18 @@ public class SigningCertificateV2 extends SigningCertificate {
 		super(certs, digestMethod);
 	}
 	
+	/**
+	 * Creates a new, still empty, element to which the certificate information read from an existing signature is
+	 * added.
+	 */
+	SigningCertificateV2() {
+		super();
+	}
+	
 	/**
 	 * Creates a new <code>Cert</code> element that should be added to this <code>SigningCertificateV2</code> element.
+	 * The certificate information is retrieved from the {@link CertIDCache} so the digest and issuer information 
+	 * only need to be calculated the first time a certificate is used.
 	 *  
 	 * @param c				the certificate which information should be captured in the new element
 	 * @param digestMethod	digest method to use for creating hash of the certificate
@@ -65,9 +79,22 @@ public class SigningCertificateV2 extends SigningCertificate {
 	@Override
 	protected AbstractCertIDTypeElement createCertElement(X509Certificate c, String digestMethod) 
 														throws CertificateEncodingException, NoSuchAlgorithmException {
-		return new Cert(c, digestMethod);
+		return new Cert(CertIDCache.getInstance().get(c, digestMethod));
 	}	
 	
+	/**
+	 * Creates a new <code>Cert</code> element with the given certificate information. 
+	 *  
+	 * @param digest		the digest of the certificate
+	 * @param issuerSerial	the issuer and serial number of the certificate, must be an {@link IssuerSerialV2} or
+	 * 						<code>null</code>
+	 * @return	a new <code>Cert</code> element
+	 */
+	@Override
+	protected AbstractCertIDTypeElement createCertElement(CertDigest digest, IssuerSerial issuerSerial) {
+		return new Cert(digest, (IssuerSerialV2) issuerSerial);
+	}
+	
 	@Override
 	protected QName getName() {
 		return ELEMENT_NAME;
@@ -78,8 +105,12 @@ public class SigningCertificateV2 extends SigningCertificate {
 	 */
 	public class Cert extends AbstractCertIDTypeV2Element {
 		
-		Cert(X509Certificate cert, String digestMethod) throws CertificateEncodingException, NoSuchAlgorithmException {
-			super(cert, digestMethod);			
+		Cert(CertIDCache.Entry certID) throws CertificateEncodingException {
+			super(certID);			
+		}
+		
+		Cert(CertDigest digest, IssuerSerialV2 issuerSerial) {
+			super(digest, issuerSerial);
 		}
 
 		@Override
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+
+/**
+ * Defines the interface of the components that are notified of the creation of a Xades signature, for example to
+ * collect metrics about the signing latency. The listener receives the durations of the different phases of the
+ * signature creation so it can be determined whether the digesting of the data, the canonicalisation, the marshalling
+ * of the qualifying properties or the private key operation causes a slow signature.
+ * <p>A listener is registered in the sign context of a signature using the {@link
+ * XadesSignature#SIGNING_LISTENER_PROPERTY} property or, when signatures are created by the builders, using {@link
+ * org.duuba.xades.builders.BasicEnvelopedSignatureBuilder#setSigningListener(SigningListener)}. When no listener is
+ * registered the phases are not timed at all.
+ * <p>As the listener is called by the thread that created the signature, it must be thread safe when used with a
+ * shared signing profile and should return quickly. Exceptions thrown by the listener are ignored. This library
+ * provides the {@link HistogramSigningListener} which keeps histograms of the durations in memory.
+ *
+ * @see DOMSignContext#setProperty(String, Object)
+ */
+@FunctionalInterface
+public interface SigningListener {
+
+	/**
+	 * Is called when a signature has been created successfully.
+	 *
+	 * @param metrics	the metrics of the signature creation
+	 */
+	void signatureCreated(SigningMetrics metrics);
+}
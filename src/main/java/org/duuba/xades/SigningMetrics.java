@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+/**
+ * Contains the metrics of the creation of a single Xades signature that are reported to a {@link SigningListener}:
+ * the duration of each {@link SigningPhase}, the number of streamed bytes digested and the number of elements of the 
+ * created signature.
+ * <p>The number of streamed bytes digested only includes the data that is streamed into a digest outside the XML 
+ * signature implementation, i.e. the canonical form of the <code>SignedProperties</code> when their digest is 
+ * calculated directly and the octet streams of data objects that are dereferenced without transforming them to a node
+ * set. The size of the canonical form of node sets, like an enveloped document or the <code>SignedProperties</code>
+ * when their digest is left to Santuario, is not available from the XML signature implementation and therefore not 
+ * included.
+ */
+public final class SigningMetrics {
+
+	private final String	signatureId;
+	private final long[]	durations;
+	private final long		streamedBytesDigested;
+	private final int		elementCount;
+
+	SigningMetrics(final String signatureId, final long[] durations, final long streamedBytesDigested, 
+				   final int elementCount) {
+		this.signatureId = signatureId;
+		this.durations = durations;
+		this.streamedBytesDigested = streamedBytesDigested;
+		this.elementCount = elementCount;
+	}
+
+	/**
+	 * @return the <code>Id</code> of the created signature, may be <code>null</code>
+	 */
+	public String getSignatureId() {
+		return signatureId;
+	}
+
+	/**
+	 * Gets the duration of the given phase of the signature creation.
+	 *
+	 * @param phase	the phase
+	 * @return	the duration of the phase in nanoseconds, 0 if the phase was not executed or is not reported
+	 */
+	public long getDuration(final SigningPhase phase) {
+		return durations[phase.ordinal()];
+	}
+
+	/**
+	 * @return the total duration of the signature creation, i.e. the sum of all phases, in nanoseconds
+	 */
+	public long getTotalDuration() {
+		long total = 0;
+		for (long d : durations)
+			total += d;
+		return total;
+	}
+
+	/**
+	 * @return the number of bytes of the <code>SignedProperties</code> and octet stream data objects streamed into a 
+	 * 		   digest, this does not include the canonical form of node sets like an enveloped document
+	 */
+	public long getStreamedBytesDigested() {
+		return streamedBytesDigested;
+	}
+
+	/**
+	 * @return the number of elements in the created <code>ds:Signature</code> element, including itself
+	 */
+	public int getElementCount() {
+		return elementCount;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("SigningMetrics[id=").append(signatureId);
+		for (SigningPhase p : SigningPhase.values())
+			sb.append(", ").append(p).append('=').append(durations[p.ordinal()]).append("ns");
+		return sb.append(", streamedBytesDigested=").append(streamedBytesDigested).append(", elements=")
+				 .append(elementCount).append(']').toString();
+	}
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+/**
+ * Enumerates the phases of the creation of a Xades signature of which the duration is reported to a {@link
+ * SigningListener}.
+ */
+public enum SigningPhase {
+	/**
+	 * Creating the signature objects, i.e. the qualifying properties and references, before the actual signing starts.
+	 * Only reported when the signature is created by a builder or signing profile.
+	 */
+	PREPARATION,
+	/**
+	 * Calculating the digest of the <code>SignedProperties</code> directly from their canonical form. This phase has
+	 * no duration when the signed properties are digested by the XML signature implementation, in which case the time
+	 * is included in the {@link #REFERENCE_DIGEST} phase.
+	 */
+	SIGNED_PROPERTIES_DIGEST,
+	/**
+	 * Marshalling the signature, including the qualifying properties, to the DOM tree of the document
+	 */
+	MARSHALLING,
+	/**
+	 * Dereferencing, transforming and digesting the data objects referenced by the signature
+	 */
+	REFERENCE_DIGEST,
+	/**
+	 * Canonicalising the <code>SignedInfo</code> and calculating the signature value using the private key
+	 */
+	SIGNATURE_VALUE
+}
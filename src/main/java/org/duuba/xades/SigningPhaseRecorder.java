@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.crypto.AlgorithmMethod;
+import javax.xml.crypto.Data;
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.KeySelectorException;
+import javax.xml.crypto.KeySelectorResult;
+import javax.xml.crypto.OctetStreamData;
+import javax.xml.crypto.URIDereferencer;
+import javax.xml.crypto.URIReference;
+import javax.xml.crypto.URIReferenceException;
+import javax.xml.crypto.XMLCryptoContext;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+
+/**
+ * Records the durations of the phases of the creation of a Xades signature. As the XML signature implementation does
+ * not report its progress, the recorder is installed as both key selector and URI dereferencer of the sign context,
+ * delegating to the original ones. The first dereference of a referenced data object ends the marshalling of the
+ * signature and the selection of the signing key, which is done after all references are digested, starts the
+ * calculation of the signature value.
+ * <p>A recorder is used for a single signature and is not thread safe.
+ */
+final class SigningPhaseRecorder extends KeySelector implements URIDereferencer {
+
+	private final KeySelector		keySelector;
+	private final URIDereferencer	dereferencer;
+	private final long[]			durations = new long[SigningPhase.values().length];
+	private SigningPhase			current;
+	private long					phaseStart;
+	private long					streamedBytesDigested;
+
+	/**
+	 * Creates a new recorder that delegates to the given key selector and dereferencer.
+	 *
+	 * @param keySelector	the key selector of the sign context
+	 * @param dereferencer	the URI dereferencer of the sign context, or the default one if the context has none
+	 */
+	SigningPhaseRecorder(final KeySelector keySelector, final URIDereferencer dereferencer) {
+		this.keySelector = keySelector;
+		this.dereferencer = dereferencer;
+	}
+
+	/**
+	 * Ends the current phase, if any, and starts the given one.
+	 *
+	 * @param phase	the phase to start, <code>null</code> to only end the current phase
+	 */
+	void startPhase(final SigningPhase phase) {
+		final long now = System.nanoTime();
+		if (current != null)
+			durations[current.ordinal()] += now - phaseStart;
+		current = phase;
+		phaseStart = now;
+	}
+
+	void addDuration(final SigningPhase phase, final long nanos) {
+		durations[phase.ordinal()] += nanos;
+	}
+
+	void addStreamedBytesDigested(final long bytes) {
+		streamedBytesDigested += bytes;
+	}
+
+	/**
+	 * Gets the recorded metrics.
+	 *
+	 * @param signatureId	the Id of the created signature
+	 * @param elementCount	the number of elements in the created signature
+	 * @return	the metrics
+	 */
+	SigningMetrics getMetrics(final String signatureId, final int elementCount) {
+		return new SigningMetrics(signatureId, durations.clone(), streamedBytesDigested, elementCount);
+	}
+
+	@Override
+	public KeySelectorResult select(final KeyInfo keyInfo, final Purpose purpose, final AlgorithmMethod method,
+									final XMLCryptoContext context) throws KeySelectorException {
+		startPhase(SigningPhase.SIGNATURE_VALUE);
+		return keySelector.select(keyInfo, purpose, method, context);
+	}
+
+	@Override
+	public Data dereference(final URIReference uriReference, final XMLCryptoContext context)
+																						throws URIReferenceException {
+		if (current == SigningPhase.MARSHALLING)
+			startPhase(SigningPhase.REFERENCE_DIGEST);
+		final Data data = dereferencer.dereference(uriReference, context);
+		if (!(data instanceof OctetStreamData))
+			return data;
+		final OctetStreamData octets = (OctetStreamData) data;
+		return new OctetStreamData(new CountingInputStream(octets.getOctetStream()), octets.getURI(),
+								   octets.getMimeType());
+	}
+
+	/**
+	 * Counts the bytes read from the octet stream of a data object as digested bytes.
+	 */
+	private class CountingInputStream extends FilterInputStream {
+
+		CountingInputStream(final InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b >= 0)
+				streamedBytesDigested++;
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int r = super.read(b, off, len);
+			if (r > 0)
+				streamedBytesDigested += r;
+			return r;
+		}
+	}
+}
@@ -0,0 +1,435 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.crypto.dsig.spec.ExcC14NParameterSpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.stax.ext.Transformer;
+import org.apache.xml.security.stax.ext.stax.XMLSecAttribute;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.ext.stax.XMLSecNamespace;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer11_OmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_ExclOmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_OmitCommentsTransformer;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Verifies enveloped Xades signatures of XML documents that are read from a stream, without building a DOM of the
+ * document. The memory needed to verify a document is therefore independent of its size.
+ * <p>The document is processed in a single pass. The first <code>ds:Signature</code> element in the document is
+ * read into a DOM, in the same namespace context as it has in the document, while all other events are canonicalised
+ * by a streaming canonicaliser to calculate the digest of the document with the signature removed, as specified by
+ * the enveloped signature transform. When the end of the document is reached, the signature is validated by the
+ * {@link XadesVerifier} using the calculated digest for the reference to the document.
+ * <p>As the signature is normally located at the end of the document, the canonicalisation and digest algorithms of
+ * the reference to the document must be known before the signature is read. They are therefore configured when the
+ * verifier is created and a reference that uses other algorithms, or other transforms than the enveloped signature
+ * transform followed by an optional canonicalisation, is reported as invalid. Besides the reference to the document,
+ * the signature may only contain references to elements in the signature itself, like the <code>SignedProperties
+ * </code>, or to detached data objects. Documents that contain a DTD are not supported.
+ * <p>A streaming verifier is thread safe and can be used to verify multiple documents concurrently.
+ *
+ * @see XadesVerifier
+ */
+public class StreamingEnvelopedVerifier {
+
+	private final XadesVerifier		verifier;
+	private final String			c14nAlg;
+	private final String			digestAlg;
+	private final String			digestJCEName;
+	private final XMLInputFactory	inputFactory;
+
+	/**
+	 * Creates a new streaming verifier for signatures of which the reference to the document uses exclusive
+	 * canonicalisation and the SHA-256 digest algorithm, as created by default by the builders of this library.
+	 *
+	 * @param verifier	the verifier to validate the signatures with
+	 */
+	public StreamingEnvelopedVerifier(final XadesVerifier verifier) {
+		this(verifier, CanonicalizationMethod.EXCLUSIVE, DigestMethod.SHA256);
+	}
+
+	/**
+	 * Creates a new streaming verifier for signatures of which the reference to the document uses the given
+	 * canonicalisation and digest algorithms.
+	 *
+	 * @param verifier	the verifier to validate the signatures with
+	 * @param c14nAlg	the canonicalisation algorithm of the reference to the document
+	 * @param digestAlg	the digest algorithm of the reference to the document
+	 * @throws IllegalArgumentException when the canonicalisation algorithm is not supported for streaming or the
+	 * 									digest algorithm is not available
+	 */
+	public StreamingEnvelopedVerifier(final XadesVerifier verifier, final String c14nAlg, final String digestAlg) {
+		if (verifier == null)
+			throw new IllegalArgumentException("A verifier must be provided");
+		if (c14nAlg == null || digestAlg == null)
+			throw new IllegalArgumentException("The canonicalisation and digest algorithms must be specified");
+		// Check that the algorithms are supported
+		newCanonicalizer(c14nAlg);
+		this.digestJCEName = JCEMapper.translateURItoJCEID(digestAlg);
+		if (digestJCEName == null)
+			throw new IllegalArgumentException("Unknown digest algorithm: " + digestAlg);
+		this.verifier = verifier;
+		this.c14nAlg = c14nAlg;
+		this.digestAlg = digestAlg;
+
+		this.inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	}
+
+	/**
+	 * Verifies the enveloped signature of the XML document read from the given input stream. The stream is not
+	 * closed.
+	 *
+	 * @param input		the stream to read the signed document from
+	 * @return	the report of the validation of the signature
+	 * @throws XMLSignatureException when the document could not be read or does not contain a Xades signature
+	 */
+	public VerificationReport verify(final InputStream input) throws XMLSignatureException {
+		if (input == null)
+			throw new IllegalArgumentException("No document to verify provided");
+
+		XMLStreamReader reader = null;
+		try {
+			reader = inputFactory.createXMLStreamReader(input);
+			return verify(reader);
+		} catch (XMLStreamException readFailure) {
+			throw new XMLSignatureException("The document to verify could not be read", readFailure);
+		} finally {
+			if (reader != null)
+				try {
+					reader.close();
+				} catch (XMLStreamException closeFailure) {
+					// Ignore, as the input stream is managed by the caller
+				}
+		}
+	}
+
+	/**
+	 * Verifies the enveloped signature of the XML document read from the given reader. The reader must be positioned
+	 * at the start of the document or on the start tag of the root element and is read until the end of the
+	 * document. The reader must be namespace aware.
+	 *
+	 * @param reader	the reader to read the signed document from
+	 * @return	the report of the validation of the signature
+	 * @throws XMLSignatureException when the document could not be read or does not contain a Xades signature
+	 */
+	public VerificationReport verify(final XMLStreamReader reader) throws XMLSignatureException {
+		if (reader == null)
+			throw new IllegalArgumentException("No document to verify provided");
+
+		try {
+			final MessageDigest md = MessageDigest.getInstance(digestJCEName);
+			final OutputStream digester = new BufferedOutputStream(new DigestOutputStream(new NullOutputStream(), md),
+																   8192);
+			final Transformer c14n = newCanonicalizer(c14nAlg);
+			c14n.setOutputStream(digester);
+
+			XMLSecStartElement current = null;
+			int depth = 0;
+			boolean hasRoot = false;
+			Element sigElement = null;
+			int eventType = reader.getEventType();
+			while (true) {
+				if (eventType == XMLStreamConstants.DTD || eventType == XMLStreamConstants.ENTITY_REFERENCE)
+					throw new XMLSignatureException("Documents with a DTD are not supported");
+
+				if (sigElement == null && depth > 0 && eventType == XMLStreamConstants.START_ELEMENT
+					&& XMLSignature.XMLNS.equals(reader.getNamespaceURI()) && "Signature".equals(reader.getLocalName()))
+					// The enveloped signature is not part of the digested document
+					sigElement = readSignature(reader, current);
+				else {
+					final XMLSecEvent event = XMLSecEventFactory.allocate(reader, current);
+					// The same document reference does not include comments
+					if (eventType != XMLStreamConstants.COMMENT)
+						c14n.transform(event);
+					if (eventType == XMLStreamConstants.START_ELEMENT) {
+						current = event.asStartElement();
+						hasRoot = true;
+						depth++;
+					} else if (eventType == XMLStreamConstants.END_ELEMENT) {
+						current = current.getParentXMLSecStartElement();
+						depth--;
+					}
+				}
+				if (!reader.hasNext())
+					break;
+				eventType = reader.next();
+			}
+			if (!hasRoot || depth != 0)
+				throw new XMLSignatureException("The input does not contain a complete XML document");
+			if (sigElement == null)
+				throw new XMLSignatureException("The document does not contain an enveloped signature");
+
+			c14n.doFinal();
+			digester.flush();
+			return verifySignature(sigElement, md.digest());
+		} catch (XMLStreamException | XMLSecurityException | IOException readFailure) {
+			throw new XMLSignatureException("The document to verify could not be read", readFailure);
+		} catch (NoSuchAlgorithmException | ParserConfigurationException unavailable) {
+			throw new XMLSignatureException("The signature could not be verified", unavailable);
+		}
+	}
+
+	/**
+	 * Unmarshals the signature and validates it using the calculated digest of the document for the reference to
+	 * the document.
+	 *
+	 * @param sigElement	the signature element
+	 * @param docDigest		the digest of the document without the signature
+	 * @return	the report of the validation
+	 * @throws XMLSignatureException when the element does not contain a Xades signature
+	 */
+	private VerificationReport verifySignature(final Element sigElement, final byte[] docDigest)
+																						throws XMLSignatureException {
+		final DOMValidateContext context = new DOMValidateContext(XadesVerifier.KEY_INFO_SELECTOR, sigElement);
+		final XadesSignature signature;
+		try {
+			signature = verifier.getFactory().unmarshalXadesSignature(context);
+		} catch (MarshalException invalidSignature) {
+			throw new XMLSignatureException("The document does not contain a valid Xades signature", invalidSignature);
+		}
+		final Map<Reference, byte[]> digests = new IdentityHashMap<>(2);
+		@SuppressWarnings("unchecked")
+		final List<Reference> refs = signature.getSignedInfo().getReferences();
+		for (Reference r : refs)
+			if ("".equals(r.getURI()))
+				digests.put(r, isSupported(r) ? docDigest : null);
+		try {
+			return verifier.verify(signature, context, digests);
+		} catch (InterruptedException interrupted) {
+			Thread.currentThread().interrupt();
+			throw new XMLSignatureException("The verification of the signature was interrupted", interrupted);
+		}
+	}
+
+	/**
+	 * Indicates whether the digest of the document calculated using the configured algorithms applies to the given
+	 * reference to the document, i.e. whether it uses the configured digest algorithm and only the enveloped
+	 * signature transform, optionally followed by the configured canonicalisation.
+	 *
+	 * @param ref	the reference to the document
+	 * @return	<code>true</code> if the calculated digest applies to the reference, <code>false</code> otherwise
+	 */
+	private boolean isSupported(final Reference ref) {
+		if (!digestAlg.equals(ref.getDigestMethod().getAlgorithm()))
+			return false;
+		@SuppressWarnings("unchecked")
+		final List<Transform> transforms = ref.getTransforms();
+		if (transforms.isEmpty() || transforms.size() > 2
+			|| !Transform.ENVELOPED.equals(transforms.get(0).getAlgorithm()))
+			return false;
+		// Without explicit canonicalisation the node set is converted to octets using inclusive canonicalisation
+		final Transform c14n = transforms.size() == 2 ? transforms.get(1) : null;
+		final String refC14nAlg = c14n != null ? c14n.getAlgorithm() : CanonicalizationMethod.INCLUSIVE;
+		if (c14n != null && c14n.getParameterSpec() instanceof ExcC14NParameterSpec
+			&& !((ExcC14NParameterSpec) c14n.getParameterSpec()).getPrefixList().isEmpty())
+			return false;
+		return withoutComments(c14nAlg).equals(withoutComments(refC14nAlg));
+	}
+
+	/**
+	 * Reads the signature element the reader is positioned on into a DOM. The signature element is added to a parent
+	 * element that has the same name as its parent in the document and declares all namespaces and attributes in the
+	 * XML namespace that are in scope of the signature, so the canonical form of the elements of the signature is
+	 * the same as in the document. When this method returns the reader is positioned on the end tag of the signature.
+	 *
+	 * @param reader	the reader positioned on the start tag of the signature
+	 * @param parent	the parent element of the signature in the document
+	 * @return	the signature element
+	 * @throws XMLStreamException when the signature cannot be read
+	 * @throws XMLSignatureException when the signature contains an entity reference
+	 */
+	private static Element readSignature(final XMLStreamReader reader, final XMLSecStartElement parent)
+								throws XMLStreamException, XMLSignatureException, ParserConfigurationException {
+		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		final Document doc = dbf.newDocumentBuilder().newDocument();
+		final String parentPrefix = parent.getName().getPrefix();
+		final String parentName = (parentPrefix.isEmpty() ? "" : parentPrefix + ":") + parent.getName().getLocalPart();
+		final Element context = doc.createElementNS(emptyToNull(parent.getName().getNamespaceURI()), parentName);
+		doc.appendChild(context);
+		// The namespaces are returned starting at the root, so inner declarations replace the outer ones
+		final List<XMLSecNamespace> namespaces = new ArrayList<>();
+		parent.getNamespacesFromCurrentScope(namespaces);
+		final Map<String, String> inScope = new LinkedHashMap<>();
+		for (XMLSecNamespace ns : namespaces)
+			inScope.put(ns.getPrefix() != null ? ns.getPrefix() : "", ns.getNamespaceURI());
+		inScope.forEach((prefix, uri) -> {
+			if (!prefix.isEmpty() || !uri.isEmpty())
+				context.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, prefix.isEmpty() ?
+									   XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix, uri);
+		});
+		// The attributes are returned starting at the parent, so the first one found is the one in scope
+		final List<XMLSecAttribute> attributes = new ArrayList<>();
+		parent.getAttributesFromCurrentScope(attributes);
+		for (XMLSecAttribute a : attributes)
+			if (XMLConstants.XML_NS_URI.equals(a.getName().getNamespaceURI())
+				&& !context.hasAttributeNS(XMLConstants.XML_NS_URI, a.getName().getLocalPart()))
+				context.setAttributeNS(XMLConstants.XML_NS_URI,
+									   XMLConstants.XML_NS_PREFIX + ":" + a.getName().getLocalPart(), a.getValue());
+
+		Node node = context;
+		int depth = 0;
+		while (true) {
+			switch (reader.getEventType()) {
+			case XMLStreamConstants.START_ELEMENT :
+				final Element e = createElement(doc, reader);
+				node.appendChild(e);
+				node = e;
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT :
+				node = node.getParentNode();
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS :
+			case XMLStreamConstants.SPACE :
+			case XMLStreamConstants.CDATA :
+				node.appendChild(doc.createTextNode(reader.getText()));
+				break;
+			case XMLStreamConstants.COMMENT :
+				node.appendChild(doc.createComment(reader.getText()));
+				break;
+			case XMLStreamConstants.PROCESSING_INSTRUCTION :
+				node.appendChild(doc.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+				break;
+			case XMLStreamConstants.ENTITY_REFERENCE :
+				throw new XMLSignatureException("Documents with a DTD are not supported");
+			default:
+			}
+			if (depth == 0)
+				return (Element) context.getFirstChild();
+			reader.next();
+		}
+	}
+
+	/**
+	 * Creates the DOM element for the start tag the reader is positioned on, including its namespace declarations
+	 * and attributes.
+	 */
+	private static Element createElement(final Document doc, final XMLStreamReader reader) {
+		final String prefix = reader.getPrefix();
+		final Element e = doc.createElementNS(emptyToNull(reader.getNamespaceURI()),
+								(prefix == null || prefix.isEmpty() ? "" : prefix + ":") + reader.getLocalName());
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			final String nsPrefix = reader.getNamespacePrefix(i);
+			final String uri = reader.getNamespaceURI(i);
+			e.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, nsPrefix == null || nsPrefix.isEmpty() ?
+								XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + nsPrefix,
+							 uri != null ? uri : "");
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			final String attrPrefix = reader.getAttributePrefix(i);
+			e.setAttributeNS(emptyToNull(reader.getAttributeNamespace(i)),
+							 (attrPrefix == null || attrPrefix.isEmpty() ? "" : attrPrefix + ":")
+							 + reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		}
+		return e;
+	}
+
+	private static String emptyToNull(final String s) {
+		return s == null || s.isEmpty() ? null : s;
+	}
+
+	/**
+	 * Gets the variant of the given canonicalisation algorithm that omits comments. As comments are never included
+	 * for the same document reference, both variants result in the same digest.
+	 */
+	private static String withoutComments(final String c14nAlg) {
+		switch (c14nAlg) {
+		case CanonicalizationMethod.EXCLUSIVE_WITH_COMMENTS :
+			return CanonicalizationMethod.EXCLUSIVE;
+		case CanonicalizationMethod.INCLUSIVE_WITH_COMMENTS :
+			return CanonicalizationMethod.INCLUSIVE;
+		case "http://www.w3.org/2006/12/xml-c14n11#WithComments" :
+			return "http://www.w3.org/2006/12/xml-c14n11";
+		default:
+			return c14nAlg;
+		}
+	}
+
+	/**
+	 * Creates the streaming canonicaliser for the given algorithm. As comments are never included for the same
+	 * document reference, the canonicalisers that omit comments are also used for the with comments variants.
+	 *
+	 * @param c14nAlg	the canonicalisation algorithm
+	 * @return	a new canonicaliser
+	 * @throws IllegalArgumentException when the algorithm is not supported
+	 */
+	private static Transformer newCanonicalizer(final String c14nAlg) {
+		switch (withoutComments(c14nAlg)) {
+		case CanonicalizationMethod.EXCLUSIVE :
+			return new Canonicalizer20010315_ExclOmitCommentsTransformer();
+		case CanonicalizationMethod.INCLUSIVE :
+			return new Canonicalizer20010315_OmitCommentsTransformer();
+		case "http://www.w3.org/2006/12/xml-c14n11" :
+			return new Canonicalizer11_OmitCommentsTransformer();
+		default:
+			throw new IllegalArgumentException("Canonicalisation algorithm not supported for streaming: " + c14nAlg);
+		}
+	}
+
+	/**
+	 * Output stream that discards all data, used as the end of the digest calculation.
+	 */
+	private static class NullOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
@@ -85,7 +85,7 @@ public class UnsignedDataObjectProperties extends XadesElement {
 		
 		// Write attribute
 		if (!Utils.isNullOrEmpty(id))
-			xwriter.writeIdAttribute("", Constants.XADES_132_NS_URI, "Id", id);         		
+			xwriter.writeIdAttribute("", null, "Id", id);         		
 		
 		if (!Utils.isNullOrEmpty(properties)) {
 			for(UnsignedDataObjectProperty p : properties)
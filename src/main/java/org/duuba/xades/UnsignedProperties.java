@@ -112,7 +112,7 @@ public class UnsignedProperties extends XadesElement {
     		
 		// Write Id attribute
 		if (id != null && !id.isEmpty())
-			xwriter.writeIdAttribute("", Constants.XADES_132_NS_URI, "Id", id);         
+			xwriter.writeIdAttribute("", null, "Id", id);         
 		
 		// Write child elements
 		if (signatureProps != null)
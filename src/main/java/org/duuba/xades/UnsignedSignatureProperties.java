@@ -121,7 +121,7 @@ public class UnsignedSignatureProperties extends XadesElement {
     	
 		// Write attribute
 		if (id != null && !id.isEmpty())
-			xwriter.writeIdAttribute("", Constants.XADES_132_NS_URI, "Id", id);         
+			xwriter.writeIdAttribute("", null, "Id", id);         
 
 		// Write child elements
 		if (sigPolicyStore != null)
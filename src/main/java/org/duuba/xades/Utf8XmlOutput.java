@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Is the buffered UTF-8 output shared by the XML writers of this package, i.e. the {@link XmlWriterToStream} and
+ * the writer of the exclusive canonical form of the <code>SignedProperties</code>, so they escape and encode the
+ * characters in exactly the same way.
+ * <p>The characters are escaped as defined for the canonical form of XML: <code>&amp;</code> and <code>&lt;</code>
+ * are always escaped, <code>&gt;</code> only in text and <code>"</code> only in attribute values. Carriage returns
+ * and, in attribute values, tabs and line feeds are written as hexadecimal character references, so they are not
+ * changed by the normalisation of a parser. No other characters are changed. Unpaired surrogates are encoded as if
+ * they were normal characters, like Santuario's <code>UtfHelpper</code> does, instead of being replaced.
+ * <p>As the writers cannot throw checked exceptions, errors writing to the stream are thrown as {@link
+ * UncheckedIOException}. An instance is not thread safe.
+ */
+final class Utf8XmlOutput {
+
+	/**
+	 * The escaping modes
+	 */
+	private static final int NONE = 0;
+	private static final int TEXT = 1;
+	private static final int ATTRIBUTE = 2;
+	/**
+	 * Indicates per ASCII character in which modes it must be escaped
+	 */
+	private static final byte[] ESCAPED = new byte[0x80];
+	static {
+		for (char c = 0; c < ESCAPED.length; c++)
+			ESCAPED[c] = (byte) ((reference(c, false) != null ? TEXT : 0)
+								 | (reference(c, true) != null ? ATTRIBUTE : 0));
+	}
+
+	private final OutputStream	out;
+	private final byte[]		buffer;
+	private int					count;
+	/**
+	 * Used to process strings as character arrays
+	 */
+	private final char[]		chars = new char[512];
+
+	/**
+	 * Creates a new output that writes to the given stream.
+	 *
+	 * @param out			the stream to write to
+	 * @param bufferSize	the size of the buffer
+	 */
+	Utf8XmlOutput(final OutputStream out, final int bufferSize) {
+		this.out = out;
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * Writes the given text, escaping the characters that are not allowed or would be normalised in text.
+	 *
+	 * @param s	the text to write
+	 */
+	void writeText(final String s) {
+		write(s, TEXT);
+	}
+
+	/**
+	 * Writes the given characters as text, escaping the characters that are not allowed or would be normalised in
+	 * text.
+	 *
+	 * @param text		the array holding the characters to write
+	 * @param start		the index of the first character to write
+	 * @param length	the number of characters to write
+	 */
+	void writeText(final char[] text, final int start, final int length) {
+		write(text, start, start + length, TEXT);
+	}
+
+	/**
+	 * Writes the given attribute value, escaping the characters that are not allowed or would be normalised in
+	 * attribute values. The quotes around the value are not written.
+	 *
+	 * @param s	the value to write
+	 */
+	void writeAttributeValue(final String s) {
+		write(s, ATTRIBUTE);
+	}
+
+	/**
+	 * Writes the given string without escaping any characters, for example a name or the content of a comment.
+	 *
+	 * @param s	the string to write
+	 */
+	void writeUtf8(final String s) {
+		write(s, NONE);
+	}
+
+	/**
+	 * Writes the given string that only contains ASCII characters.
+	 *
+	 * @param s	the string to write
+	 */
+	void writeAscii(final String s) {
+		for (int i = 0; i < s.length(); i++)
+			writeByte(s.charAt(i));
+	}
+
+	void writeByte(final int b) {
+		ensureCapacity(1);
+		buffer[count++] = (byte) b;
+	}
+
+	/**
+	 * Writes the given bytes as they are.
+	 *
+	 * @param b	the bytes to write
+	 */
+	void writeBytes(final byte[] b) {
+		ensureCapacity(b.length);
+		if (b.length > buffer.length)
+			try {
+				out.write(b);
+			} catch (IOException writeError) {
+				throw new UncheckedIOException(writeError);
+			}
+		else {
+			System.arraycopy(b, 0, buffer, count, b.length);
+			count += b.length;
+		}
+	}
+
+	/**
+	 * Writes the buffered bytes to the stream, without flushing the stream.
+	 */
+	void writeBuffer() {
+		if (count > 0)
+			try {
+				out.write(buffer, 0, count);
+			} catch (IOException writeError) {
+				throw new UncheckedIOException(writeError);
+			}
+		count = 0;
+	}
+
+	/**
+	 * Writes the buffered bytes to the stream and flushes it.
+	 *
+	 * @throws IOException when the bytes cannot be written to the stream
+	 */
+	void flush() throws IOException {
+		if (count > 0)
+			out.write(buffer, 0, count);
+		count = 0;
+		out.flush();
+	}
+
+	/**
+	 * Writes the given string, copying it in chunks to the character array. A chunk never ends with the high
+	 * surrogate of a pair, so the pairs are always encoded as one character.
+	 */
+	private void write(final String s, final int escaping) {
+		final int length = s.length();
+		int start = 0;
+		while (start < length) {
+			int end = Math.min(length, start + chars.length);
+			if (end < length && Character.isHighSurrogate(s.charAt(end - 1)))
+				end--;
+			s.getChars(start, end, chars, 0);
+			write(chars, 0, end - start, escaping);
+			start = end;
+		}
+	}
+
+	/**
+	 * Writes the given characters. The runs of ASCII characters that do not need to be escaped, which is most of the
+	 * content of a document, are copied directly into the buffer, checking its capacity only once per run.
+	 */
+	private void write(final char[] c, final int start, final int end, final int escaping) {
+		int i = start;
+		while (i < end) {
+			ensureCapacity(4);
+			final int runEnd = Math.min(end, i + buffer.length - count);
+			char ch;
+			while (i < runEnd && (ch = c[i]) < 0x80 && (ESCAPED[ch] & escaping) == 0) {
+				buffer[count++] = (byte) ch;
+				i++;
+			}
+			if (i < runEnd)
+				i = writeChar(c, i, end, escaping);
+		}
+	}
+
+	/**
+	 * Writes the character at the given index, which is not an ASCII character or needs to be escaped.
+	 *
+	 * @return the index of the next character to write
+	 */
+	private int writeChar(final char[] c, final int i, final int end, final int escaping) {
+		final char ch = c[i];
+		if (ch < 0x80)
+			writeAscii(reference(ch, escaping == ATTRIBUTE));
+		else if (ch < 0x800) {
+			ensureCapacity(2);
+			buffer[count++] = (byte) (0xc0 | ch >> 6);
+			buffer[count++] = (byte) (0x80 | ch & 0x3f);
+		} else if (Character.isHighSurrogate(ch) && i + 1 < end && Character.isLowSurrogate(c[i + 1])) {
+			final int cp = Character.toCodePoint(ch, c[i + 1]);
+			ensureCapacity(4);
+			buffer[count++] = (byte) (0xf0 | cp >> 18);
+			buffer[count++] = (byte) (0x80 | cp >> 12 & 0x3f);
+			buffer[count++] = (byte) (0x80 | cp >> 6 & 0x3f);
+			buffer[count++] = (byte) (0x80 | cp & 0x3f);
+			return i + 2;
+		} else {
+			// Also unpaired surrogates
+			ensureCapacity(3);
+			buffer[count++] = (byte) (0xe0 | ch >> 12);
+			buffer[count++] = (byte) (0x80 | ch >> 6 & 0x3f);
+			buffer[count++] = (byte) (0x80 | ch & 0x3f);
+		}
+		return i + 1;
+	}
+
+	/**
+	 * Gets the escaped form of the given character.
+	 *
+	 * @param c				the character
+	 * @param inAttribute	<code>true</code> when the character is part of an attribute value, <code>false</code> when
+	 * 						it is part of text
+	 * @return	the entity or character reference to write, <code>null</code> when the character does not need to be
+	 * 			escaped
+	 */
+	private static String reference(final char c, final boolean inAttribute) {
+		switch (c) {
+		case '&' :
+			return "&amp;";
+		case '<' :
+			return "&lt;";
+		case '>' :
+			return inAttribute ? null : "&gt;";
+		case '"' :
+			return inAttribute ? "&quot;" : null;
+		case '\r' :
+			return "&#xD;";
+		case '\t' :
+			return inAttribute ? "&#x9;" : null;
+		case '\n' :
+			return inAttribute ? "&#xA;" : null;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Makes sure the given number of bytes can be added to the buffer, writing the buffered bytes to the stream if
+	 * needed.
+	 */
+	private void ensureCapacity(final int n) {
+		if (count + n > buffer.length)
+			writeBuffer();
+	}
+}
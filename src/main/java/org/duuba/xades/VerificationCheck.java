@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+/**
+ * Enumerates the checks executed by the {@link XadesVerifier} as part of the validation of a Xades baseline B-B
+ * signature. The result and duration of each check are included in the {@link VerificationReport}. The checks are
+ * executed in the order in which they are declared.
+ */
+public enum VerificationCheck {
+	/**
+	 * Checking that the <code>QualifyingProperties</code> target the signature and that the <code>SignedInfo</code>
+	 * contains exactly one reference of type <code>http://uri.etsi.org/01903#SignedProperties</code> that points to
+	 * the <code>SignedProperties</code>
+	 */
+	SIGNED_PROPERTIES_REFERENCE,
+	/**
+	 * Dereferencing, transforming and digesting the objects referenced by the <code>SignedInfo</code> and by the
+	 * <code>ds:Manifest</code>s it references and comparing the calculated digests with the digest values of the
+	 * references
+	 */
+	REFERENCE_DIGESTS,
+	/**
+	 * Canonicalising the <code>SignedInfo</code> and verifying the signature value using the public key of the signer
+	 */
+	SIGNATURE_VALUE,
+	/**
+	 * Checking that the signing certificate included in the <code>KeyInfo</code> is identified by the <code>
+	 * SigningCertificate</code> or <code>SigningCertificateV2</code> property, i.e. that the digest and, if included,
+	 * the issuer and serial number of one of its <code>Cert</code> elements match the certificate
+	 */
+	SIGNING_CERTIFICATE,
+	/**
+	 * Checking that the <code>SigningTime</code> property is present
+	 */
+	SIGNING_TIME,
+	/**
+	 * Checking that each signed data object has a <code>DataObjectFormat</code> property that includes the MIME type
+	 * and that each <code>DataObjectFormat</code> refers to a reference to a signed data object
+	 */
+	DATA_OBJECT_FORMAT
+}
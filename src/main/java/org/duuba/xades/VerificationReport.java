@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+/**
+ * Contains the result of the validation of a Xades signature by the {@link XadesVerifier}: the outcome and duration
+ * of each {@link VerificationCheck}, the result of the validation of each reference and the signing certificate.
+ * <p>The signature is valid when all checks passed. Note that the report only covers the validation of the signature
+ * itself, whether the signing certificate can be trusted must be determined by the application.
+ */
+public final class VerificationReport {
+
+	private final String					signatureId;
+	private final String[]					failures;
+	private final long[]					durations;
+	private final List<ReferenceResult>		references;
+	private final X509Certificate			signingCertificate;
+
+	VerificationReport(final String signatureId, final String[] failures, final long[] durations,
+					   final List<ReferenceResult> references, final X509Certificate signingCertificate) {
+		this.signatureId = signatureId;
+		this.failures = failures;
+		this.durations = durations;
+		this.references = references;
+		this.signingCertificate = signingCertificate;
+	}
+
+	/**
+	 * @return the <code>Id</code> of the validated signature, may be <code>null</code>
+	 */
+	public String getSignatureId() {
+		return signatureId;
+	}
+
+	/**
+	 * @return <code>true</code> if all checks passed, <code>false</code> otherwise
+	 */
+	public boolean isValid() {
+		for (String f : failures)
+			if (f != null)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Indicates whether the given check passed.
+	 *
+	 * @param check	the check
+	 * @return	<code>true</code> if the check passed, <code>false</code> if it failed
+	 */
+	public boolean isPassed(final VerificationCheck check) {
+		return failures[check.ordinal()] == null;
+	}
+
+	/**
+	 * Gets the reason why the given check failed.
+	 *
+	 * @param check	the check
+	 * @return	description of the failure, <code>null</code> if the check passed
+	 */
+	public String getFailureReason(final VerificationCheck check) {
+		return failures[check.ordinal()];
+	}
+
+	/**
+	 * Gets the duration of the given check. For the {@link VerificationCheck#REFERENCE_DIGESTS} check this is the
+	 * elapsed time of validating all references, which is less than the sum of the durations of the references when
+	 * they are validated in parallel.
+	 *
+	 * @param check	the check
+	 * @return	the duration of the check in nanoseconds
+	 */
+	public long getDuration(final VerificationCheck check) {
+		return durations[check.ordinal()];
+	}
+
+	/**
+	 * @return the total duration of the validation, i.e. the sum of all checks, in nanoseconds
+	 */
+	public long getTotalDuration() {
+		long total = 0;
+		for (long d : durations)
+			total += d;
+		return total;
+	}
+
+	/**
+	 * @return the results of the validation of the references in the <code>SignedInfo</code>, followed by those of the
+	 * 		   references in the signed <code>ds:Manifest</code>s, in document order
+	 */
+	public List<ReferenceResult> getReferenceResults() {
+		return references;
+	}
+
+	/**
+	 * @return the certificate from the <code>KeyInfo</code> that was used to validate the signature, <code>null
+	 * 		   </code> if no certificate was found
+	 */
+	public X509Certificate getSigningCertificate() {
+		return signingCertificate;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("VerificationReport[id=").append(signatureId)
+																		.append(", valid=").append(isValid());
+		for (VerificationCheck c : VerificationCheck.values()) {
+			sb.append(", ").append(c).append('=').append(isPassed(c) ? "passed" : "failed");
+			if (!isPassed(c))
+				sb.append(" (").append(getFailureReason(c)).append(')');
+			sb.append(' ').append(durations[c.ordinal()]).append("ns");
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Is the result of the validation of a single <code>ds:Reference</code>.
+	 */
+	public static final class ReferenceResult {
+		private final String	id;
+		private final String	uri;
+		private final String	type;
+		private final boolean	valid;
+		private final String	failure;
+		private final long		duration;
+
+		ReferenceResult(final String id, final String uri, final String type, final boolean valid,
+						final String failure, final long duration) {
+			this.id = id;
+			this.uri = uri;
+			this.type = type;
+			this.valid = valid;
+			this.failure = failure;
+			this.duration = duration;
+		}
+
+		/**
+		 * @return the <code>Id</code> of the reference, may be <code>null</code>
+		 */
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * @return the URI of the reference, may be <code>null</code>
+		 */
+		public String getURI() {
+			return uri;
+		}
+
+		/**
+		 * @return the type of the reference, may be <code>null</code>
+		 */
+		public String getType() {
+			return type;
+		}
+
+		/**
+		 * @return <code>true</code> if the calculated digest matches the digest value of the reference
+		 */
+		public boolean isValid() {
+			return valid;
+		}
+
+		/**
+		 * @return description of why the reference is invalid, <code>null</code> if it is valid
+		 */
+		public String getFailureReason() {
+			return failure;
+		}
+
+		/**
+		 * @return the duration of the validation of the reference in nanoseconds
+		 */
+		public long getDuration() {
+			return duration;
+		}
+
+		@Override
+		public String toString() {
+			return "ReferenceResult[uri=" + uri + ", valid=" + valid + (failure != null ? " (" + failure + ")" : "")
+					+ ", " + duration + "ns]";
+		}
+	}
+}
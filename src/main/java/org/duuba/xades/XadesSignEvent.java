@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+/**
+ * Is the Flight Recorder event for the creation of a Xades signature, i.e. the execution of {@link
+ * XadesSignature#sign(javax.xml.crypto.dsig.dom.DOMSignContext)}. As Flight Recorder events are not available on Java
+ * 8 this version of the event is never recorded, see the version in the <code>META-INF/versions/11</code> section of
+ * the jar for the description of the fields.
+ */
+final class XadesSignEvent extends NoopEvent {
+
+	String	xadesVersion;
+	String	signatureId;
+	String	signatureAlgorithm;
+	String	digestAlgorithm;
+	String	canonicalizationAlgorithm;
+	int		referenceCount;
+	long	streamedBytesDigested;
+	int		elementCount;
+	long	preparationTime;
+	long	signedPropertiesDigestTime;
+	long	marshallingTime;
+	long	referenceDigestTime;
+	long	signatureValueTime;
+}
@@ -16,19 +16,34 @@
  ******************************************************************************/
 package org.duuba.xades;
 
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.List;
 
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.KeySelectorResult;
 import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.URIDereferencer;
+import javax.xml.crypto.dom.DOMStructure;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.Reference;
 import javax.xml.crypto.dsig.SignedInfo;
+import javax.xml.crypto.dsig.Transform;
 import javax.xml.crypto.dsig.XMLObject;
 import javax.xml.crypto.dsig.XMLSignContext;
 import javax.xml.crypto.dsig.XMLSignature;
 import javax.xml.crypto.dsig.XMLSignature.SignatureValue;
 import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
 import javax.xml.crypto.dsig.XMLValidateContext;
 import javax.xml.crypto.dsig.dom.DOMSignContext;
 import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.crypto.dsig.spec.ExcC14NParameterSpec;
 
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
@@ -37,25 +52,75 @@ import org.w3c.dom.Node;
  * <code>xades:QualifyingProperties</code> child. Because the Xades signature is an extension of the regular XML 
  * signature this class' method signature is also the same as the {@link XMLSignature} interface with an additional
  * method to get the qualifying properties. 
+ * <p>Besides signing it in one step using {@link #sign(DOMSignContext)}, which requires the private key to be available
+ * in-process, the signature can also be signed in two phases when the private key is held by a remote signing service
+ * or HSM. In the first phase, {@link #prepare(Node)}, the signature is added to the document and the data to be signed,
+ * i.e. the canonicalised <code>SignedInfo</code>, is calculated. This data, or its digest, is then signed externally 
+ * and in the second phase the resulting signature value is added to the signature using {@link #complete(byte[])}.
+ * <p>When the <code>SignedProperties</code> are canonicalised using exclusive canonicalisation their digest is 
+ * calculated directly while they are marshalled in canonical form, instead of canonicalising the DOM tree again after
+ * it is created. 
+ * <p>When a {@link SigningListener} is registered in the sign context using the {@link #SIGNING_LISTENER_PROPERTY} it
+ * is notified of the durations of the signing phases after the signature has been created.
  * 
  * @author Sander Fieten (sander at chasquis-messaging.com)
  */
 public class XadesSignature {	
+	/**
+	 * Name of the property of the sign context that can be set to {@link Boolean#FALSE} to disable the direct 
+	 * calculation of the digest of the <code>SignedProperties</code> and let Santuario canonicalise the DOM tree.
+	 */
+	public static final String		DIRECT_DIGEST_PROPERTY = "org.duuba.xades.directSignedPropertiesDigest";
+	/**
+	 * Name of the property of the sign context to register a {@link SigningListener} that is notified with the
+	 * durations of the signing phases when the signature has been created
+	 */
+	public static final String		SIGNING_LISTENER_PROPERTY = "org.duuba.xades.signingListener";
+	/**
+	 * Name of the property of the sign context that holds the time, as a <code>Long</code> in nanoseconds, spent on 
+	 * creating the signature objects before signing. The time is reported to the {@link SigningListener} as duration 
+	 * of the {@link SigningPhase#PREPARATION} phase. 
+	 */
+	public static final String		PREPARATION_TIME_PROPERTY = "org.duuba.xades.preparationTime";
+	/**
+	 * Name of the property of the sign context to request caching of the reference data, in which case the digest of 
+	 * the <code>SignedProperties</code> is calculated by Santuario so the data is available
+	 */
+	private static final String		CACHE_REFERENCE_PROPERTY = "javax.xml.crypto.dsig.cacheReference";
+	
+	private final XMLSignatureFactory	sigFactory;
+	private final XadesVersion		version;
 	private XMLSignature			xmlSignature;
 	private QualifyingProperties 	qProperties;
 	private List<XMLObject>			otherObjects;
 	private Element					signatureElement;
+	// The data to be signed and the signature value when the signature is signed in two phases
+	private byte[]					dataToBeSigned;
+	private byte[]					externalSigValue;
 	
-	XadesSignature(final XMLSignature baseSignature, final QualifyingProperties qualifyingProps, 
-					final List<XMLObject> otherObjects) {
+	XadesSignature(final XMLSignatureFactory factory, final XadesVersion version, final XMLSignature baseSignature, 
+					final QualifyingProperties qualifyingProps, final List<XMLObject> otherObjects) {
+		this(factory, version, baseSignature, qualifyingProps, otherObjects, null);
+	}
+
+	/**
+	 * Creates a new instance for a signature that is unmarshalled from the given <code>Signature</code> element.
+	 */
+	XadesSignature(final XMLSignatureFactory factory, final XadesVersion version, final XMLSignature baseSignature, 
+				   final QualifyingProperties qualifyingProps, final List<XMLObject> otherObjects, 
+				   final Element signatureElement) {
+		this.sigFactory = factory;
+		this.version = version;
 		this.xmlSignature = baseSignature;
 		this.qProperties = qualifyingProps;
 		this.otherObjects = otherObjects;
+		this.signatureElement = signatureElement;
 	}
 	
 	/**
 	 * Get the <code>Signature</code> XML element representing this Xades signature. Note that this element is only 
-	 * available after the {@link #sign(DOMSignContext signContext)} method has been called when creating the signature.   
+	 * available after the {@link #sign(DOMSignContext signContext)} method has been called when creating the signature
+	 * or when the signature was unmarshalled using {@link XadesSignatureFactory#unmarshalXadesSignature}.
 	 * 
 	 * @return	the <code>Signature</code> XML element 
 	 */
@@ -130,21 +195,329 @@ public class XadesSignature {
 			if (signContext.getNamespacePrefix(Constants.XADES_141_NS_URI, null) == null)
 				signContext.putNamespacePrefix(Constants.XADES_141_NS_URI, Constants.XADES_141_NS_PREFIX);
 			
+			final XadesSignEvent event = new XadesSignEvent();
+			event.begin();
+			final Object listener = signContext.getProperty(SIGNING_LISTENER_PROPERTY);
+			if (listener instanceof SigningListener || event.isEnabled())
+				signAndRecord(signContext, listener instanceof SigningListener ? (SigningListener) listener : null,
+							  event);
+			else {
+				digestSignedProperties(signContext);
+				xmlSignature.sign(signContext);
+				setSignatureElement(signContext);
+			}
+		}
+	}
+
+	/**
+	 * Signs the Xades signature while recording the durations of the signing phases and reports them to the given 
+	 * listener and in the Flight Recorder event when the signature has been created. To detect the phases of the XML 
+	 * signature the key selector and URI dereferencer of the sign context are temporarily replaced by a {@link 
+	 * SigningPhaseRecorder}.
+	 * 
+	 * @param signContext	the signing context
+	 * @param listener		the listener to notify, may be <code>null</code> when only the event is recorded
+	 * @param event			the Flight Recorder event of the signature creation
+	 * @throws MarshalException 	 if an exception occurs while marshalling
+	 * @throws XMLSignatureException if an unexpected exception occurs while generating the signature
+	 */
+	private void signAndRecord(final DOMSignContext signContext, final SigningListener listener,
+							   final XadesSignEvent event) throws MarshalException, XMLSignatureException {
+		final KeySelector keySelector = signContext.getKeySelector();
+		final URIDereferencer dereferencer = signContext.getURIDereferencer();
+		final SigningPhaseRecorder recorder = new SigningPhaseRecorder(keySelector, dereferencer != null ? dereferencer
+																			: sigFactory.getURIDereferencer());
+		final Object preparationTime = signContext.getProperty(PREPARATION_TIME_PROPERTY);
+		if (preparationTime instanceof Long)
+			recorder.addDuration(SigningPhase.PREPARATION, (Long) preparationTime);
+		
+		recorder.startPhase(SigningPhase.SIGNED_PROPERTIES_DIGEST);
+		recorder.addStreamedBytesDigested(digestSignedProperties(signContext));
+		recorder.startPhase(SigningPhase.MARSHALLING);
+		signContext.setKeySelector(recorder);
+		signContext.setURIDereferencer(recorder);
+		try {
 			xmlSignature.sign(signContext);
-			// Get the Signature element of this Signature
-			final Node sibling = signContext.getNextSibling();
-			if (sibling != null) 
-				signatureElement = (Element) sibling.getPreviousSibling();
-			else
-				signatureElement = (Element) signContext.getParent().getLastChild();			
+		} finally {
+			recorder.startPhase(null);
+			signContext.setKeySelector(keySelector);
+			signContext.setURIDereferencer(dereferencer);
+		}
+		setSignatureElement(signContext);
+		
+		final SigningMetrics metrics = recorder.getMetrics(getId(), 
+												signatureElement.getElementsByTagNameNS("*", "*").getLength() + 1);
+		if (listener != null)
+			try {
+				listener.signatureCreated(metrics);
+			} catch (RuntimeException listenerFailure) {
+				// A failing listener must not fail the signature creation
+			}
+		if (event.shouldCommit())
+			commit(event, metrics);
+	}
+	
+	/**
+	 * Fills the Flight Recorder event of the signature creation with the information on the signature and the given
+	 * metrics and commits it.
+	 * 
+	 * @param event		the event to commit
+	 * @param metrics	the metrics of the signature creation
+	 */
+	private void commit(final XadesSignEvent event, final SigningMetrics metrics) {
+		final SignedInfo signedInfo = xmlSignature.getSignedInfo();
+		@SuppressWarnings("unchecked")
+		final List<Reference> references = signedInfo.getReferences();
+		event.xadesVersion = version != null ? version.name() : null;
+		event.signatureId = metrics.getSignatureId();
+		event.signatureAlgorithm = signedInfo.getSignatureMethod().getAlgorithm();
+		event.digestAlgorithm = references.get(references.size() - 1).getDigestMethod().getAlgorithm();
+		event.canonicalizationAlgorithm = signedInfo.getCanonicalizationMethod().getAlgorithm();
+		event.referenceCount = references.size();
+		event.streamedBytesDigested = metrics.getStreamedBytesDigested();
+		event.elementCount = metrics.getElementCount();
+		event.preparationTime = metrics.getDuration(SigningPhase.PREPARATION);
+		event.signedPropertiesDigestTime = metrics.getDuration(SigningPhase.SIGNED_PROPERTIES_DIGEST);
+		event.marshallingTime = metrics.getDuration(SigningPhase.MARSHALLING);
+		event.referenceDigestTime = metrics.getDuration(SigningPhase.REFERENCE_DIGEST);
+		event.signatureValueTime = metrics.getDuration(SigningPhase.SIGNATURE_VALUE);
+		event.commit();
+	}
+	
+	/**
+	 * Sets the <code>ds:Signature</code> element that was added to the document by signing. 
+	 * 
+	 * @param signContext	the signing context
+	 */
+	private void setSignatureElement(final DOMSignContext signContext) {
+		final Node sibling = signContext.getNextSibling();
+		if (sibling != null) 
+			signatureElement = (Element) sibling.getPreviousSibling();
+		else
+			signatureElement = (Element) signContext.getParent().getLastChild();			
+	}
+
+	/**
+	 * Calculates the digest of the <code>SignedProperties</code> by marshalling them directly in exclusive canonical 
+	 * form. As the digest value of an existing <code>Reference</code> cannot be set, the XML signature is recreated
+	 * with a reference to the signed properties that already contains the digest value, so Santuario does not 
+	 * dereference and canonicalise the signed properties element again.
+	 * <p>This is only done when the reference uses exclusive canonicalisation without an inclusive namespace prefix 
+	 * list. Inclusive canonicalisation also includes the namespaces declared in the enclosing document and is 
+	 * therefore left to Santuario, as are signed properties with content that cannot be marshalled without a DOM tree.
+	 * The digest is also calculated by Santuario when reference caching is enabled in the sign context, as the 
+	 * reference data is only available then, or when disabled using the {@link #DIRECT_DIGEST_PROPERTY}.
+	 * 
+	 * @param signContext	the signing context
+	 * @return	the number of bytes digested, 0 when the digest is left to Santuario
+	 * @throws MarshalException	when the signed properties cannot be marshalled 
+	 */
+	private long digestSignedProperties(final DOMSignContext signContext) throws MarshalException {
+		final SignedProperties signedProps = qProperties.getSignedProperties();
+		if (signedProps == null || signedProps.getId() == null
+			|| Boolean.FALSE.equals(signContext.getProperty(DIRECT_DIGEST_PROPERTY))
+			|| Boolean.TRUE.equals(signContext.getProperty(CACHE_REFERENCE_PROPERTY)))
+			return 0;
+		
+		final SignedInfo signedInfo = xmlSignature.getSignedInfo();
+		@SuppressWarnings("unchecked")
+		final List<Reference> references = signedInfo.getReferences();
+		final String spURI = "#" + signedProps.getId();
+		int spRefIndex = references.size() - 1;
+		while (spRefIndex >= 0 && !(Constants.SIGNED_PROPS_REF_TYPE.equals(references.get(spRefIndex).getType()) 
+									&& spURI.equals(references.get(spRefIndex).getURI())))
+			spRefIndex--;
+		if (spRefIndex < 0) 
+			return 0;
+		final Reference spRef = references.get(spRefIndex);
+		@SuppressWarnings("unchecked")
+		final List<Transform> transforms = spRef.getTransforms();
+		if (spRef.getDigestValue() != null || transforms.size() != 1
+			|| !CanonicalizationMethod.EXCLUSIVE.equals(transforms.get(0).getAlgorithm())
+			|| (transforms.get(0).getParameterSpec() instanceof ExcC14NParameterSpec
+				&& !((ExcC14NParameterSpec) transforms.get(0).getParameterSpec()).getPrefixList().isEmpty()))
+			return 0;
+		final String digestAlgorithm = JCEMapper.translateURItoJCEID(spRef.getDigestMethod().getAlgorithm());
+		if (digestAlgorithm == null)
+			return 0;
+		final MessageDigest digester;
+		try {
+			digester = MessageDigest.getInstance(digestAlgorithm);
+		} catch (NoSuchAlgorithmException unsupported) {
+			// Let Santuario report the unsupported algorithm
+			return 0;
 		}
+		
+		final long[] digested = new long[1];
+		final boolean written = ExcC14NXmlWriter.writeSignedProperties(qProperties, signContext, new OutputStream() {
+			@Override
+			public void write(int b) {
+				digester.update((byte) b);
+				digested[0]++;
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) {
+				digester.update(b, off, len);
+				digested[0] += len;
+			}
+		});
+		if (!written)
+			return 0;
+		
+		final List<Reference> newReferences = new ArrayList<>(references);
+		newReferences.set(spRefIndex, sigFactory.newReference(spRef.getURI(), spRef.getDigestMethod(), transforms, 
+														   spRef.getType(), spRef.getId(), digester.digest()));
+		xmlSignature = sigFactory.newXMLSignature(sigFactory.newSignedInfo(signedInfo.getCanonicalizationMethod(), 
+																		   signedInfo.getSignatureMethod(), 
+																		   newReferences, signedInfo.getId()),
+												  xmlSignature.getKeyInfo(), xmlSignature.getObjects(), 
+												  xmlSignature.getId(), xmlSignature.getSignatureValue().getId());
+		return digested[0];
 	}
 
+	/**
+	 * Executes the first phase of two-phase signing. The signature is added as last child to the given parent node,
+	 * the references are digested and the <code>SignedInfo</code> is canonicalised, but the signature value is not
+	 * calculated. The <code>SignatureValue</code> element remains empty until the signature value, calculated by an
+	 * external signer over the returned data, is added using {@link #complete(byte[])}.
+	 * 
+	 * @param parent	the node to add the signature to
+	 * @return	the data to be signed, i.e. the canonicalised <code>SignedInfo</code> element 
+	 * @throws MarshalException 	 if an exception occurs while marshalling
+	 * @throws XMLSignatureException if an unexpected exception occurs while preparing the signature
+	 * @see #prepare(Node, Node)
+	 */
+	public byte[] prepare(final Node parent) throws MarshalException, XMLSignatureException {
+		return prepare(parent, null);
+	}
+	
+	/**
+	 * Executes the first phase of two-phase signing, adding the signature to the given parent node before the given
+	 * sibling node. See {@link #prepare(Node)}.
+	 * <p>Note that the DSA signature algorithms are not supported for two-phase signing.
+	 * 
+	 * @param parent		the node to add the signature to
+	 * @param nextSibling	the node before which the signature is inserted, or <code>null</code> to add it as last
+	 * 						child of the parent
+	 * @return	the data to be signed, i.e. the canonicalised <code>SignedInfo</code> element 
+	 * @throws MarshalException 	 if an exception occurs while marshalling
+	 * @throws XMLSignatureException if an unexpected exception occurs while preparing the signature
+	 * @throws IllegalStateException if the signature has already been signed or prepared
+	 */
+	public byte[] prepare(final Node parent, final Node nextSibling) throws MarshalException, XMLSignatureException {
+		if (signatureElement != null)
+			throw new IllegalStateException("The signature has already been signed or prepared");
+		
+		final String sigAlgorithm = getSignedInfo().getSignatureMethod().getAlgorithm();
+		final String jcaAlgorithm = JCEMapper.translateURItoJCEID(sigAlgorithm);
+		if (jcaAlgorithm == null || !jcaAlgorithm.contains("with") || jcaAlgorithm.endsWith("withDSA"))
+			throw new XMLSignatureException("Signature algorithm " + sigAlgorithm 
+											+ " is not supported for two-phase signing");
+		
+		final CapturingSignatureProvider capture = new CapturingSignatureProvider(jcaAlgorithm);
+		final DOMSignContext signContext = nextSibling != null ? 
+						new DOMSignContext(CapturingSignatureProvider.PLACEHOLDER_KEY, parent, nextSibling)
+					  : new DOMSignContext(CapturingSignatureProvider.PLACEHOLDER_KEY, parent);
+		signContext.setProperty(CapturingSignatureProvider.SIGNATURE_PROVIDER_PROPERTY, capture);
+		sign(signContext);
+		
+		// Remove the placeholder value
+		final Element sigValueElement = getSignatureValueElement();
+		while (sigValueElement.hasChildNodes())
+			sigValueElement.removeChild(sigValueElement.getFirstChild());
+		
+		dataToBeSigned = capture.getCapturedData();
+		return dataToBeSigned.clone();
+	}
+	
+	/**
+	 * Gets the data to be signed that was calculated in the first phase of two-phase signing.
+	 * 
+	 * @return	the canonicalised <code>SignedInfo</code> element, or <code>null</code> if the signature was not 
+	 * 			prepared for two-phase signing
+	 */
+	public byte[] getDataToBeSigned() {
+		return dataToBeSigned != null ? dataToBeSigned.clone() : null;
+	}
+	
+	/**
+	 * Gets the digest of the data to be signed, calculated using the digest algorithm of the signature algorithm. 
+	 * This digest can be used with external signers that sign a pre-calculated digest instead of the data itself.
+	 * 
+	 * @return	the digest of the canonicalised <code>SignedInfo</code> element
+	 * @throws IllegalStateException	if the signature was not prepared for two-phase signing
+	 * @throws NoSuchAlgorithmException	if the signature algorithm does not use a separate digest algorithm, or it is 
+	 * 									not available
+	 */
+	public byte[] getDataToBeSignedDigest() throws NoSuchAlgorithmException {
+		if (dataToBeSigned == null)
+			throw new IllegalStateException("The signature was not prepared for two-phase signing");
+		
+		final String jcaAlgorithm = JCEMapper.translateURItoJCEID(getSignedInfo().getSignatureMethod().getAlgorithm());
+		final int with = jcaAlgorithm.indexOf("with");
+		if (with <= 0)
+			throw new NoSuchAlgorithmException("No digest algorithm defined for " + jcaAlgorithm);
+		String digestAlgorithm = jcaAlgorithm.substring(0, with);
+		if (digestAlgorithm.matches("SHA\\d+"))
+			digestAlgorithm = "SHA-" + digestAlgorithm.substring(3);
+		
+		return MessageDigest.getInstance(digestAlgorithm).digest(dataToBeSigned);
+	}
+	
+	/**
+	 * Executes the second phase of two-phase signing by adding the externally calculated signature value to the
+	 * signature. 
+	 * <p>NOTE: The signature value must be given in the format defined by the XML Signature specification for the
+	 * signature algorithm. For ECDSA this means that the value is the concatenation of <i>r</i> and <i>s</i> and not 
+	 * the ASN.1 structure most signers produce.
+	 * 
+	 * <p>As the signature method and value of the XML signature created in the first phase are bound to the data 
+	 * capturing provider, the XML signature is unmarshalled again from the completed <code>Signature</code> element 
+	 * so it can be validated like any other signature.
+	 * 
+	 * @param signatureValue	the signature value calculated over the data to be signed
+	 * @throws IllegalStateException	if the signature was not prepared for two-phase signing or already completed
+	 * @throws MarshalException 		if the completed signature element cannot be unmarshalled 
+	 */
+	public void complete(final byte[] signatureValue) throws MarshalException {
+		if (dataToBeSigned == null)
+			throw new IllegalStateException("The signature was not prepared for two-phase signing");
+		if (externalSigValue != null)
+			throw new IllegalStateException("The signature value has already been added");
+		if (signatureValue == null || signatureValue.length == 0)
+			throw new IllegalArgumentException("A signature value must be provided");
+		
+		externalSigValue = signatureValue.clone();
+		final Element sigValueElement = getSignatureValueElement();
+		sigValueElement.appendChild(sigValueElement.getOwnerDocument()
+												   .createTextNode(XMLUtils.encodeToString(externalSigValue)));
+		xmlSignature = sigFactory.unmarshalXMLSignature(new DOMStructure(signatureElement));
+	}
+	
+	/**
+	 * @return the <code>ds:SignatureValue</code> child element of the signature element
+	 */
+	private Element getSignatureValueElement() {
+		for (Node n = signatureElement.getFirstChild(); n != null; n = n.getNextSibling())
+			if (n.getNodeType() == Node.ELEMENT_NODE && XMLSignature.XMLNS.equals(n.getNamespaceURI()) 
+				&& "SignatureValue".equals(n.getLocalName()))
+				return (Element) n;
+		throw new IllegalStateException("Signature element does not contain a SignatureValue");
+	}
+	
+	/**
+	 * @return the result of the key selection when the signature value was validated, <code>null</code> if the 
+	 * 		   signature value has not been validated
+	 */
+	KeySelectorResult getKeySelectorResult() {
+		return xmlSignature.getKeySelectorResult();
+	}
+	
 	/**
 	 * Validates the Xades signature.
-	 * <p>Currently this only performs the default XML signature validation. The implementation will be extended to
-	 * in future versions to include Xades specific validation. 
-	 * <p><b>Therefore the specifications of this method will change!</b>
+	 * <p>This only performs the default XML signature validation. To also check the Xades specific requirements, like
+	 * the reference to the <code>SignedProperties</code> and the signing certificate, use a {@link XadesVerifier}.
 	 *   
      * {@inheritDoc}
 	 */
@@ -21,25 +21,28 @@ import java.security.NoSuchAlgorithmException;
 import java.security.Security;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
+import javax.xml.crypto.MarshalException;
 import javax.xml.crypto.dsig.Reference;
 import javax.xml.crypto.dsig.SignedInfo;
 import javax.xml.crypto.dsig.Transform;
 import javax.xml.crypto.dsig.XMLObject;
 import javax.xml.crypto.dsig.XMLSignature;
 import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
 import javax.xml.crypto.dsig.keyinfo.KeyInfo;
 import javax.xml.crypto.dsig.keyinfo.KeyInfoFactory;
 import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
 import javax.xml.crypto.dsig.spec.TransformParameterSpec;
-import javax.xml.datatype.DatatypeConfigurationException;
-import javax.xml.datatype.DatatypeFactory;
-import javax.xml.datatype.XMLGregorianCalendar;
 
 import org.apache.jcp.xml.dsig.internal.dom.DOMCanonicalizationMethod;
 import org.apache.jcp.xml.dsig.internal.dom.DOMXMLSignatureFactory;
@@ -48,6 +51,8 @@ import org.apache.xml.security.Init;
 import org.duuba.xades.AbstractEncapsulatedPKIDataTypeElement.Encoding;
 import org.duuba.xades.CommitmentTypeIndication.CommitmentTypeQualifier;
 import org.duuba.xades.SignaturePolicyIdentifier.SigPolicyQualifier;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 /**
@@ -70,22 +75,48 @@ import org.w3c.dom.Node;
  */
 public class XadesSignatureFactory {
 
-	private DOMXMLSignatureFactory 	factory;
-	private XadesVersion			version;
+	/**
+	 * The shared factory instances, one per Xades version
+	 */
+	private static final ConcurrentHashMap<XadesVersion, XadesSignatureFactory> SHARED = new ConcurrentHashMap<>();
+	/**
+	 * Indicates whether the Apache Santuario provider has been installed and initialised
+	 */
+	private static volatile boolean providerReady = false;
+	/**
+	 * Cache of the legacy time zones used to format the datetime values in region based time zones
+	 */
+	private static final ConcurrentHashMap<ZoneId, TimeZone> TIMEZONES = new ConcurrentHashMap<>();
+	
+	private final DOMXMLSignatureFactory 	factory;
+	private final XadesVersion				version;
+	private final IdGenerator				idGenerator;
 
 	/**
 	 * Creates a new <code>XadesSignatureFactory</code> instance.
+	 * <p>NOTE: As a factory does not contain any mutable state it is recommended to use the shared instance returned
+	 * by {@link #getInstance(XadesVersion)} instead of creating new instances.
 	 * 
 	 * @param version	the Xades version to be used 
 	 * @throws RuntimeException when the required Apache Santuario is not installed
 	 */
 	public XadesSignatureFactory(final XadesVersion version) {
+		this(version, null);
+	}
+	
+	/**
+	 * Creates a new <code>XadesSignatureFactory</code> instance that uses the given generator for the <code>Id</code>
+	 * of the <code>ds:SignatureValue</code> elements. 
+	 * 
+	 * @param version		the Xades version to be used 
+	 * @param idGenerator	the generator for the Ids of the signature values, if <code>null</code> the Id is derived 
+	 * 						from the Id of the signature
+	 * @throws RuntimeException when the required Apache Santuario is not installed
+	 */
+	public XadesSignatureFactory(final XadesVersion version, final IdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
 		try {
-			if (Security.getProvider("ApacheXMLDSig") == null) {
-				// Try to install the Apache lib
-				Security.addProvider(new XMLDSigRI());
-				Init.init();
-			}
+			installProvider();
 			this.factory = (DOMXMLSignatureFactory) XMLSignatureFactory.getInstance("DOM", "ApacheXMLDSig");
 		} catch (Exception noSantuario) {
 			throw new RuntimeException("Required Apache Santuario library not available");
@@ -93,6 +124,57 @@ public class XadesSignatureFactory {
 		this.version = version;
 	}		
 	
+	/**
+	 * Gets the shared <code>XadesSignatureFactory</code> instance for the given Xades version. The factory and the
+	 * underlying {@link XMLSignatureFactory} do not contain any mutable state and the shared instance can therefore
+	 * safely be used by multiple threads concurrently. Note that this does not apply to the objects created by the 
+	 * factory.
+	 * 
+	 * @param version	the Xades version to be used
+	 * @return	the shared factory for the given version 
+	 * @throws RuntimeException when the required Apache Santuario is not installed
+	 */
+	public static XadesSignatureFactory getInstance(final XadesVersion version) {
+		if (version == null)
+			throw new IllegalArgumentException("A Xades version must be specified");
+		
+		final XadesSignatureFactory shared = SHARED.get(version);
+		return shared != null ? shared : SHARED.computeIfAbsent(version, XadesSignatureFactory::new);
+	}
+	
+	/**
+	 * Ensures that the Apache Santuario provider is registered and the library is initialised. As this requires 
+	 * synchronised access to the security providers the check is only performed until the provider has been found.
+	 */
+	private static void installProvider() {
+		if (providerReady)
+			return;
+		synchronized (XadesSignatureFactory.class) {
+			if (!providerReady) {
+				if (Security.getProvider("ApacheXMLDSig") == null) 
+					// Try to install the Apache lib
+					Security.addProvider(new XMLDSigRI());
+				Init.init();
+				providerReady = true;
+			}
+		}
+	}
+	
+	/**
+	 * @return the generator used for the Ids of the signature values, or <code>null</code> if these are derived from
+	 * 		   the Id of the signature
+	 */
+	public IdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+	
+	/**
+	 * @return the Xades version of the components created by this factory
+	 */
+	public XadesVersion getVersion() {
+		return version;
+	}
+	
 	/**
 	 * Returns the {@link XMLSignatureFactory} instance that must be used to create the "common" signature components
 	 * like <code>ds:Reference</code> and <code>ds:Transform</code>.
@@ -106,8 +188,9 @@ public class XadesSignatureFactory {
 	/**
 	 * Creates a Xades signature with the specified parameters. 
 	 * 
-	 * @param id				value to use for the Id attribute of the <code>Signature</code> and with "sv-" prefix
-	 * 							for the Id attribute of the <code>SignatureValue</code> 
+	 * @param id				value to use for the Id attribute of the <code>Signature</code> and, unless the factory
+	 * 							has an {@link IdGenerator}, with "SV-" prefix for the Id attribute of the <code>
+	 * 							SignatureValue</code> 
 	 * @param digestAlg			digest algorithm to calculate the hash value of <code>SignedProperties</code> 
 	 * @param signingAlg		signing algorithm
 	 * @param c14nAlg			canonicalisation algorithm to use for both <code>SignedInfo</code> and 
@@ -163,9 +246,11 @@ public class XadesSignatureFactory {
 											factory.newSignatureMethod(signingAlg, null),
 											refsToSign);
 			// And finally create the XMLSignature object itself
-			final XMLSignature xmlSignature = factory.newXMLSignature(si, keyInfo, sigObjects, id, "SV-" + id);
+			final XMLSignature xmlSignature = factory.newXMLSignature(si, keyInfo, sigObjects, id, 
+														idGenerator != null ? idGenerator.generateId("SV-") 
+																			: "SV-" + id);
 			
-			return new XadesSignature(xmlSignature, qProperties, otherObjects);
+			return new XadesSignature(factory, version, xmlSignature, qProperties, otherObjects);
 		} catch (InvalidAlgorithmParameterException e) {
 			// This exception occurs when a c14n algorithm requiring parameters is specified. This is however not
 			// supported by this method
@@ -173,6 +258,101 @@ public class XadesSignatureFactory {
 		}
 	}
 	
+	/**
+	 * Unmarshals the Xades signature contained in the <code>ds:Signature</code> element that is the node of the given
+	 * validation context. Besides unmarshalling the XML signature, the <code>Id</code> of the <code>SignedProperties
+	 * </code> is registered in the context so the reference to them can be dereferenced when the signature is 
+	 * validated.
+	 * <p>The qualifying properties are parsed lazily, i.e. each property is only parsed when it is accessed for the 
+	 * first time. Like the DOM tree they are read from, the unmarshalled objects are not thread safe. Note that the
+	 * time-stamp, validation data and counter signature properties are not represented in the model and skipped.
+	 * 
+	 * @param context	the validation context, its node must be the <code>ds:Signature</code> element
+	 * @return	the unmarshalled Xades signature 
+	 * @throws MarshalException when the element is not a valid XML signature or does not contain qualifying properties
+	 */
+	public XadesSignature unmarshalXadesSignature(final DOMValidateContext context) throws MarshalException {
+		if (context == null)
+			throw new IllegalArgumentException("A validation context must be provided");
+		
+		final XMLSignature xmlSignature = factory.unmarshalXMLSignature(context);
+		final Node node = context.getNode();
+		final Element sigElement = node.getNodeType() == Node.DOCUMENT_NODE ? ((Document) node).getDocumentElement()
+																			 : (Element) node;
+		return new XadesUnmarshaller(context, factory.getProvider()).unmarshal(factory, version, xmlSignature, 
+																				sigElement);
+	}
+	
+	/**
+	 * Unmarshals the Xades signature contained in the given <code>ds:Signature</code> element. 
+	 * 
+	 * @param sigElement	the <code>ds:Signature</code> element
+	 * @return	the unmarshalled Xades signature 
+	 * @throws MarshalException when the element is not a valid XML signature or does not contain qualifying properties
+	 * @see #unmarshalXadesSignature(DOMValidateContext)
+	 */
+	public XadesSignature unmarshalXadesSignature(final Element sigElement) throws MarshalException {
+		if (sigElement == null)
+			throw new IllegalArgumentException("A signature element must be provided");
+		
+		final XMLSignature xmlSignature = factory.unmarshalXMLSignature(
+															new javax.xml.crypto.dom.DOMStructure(sigElement));
+		return new XadesUnmarshaller(null, factory.getProvider()).unmarshal(factory, version, xmlSignature, 
+																			 sigElement);
+	}
+	
+	/**
+	 * Creates a <code>ds:Reference</code> to a data object of which the digest value has already been calculated, for
+	 * example by another system that received the data object. When the signature is signed the data object is not
+	 * dereferenced and its digest is not calculated again, so a signature can be created without access to the data
+	 * objects themselves. The caller is responsible that the digest value was calculated over the result of applying
+	 * the given transforms to the referenced data object.
+	 * 
+	 * @param uri			reference to the data object, may be <code>null</code>
+	 * @param digestAlg		the digest algorithm that was used to calculate the digest value
+	 * @param digestVal		the calculated digest value of the referenced data object
+	 * @param transforms	the transforms that were applied to the data object, may be <code>null</code>
+	 * @param type			the type of the referenced data object, may be <code>null</code>
+	 * @param id			the identifier to use for the new reference, may be <code>null</code>
+	 * @return	a <code>Reference</code> instance that already contains the digest value 
+	 * @throws NoSuchAlgorithmException when the specified digest algorithm is not available
+	 */
+	public Reference newPrecomputedReference(final String uri, final String digestAlg, final byte[] digestVal, 
+											 final List<Transform> transforms, final String type, final String id) 
+													 									throws NoSuchAlgorithmException {
+		if (digestAlg == null || digestAlg.isEmpty())
+			throw new IllegalArgumentException("A digest algorithm must be provided");
+		if (digestVal == null || digestVal.length == 0)
+			throw new IllegalArgumentException("A digest value must be provided");
+		
+		try {
+			return factory.newReference(uri, factory.newDigestMethod(digestAlg, null), transforms, type, id, digestVal);
+		} catch (InvalidAlgorithmParameterException e) {
+			// This exception occurs when a digest algorithm requiring parameters is specified. This is however not
+			// supported by this method
+			throw new UnsupportedOperationException("Parameterised digest algorithm is not supported");
+		}
+	}
+
+	/**
+	 * Creates a <code>ds:Reference</code> to a data object of which the digest value has already been calculated, 
+	 * using the URI, digest algorithm and value of the given <code>ReferenceInfo</code>. 
+	 * 
+	 * @param refInfo	the reference information of the data object 
+	 * @param id		the identifier to use for the new reference, may be <code>null</code>
+	 * @return	a <code>Reference</code> instance that already contains the digest value 
+	 * @throws NoSuchAlgorithmException when the digest algorithm of the reference information is not available
+	 * @see #newPrecomputedReference(String, String, byte[], List, String, String)
+	 */
+	public Reference newPrecomputedReference(final ReferenceInfo refInfo, final String id) 
+																						throws NoSuchAlgorithmException {
+		if (refInfo == null)
+			throw new IllegalArgumentException("Reference information must be provided");
+		
+		return newPrecomputedReference(refInfo.getURI(), refInfo.getDigestMethod(), refInfo.getDigestValue(), null, 
+									   null, id);
+	}
+	
 	/**
 	 * Creates a <code>QualifyingProperties</code> with the specified parameters.
   	 *
@@ -188,7 +368,7 @@ public class XadesSignatureFactory {
 		if (signedProperties == null && unsignedProperties == null)
 			throw new IllegalArgumentException("Missing qualifying properties");
 		
-		return new QualifyingProperties(null, target, signedProperties, unsignedProperties);
+		return new QualifyingProperties(null, target, signedProperties, unsignedProperties, version);
 	}
 	
 	/**
@@ -430,6 +610,23 @@ public class XadesSignatureFactory {
 													   : new CertifiedRoleV2(id, attrCert);
 	}
 	
+	/**
+	 * Creates a <code>CertifiedRole</code> of which the DER encoded X509 attribute certificate is read from the given 
+	 * source. The certificate is read and Base64 encoded in chunks when the signature is created, so it does not need
+	 * to be loaded into memory. Depending on the Xades version the factory ensures the correct representation of the 
+	 * element is created.
+	 * 
+	 * @param id 		the id to identify the certificate included in the role instance
+	 * @param attrCert 	the source of the DER encoded X509 attribute certificate 
+	 * @return	a <code>CertifiedRole</code> instance
+	 */
+	public CertifiedRole newCertifiedRole(final String id, final ContentSource attrCert) {
+		if (attrCert == null)
+			throw new IllegalArgumentException("The attribute certificate must be provided");
+		return version == XadesVersion.TS_101_903_V141 ? new CertifiedRoleV1(id, attrCert) 
+													   : new CertifiedRoleV2(id, attrCert);
+	}
+	
 	/**
 	 * Creates a <code>CertifiedRole</code> based on a non X509 certificate.  
 	 * <p>NOTE: This kind of <code>CertifiedRole</code> is only supported in <i>EN 319 132 V1.1.1</i> based signatures. 
@@ -576,6 +773,25 @@ public class XadesSignatureFactory {
 		else 
 			return new SignaturePolicyStore(specId, policyDocument, null, null);
 	}
+
+	/**
+	 * Creates a <code>SignaturePolicyStore</code> that includes the policy document read from the given source. The
+	 * document is read and Base64 encoded in chunks when the signature is created, so large documents do not need to
+	 * be loaded into memory. 
+	 * <p>NOTE: This qualifying attribute is only supported in <i>EN 319 132 V1.1.1</i> based signatures.
+	 *  
+	 * @param specId 		  the object identifier of the policy document's specification
+	 * @param policyDocument  the source of the policy document 
+	 * @return	a <code>SignaturePolicyStore</code> instance
+	 * @throws UnsupportedOperationException when called on a factory initialised for <i>TS 101 903 V1.4.1</i>  
+	 */
+	public SignaturePolicyStore newSignaturePolicyStore(final IObjectIdentifier specId, 
+														final ContentSource policyDocument) {
+		if (version == XadesVersion.TS_101_903_V141)
+			throw new UnsupportedOperationException();
+		else 
+			return new SignaturePolicyStore(specId, policyDocument, null);
+	}
 	
 	/**
 	 * Creates a <code>SignaturePolicyStore</code> with the specified parameters.
@@ -664,6 +880,20 @@ public class XadesSignatureFactory {
 	public EncapsulatedTimeStamp newEncapsulatedTimeStamp(final String id, final byte[] data, final Encoding encoding) {
 		return new EncapsulatedTimeStamp(id, data, encoding);
 	}
+
+	/**
+	 * Creates a <code>EncapsulatedTimeStamp</code> of which the contents is read from the given source. The data is
+	 * read and Base64 encoded in chunks when the signature is created, so it does not need to be loaded into memory. 
+	 * 
+	 * @param id		identifier to use for the new object
+	 * @param data		source of the encoded time stamp data
+	 * @param encoding  type of encoding used 
+	 * @return	a <code>EncapsulatedTimeStamp</code> instance
+	 */
+	public EncapsulatedTimeStamp newEncapsulatedTimeStamp(final String id, final ContentSource data, 
+														  final Encoding encoding) {
+		return new EncapsulatedTimeStamp(id, data, encoding);
+	}
 	
 	/**
 	 * Create a <code>XAdESTimeStamp</code> with the specified parameters.   
@@ -684,20 +914,66 @@ public class XadesSignatureFactory {
 	}
 	
 	/**
-	 * Converts a Java {@link ZonedDateTime} object into a XML datetime string.
+	 * Converts a Java {@link ZonedDateTime} object into a XML datetime string. The fractional seconds are not included
+	 * and the timezone is written as "Z" for UTC and as offset in hours and minutes otherwise.
+	 * <p>The output is identical to converting the datetime to a {@link java.util.GregorianCalendar} and formatting it
+	 * using a {@link javax.xml.datatype.XMLGregorianCalendar}, but without the overhead of looking up the datatype 
+	 * factory and creating the intermediate objects. As the conversion to a <code>GregorianCalendar</code> uses the 
+	 * legacy {@link TimeZone} rules for the offset of a region based time zone, these are also used here. 
 	 * 
 	 * @param datetime	Java datetime object
 	 * @return			XML string representation of the datetime
 	 */
 	public static String convertToXMLString(final ZonedDateTime datetime) {
-		try {
-			XMLGregorianCalendar xmlCalendar = DatatypeFactory.newInstance().newXMLGregorianCalendar(
-																					GregorianCalendar.from(datetime));
-			xmlCalendar.setFractionalSecond(null);
-			return xmlCalendar.toXMLFormat(); 
-		} catch (DatatypeConfigurationException e) {
-			throw new RuntimeException("Required DatatypeFactory missing");
-		}	
+		final ZoneId zone = datetime.getZone();
+		final int offset;
+		if (zone instanceof ZoneOffset) {
+			// A TimeZone cannot represent offsets with seconds and will use GMT instead
+			final int totalSeconds = ((ZoneOffset) zone).getTotalSeconds();
+			offset = totalSeconds % 60 == 0 ? totalSeconds : 0;
+		} else 
+			offset = TIMEZONES.computeIfAbsent(zone, TimeZone::getTimeZone)
+							  .getOffset(datetime.toInstant().toEpochMilli()) / 1000;
+		final LocalDateTime local = LocalDateTime.ofEpochSecond(datetime.toEpochSecond(), 0, 
+																ZoneOffset.ofTotalSeconds(offset));
+		
+		final StringBuilder xml = new StringBuilder(25);
+		int year = local.getYear();
+		if (year <= 0) {
+			// There is no year 0 in XML Schema 1.0, the year before 1 is -1
+			xml.append('-');
+			year = 1 - year;
+		}
+		appendPadded(xml, year, 4).append('-');
+		appendPadded(xml, local.getMonthValue(), 2).append('-');
+		appendPadded(xml, local.getDayOfMonth(), 2).append('T');
+		appendPadded(xml, local.getHour(), 2).append(':');
+		appendPadded(xml, local.getMinute(), 2).append(':');
+		appendPadded(xml, local.getSecond(), 2);
+		int offsetMinutes = offset / 60;
+		if (offsetMinutes == 0)
+			xml.append('Z');
+		else {
+			xml.append(offsetMinutes < 0 ? '-' : '+');
+			offsetMinutes = Math.abs(offsetMinutes);
+			appendPadded(xml, offsetMinutes / 60, 2).append(':');
+			appendPadded(xml, offsetMinutes % 60, 2);
+		}
+		return xml.toString();
 	}
 	
+	/**
+	 * Appends the given non negative number with leading zeros to fill at least the given number of digits.
+	 * 
+	 * @param sb		the builder to append to
+	 * @param value		the value to append
+	 * @param digits	the minimum number of digits
+	 * @return	the builder
+	 */
+	private static StringBuilder appendPadded(final StringBuilder sb, final int value, final int digits) {
+		for (int limit = 10, d = 1; d < digits; d++, limit *= 10) 
+			if (value < limit)
+				sb.append('0');
+		return sb.append(value);
+	}
 }
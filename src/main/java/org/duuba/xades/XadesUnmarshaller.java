@@ -0,0 +1,648 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.Provider;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dom.DOMCryptoContext;
+import javax.xml.crypto.dom.DOMStructure;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLObject;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+
+import org.apache.jcp.xml.dsig.internal.dom.DOMTransform;
+import org.apache.xml.security.utils.XMLUtils;
+import org.duuba.xades.AbstractCertIDTypeElement.CertDigest;
+import org.duuba.xades.AbstractCertIDTypeElement.IssuerSerial;
+import org.duuba.xades.AbstractCertIDTypeV2Element.IssuerSerialV2;
+import org.duuba.xades.CommitmentTypeIndication.CommitmentTypeQualifier;
+import org.duuba.xades.SignaturePolicyIdentifier.SigPolicyQualifier;
+import org.duuba.xades.UnsignedDataObjectProperties.UnsignedDataObjectProperty;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Unmarshals the Xades specific part of a <code>ds:Signature</code> element, i.e. the <code>QualifyingProperties
+ * </code>, into the objects of the Xades model. The qualifying properties are parsed lazily: the containers of the 
+ * properties only locate the child elements when they are created and each property is parsed when it is accessed
+ * for the first time. A verifier that only needs the signing time and signing certificate therefore does not spend 
+ * any time on decoding the signer role, signature policy or commitments. 
+ * <p>The model does not contain classes for the time-stamp, validation data and counter signature properties, these
+ * unsigned signature properties are therefore skipped.
+ * <p>NOTE: Like the DOM tree they are read from, the unmarshalled objects are not thread safe. 
+ */
+final class XadesUnmarshaller {
+	
+	private static final String XADES_NS = Constants.XADES_132_NS_URI;
+	
+	private final DOMCryptoContext	context;
+	private final Provider			provider;
+	
+	/**
+	 * Creates a new unmarshaller.
+	 * 
+	 * @param context	the context used to unmarshal the XML signature, if <code>null</code> a new context is created
+	 * @param provider	the provider of the XML signature factory, used to unmarshal the transforms of the signature 
+	 * 					policy
+	 */
+	XadesUnmarshaller(final DOMCryptoContext context, final Provider provider) {
+		this.context = context != null ? context : new UnmarshalContext();
+		this.provider = provider;
+	}
+
+	/**
+	 * Creates the Xades signature for an already unmarshalled XML signature. The <code>ds:Object</code> that contains
+	 * the <code>QualifyingProperties</code> is located and the <code>Id</code> of the <code>SignedProperties</code> is 
+	 * registered in the context so the reference to them can be dereferenced when the signature is validated.  
+	 * 
+	 * @param factory		the factory used to unmarshal the XML signature
+	 * @param version		the Xades version of the factory
+	 * @param xmlSignature	the unmarshalled XML signature
+	 * @param sigElement	the <code>ds:Signature</code> element
+	 * @return	the Xades signature
+	 * @throws MarshalException when the signature does not contain qualifying properties
+	 */
+	XadesSignature unmarshal(final XMLSignatureFactory factory, final XadesVersion version, 
+							 final XMLSignature xmlSignature, final Element sigElement) throws MarshalException {
+		Element qpElement = null;
+		final List<XMLObject> otherObjects = new ArrayList<>();
+		for (Object o : xmlSignature.getObjects()) {
+			final Element e = qpElement == null ? findQualifyingProperties((XMLObject) o) : null;
+			if (e != null)
+				qpElement = e;
+			else
+				otherObjects.add((XMLObject) o);
+		}
+		if (qpElement == null)
+			throw new MarshalException("Signature does not contain QualifyingProperties");
+		
+		final Element spElement = getChild(qpElement, XADES_NS, "SignedProperties");
+		final Attr spId = spElement != null ? spElement.getAttributeNode("Id") : null;
+		if (spId != null)
+			context.setIdAttributeNS(spElement, spId.getNamespaceURI(), spId.getLocalName());
+
+		return new XadesSignature(factory, version, xmlSignature, 
+								  new LazyQualifyingProperties(qpElement, spElement, version), otherObjects, 
+								  sigElement);
+	}
+	
+	/**
+	 * Gets the <code>QualifyingProperties</code> element contained in the given <code>ds:Object</code>.
+	 * 
+	 * @param obj	the object 
+	 * @return	the <code>QualifyingProperties</code> element, <code>null</code> if the object does not contain it
+	 */
+	private static Element findQualifyingProperties(final XMLObject obj) {
+		for (Object c : obj.getContent()) {
+			if (c instanceof DOMStructure) {
+				final Node n = ((DOMStructure) c).getNode();
+				if (n.getNodeType() == Node.ELEMENT_NODE && isElement(n, XADES_NS, "QualifyingProperties"))
+					return (Element) n;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * The <code>QualifyingProperties</code> of which the signed properties are parsed on first access and the 
+	 * unsigned properties are parsed completely on first access.
+	 */
+	final class LazyQualifyingProperties extends QualifyingProperties {
+		private Element				spElement;
+		private Element				upElement;
+		private SignedProperties	signedProps;
+		private UnsignedProperties	unsignedProps;
+		
+		LazyQualifyingProperties(final Element e, final Element spElement, final XadesVersion version) {
+			super(getAttribute(e, "Id"), getAttribute(e, "Target"), null, null, version);
+			this.spElement = spElement;
+			this.upElement = getChild(e, XADES_NS, "UnsignedProperties");
+		}
+		
+		@Override
+		public SignedProperties getSignedProperties() {
+			if (spElement != null) {
+				signedProps = new LazySignedProperties(spElement);
+				spElement = null;
+			}
+			return signedProps;
+		}
+		
+		@Override
+		public UnsignedProperties getUnsignedProperties() {
+			if (upElement != null) {
+				unsignedProps = parseUnsignedProperties(upElement);
+				upElement = null;
+			}
+			return unsignedProps;
+		}
+	}
+	
+	/**
+	 * The <code>SignedProperties</code> of which the signed signature properties are located and the signed data 
+	 * object properties are parsed on first access.
+	 */
+	final class LazySignedProperties extends SignedProperties {
+		private Element						sspElement;
+		private Element						sdopElement;
+		private SignedSignatureProperties	signatureProps;
+		private SignedDataObjectProperties	dataObjectProps;
+		
+		LazySignedProperties(final Element e) {
+			super(getAttribute(e, "Id"), null, null);
+			this.sspElement = getChild(e, XADES_NS, "SignedSignatureProperties");
+			this.sdopElement = getChild(e, XADES_NS, "SignedDataObjectProperties");
+		}
+		
+		@Override
+		public SignedSignatureProperties getSignatureProperties() {
+			if (sspElement != null) {
+				signatureProps = new LazySignedSignatureProperties(sspElement);
+				sspElement = null;
+			}
+			return signatureProps;
+		}
+		
+		@Override
+		public SignedDataObjectProperties getDataObjectProperties() {
+			if (sdopElement != null) {
+				dataObjectProps = parseSignedDataObjectProperties(sdopElement);
+				sdopElement = null;
+			}
+			return dataObjectProps;
+		}
+	}
+	
+	/**
+	 * The <code>SignedSignatureProperties</code> of which each property is parsed when it is accessed for the first 
+	 * time.
+	 */
+	final class LazySignedSignatureProperties extends SignedSignatureProperties {
+		private Element						signingTimeElement;
+		private Element						certElement;
+		private Element						policyElement;
+		private Element						placeElement;
+		private Element						roleElement;
+		private List<Node>					otherContent;
+		private ZonedDateTime				signingTime;
+		private SigningCertificate			certInfo;
+		private SignaturePolicyIdentifier	signaturePolicy;
+		private SignatureProductionPlace	productionPlace;
+		private SignerRole					signerRole;
+		
+		LazySignedSignatureProperties(final Element e) {
+			super(getAttribute(e, "Id"), null, null, null, null, null, null);
+			for (Element c = getFirstChild(e); c != null; c = getNextSibling(c)) {
+				if (!XADES_NS.equals(c.getNamespaceURI())) {
+					if (otherContent == null)
+						otherContent = new ArrayList<>(1);
+					otherContent.add(c);
+				} else {
+					switch (c.getLocalName()) {
+					case "SigningTime" :
+						signingTimeElement = c; break;
+					case "SigningCertificate" :
+					case "SigningCertificateV2" :
+						certElement = c; break;
+					case "SignaturePolicyIdentifier" :
+						policyElement = c; break;
+					case "SignatureProductionPlace" :
+					case "SignatureProductionPlaceV2" :
+						placeElement = c; break;
+					case "SignerRole" :
+					case "SignerRoleV2" :
+						roleElement = c; break;
+					default:
+					}
+				}
+			}
+		}
+		
+		@Override
+		public ZonedDateTime getSigningTime() {
+			if (signingTimeElement != null) {
+				signingTime = parseSigningTime(signingTimeElement);
+				signingTimeElement = null;
+			}
+			return signingTime;
+		}
+		
+		@Override
+		public SigningCertificate getSigningCertificate() {
+			if (certElement != null) {
+				certInfo = parseSigningCertificate(certElement);
+				certElement = null;
+			}
+			return certInfo;
+		}
+		
+		@Override
+		public SignaturePolicyIdentifier getSignaturePolicyIdentifier() {
+			if (policyElement != null) {
+				signaturePolicy = parseSignaturePolicyIdentifier(policyElement);
+				policyElement = null;
+			}
+			return signaturePolicy;
+		}
+		
+		@Override
+		public SignatureProductionPlace getSignatureProductionPlace() {
+			if (placeElement != null) {
+				productionPlace = parseSignatureProductionPlace(placeElement);
+				placeElement = null;
+			}
+			return productionPlace;
+		}
+		
+		@Override
+		public SignerRole getSignerRole() {
+			if (roleElement != null) {
+				signerRole = parseSignerRole(roleElement);
+				roleElement = null;
+			}
+			return signerRole;
+		}
+		
+		@Override
+		public List<Node> getOtherContent() {
+			return otherContent;
+		}
+	}
+	
+	/**
+	 * Parses the <code>SigningTime</code> element. A datetime without time zone is interpreted as UTC time.
+	 */
+	static ZonedDateTime parseSigningTime(final Element e) {
+		try {
+			final TemporalAccessor t = DateTimeFormatter.ISO_DATE_TIME.parseBest(e.getTextContent().trim(), 
+																		ZonedDateTime::from, LocalDateTime::from);
+			return t instanceof ZonedDateTime ? (ZonedDateTime) t : ((LocalDateTime) t).atZone(ZoneOffset.UTC);
+		} catch (RuntimeException invalid) {
+			throw invalid(e, invalid);
+		}
+	}
+	
+	/**
+	 * Parses the <code>SigningCertificate</code> or <code>SigningCertificateV2</code> element.
+	 */
+	static SigningCertificate parseSigningCertificate(final Element e) {
+		final boolean v2 = "SigningCertificateV2".equals(e.getLocalName());
+		final SigningCertificate signingCert = v2 ? new SigningCertificateV2() : new SigningCertificate();
+		for (Element cert = getFirstChild(e); cert != null; cert = getNextSibling(cert)) {
+			if (!isElement(cert, XADES_NS, "Cert"))
+				continue;
+			CertDigest digest = null;
+			IssuerSerial issuerSerial = null;
+			try {
+				for (Element c = getFirstChild(cert); c != null; c = getNextSibling(c)) {
+					if (isElement(c, XADES_NS, "CertDigest"))
+						digest = new CertDigest(getDigestMethod(c), getDigestValue(c));
+					else if (isElement(c, XADES_NS, "IssuerSerial")) 
+						issuerSerial = new IssuerSerial(getText(c, XMLSignature.XMLNS, "X509IssuerName"),
+											new BigInteger(getText(c, XMLSignature.XMLNS, "X509SerialNumber").trim()));
+					else if (isElement(c, XADES_NS, "IssuerSerialV2"))
+						issuerSerial = new IssuerSerialV2(c.getTextContent().trim());
+				}
+			} catch (RuntimeException invalid) {
+				throw invalid(cert, invalid);
+			}
+			if (digest == null || (issuerSerial == null && !v2))
+				throw invalid(cert, null);
+			signingCert.addCertificate(digest, issuerSerial);
+		}
+		return signingCert;
+	}
+
+	/**
+	 * Parses the <code>SignaturePolicyIdentifier</code> element.
+	 */
+	SignaturePolicyIdentifier parseSignaturePolicyIdentifier(final Element e) {
+		final Element policyId = getChild(e, XADES_NS, "SignaturePolicyId");
+		if (policyId == null)
+			return new SignaturePolicyIdentifier();
+		
+		IObjectIdentifier oid = null;
+		List<Transform> transforms = null;
+		String digestMethod = null;
+		byte[] digestValue = null;
+		List<SigPolicyQualifier> qualifiers = null;
+		try {
+			for (Element c = getFirstChild(policyId); c != null; c = getNextSibling(c)) {
+				if (isElement(c, XADES_NS, "SigPolicyId"))
+					oid = parseObjectIdentifier(c);
+				else if (isElement(c, XMLSignature.XMLNS, "Transforms")) {
+					transforms = new ArrayList<>();
+					for (Element t = getFirstChild(c); t != null; t = getNextSibling(t))
+						transforms.add(new DOMTransform(t, context, provider));
+				} else if (isElement(c, XADES_NS, "SigPolicyHash")) {
+					digestMethod = getDigestMethod(c);
+					digestValue = getDigestValue(c);
+				} else if (isElement(c, XADES_NS, "SigPolicyQualifiers")) {
+					qualifiers = new ArrayList<>();
+					for (Element q = getFirstChild(c); q != null; q = getNextSibling(q))
+						qualifiers.add(new SigPolicyQualifier(getContent(q)));
+				}
+			}
+		} catch (MarshalException | RuntimeException invalid) {
+			throw invalid(e, invalid);
+		}
+		if (oid == null || digestMethod == null)
+			throw invalid(e, null);
+		return new SignaturePolicyIdentifier(oid, transforms, digestMethod, digestValue, qualifiers);
+	}
+
+	/**
+	 * Parses the <code>SignatureProductionPlace</code> or <code>SignatureProductionPlaceV2</code> element.
+	 */
+	static SignatureProductionPlace parseSignatureProductionPlace(final Element e) {
+		final String city = getText(e, XADES_NS, "City");
+		final String state = getText(e, XADES_NS, "StateOrProvince");
+		final String postalCode = getText(e, XADES_NS, "PostalCode");
+		final String country = getText(e, XADES_NS, "CountryName");
+		return "SignatureProductionPlaceV2".equals(e.getLocalName()) ?
+					new SignatureProductionPlaceV2(city, getText(e, XADES_NS, "StreetAddress"), state, postalCode, 
+												   country)
+				  : new SignatureProductionPlace(city, state, postalCode, country);
+	}
+
+	/**
+	 * Parses the <code>SignerRole</code> or <code>SignerRoleV2</code> element.
+	 */
+	static SignerRole parseSignerRole(final Element e) {
+		List<ClaimedRole> claimed = null;
+		List<CertifiedRole> certified = null;
+		List<SignedAssertion> assertions = null;
+		try {
+			for (Element c = getFirstChild(e); c != null; c = getNextSibling(c)) {
+				if (isElement(c, XADES_NS, "ClaimedRoles")) {
+					claimed = new ArrayList<>();
+					for (Element r = getFirstChild(c); r != null; r = getNextSibling(r))
+						claimed.add(new ClaimedRole(getContent(r)));
+				} else if (isElement(c, XADES_NS, "CertifiedRoles")) {
+					certified = new ArrayList<>();
+					for (Element r = getFirstChild(c); r != null; r = getNextSibling(r))
+						certified.add(new CertifiedRoleV1(getAttribute(r, "Id"), parseCertificate(r)));
+				} else if (isElement(c, XADES_NS, "CertifiedRolesV2")) {
+					certified = new ArrayList<>();
+					for (Element r = getFirstChild(c); r != null; r = getNextSibling(r)) {
+						final Element ac = getFirstChild(r);
+						if (ac != null && isElement(ac, XADES_NS, "X509AttributeCertificate"))
+							certified.add(new CertifiedRoleV2(getAttribute(ac, "Id"), parseCertificate(ac)));
+						else if (ac != null)
+							certified.add(new CertifiedRoleV2(getContent(ac)));
+					}
+				} else if (isElement(c, XADES_NS, "SignedAssertions")) {
+					assertions = new ArrayList<>();
+					for (Element a = getFirstChild(c); a != null; a = getNextSibling(a))
+						assertions.add(new SignedAssertion(getContent(a)));
+				}
+			}
+		} catch (CertificateException | RuntimeException invalid) {
+			throw invalid(e, invalid);
+		}
+		return "SignerRoleV2".equals(e.getLocalName()) ? new SignerRoleV2(claimed, certified, assertions)
+													   : new SignerRole(claimed, certified);
+	}
+
+	/**
+	 * Parses the <code>SignedDataObjectProperties</code> element.
+	 */
+	static SignedDataObjectProperties parseSignedDataObjectProperties(final Element e) {
+		List<DataObjectFormat> formats = null;
+		List<CommitmentTypeIndication> commitments = null;
+		for (Element c = getFirstChild(e); c != null; c = getNextSibling(c)) {
+			if (isElement(c, XADES_NS, "DataObjectFormat")) {
+				if (formats == null)
+					formats = new ArrayList<>();
+				final Element oid = getChild(c, XADES_NS, "ObjectIdentifier");
+				formats.add(new DataObjectFormat(getAttribute(c, "ObjectReference"), 
+												 getText(c, XADES_NS, "Description"), 
+												 oid != null ? parseObjectIdentifier(oid) : null,
+												 getText(c, XADES_NS, "MimeType"), 
+												 getText(c, XADES_NS, "Encoding")));
+			} else if (isElement(c, XADES_NS, "CommitmentTypeIndication")) {
+				if (commitments == null)
+					commitments = new ArrayList<>();
+				commitments.add(parseCommitmentTypeIndication(c));
+			}
+		}
+		return new SignedDataObjectProperties(getAttribute(e, "Id"), formats, commitments);
+	}
+
+	/**
+	 * Parses the <code>CommitmentTypeIndication</code> element.
+	 */
+	static CommitmentTypeIndication parseCommitmentTypeIndication(final Element e) {
+		IObjectIdentifier typeId = null;
+		List<String> objectRefs = null;
+		List<CommitmentTypeQualifier> qualifiers = null;
+		for (Element c = getFirstChild(e); c != null; c = getNextSibling(c)) {
+			if (isElement(c, XADES_NS, "CommitmentTypeId"))
+				typeId = parseObjectIdentifier(c);
+			else if (isElement(c, XADES_NS, "ObjectReference")) {
+				if (objectRefs == null)
+					objectRefs = new ArrayList<>();
+				objectRefs.add(c.getTextContent().trim());
+			} else if (isElement(c, XADES_NS, "CommitmentTypeQualifiers")) {
+				qualifiers = new ArrayList<>();
+				for (Element q = getFirstChild(c); q != null; q = getNextSibling(q))
+					qualifiers.add(new CommitmentTypeQualifier(getContent(q)));
+			}
+		}
+		if (typeId == null)
+			throw invalid(e, null);
+		return new CommitmentTypeIndication(typeId, objectRefs, qualifiers);
+	}
+	
+	/**
+	 * Parses the <code>UnsignedProperties</code> element. Of the unsigned signature properties only the <code>
+	 * SignaturePolicyStore</code> is included, the other properties have no representation in the model.
+	 */
+	static UnsignedProperties parseUnsignedProperties(final Element e) {
+		UnsignedSignatureProperties signatureProps = null;
+		UnsignedDataObjectProperties dataObjectProps = null;
+		for (Element c = getFirstChild(e); c != null; c = getNextSibling(c)) {
+			if (isElement(c, XADES_NS, "UnsignedSignatureProperties")) {
+				final Element store = getChild(c, Constants.XADES_141_NS_URI, "SignaturePolicyStore");
+				signatureProps = new UnsignedSignatureProperties(getAttribute(c, "Id"), 
+													store != null ? parseSignaturePolicyStore(store) : null);
+			} else if (isElement(c, XADES_NS, "UnsignedDataObjectProperties")) {
+				final List<UnsignedDataObjectProperty> props = new ArrayList<>();
+				for (Element p = getFirstChild(c); p != null; p = getNextSibling(p))
+					props.add(new UnsignedDataObjectProperty(getContent(p)));
+				dataObjectProps = new UnsignedDataObjectProperties(getAttribute(c, "Id"), props);
+			}
+		}
+		return new UnsignedProperties(getAttribute(e, "Id"), signatureProps, dataObjectProps);
+	}
+
+	/**
+	 * Parses the <code>SignaturePolicyStore</code> element.
+	 */
+	static SignaturePolicyStore parseSignaturePolicyStore(final Element e) {
+		final Element spec = getChild(e, Constants.XADES_141_NS_URI, "SPDocSpecification");
+		final Element doc = getChild(e, Constants.XADES_141_NS_URI, "SignaturePolicyDocument");
+		if (spec == null)
+			throw invalid(e, null);
+		try {
+			return new SignaturePolicyStore(parseObjectIdentifier(spec), 
+											doc != null ? XMLUtils.decode(doc.getTextContent()) : null,
+											getText(e, Constants.XADES_141_NS_URI, "SigPolDocLocalURI"),
+											getAttribute(e, "Id"));
+		} catch (IllegalArgumentException invalid) {
+			throw invalid(e, invalid);
+		}
+	}
+	
+	/**
+	 * Parses an element of the <code>ObjectIdentifierType</code>. 
+	 */
+	static ObjectIdentifier parseObjectIdentifier(final Element e) {
+		String identifier = null;
+		QualifierType qualifier = null;
+		String description = null;
+		List<String> docReferences = null;
+		for (Element c = getFirstChild(e); c != null; c = getNextSibling(c)) {
+			if (!XADES_NS.equals(c.getNamespaceURI()))
+				continue;
+			switch (c.getLocalName()) {
+			case "Identifier" :
+				identifier = c.getTextContent().trim();
+				final String q = getAttribute(c, "Qualifier");
+				try {
+					qualifier = q != null ? QualifierType.valueOf(q.trim()) : null;
+				} catch (IllegalArgumentException unknownQualifier) {
+					throw invalid(c, unknownQualifier);
+				}
+				break;
+			case "Description" :
+				description = c.getTextContent(); break;
+			case "DocumentationReferences" :
+				docReferences = new ArrayList<>();
+				for (Element r = getFirstChild(c); r != null; r = getNextSibling(r))
+					docReferences.add(r.getTextContent().trim());
+				break;
+			default:
+			}
+		}
+		if (identifier == null)
+			throw invalid(e, null);
+		return new ObjectIdentifier(identifier, qualifier, description, docReferences);
+	}
+	
+	/**
+	 * Decodes the X.509 certificate contained in the given element of the <code>EncapsulatedPKIDataType</code>.
+	 */
+	private static X509Certificate parseCertificate(final Element e) throws CertificateException {
+		return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+												new ByteArrayInputStream(XMLUtils.decode(e.getTextContent())));
+	}
+	
+	/**
+	 * @return the algorithm of the <code>ds:DigestMethod</code> child of the given element
+	 */
+	private static String getDigestMethod(final Element e) {
+		final Element dm = getChild(e, XMLSignature.XMLNS, "DigestMethod");
+		return dm != null ? getAttribute(dm, "Algorithm") : null;
+	}
+	
+	/**
+	 * @return the decoded value of the <code>ds:DigestValue</code> child of the given element
+	 */
+	private static byte[] getDigestValue(final Element e) {
+		final Element dv = getChild(e, XMLSignature.XMLNS, "DigestValue");
+		return dv != null ? XMLUtils.decode(dv.getTextContent()) : null;
+	}
+	
+	/**
+	 * Gets the value of an attribute by its name, regardless whether the attribute was created with a namespace in
+	 * the DOM tree of a newly created signature or without one in a parsed document. 
+	 */
+	private static String getAttribute(final Element e, final String name) {
+		final Attr a = e.getAttributeNode(name);
+		return a != null ? a.getValue() : null;
+	}
+
+	/**
+	 * @return the text content of the first child element with the given name, <code>null</code> if there is none
+	 */
+	private static String getText(final Element parent, final String nsURI, final String localName) {
+		final Element e = getChild(parent, nsURI, localName);
+		return e != null ? e.getTextContent() : null;
+	}
+	
+	/**
+	 * @return all child nodes of the given element, used as content of the elements of the <code>AnyType</code>
+	 */
+	private static List<Node> getContent(final Element e) {
+		final List<Node> content = new ArrayList<>();
+		for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling())
+			content.add(n);
+		return content;
+	}
+	
+	private static Element getChild(final Element parent, final String nsURI, final String localName) {
+		Element c = getFirstChild(parent);
+		while (c != null && !isElement(c, nsURI, localName))
+			c = getNextSibling(c);
+		return c;
+	}
+	
+	private static Element getFirstChild(final Node parent) {
+		Node n = parent.getFirstChild();
+		while (n != null && n.getNodeType() != Node.ELEMENT_NODE)
+			n = n.getNextSibling();
+		return (Element) n;
+	}
+	
+	private static Element getNextSibling(final Node node) {
+		Node n = node.getNextSibling();
+		while (n != null && n.getNodeType() != Node.ELEMENT_NODE)
+			n = n.getNextSibling();
+		return (Element) n;
+	}
+	
+	private static boolean isElement(final Node n, final String nsURI, final String localName) {
+		return localName.equals(n.getLocalName()) && nsURI.equals(n.getNamespaceURI());
+	}
+	
+	private static IllegalStateException invalid(final Element e, final Exception cause) {
+		return new IllegalStateException("Invalid " + e.getLocalName() + " element in the qualifying properties", 
+										 cause);
+	}
+	
+	/**
+	 * The context used to unmarshal the transforms of the signature policy when no context is provided.
+	 */
+	private static final class UnmarshalContext extends DOMCryptoContext {
+	}
+}
@@ -0,0 +1,653 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import javax.xml.crypto.AlgorithmMethod;
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.KeySelectorException;
+import javax.xml.crypto.KeySelectorResult;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.XMLCryptoContext;
+import javax.xml.crypto.dsig.Manifest;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.XMLObject;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.crypto.dsig.XMLValidateContext;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.crypto.dsig.keyinfo.X509Data;
+
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.duuba.xades.AbstractCertIDTypeElement.CertDigest;
+import org.duuba.xades.AbstractCertIDTypeElement.IssuerSerial;
+import org.holodeckb2b.commons.util.Utils;
+
+/**
+ * Validates Xades baseline B-B signatures. Besides the core validation of the XML signature, i.e. the validation of
+ * the references and the signature value, the verifier checks the Xades specific requirements that are listed in
+ * {@link VerificationCheck}. All checks are always executed and their outcome and duration are reported in a {@link
+ * VerificationReport}, so a signature that fails a check is reported instead of rejected by an exception.
+ * <p>When the verifier is created with an {@link Executor}, the references to detached data objects, i.e. the
+ * references that do not point to the document containing the signature, are validated in parallel by tasks
+ * submitted to the executor. The references to the same document are always validated by the calling thread as the
+ * DOM tree is not thread safe. When references are validated in parallel, the {@link
+ * javax.xml.crypto.URIDereferencer} of the validation context must be thread safe.
+ * <p>When the validation context has no key selector, the signature is validated using the public key of the first
+ * certificate in the <code>KeyInfo</code> of the signature. Note that the verifier does not check whether the signing
+ * certificate can be trusted, this must be done by the application using the certificate included in the report.
+ * <p>When the verifier is created with a {@link CertificateIndex}, the <code>Cert</code> elements of the <code>
+ * SigningCertificate(V2)</code> property are resolved using the index instead of calculating the digest of the
+ * signing certificate. The index is also used to find the signing certificate of signatures that do not include it in
+ * their <code>KeyInfo</code>.
+ * <p>A verifier can be used to validate multiple signatures, also concurrently.
+ *
+ * @see XadesSignatureFactory#unmarshalXadesSignature(DOMValidateContext)
+ */
+public class XadesVerifier {
+
+	/**
+	 * Selects the public key of the first certificate in the <code>KeyInfo</code>
+	 */
+	static final KeySelector KEY_INFO_SELECTOR = new KeySelector() {
+		@Override
+		public KeySelectorResult select(final KeyInfo keyInfo, final Purpose purpose, final AlgorithmMethod method,
+										final XMLCryptoContext context) throws KeySelectorException {
+			final List<X509Certificate> certs = getCertificates(keyInfo);
+			if (certs.isEmpty())
+				throw new KeySelectorException("No certificate found in KeyInfo");
+			final PublicKey key = certs.get(0).getPublicKey();
+			return () -> key;
+		}
+	};
+
+	private final XadesSignatureFactory	factory;
+	private final Executor				executor;
+	private final CertificateIndex		certIndex;
+
+	/**
+	 * Creates a new verifier that validates all references of a signature using the calling thread.
+	 *
+	 * @param factory	the factory to unmarshal the signatures with
+	 */
+	public XadesVerifier(final XadesSignatureFactory factory) {
+		if (factory == null)
+			throw new IllegalArgumentException("A Xades signature factory must be provided");
+		this.factory = factory;
+		this.executor = null;
+		this.certIndex = null;
+	}
+
+	/**
+	 * Creates a new verifier that validates the references to detached data objects in parallel using the given
+	 * executor.
+	 *
+	 * @param factory	the factory to unmarshal the signatures with
+	 * @param executor	the executor to run the reference validation tasks
+	 */
+	public XadesVerifier(final XadesSignatureFactory factory, final Executor executor) {
+		if (factory == null)
+			throw new IllegalArgumentException("A Xades signature factory must be provided");
+		if (executor == null)
+			throw new IllegalArgumentException("An executor must be provided");
+		this.factory = factory;
+		this.executor = executor;
+		this.certIndex = null;
+	}
+
+	/**
+	 * Creates a new verifier that uses the given index to find the signing certificates and, when an executor is
+	 * provided, validates the references to detached data objects in parallel using it.
+	 *
+	 * @param factory	the factory to unmarshal the signatures with
+	 * @param executor	the executor to run the reference validation tasks, <code>null</code> to validate all
+	 * 					references using the calling thread
+	 * @param certIndex	the index of the known signing certificates
+	 */
+	public XadesVerifier(final XadesSignatureFactory factory, final Executor executor,
+						 final CertificateIndex certIndex) {
+		if (factory == null)
+			throw new IllegalArgumentException("A Xades signature factory must be provided");
+		if (certIndex == null)
+			throw new IllegalArgumentException("A certificate index must be provided");
+		this.factory = factory;
+		this.executor = executor;
+		this.certIndex = certIndex;
+	}
+
+	/**
+	 * @return the factory used to unmarshal the signatures
+	 */
+	XadesSignatureFactory getFactory() {
+		return factory;
+	}
+
+	/**
+	 * Unmarshals and validates the Xades signature contained in the <code>ds:Signature</code> element that is the
+	 * node of the given validation context.
+	 *
+	 * @param context	the validation context, its node must be the <code>ds:Signature</code> element
+	 * @return	the report of the validation
+	 * @throws MarshalException when the element is not a valid XML signature or does not contain qualifying properties
+	 * @throws InterruptedException when the calling thread was interrupted while waiting for the references to be
+	 * 								validated. The validation of the references that were not started yet is
+	 * 								cancelled.
+	 */
+	public VerificationReport verify(final DOMValidateContext context) throws MarshalException, InterruptedException {
+		if (context == null)
+			throw new IllegalArgumentException("A validation context must be provided");
+		return verify(factory.unmarshalXadesSignature(context), context);
+	}
+
+	/**
+	 * Validates the given Xades signature.
+	 *
+	 * @param signature	the Xades signature to validate, normally unmarshalled using {@link
+	 * 					XadesSignatureFactory#unmarshalXadesSignature(DOMValidateContext)}
+	 * @param context	the validation context
+	 * @return	the report of the validation
+	 * @throws InterruptedException when the calling thread was interrupted while waiting for the references to be
+	 * 								validated. The validation of the references that were not started yet is
+	 * 								cancelled.
+	 */
+	public VerificationReport verify(final XadesSignature signature, final XMLValidateContext context)
+																						throws InterruptedException {
+		return verify(signature, context, Collections.emptyMap());
+	}
+
+	/**
+	 * Validates the given Xades signature using the already calculated digests of some of its references. These
+	 * references are not dereferenced but their digest value is compared to the given digest. A reference that is
+	 * mapped to <code>null</code> cannot be validated and is therefore invalid.
+	 *
+	 * @param signature			the Xades signature to validate
+	 * @param context			the validation context
+	 * @param calculatedDigests	the calculated digests of the references, keyed by reference instance
+	 * @return	the report of the validation
+	 * @throws InterruptedException when the calling thread was interrupted while waiting for the references to be
+	 * 								validated
+	 */
+	VerificationReport verify(final XadesSignature signature, final XMLValidateContext context,
+							  final Map<Reference, byte[]> calculatedDigests) throws InterruptedException {
+		if (signature == null)
+			throw new IllegalArgumentException("A signature must be provided");
+		if (context == null)
+			throw new IllegalArgumentException("A validation context must be provided");
+
+		final String[] failures = new String[VerificationCheck.values().length];
+		final long[] durations = new long[failures.length];
+
+		long start = System.nanoTime();
+		failures[VerificationCheck.SIGNED_PROPERTIES_REFERENCE.ordinal()] = checkSignedPropertiesReference(signature);
+		long end = System.nanoTime();
+		durations[VerificationCheck.SIGNED_PROPERTIES_REFERENCE.ordinal()] = end - start;
+
+		start = end;
+		final List<VerificationReport.ReferenceResult> refResults = validateReferences(signature, context,
+																					  calculatedDigests);
+		for (VerificationReport.ReferenceResult r : refResults)
+			if (!r.isValid()) {
+				failures[VerificationCheck.REFERENCE_DIGESTS.ordinal()] = "Reference " + r.getURI() + " is invalid: "
+																		  + r.getFailureReason();
+				break;
+			}
+		end = System.nanoTime();
+		durations[VerificationCheck.REFERENCE_DIGESTS.ordinal()] = end - start;
+
+		start = end;
+		// The default key selector depends on the signature, so it must not remain in the caller's context
+		final KeySelector callerSelector = context.getKeySelector();
+		if (callerSelector == null || callerSelector == KEY_INFO_SELECTOR)
+			context.setKeySelector(certIndex == null ? KEY_INFO_SELECTOR : newIndexSelector(signature));
+		try {
+			failures[VerificationCheck.SIGNATURE_VALUE.ordinal()] = checkSignatureValue(signature, context);
+		} finally {
+			context.setKeySelector(callerSelector);
+		}
+		end = System.nanoTime();
+		durations[VerificationCheck.SIGNATURE_VALUE.ordinal()] = end - start;
+
+		start = end;
+		final X509Certificate signingCert = getSigningCertificate(signature, certIndex);
+		failures[VerificationCheck.SIGNING_CERTIFICATE.ordinal()] = checkSigningCertificate(signature, signingCert,
+																							  certIndex);
+		end = System.nanoTime();
+		durations[VerificationCheck.SIGNING_CERTIFICATE.ordinal()] = end - start;
+
+		start = end;
+		failures[VerificationCheck.SIGNING_TIME.ordinal()] = checkSigningTime(signature);
+		end = System.nanoTime();
+		durations[VerificationCheck.SIGNING_TIME.ordinal()] = end - start;
+
+		start = end;
+		failures[VerificationCheck.DATA_OBJECT_FORMAT.ordinal()] = checkDataObjectFormats(signature);
+		durations[VerificationCheck.DATA_OBJECT_FORMAT.ordinal()] = System.nanoTime() - start;
+
+		return new VerificationReport(signature.getId(), failures, durations, refResults, signingCert);
+	}
+
+	/**
+	 * Checks that the qualifying properties target the signature and that there is exactly one reference to the
+	 * <code>SignedProperties</code>.
+	 *
+	 * @param signature	the signature
+	 * @return	the reason why the check failed, <code>null</code> if it passed
+	 */
+	private static String checkSignedPropertiesReference(final XadesSignature signature) {
+		final QualifyingProperties qp = signature.getQualifyingProperties();
+		final String sigId = signature.getId();
+		if (sigId == null || !("#" + sigId).equals(qp.getTarget()))
+			return "QualifyingProperties do not target the signature";
+		final SignedProperties sp = qp.getSignedProperties();
+		if (sp == null || sp.getId() == null)
+			return "No SignedProperties with an Id";
+
+		int count = 0;
+		for (Reference r : getReferences(signature))
+			if (Constants.SIGNED_PROPS_REF_TYPE.equals(r.getType())) {
+				if (!("#" + sp.getId()).equals(r.getURI()))
+					return "Reference of SignedProperties type does not point to the SignedProperties";
+				count++;
+			}
+		return count == 1 ? null : count + " references to the SignedProperties instead of exactly one";
+	}
+
+	/**
+	 * Validates the references in the <code>SignedInfo</code> and in the <code>ds:Manifest</code>s referenced by it.
+	 * When an executor is configured, the references to detached data objects are submitted to it first so they are
+	 * validated while the calling thread validates the references to the same document.
+	 *
+	 * @param signature			the signature
+	 * @param context			the validation context
+	 * @param calculatedDigests	the already calculated digests of references
+	 * @return	the results of the validation of each reference, first the references of the <code>SignedInfo</code>
+	 * 			and then those of the signed manifests, in document order
+	 * @throws InterruptedException when the calling thread was interrupted while waiting for the validation tasks
+	 */
+	private List<VerificationReport.ReferenceResult> validateReferences(final XadesSignature signature,
+													final XMLValidateContext context,
+													final Map<Reference, byte[]> calculatedDigests)
+																						throws InterruptedException {
+		final List<Reference> refs = new ArrayList<>(getReferences(signature));
+		refs.addAll(getSignedManifestReferences(signature));
+		final VerificationReport.ReferenceResult[] results = new VerificationReport.ReferenceResult[refs.size()];
+		final List<CompletableFuture<VerificationReport.ReferenceResult>> tasks = new ArrayList<>(refs.size());
+		for (Reference r : refs)
+			tasks.add(executor != null && isDetached(r) && !calculatedDigests.containsKey(r) ?
+							CompletableFuture.supplyAsync(() -> validateReference(r, context), executor) : null);
+
+		for (int i = 0; i < results.length; i++) {
+			final Reference r = refs.get(i);
+			if (tasks.get(i) == null)
+				results[i] = calculatedDigests.containsKey(r) ? compareDigest(r, calculatedDigests.get(r))
+															  : validateReference(r, context);
+		}
+		try {
+			for (int i = 0; i < results.length; i++)
+				if (tasks.get(i) != null)
+					results[i] = tasks.get(i).get();
+		} catch (InterruptedException interrupted) {
+			for (CompletableFuture<VerificationReport.ReferenceResult> t : tasks)
+				if (t != null)
+					t.cancel(false);
+			throw interrupted;
+		} catch (ExecutionException e) {
+			// As the tasks catch all exceptions this should not happen
+			throw new IllegalStateException("Reference validation task failed unexpectedly", e.getCause());
+		}
+		return Collections.unmodifiableList(Arrays.asList(results));
+	}
+
+	/**
+	 * Gets the references contained in the <code>ds:Manifest</code>s of the signature that are referenced by the
+	 * <code>SignedInfo</code>. As the core validation of the signature only checks the digest of the manifest element
+	 * itself, these references must be validated separately to detect changes of the data objects.
+	 *
+	 * @param signature	the signature
+	 * @return	the references of the signed manifests, in document order
+	 */
+	private static List<Reference> getSignedManifestReferences(final XadesSignature signature) {
+		if (signature.getOtherObjects() == null || signature.getOtherObjects().isEmpty())
+			return Collections.emptyList();
+		final Set<String> signedURIs = new HashSet<>();
+		for (Reference r : getReferences(signature))
+			if (r.getURI() != null)
+				signedURIs.add(r.getURI());
+		final List<Reference> refs = new ArrayList<>();
+		for (XMLObject o : signature.getOtherObjects())
+			for (Object c : o.getContent())
+				if (c instanceof Manifest && ((Manifest) c).getId() != null
+					&& signedURIs.contains("#" + ((Manifest) c).getId()))
+					for (Object r : ((Manifest) c).getReferences())
+						refs.add((Reference) r);
+		return refs;
+	}
+
+	/**
+	 * Validates a single reference. The task never fails as a failure is included in the result.
+	 *
+	 * @param ref		the reference to validate
+	 * @param context	the validation context
+	 * @return	the result of the validation
+	 */
+	private static VerificationReport.ReferenceResult validateReference(final Reference ref,
+																		 final XMLValidateContext context) {
+		final long start = System.nanoTime();
+		boolean valid;
+		String failure;
+		try {
+			valid = ref.validate(context);
+			failure = valid ? null : "Calculated digest does not match the digest value";
+		} catch (XMLSignatureException | RuntimeException validationFailure) {
+			valid = false;
+			failure = "Reference could not be validated: " + getMessage(validationFailure);
+		}
+		return new VerificationReport.ReferenceResult(ref.getId(), ref.getURI(), ref.getType(), valid, failure,
+													  System.nanoTime() - start);
+	}
+
+	/**
+	 * Validates a reference of which the digest has already been calculated.
+	 *
+	 * @param ref		the reference to validate
+	 * @param digest	the calculated digest, <code>null</code> if it could not be calculated
+	 * @return	the result of the validation
+	 */
+	private static VerificationReport.ReferenceResult compareDigest(final Reference ref, final byte[] digest) {
+		final long start = System.nanoTime();
+		final String failure;
+		if (digest == null)
+			failure = "Reference could not be validated: digest could not be calculated";
+		else if (!MessageDigest.isEqual(digest, ref.getDigestValue()))
+			failure = "Calculated digest does not match the digest value";
+		else
+			failure = null;
+		return new VerificationReport.ReferenceResult(ref.getId(), ref.getURI(), ref.getType(), failure == null,
+													  failure, System.nanoTime() - start);
+	}
+
+	/**
+	 * Validates the signature value.
+	 *
+	 * @param signature	the signature
+	 * @param context	the validation context
+	 * @return	the reason why the check failed, <code>null</code> if it passed
+	 */
+	private static String checkSignatureValue(final XadesSignature signature, final XMLValidateContext context) {
+		try {
+			return signature.getSignatureValue().validate(context) ? null : "Signature value is invalid";
+		} catch (XMLSignatureException | RuntimeException validationFailure) {
+			return "Signature value could not be validated: " + getMessage(validationFailure);
+		}
+	}
+
+	/**
+	 * Gets the certificate from the <code>KeyInfo</code> whose public key was selected to validate the signature
+	 * value. When there is no such certificate in the <code>KeyInfo</code> and a certificate index is available, the
+	 * certificates identified by the <code>SigningCertificate(V2)</code> property are looked up in the index.
+	 *
+	 * @param signature	the signature, of which the signature value has been validated
+	 * @param certIndex	the index of known certificates, may be <code>null</code>
+	 * @return	the signing certificate, <code>null</code> if it could not be determined
+	 */
+	private static X509Certificate getSigningCertificate(final XadesSignature signature,
+														 final CertificateIndex certIndex) {
+		final KeySelectorResult ksr = signature.getKeySelectorResult();
+		if (ksr == null || ksr.getKey() == null)
+			return null;
+		for (X509Certificate c : getCertificates(signature.getKeyInfo()))
+			if (ksr.getKey().equals(c.getPublicKey()))
+				return c;
+		if (certIndex != null)
+			for (AbstractCertIDTypeElement c : getSigningCertIds(signature)) {
+				final X509Certificate cert = certIndex.find(c);
+				if (cert != null && ksr.getKey().equals(cert.getPublicKey()))
+					return cert;
+			}
+		return null;
+	}
+
+	/**
+	 * Creates the key selector that selects the public key of the first certificate in the <code>KeyInfo</code> or,
+	 * when the <code>KeyInfo</code> does not contain certificates, of the first certificate identified by the <code>
+	 * SigningCertificate(V2)</code> property of the signature that is found in the certificate index.
+	 *
+	 * @param signature	the signature to validate
+	 * @return	the key selector
+	 */
+	private KeySelector newIndexSelector(final XadesSignature signature) {
+		return new KeySelector() {
+			@Override
+			public KeySelectorResult select(final KeyInfo keyInfo, final Purpose purpose,
+											final AlgorithmMethod method, final XMLCryptoContext context)
+																						throws KeySelectorException {
+				if (!getCertificates(keyInfo).isEmpty())
+					return KEY_INFO_SELECTOR.select(keyInfo, purpose, method, context);
+				try {
+					for (AbstractCertIDTypeElement c : getSigningCertIds(signature)) {
+						final X509Certificate cert = certIndex.find(c);
+						if (cert != null) {
+							final PublicKey key = cert.getPublicKey();
+							return () -> key;
+						}
+					}
+				} catch (RuntimeException invalidProperty) {
+					throw new KeySelectorException("SigningCertificate could not be read", invalidProperty);
+				}
+				throw new KeySelectorException("No certificate found in KeyInfo or the certificate index");
+			}
+		};
+	}
+
+	/**
+	 * Checks that the signing certificate is identified by one of the <code>Cert</code> elements of the <code>
+	 * SigningCertificate(V2)</code> property.
+	 *
+	 * @param signature		the signature
+	 * @param signingCert	the signing certificate, may be <code>null</code> if not found
+	 * @param certIndex		the index of known certificates, may be <code>null</code>
+	 * @return	the reason why the check failed, <code>null</code> if it passed
+	 */
+	private static String checkSigningCertificate(final XadesSignature signature, final X509Certificate signingCert,
+												  final CertificateIndex certIndex) {
+		if (signingCert == null)
+			return certIndex == null ? "Certificate used to validate the signature not found in KeyInfo"
+									 : "Certificate used to validate the signature not found in KeyInfo or index";
+		try {
+			final SignedSignatureProperties ssp = getSignedSignatureProperties(signature);
+			final SigningCertificate sc = ssp != null ? ssp.getSigningCertificate() : null;
+			if (sc == null)
+				return "No SigningCertificate property";
+
+			// A certificate found in the index already matches both the digest and the issuer and serial number
+			if (certIndex != null)
+				for (AbstractCertIDTypeElement c : sc.getCertificates())
+					if (signingCert.equals(certIndex.find(c)))
+						return null;
+
+			final byte[] encoded = signingCert.getEncoded();
+			final Map<String, byte[]> digests = new HashMap<>(2);
+			for (AbstractCertIDTypeElement c : sc.getCertificates()) {
+				final CertDigest certDigest = c.getCertDigest();
+				byte[] digest = digests.get(certDigest.getDigestMethod());
+				if (digest == null) {
+					final String algId = JCEMapper.translateURItoJCEID(certDigest.getDigestMethod());
+					if (algId == null)
+						continue;
+					digest = MessageDigest.getInstance(algId).digest(encoded);
+					digests.put(certDigest.getDigestMethod(), digest);
+				}
+				if (MessageDigest.isEqual(digest, certDigest.getDigestValue()))
+					return c.getIssuerSerial() == null || matches(c.getIssuerSerial(), signingCert) ? null
+							: "Issuer and serial number do not match the signing certificate";
+			}
+			return "Signing certificate is not identified by the SigningCertificate property";
+		} catch (CertificateEncodingException | NoSuchAlgorithmException | RuntimeException checkFailure) {
+			return "SigningCertificate could not be checked: " + getMessage(checkFailure);
+		}
+	}
+
+	/**
+	 * Checks whether the given issuer and serial number identify the certificate. As the RDNs of the issuer name of an
+	 * <code>IssuerSerialV2</code> created by this library are in the order of the string representation, the issuer
+	 * names are compared independently of the order of the RDNs.
+	 *
+	 * @param issuerSerial	the issuer and serial number
+	 * @param cert			the certificate
+	 * @return	<code>true</code> if both the issuer name and serial number match the certificate
+	 */
+	static boolean matches(final IssuerSerial issuerSerial, final X509Certificate cert) {
+		final BigInteger serialNo = issuerSerial.getSerialNo();
+		if (serialNo == null || !serialNo.equals(cert.getSerialNumber()))
+			return false;
+		try {
+			return X500Name.getInstance(cert.getIssuerX500Principal().getEncoded())
+						   .equals(new X500Name(issuerSerial.getIssuerName()));
+		} catch (IllegalArgumentException invalidName) {
+			return false;
+		}
+	}
+
+	/**
+	 * Checks that the signing time is included in the signed properties.
+	 *
+	 * @param signature	the signature
+	 * @return	the reason why the check failed, <code>null</code> if it passed
+	 */
+	private static String checkSigningTime(final XadesSignature signature) {
+		try {
+			final SignedSignatureProperties ssp = getSignedSignatureProperties(signature);
+			return ssp != null && ssp.getSigningTime() != null ? null : "No SigningTime property";
+		} catch (RuntimeException invalid) {
+			return "SigningTime could not be checked: " + getMessage(invalid);
+		}
+	}
+
+	/**
+	 * Checks that each reference to a signed data object has a <code>DataObjectFormat</code> that includes the MIME
+	 * type and that all <code>DataObjectFormat</code>s refer to such a reference. The references contained in the
+	 * manifests of the signature are also considered references to data objects, while the references to the
+	 * manifests themselves are not.
+	 *
+	 * @param signature	the signature
+	 * @return	the reason why the check failed, <code>null</code> if it passed
+	 */
+	private static String checkDataObjectFormats(final XadesSignature signature) {
+		final List<Reference> dataRefs = new ArrayList<>();
+		for (Reference r : getReferences(signature))
+			if (!Constants.SIGNED_PROPS_REF_TYPE.equals(r.getType()) && !Manifest.TYPE.equals(r.getType()))
+				dataRefs.add(r);
+		if (signature.getOtherObjects() != null)
+			for (XMLObject o : signature.getOtherObjects())
+				for (Object c : o.getContent())
+					if (c instanceof Manifest)
+						for (Object r : ((Manifest) c).getReferences())
+							dataRefs.add((Reference) r);
+		try {
+			final SignedProperties sp = signature.getQualifyingProperties().getSignedProperties();
+			final SignedDataObjectProperties sdop = sp != null ? sp.getDataObjectProperties() : null;
+			final List<DataObjectFormat> formats = sdop != null && sdop.getDataObjectFormats() != null ?
+													sdop.getDataObjectFormats() : Collections.emptyList();
+			final Set<String> refIds = new HashSet<>(dataRefs.size());
+			for (Reference r : dataRefs)
+				if (r.getId() != null)
+					refIds.add("#" + r.getId());
+			final Set<String> described = new HashSet<>(formats.size());
+			for (DataObjectFormat f : formats) {
+				if (!refIds.contains(f.getObjectRef()))
+					return "DataObjectFormat refers to unknown reference " + f.getObjectRef();
+				if (Utils.isNullOrEmpty(f.getMimeType()))
+					return "DataObjectFormat for " + f.getObjectRef() + " does not include the MIME type";
+				described.add(f.getObjectRef());
+			}
+			for (Reference r : dataRefs)
+				if (r.getId() == null || !described.contains("#" + r.getId()))
+					return "No DataObjectFormat for reference " + r.getURI();
+			return null;
+		} catch (RuntimeException invalid) {
+			return "DataObjectFormat could not be checked: " + getMessage(invalid);
+		}
+	}
+
+	private static SignedSignatureProperties getSignedSignatureProperties(final XadesSignature signature) {
+		final SignedProperties sp = signature.getQualifyingProperties().getSignedProperties();
+		return sp != null ? sp.getSignatureProperties() : null;
+	}
+
+	/**
+	 * Gets the <code>Cert</code> elements of the <code>SigningCertificate(V2)</code> property of the signature.
+	 *
+	 * @param signature	the signature
+	 * @return	the <code>Cert</code> elements, an empty list if the signature has no signing certificate property
+	 */
+	private static List<AbstractCertIDTypeElement> getSigningCertIds(final XadesSignature signature) {
+		final SignedSignatureProperties ssp = getSignedSignatureProperties(signature);
+		final SigningCertificate sc = ssp != null ? ssp.getSigningCertificate() : null;
+		return sc != null ? sc.getCertificates() : Collections.emptyList();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Reference> getReferences(final XadesSignature signature) {
+		return signature.getSignedInfo().getReferences();
+	}
+
+	/**
+	 * Indicates whether the reference points to a detached data object, i.e. has a URI that is not empty and does not
+	 * start with a <code>#</code>.
+	 */
+	private static boolean isDetached(final Reference ref) {
+		final String uri = ref.getURI();
+		return uri != null && !uri.isEmpty() && uri.charAt(0) != '#';
+	}
+
+	/**
+	 * Gets the X.509 certificates included in the <code>X509Data</code> elements of the given <code>KeyInfo</code>.
+	 */
+	private static List<X509Certificate> getCertificates(final KeyInfo keyInfo) {
+		if (keyInfo == null)
+			return Collections.emptyList();
+		final List<X509Certificate> certs = new ArrayList<>(1);
+		for (Object ki : keyInfo.getContent())
+			if (ki instanceof X509Data)
+				for (Object c : ((X509Data) ki).getContent())
+					if (c instanceof X509Certificate)
+						certs.add((X509Certificate) c);
+		return certs;
+	}
+
+	private static String getMessage(final Exception e) {
+		return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,452 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.XMLCryptoContext;
+import javax.xml.crypto.XMLStructure;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.jcp.xml.dsig.internal.dom.DOMStructure;
+import org.apache.jcp.xml.dsig.internal.dom.XmlWriter;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Is an implementation of Santuario's {@link XmlWriter} that writes the XML directly as UTF-8 encoded bytes to an
+ * {@link OutputStream} or {@link ByteBuffer} instead of building a DOM tree like the <code>XmlWriterToTree</code> used
+ * by Santuario itself. It can be used to serialise Xades elements, like the <code>QualifyingProperties</code>, without
+ * creating the DOM nodes first, for example to create pre-serialised signature fragments or to stream the output.
+ * <p>Namespace declarations are added automatically to the elements and attributes which use a namespace that is not
+ * yet declared in scope. Elements are always written with a separate end tag, also when they are empty. Characters
+ * that would be changed by the normalisation of a parser, i.e. carriage returns in text and whitespace in attribute
+ * values, are written as character references.
+ * <p>As the output is not a DOM tree, {@link #writeAttribute(String, String, String, String)} does not return the
+ * attribute node and identifier attributes are not registered. For marshalling code that needs a DOM node to add
+ * parameters to the current element, like the <code>ds:Transform</code> elements, {@link
+ * #getCurrentNodeAsStructure()} returns a temporary element of which the attributes and children are written to the
+ * output when the next content of the current element is written.
+ * <p>The writer buffers the output, so {@link #flush()} must be called when the elements are written. As the {@link
+ * XmlWriter} methods cannot throw checked exceptions, errors writing to the stream are thrown as {@link
+ * UncheckedIOException}. When writing to a <code>ByteBuffer</code> a {@link java.nio.BufferOverflowException} is
+ * thrown when the buffer is too small. An instance is not thread safe.
+ */
+public class XmlWriterToStream implements XmlWriter, Flushable {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Utf8XmlOutput	output;
+
+	/**
+	 * The elements that are currently open, the first one is the current element
+	 */
+	private final Deque<ElementScope>	elements = new ArrayDeque<>();
+	/**
+	 * Indicates whether the start tag of the current element is still open, i.e. attributes can still be added
+	 */
+	private boolean						startTagOpen;
+	/**
+	 * The document used to create the temporary elements returned by {@link #getCurrentNodeAsStructure()}
+	 */
+	private Document					scratchFactory;
+
+	/**
+	 * Creates a new writer that writes to the given stream.
+	 *
+	 * @param out	the stream to write the XML to
+	 */
+	public XmlWriterToStream(final OutputStream out) {
+		if (out == null)
+			throw new IllegalArgumentException("Output stream must be provided");
+		this.output = new Utf8XmlOutput(out, BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a new writer that writes into the given buffer, starting at its current position.
+	 *
+	 * @param target	the buffer to write the XML to
+	 */
+	public XmlWriterToStream(final ByteBuffer target) {
+		if (target == null)
+			throw new IllegalArgumentException("Buffer must be provided");
+		this.output = new Utf8XmlOutput(new ByteBufferOutputStream(target), BUFFER_SIZE);
+	}
+
+	@Override
+	public void writeStartElement(final String prefix, final String localName, final String namespaceURI) {
+		closeStartTag();
+		final String p = nonNull(prefix);
+		final String nsURI = nonNull(namespaceURI);
+		final ElementScope element = new ElementScope(p, localName);
+		elements.push(element);
+		writeByte('<');
+		writeQName(p, localName);
+		startTagOpen = true;
+		final String inScope = lookup(p);
+		if (!nsURI.equals(inScope) && !(inScope == null && nsURI.isEmpty()))
+			declare(p, nsURI);
+	}
+
+	@Override
+	public void writeEndElement() {
+		closeStartTag();
+		final ElementScope element = elements.pop();
+		writeAscii("</");
+		writeQName(element.prefix, element.localName);
+		writeByte('>');
+	}
+
+	@Override
+	public void writeTextElement(final String prefix, final String localName, final String namespaceURI,
+								 final String value) {
+		writeStartElement(prefix, localName, namespaceURI);
+		writeCharacters(value);
+		writeEndElement();
+	}
+
+	@Override
+	public void writeNamespace(final String prefix, final String namespaceURI) {
+		if (!startTagOpen)
+			throw new IllegalStateException("Namespace can only be declared directly after start of element");
+		final String p = nonNull(prefix);
+		final String nsURI = nonNull(namespaceURI);
+		final ElementScope current = elements.peek();
+		final String declared = current.declarations != null ? current.declarations.get(p) : null;
+		if (declared != null) {
+			if (!declared.equals(nsURI))
+				throw new IllegalStateException("Prefix " + p + " already bound to another namespace");
+		} else if (!nsURI.equals(lookup(p)))
+			declare(p, nsURI);
+	}
+
+	@Override
+	public void writeCharacters(final String text) {
+		closeStartTag();
+		if (text != null)
+			output.writeText(text);
+	}
+
+	/**
+	 * Writes the given characters as text of the current element.
+	 *
+	 * @param text		the array holding the characters to write
+	 * @param start		the index of the first character to write
+	 * @param length	the number of characters to write
+	 */
+	public void writeCharacters(final char[] text, final int start, final int length) {
+		closeStartTag();
+		output.writeText(text, start, length);
+	}
+
+	@Override
+	public void writeComment(final String text) {
+		closeStartTag();
+		writeAscii("<!--");
+		output.writeUtf8(text);
+		writeAscii("-->");
+	}
+
+	/**
+	 * Writes a processing instruction.
+	 *
+	 * @param target	the target of the processing instruction
+	 * @param data		the data of the processing instruction, may be <code>null</code>
+	 */
+	public void writeProcessingInstruction(final String target, final String data) {
+		closeStartTag();
+		writeAscii("<?");
+		output.writeUtf8(target);
+		if (data != null && !data.isEmpty()) {
+			writeByte(' ');
+			output.writeUtf8(data);
+		}
+		writeAscii("?>");
+	}
+
+	/**
+	 * Writes the given, already serialised and UTF-8 encoded, markup as is, for example a pre-serialised fragment of
+	 * a signature. The markup must be self contained, i.e. declare all namespaces it uses, as its namespace
+	 * declarations are not tracked.
+	 *
+	 * @param markup	the markup to write
+	 */
+	public void writeMarkup(final byte[] markup) {
+		closeStartTag();
+		output.writeBytes(markup);
+	}
+
+	/**
+	 * Writes an attribute of the current element. Attributes in the <code>xmlns</code> namespace are handled as
+	 * namespace declarations.
+	 *
+	 * @return always <code>null</code> as no DOM node is created
+	 */
+	@Override
+	public Attr writeAttribute(final String prefix, final String namespaceURI, final String localName,
+							   final String value) {
+		if (value == null)
+			return null;
+		if (!startTagOpen)
+			throw new IllegalStateException("Attribute can only be written directly after start of element");
+		final String p = nonNull(prefix);
+		final String nsURI = nonNull(namespaceURI);
+		if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(nsURI)) {
+			writeNamespace(XMLConstants.XMLNS_ATTRIBUTE.equals(p) ? localName : XMLConstants.DEFAULT_NS_PREFIX,
+						   value);
+			return null;
+		}
+		if (!p.isEmpty() && !nsURI.equals(lookup(p)))
+			declare(p, nsURI);
+		writeByte(' ');
+		writeQName(p, localName);
+		writeAscii("=\"");
+		output.writeAttributeValue(value);
+		writeByte('"');
+		return null;
+	}
+
+	@Override
+	public void writeIdAttribute(final String prefix, final String namespaceURI, final String localName,
+								 final String value) {
+		writeAttribute(prefix, namespaceURI, localName, value);
+	}
+
+	@Override
+	public String getCurrentLocalName() {
+		return elements.isEmpty() ? null : elements.peek().localName;
+	}
+
+	/**
+	 * Gets a temporary DOM element that represents the current element. The attributes and child nodes that are added
+	 * to it are written to the output when the next content of the current element is written or the element is
+	 * ended.
+	 *
+	 * @return	a {@link javax.xml.crypto.dom.DOMStructure} holding the temporary element
+	 */
+	@Override
+	public XMLStructure getCurrentNodeAsStructure() {
+		if (elements.isEmpty())
+			throw new IllegalStateException("No current element");
+		final ElementScope current = elements.peek();
+		if (current.scratch == null) {
+			if (scratchFactory == null)
+				try {
+					final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+					dbf.setNamespaceAware(true);
+					scratchFactory = dbf.newDocumentBuilder().newDocument();
+				} catch (ParserConfigurationException noDOM) {
+					throw new IllegalStateException("Could not create DOM document", noDOM);
+				}
+			final String nsURI = lookup(current.prefix);
+			current.scratch = scratchFactory.createElementNS(nsURI == null || nsURI.isEmpty() ? null : nsURI,
+												current.prefix.isEmpty() ? current.localName
+																		 : current.prefix + ':' + current.localName);
+		}
+		return new javax.xml.crypto.dom.DOMStructure(current.scratch);
+	}
+
+	@Override
+	public void marshalStructure(final XMLStructure toMarshal, final String dsPrefix, final XMLCryptoContext context)
+			throws MarshalException {
+		if (toMarshal instanceof javax.xml.crypto.dom.DOMStructure)
+			writeNode(((javax.xml.crypto.dom.DOMStructure) toMarshal).getNode());
+		else if (toMarshal instanceof DOMStructure)
+			((DOMStructure) toMarshal).marshal(this, dsPrefix, context);
+		else
+			throw new IllegalArgumentException("Unable to marshal unexpected object of class "
+												+ toMarshal.getClass().toString());
+	}
+
+	/**
+	 * Writes the given DOM node and its descendants.
+	 *
+	 * @param node	the node to write
+	 */
+	public void writeNode(final Node node) {
+		switch (node.getNodeType()) {
+		case Node.ELEMENT_NODE :
+			writeStartElement(node.getPrefix(), node.getLocalName() != null ? node.getLocalName()
+																			 : node.getNodeName(),
+							  node.getNamespaceURI());
+			writeAttributes(node.getAttributes());
+			for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+				writeNode(child);
+			writeEndElement();
+			break;
+		case Node.ATTRIBUTE_NODE :
+			writeAttribute(node.getPrefix(), node.getNamespaceURI(), node.getLocalName() != null ? node.getLocalName()
+																	 : node.getNodeName(), node.getNodeValue());
+			break;
+		case Node.TEXT_NODE :
+		case Node.CDATA_SECTION_NODE :
+			writeCharacters(node.getNodeValue());
+			break;
+		case Node.COMMENT_NODE :
+			writeComment(node.getNodeValue());
+			break;
+		case Node.PROCESSING_INSTRUCTION_NODE :
+			writeProcessingInstruction(node.getNodeName(), node.getNodeValue());
+			break;
+		default:
+			// Other node types do not occur in element content
+		}
+	}
+
+	/**
+	 * Writes the buffered output to the stream or buffer and flushes the stream.
+	 *
+	 * @throws IOException when the output cannot be written to the stream
+	 */
+	@Override
+	public void flush() throws IOException {
+		output.flush();
+	}
+
+	/**
+	 * Completes the start tag of the current element if it is still open and writes the content that was added to its
+	 * temporary DOM representation.
+	 */
+	private void closeStartTag() {
+		final ElementScope current = elements.peek();
+		final Element scratch = current != null ? current.scratch : null;
+		if (scratch != null) {
+			current.scratch = null;
+			if (scratch.hasAttributes() && !startTagOpen)
+				throw new IllegalStateException("Attributes added after content of element");
+			writeAttributes(scratch.getAttributes());
+		}
+		if (startTagOpen) {
+			writeByte('>');
+			startTagOpen = false;
+		}
+		if (scratch != null)
+			for (Node child = scratch.getFirstChild(); child != null; child = child.getNextSibling())
+				writeNode(child);
+	}
+
+	private void writeAttributes(final NamedNodeMap attrs) {
+		for (int i = 0; i < attrs.getLength(); i++)
+			writeNode(attrs.item(i));
+	}
+
+	/**
+	 * Declares the namespace prefix on the current element.
+	 *
+	 * @param prefix	the namespace prefix, empty for the default namespace
+	 * @param nsURI		the namespace URI
+	 */
+	private void declare(final String prefix, final String nsURI) {
+		final ElementScope current = elements.peek();
+		if (current.declarations == null)
+			current.declarations = new HashMap<>(4);
+		current.declarations.put(prefix, nsURI);
+		writeAscii(" xmlns");
+		if (!prefix.isEmpty()) {
+			writeByte(':');
+			output.writeUtf8(prefix);
+		}
+		writeAscii("=\"");
+		output.writeAttributeValue(nsURI);
+		writeByte('"');
+	}
+
+	/**
+	 * Gets the namespace URI the given prefix is bound to in the current scope.
+	 *
+	 * @param prefix	the namespace prefix, empty for the default namespace
+	 * @return	the namespace URI bound to the prefix, <code>null</code> if the prefix is not bound
+	 */
+	private String lookup(final String prefix) {
+		for (ElementScope e : elements) {
+			final String nsURI = e.declarations != null ? e.declarations.get(prefix) : null;
+			if (nsURI != null)
+				return nsURI;
+		}
+		return XMLConstants.XML_NS_PREFIX.equals(prefix) ? XMLConstants.XML_NS_URI : null;
+	}
+
+	private void writeQName(final String prefix, final String localName) {
+		if (!prefix.isEmpty()) {
+			output.writeUtf8(prefix);
+			writeByte(':');
+		}
+		output.writeUtf8(localName);
+	}
+
+	private void writeAscii(final String s) {
+		output.writeAscii(s);
+	}
+
+	private void writeByte(final int b) {
+		output.writeByte(b);
+	}
+
+	private static String nonNull(final String s) {
+		return s != null ? s : "";
+	}
+
+	/**
+	 * Holds the name and namespace declarations of an open element.
+	 */
+	private static final class ElementScope {
+		final String		prefix;
+		final String		localName;
+		Map<String, String>	declarations;
+		Element				scratch;
+
+		ElementScope(final String prefix, final String localName) {
+			this.prefix = prefix;
+			this.localName = localName;
+		}
+	}
+
+	/**
+	 * Writes to a byte buffer.
+	 */
+	private static final class ByteBufferOutputStream extends OutputStream {
+		private final ByteBuffer target;
+
+		ByteBufferOutputStream(final ByteBuffer target) {
+			this.target = target;
+		}
+
+		@Override
+		public void write(final int b) {
+			target.put((byte) b);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+			target.put(b, off, len);
+		}
+	}
+}
@@ -16,44 +16,37 @@
  ******************************************************************************/
 package org.duuba.xades.builders;
 
-import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyStore;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
-import java.time.ZoneOffset;
+import java.time.Clock;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import javax.xml.crypto.dsig.CanonicalizationMethod;
 import javax.xml.crypto.dsig.DigestMethod;
-import javax.xml.crypto.dsig.Reference;
-import javax.xml.crypto.dsig.Transform;
 import javax.xml.crypto.dsig.XMLSignatureException;
-import javax.xml.crypto.dsig.XMLSignatureFactory;
-import javax.xml.crypto.dsig.dom.DOMSignContext;
 import javax.xml.crypto.dsig.keyinfo.KeyInfo;
-import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 
 import org.duuba.xades.CertifiedRole;
 import org.duuba.xades.ClaimedRole;
 import org.duuba.xades.CommitmentTypeIndication;
 import org.duuba.xades.CommitmentTypeIndication.CommitmentTypeQualifier;
-import org.duuba.xades.DataObjectFormat;
 import org.duuba.xades.IObjectIdentifier;
-import org.duuba.xades.QualifyingProperties;
+import org.duuba.xades.IdGenerator;
+import org.duuba.xades.RandomIdGenerator;
 import org.duuba.xades.SignatureProductionPlace;
 import org.duuba.xades.SignedAssertion;
-import org.duuba.xades.SignedDataObjectProperties;
-import org.duuba.xades.SignedProperties;
-import org.duuba.xades.SignedSignatureProperties;
 import org.duuba.xades.SignerRole;
 import org.duuba.xades.SigningCertificate;
+import org.duuba.xades.SigningListener;
 import org.duuba.xades.XadesSignature;
 import org.duuba.xades.XadesSignatureFactory;
 import org.duuba.xades.XadesVersion;
@@ -72,6 +65,8 @@ import org.w3c.dom.NodeList;
  * creating a BES level signature as defined TS 101 903, values set for not supported qualifying attributes are ignored.  
  * On successful completion of the {@link #build()} method a new Xades signature is added as last element to the given
  * XML document.     
+ * <p>When more documents need to be signed with the same settings the builder can also be used to create a {@link 
+ * SigningProfile} which can then be used to sign each of the documents.
  * 
  * @author Sander Fieten (sander at chasquis-messaging.com)
  */
@@ -91,6 +86,9 @@ public class BasicEnvelopedSignatureBuilder {
 	private String			c14nAlg;
 	private String			digestAlg;  
 	private String			signingAlg; 
+	private IdGenerator		idGenerator;
+	private Clock			clock;
+	private SigningListener	listener;
 	
 	// Qualifying properties
 	private String			docDescription;
@@ -234,6 +232,47 @@ public class BasicEnvelopedSignatureBuilder {
 		return this;
 	}
 
+	/**
+	 * Sets the generator for the values of the <code>Id</code> attributes of the signature elements.
+	 * <p>If the generator is not set, or set to <code>null</code> using this method, the {@link RandomIdGenerator} 
+	 * will be used.  
+	 * 
+	 * @param generator		the Id generator to use
+	 * @return this builder
+	 */
+	public BasicEnvelopedSignatureBuilder setIdGenerator(IdGenerator generator) {
+		this.idGenerator = generator;
+		return this;
+	}
+	
+	/**
+	 * Sets the clock that provides the signing time of the signatures. This can for example be a fixed clock to give
+	 * all signatures in a batch the same signing time.
+	 * <p>If the clock is not set, or set to <code>null</code> using this method, the system clock in UTC will be used.
+	 * 
+	 * @param clock		the clock to use
+	 * @return this builder
+	 */
+	public BasicEnvelopedSignatureBuilder setClock(Clock clock) {
+		this.clock = clock;
+		return this;
+	}
+	
+	/**
+	 * Sets the listener that is notified of the durations of the phases of the signature creation, for example to 
+	 * collect latency metrics. The preparation phase includes the creation of the signing profile when the signature 
+	 * is created using {@link #build()}.
+	 * <p>If no listener is set, or set to <code>null</code> using this method, the phases are not timed.
+	 * 
+	 * @param listener	the listener to notify
+	 * @return this builder
+	 * @see SigningListener
+	 */
+	public BasicEnvelopedSignatureBuilder setSigningListener(SigningListener listener) {
+		this.listener = listener;
+		return this;
+	}
+	
 	/**
 	 * Sets the signing algorithm. The algorithm must be specified as the URI defined in the XML-DSIG specification. 
 	 * <p>If the algorithm is not set, or set to <code>null</code> or an empty string using this method the default 
@@ -390,6 +429,8 @@ public class BasicEnvelopedSignatureBuilder {
 	/**
 	 * Creates a new Xades signature based on the provided input. The build process will be executed only once. When 
 	 * called repeatedly the already built signature will be returned and the document will be unchanged. 
+	 * <p>NOTE: When multiple documents need to be signed using the same settings it is more efficient to create a 
+	 * {@link SigningProfile} using {@link #buildProfile()} and use it to sign all documents.
 	 * 
 	 * @return the signed Xades signature
 	 * @throws IllegalStateException when the builder is in a state that it is not possible to build a valid Xades 
@@ -400,25 +441,73 @@ public class BasicEnvelopedSignatureBuilder {
 		if (signature != null)
 			return signature;
 		
+		if (doc2sign == null)
+			throw new IllegalStateException("No document to sign set");
+		if (keyForSigning == null)
+			throw new IllegalStateException("Private key not set");
+		
+		final long start = listener != null ? System.nanoTime() : 0;
+		final SigningProfile profile = buildProfile();
+		signature = profile.sign(doc2sign, ZonedDateTime.now(profile.getClock()), start);
+		return signature;
+	}
+	
+	/**
+	 * Creates a new Xades signature based on the provided input asynchronously. The checks of the input and the 
+	 * creation of the document independent parts of the signature are done by the calling thread, the canonicalisation,
+	 * digest and signing operations are executed by the given executor. 
+	 * <p>Unlike {@link #build()} every call of this method creates a new signature and the builder does not keep a 
+	 * reference to it. As all information is taken from the builder when this method is called, the builder can be 
+	 * changed or re-used for another document as soon as this method returns. The returned future can only be 
+	 * cancelled before the signing has started, see {@link SigningProfile#signAsync(Document, Executor)}.
+	 * 
+	 * @param executor	the executor to run the sign operation
+	 * @return	the future signature, which completes exceptionally with an {@link IllegalStateException} when the 
+	 * 			builder is in a state that it is not possible to build a valid Xades signature or with an {@link 
+	 * 			XMLSignatureException} when the sign operation fails
+	 */
+	public CompletableFuture<XadesSignature> buildAsync(Executor executor) {
+		if (executor == null)
+			throw new IllegalArgumentException("An executor must be provided");
+		
+		final SigningProfile profile;
+		try {
+			if (doc2sign == null)
+				throw new IllegalStateException("No document to sign set");
+			if (keyForSigning == null)
+				throw new IllegalStateException("Private key not set");
+			profile = buildProfile();
+		} catch (IllegalStateException invalidInput) {
+			final CompletableFuture<XadesSignature> failed = new CompletableFuture<>();
+			failed.completeExceptionally(invalidInput);
+			return failed;
+		}
+		return profile.signAsync(doc2sign, executor);
+	}
+	
+	/**
+	 * Creates a new {@link SigningProfile} based on the current settings of this builder. The profile contains all
+	 * information of the signature that does not depend on the document being signed and can be used to sign any 
+	 * number of documents, also concurrently by multiple threads. Note that the document set using {@link 
+	 * #setDocumentToSign(Document)} is not part of the profile and does not need to be set when creating a profile.
+	 * The private key also does not need to be set when the profile is only used for two-phase signing where the 
+	 * signature value is calculated by an external signer, see {@link SigningProfile#prepare(Document)}.
+	 * <p>Changes made to the builder after the profile has been created do not affect the profile.
+	 * 
+	 * @return a new signing profile
+	 * @throws IllegalStateException when the builder is in a state that it is not possible to build a valid Xades 
+	 * 								 signature. Probably caused by missing or conflicting values.    
+	 */
+	public SigningProfile buildProfile() throws IllegalStateException {
 		checkInput();
 		
-		// Create the Xades signature
 		try {
-			final XadesSignatureFactory xadesFactory = new XadesSignatureFactory(version);
-			final XMLSignatureFactory xmldsigFactory = xadesFactory.getXMLSignatureFactory(); 
-			
-			// Create Id values for the main ds:Reference and ds:Signature as these are needed by the qualifying 
-			// properties
-			final String docRefId = "DR-" + UUID.randomUUID().toString();
-			final String signatureId = "xadessig-" + UUID.randomUUID().toString();
-			// Create a Reference to the enveloped document 
-			Reference docRef = xmldsigFactory.newReference("", 
-									xmldsigFactory.newDigestMethod(digestAlg, null),
-									Arrays.asList(new Transform[] { 
-										xmldsigFactory.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null),
-										xmldsigFactory.newTransform(c14nAlg, (TransformParameterSpec) null)
-		  							}),
-									null, docRefId);
+			// When a specific Id generator is used, also the Id of the SignatureValue must be generated by it
+			final XadesSignatureFactory xadesFactory = idGenerator == null ? XadesSignatureFactory.getInstance(version)
+																	: new XadesSignatureFactory(version, idGenerator);
+			// The content of the XML elements provided by the caller is copied to a document owned by the profile so 
+			// the profile does not depend on these elements anymore and they can be read concurrently 
+			final Document contentOwner = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
 			
 			// Create the KeyInfo containing the X509Data
 			final List<X509Certificate> certs = new ArrayList<>(certPath != null ? certPath.size() + 1 : 1);
@@ -444,7 +533,7 @@ public class BasicEnvelopedSignatureBuilder {
 			if (claimedRoles != null) {
 				claimed = new ArrayList<>();
 				for (Element r : claimedRoles) 
-					claimed.add(xadesFactory.newClaimedRole(getElementNodes(r)));
+					claimed.add(xadesFactory.newClaimedRole(getElementNodes(r, contentOwner)));
 			}
 			List<CertifiedRole> certifiedRoles = null;
 			if (x509certRoles != null) {
@@ -456,26 +545,18 @@ public class BasicEnvelopedSignatureBuilder {
 				if (certifiedRoles == null)
 					certifiedRoles = new ArrayList<>();
 				for (Element e : otherCertRoles)
-					certifiedRoles.add(xadesFactory.newCertifiedRole(getElementNodes(e)));
+					certifiedRoles.add(xadesFactory.newCertifiedRole(getElementNodes(e, contentOwner)));
 			}
 			List<SignedAssertion> assertions = null;
 			if (version == XadesVersion.EN_319_132_V111 && roleAssertions != null) {
 				assertions = new ArrayList<>();
 				for (Element e : roleAssertions)
-					assertions.add(xadesFactory.newSignedAssertion(getElementNodes(e)));
+					assertions.add(xadesFactory.newSignedAssertion(getElementNodes(e, contentOwner)));
 			}
 			final SignerRole signerRole = (claimed != null || certifiedRoles != null || assertions != null) ?	
 												xadesFactory.newSignerRole(claimed, certifiedRoles, assertions) : null;
 			
-			final SignedSignatureProperties sigProps = xadesFactory.newSignedSignatureProperties(
-																			ZonedDateTime.now(ZoneOffset.UTC), 
-																			certInfo,
-																			null, signersLocation,
-																			signerRole, null);			
-
-			// Create the qualifying properties related to the signed document
-			final DataObjectFormat dataFormat = xadesFactory.newDataObjectFormat("#" + docRefId, docDescription, docOID, 
-																				"text/xml", null);
+			// The commitments apply to all signed data objects and can therefore be created now as well
 			List<CommitmentTypeIndication> commitmentIndications = null; 
 			if (commitments != null) {
 				commitmentIndications = new ArrayList<>(commitments.size());
@@ -484,41 +565,29 @@ public class BasicEnvelopedSignatureBuilder {
 					if (c.qualifiers != null) {
 						qualifiers = new ArrayList<>(c.qualifiers.size());
 						for (Element e : c.qualifiers)
-							qualifiers.add(xadesFactory.newCommitmentTypeQualifier(getElementNodes(e)));					
+							qualifiers.add(xadesFactory.newCommitmentTypeQualifier(getElementNodes(e, contentOwner)));
 					}
 					commitmentIndications.add(xadesFactory.newCommitmentTypeIndication(c.oid, qualifiers));
 				}
 			}
-			final SignedDataObjectProperties dataProps = xadesFactory.newSignedDataObjectProperties(
-																			Collections.singletonList(dataFormat),
-																			commitmentIndications);
-			
-			// Create the SignedProperties element
-			final String signedPropsId = "SP-" + UUID.randomUUID().toString();
-			final SignedProperties signedProps = xadesFactory.newSignedProperties(signedPropsId, sigProps, dataProps);
 			
-			// As there are no unsigned properties, we can now create the QualifyingProperties element
-			final QualifyingProperties qProps = xadesFactory.newQualifyingProperties("#" + signatureId, signedProps, null);
-			
-			signature = xadesFactory.newXadesSignature(signatureId, digestAlg, signingAlg, c14nAlg, ki, 
-													   Collections.singletonList(docRef), qProps, null);
+			final SigningProfile profile = new SigningProfile(xadesFactory, 
+															  idGenerator != null ? idGenerator 
+																	  			  : RandomIdGenerator.INSTANCE,
+															  clock != null ? clock : Clock.systemUTC(),
+															  keyForSigning, c14nAlg, digestAlg, signingAlg, ki, 
+															  certInfo, signersLocation, signerRole, docDescription, 
+															  docOID, commitmentIndications, listener);
+			profile.checkAlgorithms();
+			return profile;
 		} catch (CertificateEncodingException cee) {
 			throw new IllegalStateException("A configured X509 certificate could not be DER encoded");
-		} catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException ae) {		
-			// These exceptions indicate that there was an issue with one of the specified algorithms
+		} catch (NoSuchAlgorithmException ae) {		
+			// This exception indicates that there was an issue with the specified digest algorithm
 			throw new IllegalStateException("A specified algorithm was invalid");
+		} catch (ParserConfigurationException noDOM) {
+			throw new IllegalStateException("No DOM implementation available to copy XML content");
 		}
-
-		// And finally sign it
-		final DOMSignContext dsc = new DOMSignContext(keyForSigning, doc2sign.getDocumentElement());		
-		try {
-			signature.sign(dsc);		
-		} catch (Exception signingFailure) {
-			signature = null;
-			throw new XMLSignatureException("The sign operation on the Xades signature failed", signingFailure);
-		}
-		
-		return signature;
 	}
 	
 	/**
@@ -539,14 +608,10 @@ public class BasicEnvelopedSignatureBuilder {
 			signingAlg = DEFAULT_SIGNING_ALG;
 		
 		// Check required settings
-		if (doc2sign == null)
-			throw new IllegalStateException("No document to sign set");
-		if (keyForSigning == null)
-			throw new IllegalStateException("Private key not set");
 		if (signingCertificate == null)
 			throw new IllegalStateException("Signing certificate not set");
 		
-		if (docOID != null && !Utils.isNullOrEmpty(docOID.getIdentifier()))
+		if (docOID != null && Utils.isNullOrEmpty(docOID.getIdentifier()))
 			throw new IllegalStateException("The document OID must have an identifier value");
 		
 		if (commitments != null)
@@ -592,6 +657,25 @@ public class BasicEnvelopedSignatureBuilder {
 		return list;
 	}
 	
+	/**
+	 * Gets a copy of the content of an {@link Element} object, as returned by {@link #getElementNodes(Element)}, in 
+	 * the given document, so later changes to the source element do not affect the created signatures.
+	 * 
+	 * @param e 	element to get content of
+	 * @param owner	document that will own the copied nodes
+	 * @return	list of copies of the nodes contained in the element
+	 */
+	private List<Node> getElementNodes(Element e, Document owner) {
+		final List<Node> nodes = getElementNodes(e);
+		if (nodes == null)
+			return null;
+		
+		final List<Node> copies = new ArrayList<>(nodes.size());
+		for (Node n : nodes)
+			copies.add(owner.importNode(n, true));
+		return copies;
+	}
+	
 	class CommitmentIndication {
 		private IObjectIdentifier oid;
 		private List<Element> 	  qualifiers;
@@ -0,0 +1,350 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.builders;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.duuba.xades.XadesSignature;
+import org.w3c.dom.Document;
+
+/**
+ * Signs a batch of XML documents with enveloped Xades signatures using the same {@link SigningProfile}. The documents
+ * are signed in parallel by the tasks that are submitted to the configured {@link Executor}, by default the {@link
+ * ForkJoinPool#commonPool() common pool}. As each document is signed independently a problem with one document does
+ * not affect the signing of the other documents in the batch, the result of the batch therefore contains the result
+ * of each document.
+ * <p>When the documents are provided by a {@link Supplier}, only a limited number of documents is taken from the
+ * supplier before their signing has completed. The methods that return a list of results however keep all documents
+ * and their signatures until the whole batch is signed. To keep the memory usage flat for very large batches use
+ * {@link #signAll(Supplier, Consumer)}, which hands each result to a consumer as soon as it is available and does not 
+ * keep it.
+ * <p>The documents in a batch must be distinct objects as the signatures are added to them concurrently. A batch
+ * signer can be used to sign multiple batches, also concurrently.
+ *
+ * @see SigningProfile
+ */
+public class BatchSigner {
+
+	private final SigningProfile	profile;
+	private final Executor			executor;
+	private final int				maxInFlight;
+
+	/**
+	 * Creates a new batch signer that uses the common fork join pool to sign the documents and signs at most twice
+	 * the number of documents as the parallelism of the pool at the same time.
+	 *
+	 * @param profile	the profile to sign the documents with
+	 */
+	public BatchSigner(final SigningProfile profile) {
+		this(profile, ForkJoinPool.commonPool(), 2 * ForkJoinPool.commonPool().getParallelism());
+	}
+
+	/**
+	 * Creates a new batch signer that uses the given executor to sign the documents and signs at most twice the
+	 * number of available processors documents at the same time.
+	 *
+	 * @param profile	the profile to sign the documents with
+	 * @param executor	the executor to run the signing tasks
+	 */
+	public BatchSigner(final SigningProfile profile, final Executor executor) {
+		this(profile, executor, 2 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new batch signer that uses the given executor to sign the documents and signs at most the given
+	 * number of documents provided by a {@link Supplier} at the same time.
+	 *
+	 * @param profile		the profile to sign the documents with
+	 * @param executor		the executor to run the signing tasks
+	 * @param maxInFlight	the maximum number of documents taken from a supplier that are signed at the same time
+	 */
+	public BatchSigner(final SigningProfile profile, final Executor executor, final int maxInFlight) {
+		if (profile == null)
+			throw new IllegalArgumentException("A signing profile must be provided");
+		if (executor == null)
+			throw new IllegalArgumentException("An executor must be provided");
+		if (maxInFlight < 1)
+			throw new IllegalArgumentException("At least one document must be allowed in flight");
+		this.profile = profile;
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * @return the profile used to sign the documents
+	 */
+	public SigningProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * @return the maximum number of documents taken from a supplier that are signed at the same time
+	 */
+	public int getMaximumInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * Signs all documents in the given collection and waits until all of them have been processed.
+	 *
+	 * @param docs	the documents to sign
+	 * @return	the results for each document, in the iteration order of the given collection
+	 * @throws InterruptedException when the calling thread was interrupted while waiting for the documents to be
+	 * 								signed. The signing of the documents that were not started yet is cancelled.
+	 */
+	public List<Result> signAll(final Collection<Document> docs) throws InterruptedException {
+		if (docs == null)
+			throw new IllegalArgumentException("No documents to sign provided");
+
+		final List<CompletableFuture<Result>> tasks = new ArrayList<>(docs.size());
+		for (Document d : docs)
+			tasks.add(submit(d));
+		return collect(tasks);
+	}
+
+	/**
+	 * Signs all documents provided by the given supplier and waits until all of them have been processed. The
+	 * supplier is called by the calling thread until it returns <code>null</code> to indicate that there are no more
+	 * documents. The signing of a document starts as soon as it has been supplied, but the next document is only
+	 * taken from the supplier when less than the {@linkplain #getMaximumInFlight() maximum number} of documents are
+	 * being signed.
+	 *
+	 * @param source	the supplier of the documents to sign
+	 * @return	the results for each document, in the order in which they were supplied
+	 * @throws InterruptedException when the calling thread was interrupted while waiting for the documents to be
+	 * 								signed. No new documents are taken from the supplier and the signing of the
+	 * 								documents that were not started yet is cancelled.
+	 */
+	public List<Result> signAll(final Supplier<Document> source) throws InterruptedException {
+		if (source == null)
+			throw new IllegalArgumentException("No source of documents provided");
+
+		final List<CompletableFuture<Result>> tasks = new ArrayList<>();
+		final Semaphore inFlight = new Semaphore(maxInFlight);
+		while (true) {
+			// Only take the next document when it can be submitted
+			try {
+				inFlight.acquire();
+			} catch (InterruptedException interrupted) {
+				cancel(tasks);
+				throw interrupted;
+			}
+			final CompletableFuture<Result> task;
+			try {
+				final Document d = source.get();
+				if (d == null) {
+					inFlight.release();
+					break;
+				}
+				task = submit(d);
+			} catch (RuntimeException | Error failure) {
+				// Either the supplier failed or the executor rejected the task
+				inFlight.release();
+				cancel(tasks);
+				throw failure;
+			}
+			task.whenComplete((r, cancelled) -> inFlight.release());
+			tasks.add(task);
+		}
+		return collect(tasks);
+	}
+
+	/**
+	 * Signs all documents provided by the given supplier and hands the result of each document to the given consumer
+	 * as soon as it has been signed. Contrary to {@link #signAll(Supplier)} no reference to the documents or their
+	 * results is kept, so the memory usage only depends on the {@linkplain #getMaximumInFlight() maximum number} of 
+	 * documents signed at the same time and not on the size of the batch. The supplier is called by the calling 
+	 * thread until it returns <code>null</code> to indicate that there are no more documents. 
+	 * <p>NOTE: The consumer is called by the threads of the executor in the order in which the documents are signed, 
+	 * which may differ from the order in which they were supplied, and must therefore be thread safe. When the
+	 * consumer throws an exception no more documents are taken from the supplier and, once the documents that are
+	 * already being signed have been handed to the consumer, the first exception thrown by the consumer is rethrown
+	 * by this method. Exceptions thrown by the consumer for the other documents are added to it as suppressed
+	 * exceptions.
+	 *
+	 * @param source	the supplier of the documents to sign
+	 * @param consumer	the consumer of the result of each document
+	 * @throws InterruptedException when the calling thread was interrupted while waiting for the documents to be
+	 * 								signed. No new documents are taken from the supplier, the documents that are 
+	 * 								already being signed are still handed to the consumer.
+	 */
+	public void signAll(final Supplier<Document> source, final Consumer<Result> consumer) 
+																						throws InterruptedException {
+		if (source == null)
+			throw new IllegalArgumentException("No source of documents provided");
+		if (consumer == null)
+			throw new IllegalArgumentException("No consumer of the results provided");
+
+		final Semaphore inFlight = new Semaphore(maxInFlight);
+		final AtomicReference<Throwable> consumerFailure = new AtomicReference<>();
+		while (true) {
+			// Only take the next document when it can be submitted
+			inFlight.acquire();
+			try {
+				final Document d = consumerFailure.get() == null ? source.get() : null;
+				if (d == null) {
+					inFlight.release();
+					break;
+				}
+				executor.execute(() -> {
+					try {
+						consumer.accept(sign(d));
+					} catch (Throwable failure) {
+						if (!consumerFailure.compareAndSet(null, failure))
+							consumerFailure.get().addSuppressed(failure);
+					} finally {
+						inFlight.release();
+					}
+				});
+			} catch (RuntimeException | Error failure) {
+				// Either the supplier failed or the executor rejected the task, wait for the documents in flight 
+				// before reporting the failure
+				inFlight.release();
+				inFlight.acquireUninterruptibly(maxInFlight);
+				inFlight.release(maxInFlight);
+				if (consumerFailure.get() != null)
+					failure.addSuppressed(consumerFailure.get());
+				throw failure;
+			}
+		}
+		// All documents have been signed when all permits can be acquired
+		inFlight.acquire(maxInFlight);
+		inFlight.release(maxInFlight);
+		final Throwable failure = consumerFailure.get();
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		else if (failure instanceof Error)
+			throw (Error) failure;
+		else if (failure != null)
+			throw new IllegalStateException("The consumer of the results failed", failure);
+	}
+
+	/**
+	 * Submits the task to sign the given document to the executor. The task never completes exceptionally as any
+	 * failure is included in the result.
+	 *
+	 * @param doc	the document to sign
+	 * @return	the future result of signing the document
+	 */
+	private CompletableFuture<Result> submit(final Document doc) {
+		return CompletableFuture.supplyAsync(() -> sign(doc), executor);
+	}
+
+	/**
+	 * Signs the given document. This method never throws as any failure, including an <code>Error</code>, is 
+	 * included in the result.
+	 *
+	 * @param doc	the document to sign
+	 * @return	the result of signing the document
+	 */
+	private Result sign(final Document doc) {
+		try {
+			return new Result(doc, profile.sign(doc), null);
+		} catch (Throwable signingFailure) {
+			return new Result(doc, null, signingFailure);
+		}
+	}
+
+	/**
+	 * Waits until all signing tasks have completed and collects their results.
+	 *
+	 * @param tasks	the signing tasks
+	 * @return	the results of the tasks, in the same order as the tasks
+	 * @throws InterruptedException when the calling thread was interrupted while waiting
+	 */
+	private List<Result> collect(final List<CompletableFuture<Result>> tasks) throws InterruptedException {
+		final List<Result> results = new ArrayList<>(tasks.size());
+		try {
+			for (CompletableFuture<Result> t : tasks)
+				results.add(t.get());
+		} catch (InterruptedException interrupted) {
+			cancel(tasks);
+			throw interrupted;
+		} catch (ExecutionException e) {
+			// As the tasks catch all exceptions this should not happen
+			throw new IllegalStateException("Signing task failed unexpectedly", e.getCause());
+		}
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * Cancels the given signing tasks. The documents of which the signing has not started yet are not signed, the 
+	 * signing of the documents that are already being signed is completed but their results are discarded.
+	 *
+	 * @param tasks	the signing tasks
+	 */
+	private static void cancel(final List<CompletableFuture<Result>> tasks) {
+		for (CompletableFuture<Result> t : tasks)
+			t.cancel(false);
+	}
+
+	/**
+	 * Is the result of signing one of the documents of a batch. When the document was signed successfully it
+	 * contains the created signature, otherwise the exception or error that caused the failure.
+	 */
+	public static class Result {
+		private final Document			document;
+		private final XadesSignature	signature;
+		private final Throwable			failure;
+
+		Result(final Document document, final XadesSignature signature, final Throwable failure) {
+			this.document = document;
+			this.signature = signature;
+			this.failure = failure;
+		}
+
+		/**
+		 * @return the document this result applies to
+		 */
+		public Document getDocument() {
+			return document;
+		}
+
+		/**
+		 * @return <code>true</code> if the document was signed successfully, <code>false</code> otherwise
+		 */
+		public boolean isSuccess() {
+			return failure == null;
+		}
+
+		/**
+		 * @return the signature added to the document, or <code>null</code> if the document could not be signed
+		 */
+		public XadesSignature getSignature() {
+			return signature;
+		}
+
+		/**
+		 * @return the exception or error that caused the signing of the document to fail, or <code>null</code> if the
+		 * 		   document was signed successfully
+		 */
+		public Throwable getFailure() {
+			return failure;
+		}
+	}
+}
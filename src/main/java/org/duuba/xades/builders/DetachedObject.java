@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.builders;
+
+/**
+ * Contains the information about a data object that is signed by a detached signature and for which the digest value
+ * has already been calculated.
+ */
+class DetachedObject {
+	private final String	uri;
+	private final String	digestAlg;
+	private final byte[]	digestValue;
+	private final String	mimeType;
+	private final String	description;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param uri			URI that references the data object
+	 * @param digestAlg		the digest algorithm used to calculate the digest value, if <code>null</code> the digest
+	 * 						algorithm of the signing profile was used
+	 * @param digestValue	the digest value of the data object
+	 * @param mimeType		the MIME type of the data object
+	 * @param description	the description of the data object, may be <code>null</code>
+	 */
+	DetachedObject(final String uri, final String digestAlg, final byte[] digestValue, final String mimeType,
+				   final String description) {
+		this.uri = uri;
+		this.digestAlg = digestAlg;
+		this.digestValue = digestValue;
+		this.mimeType = mimeType;
+		this.description = description;
+	}
+
+	String getURI() {
+		return uri;
+	}
+
+	String getDigestAlgorithm() {
+		return digestAlg;
+	}
+
+	byte[] getDigestValue() {
+		return digestValue;
+	}
+
+	String getMimeType() {
+		return mimeType;
+	}
+
+	String getDescription() {
+		return description;
+	}
+}
@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.builders;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.duuba.xades.ReferenceInfo;
+import org.duuba.xades.XadesSignature;
+import org.w3c.dom.Document;
+
+/**
+ * Is a builder to assist in the creation of a detached Xades signature over one or more files or other data objects.
+ * The signature is created using the settings of a {@link SigningProfile} and contains a <code>ds:Reference</code> and
+ * a <code>DataObjectFormat</code> qualifying property, including the MIME type, for each of the data objects. The
+ * document description and object identifier set on the profile are included in each <code>DataObjectFormat</code>,
+ * unless a description is given for the data object itself.
+ * <p>The digests of the files are calculated before the signature is created by reading the files directly through a
+ * {@link java.nio.channels.FileChannel}, mapping large files into memory in big regions, instead of letting the XML
+ * Signature implementation read them through its URI dereferencer and a chain of streams. This makes the builder
+ * suitable for signing very large files. As the references only contain the URI of the files, the signature must be
+ * validated with a base URI or dereferencer that resolves these URIs to the files.
+ * <p>Data objects that have already been digested elsewhere, for example when the payload is hashed when it is
+ * received, can be added using {@link #addDigestedObject(String, String, byte[], String, String)} or {@link
+ * #addDigestedObject(ReferenceInfo, String)}. These data objects are not accessed at all when the signature is created,
+ * so a signing service only needs the digests of the data objects it signs.
+ * <p>When many data objects are signed at once, the references to them can be put in a <code>ds:Manifest</code> by
+ * setting {@link #setUseManifest(boolean)}. The signature then only references the manifest, so the core validation of
+ * the signature does not depend on the validation of each individual data object. The signature still contains a
+ * <code>DataObjectFormat</code> for each data object and the commitment type indications of the profile list the
+ * data objects they apply to. Regardless of the number of data objects only one signature operation is needed.
+ * <p>On successful completion of the {@link #build()} method the signature is the root element of a new XML document.
+ *
+ * @see SigningProfile
+ */
+public class DetachedSignatureBuilder {
+
+	/**
+	 * The MIME type used when no type is specified and it cannot be detected
+	 */
+	public static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+
+	private final SigningProfile	profile;
+	private final List<DataObject>	objects = new ArrayList<>();
+	private boolean					useManifest;
+
+	// The built signature
+	private XadesSignature	signature;
+
+	/**
+	 * Creates a new builder that uses the given profile to create the signature.
+	 *
+	 * @param profile	the profile to sign the files with
+	 */
+	public DetachedSignatureBuilder(final SigningProfile profile) {
+		if (profile == null)
+			throw new IllegalArgumentException("A signing profile must be provided");
+		this.profile = profile;
+	}
+
+	/**
+	 * Sets whether the references to the data objects should be put in a <code>ds:Manifest</code> instead of directly
+	 * in the <code>ds:SignedInfo</code> of the signature.
+	 *
+	 * @param useManifest	<code>true</code> if a manifest should be used, <code>false</code> (default) otherwise
+	 * @return	this builder
+	 */
+	public DetachedSignatureBuilder setUseManifest(final boolean useManifest) {
+		this.useManifest = useManifest;
+		return this;
+	}
+
+	/**
+	 * Adds a file to be signed. The file is referenced by its name and the MIME type is detected using {@link
+	 * Files#probeContentType(Path)}, falling back to {@link #DEFAULT_MIME_TYPE} if it cannot be detected.
+	 *
+	 * @param file	path to the file to sign
+	 * @return	this builder
+	 */
+	public DetachedSignatureBuilder addFile(final Path file) {
+		return addFile(file, null);
+	}
+
+	/**
+	 * Adds a file with the given MIME type to be signed. The file is referenced by its name.
+	 *
+	 * @param file		path to the file to sign
+	 * @param mimeType	the MIME type of the file, if <code>null</code> the type is detected
+	 * @return	this builder
+	 */
+	public DetachedSignatureBuilder addFile(final Path file, final String mimeType) {
+		return addFile(file, null, mimeType, null);
+	}
+
+	/**
+	 * Adds a file to be signed.
+	 *
+	 * @param file			path to the file to sign
+	 * @param uri			the URI to reference the file in the signature, if <code>null</code> the file name is
+	 * 						used as relative URI
+	 * @param mimeType		the MIME type of the file, if <code>null</code> the type is detected
+	 * @param description	description of the file to include in the <code>DataObjectFormat</code>, may be <code>
+	 * 						null</code>
+	 * @return	this builder
+	 */
+	public DetachedSignatureBuilder addFile(final Path file, final String uri, final String mimeType,
+											final String description) {
+		if (file == null || !Files.isRegularFile(file))
+			throw new IllegalArgumentException("The file to sign must exist");
+
+		objects.add(new DataObject(file, uri != null ? uri : fileNameURI(file), null, null,
+								   mimeType != null ? mimeType : detectMimeType(file), description));
+		return this;
+	}
+
+	/**
+	 * Adds a data object that is available in memory to be signed.
+	 *
+	 * @param data			the content of the data object
+	 * @param uri			the URI that references the data object, may be <code>null</code> for only one of the data
+	 * 						objects
+	 * @param mimeType		the MIME type of the data object, if <code>null</code> {@link #DEFAULT_MIME_TYPE} is used
+	 * @param description	description of the data object to include in the <code>DataObjectFormat</code>, may be
+	 * 						<code>null</code>
+	 * @return	this builder
+	 * @throws IllegalArgumentException when no URI is given and a data object without URI was already added
+	 */
+	public DetachedSignatureBuilder addData(final byte[] data, final String uri, final String mimeType,
+											final String description) {
+		if (data == null)
+			throw new IllegalArgumentException("The data object must be provided");
+		checkURI(uri);
+
+		final MessageDigest md;
+		try {
+			md = MessageDigest.getInstance(JCEMapper.translateURItoJCEID(profile.getDigestAlgorithm()));
+		} catch (NoSuchAlgorithmException unavailable) {
+			// As the algorithms are checked when the profile is created, this should not happen
+			throw new IllegalStateException("The digest algorithm is not available");
+		}
+		objects.add(new DataObject(null, uri, null, md.digest(data), mimeType != null ? mimeType : DEFAULT_MIME_TYPE,
+								   description));
+		return this;
+	}
+
+	/**
+	 * Adds a data object of which the digest has already been calculated to be signed.
+	 *
+	 * @param uri			the URI that references the data object, may be <code>null</code> for only one of the data
+	 * 						objects
+	 * @param digestAlg		the digest algorithm that was used to calculate the digest, if <code>null</code> the digest
+	 * 						algorithm of the signing profile is assumed
+	 * @param digestValue	the calculated digest value of the data object
+	 * @param mimeType		the MIME type of the data object, if <code>null</code> {@link #DEFAULT_MIME_TYPE} is used
+	 * @param description	description of the data object to include in the <code>DataObjectFormat</code>, may be
+	 * 						<code>null</code>
+	 * @return	this builder
+	 * @throws IllegalArgumentException when no URI is given and a data object without URI was already added
+	 */
+	public DetachedSignatureBuilder addDigestedObject(final String uri, final String digestAlg, 
+													  final byte[] digestValue, final String mimeType, 
+													  final String description) {
+		if (digestValue == null || digestValue.length == 0)
+			throw new IllegalArgumentException("The digest value of the data object must be provided");
+		if (digestAlg != null && JCEMapper.translateURItoJCEID(digestAlg) == null)
+			throw new IllegalArgumentException("Digest algorithm " + digestAlg + " is not supported");
+		checkURI(uri);
+
+		objects.add(new DataObject(null, uri, digestAlg, digestValue.clone(),
+								   mimeType != null ? mimeType : DEFAULT_MIME_TYPE, description));
+		return this;
+	}
+
+	/**
+	 * Adds a data object of which the digest has already been calculated to be signed, using the URI, digest
+	 * algorithm and digest value from the given <code>ReferenceInfo</code>.
+	 *
+	 * @param refInfo	the reference information of the data object
+	 * @param mimeType	the MIME type of the data object, if <code>null</code> {@link #DEFAULT_MIME_TYPE} is used
+	 * @return	this builder
+	 */
+	public DetachedSignatureBuilder addDigestedObject(final ReferenceInfo refInfo, final String mimeType) {
+		if (refInfo == null)
+			throw new IllegalArgumentException("Reference information must be provided");
+
+		return addDigestedObject(refInfo.getURI(), refInfo.getDigestMethod(), refInfo.getDigestValue(), mimeType,
+								 null);
+	}
+
+	/**
+	 * Creates a new detached Xades signature over the added data objects. The build process will be executed only
+	 * once. When called repeatedly the already built signature will be returned.
+	 *
+	 * @return the signed Xades signature
+	 * @throws IllegalStateException when no data objects to sign were added
+	 * @throws XMLSignatureException when the digest of a file could not be calculated or the sign operation failed
+	 */
+	public XadesSignature build() throws IllegalStateException, XMLSignatureException {
+		if (signature != null)
+			return signature;
+
+		if (objects.isEmpty())
+			throw new IllegalStateException("No data objects to sign added");
+
+		final List<DetachedObject> digested = new ArrayList<>(objects.size());
+		MessageDigest md = null;
+		try {
+			for (DataObject o : objects) {
+				if (o.path == null)
+					digested.add(new DetachedObject(o.uri, o.digestAlg, o.digestValue, o.mimeType, o.description));
+				else {
+					if (md == null)
+						md = MessageDigest.getInstance(JCEMapper.translateURItoJCEID(profile.getDigestAlgorithm()));
+					digested.add(new DetachedObject(o.uri, null, FileDigester.digest(o.path, md), o.mimeType,
+													o.description));
+				}
+			}
+		} catch (NoSuchAlgorithmException unavailable) {
+			throw new XMLSignatureException("The digest algorithm is not available", unavailable);
+		} catch (IOException readFailure) {
+			throw new XMLSignatureException("The digest of a file to sign could not be calculated", readFailure);
+		}
+
+		final Document sigDoc;
+		try {
+			final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+			dbf.setNamespaceAware(true);
+			sigDoc = dbf.newDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException unavailable) {
+			throw new XMLSignatureException("The sign operation on the Xades signature failed", unavailable);
+		}
+		signature = profile.sign(sigDoc, profile.createDetachedSignature(digested, ZonedDateTime.now(profile.getClock()),
+																		 useManifest));
+		return signature;
+	}
+
+	/**
+	 * Checks that a data object can be added with the given URI. As XML Signature allows only one <code>ds:Reference
+	 * </code> without <code>URI</code> attribute in a signature or manifest, only one data object can be added
+	 * without a URI.
+	 *
+	 * @param uri	the URI of the data object to add
+	 * @throws IllegalArgumentException when the URI is <code>null</code> and a data object without URI was already
+	 * 									added
+	 */
+	private void checkURI(final String uri) {
+		if (uri == null && objects.stream().anyMatch(o -> o.uri == null))
+			throw new IllegalArgumentException("Only one data object can be added without a URI");
+	}
+
+	/**
+	 * Gets the relative URI to reference the given file by its name.
+	 *
+	 * @param file	path to the file
+	 * @return	the file name as URI, with all characters not allowed in a URI escaped
+	 */
+	private static String fileNameURI(final Path file) {
+		try {
+			return new URI(null, null, file.getFileName().toString(), null).toASCIIString();
+		} catch (URISyntaxException invalidName) {
+			throw new IllegalArgumentException("The file name cannot be used as URI", invalidName);
+		}
+	}
+
+	/**
+	 * Detects the MIME type of the given file.
+	 *
+	 * @param file	path to the file
+	 * @return	the detected MIME type, or {@link #DEFAULT_MIME_TYPE} if it cannot be detected
+	 */
+	private static String detectMimeType(final Path file) {
+		try {
+			final String mimeType = Files.probeContentType(file);
+			return mimeType != null ? mimeType : DEFAULT_MIME_TYPE;
+		} catch (IOException detectionFailure) {
+			return DEFAULT_MIME_TYPE;
+		}
+	}
+
+	/**
+	 * Contains the information about a data object that is to be signed. Either the path of the file to digest or the
+	 * already calculated digest is set.
+	 */
+	private static class DataObject {
+		final Path		path;
+		final String	uri;
+		final String	digestAlg;
+		final byte[]	digestValue;
+		final String	mimeType;
+		final String	description;
+
+		DataObject(final Path path, final String uri, final String digestAlg, final byte[] digestValue,
+				   final String mimeType, final String description) {
+			this.path = path;
+			this.uri = uri;
+			this.digestAlg = digestAlg;
+			this.digestValue = digestValue;
+			this.mimeType = mimeType;
+			this.description = description;
+		}
+	}
+}
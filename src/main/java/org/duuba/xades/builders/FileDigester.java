@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.builders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * Calculates the digest of a file by reading it directly through a {@link FileChannel} instead of through a chain of
+ * streams. Large files are memory mapped in regions of {@link #MAP_REGION_SIZE} bytes so the content is digested
+ * straight from the page cache without copying it to the heap. Small files are read into a single heap buffer as
+ * mapping has a fixed overhead that is only earned back for larger files.
+ */
+final class FileDigester {
+	/**
+	 * Files smaller than this size are read instead of mapped
+	 */
+	static final int MAP_THRESHOLD = 1024 * 1024;
+	/**
+	 * The size of the regions in which a large file is mapped
+	 */
+	static final long MAP_REGION_SIZE = 256L * 1024 * 1024;
+
+	private FileDigester() {}
+
+	/**
+	 * Updates the given message digest with the complete content of the file.
+	 *
+	 * @param file	path to the file to digest
+	 * @param md	the message digest to update
+	 * @return	the digest value
+	 * @throws IOException when the file cannot be read
+	 */
+	static byte[] digest(final Path file, final MessageDigest md) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size < MAP_THRESHOLD) {
+				final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+				while (buffer.hasRemaining() && channel.read(buffer) >= 0);
+				md.update(buffer.array(), 0, buffer.position());
+			} else
+				for (long position = 0; position < size; position += MAP_REGION_SIZE)
+					md.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+										  Math.min(MAP_REGION_SIZE, size - position)));
+			return md.digest();
+		}
+	}
+}
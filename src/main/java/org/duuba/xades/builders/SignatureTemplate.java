@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.builders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.XMLConstants;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.apache.xml.security.algorithms.implementations.SignatureECDSA;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.utils.XMLUtils;
+import org.duuba.xades.Constants;
+import org.duuba.xades.IdGenerator;
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XmlWriterToStream;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Is a pre-serialised enveloped signature of a {@link SigningProfile} in which only the parts that differ between
+ * documents still have to be filled in. As the <code>KeyInfo</code> and almost all qualifying properties are the same
+ * for each signature created with a profile, both the serialised signature and the canonical forms of the <code>
+ * SignedProperties</code> and <code>SignedInfo</code> elements can be split into constant fragments and a few
+ * <i>slots</i>: the <code>Id</code>s of the signature elements, the signing time, the digest values of the references
+ * and the signature value. Creating a signature then only requires generating the Ids, calculating the digest of the
+ * signed properties and the signature value over the filled in canonical forms and writing the fragments, without
+ * building or marshalling any XML structure.
+ * <p>The template is created once by marshalling a signature in which the slots contain markers, serialising it
+ * using the {@link XmlWriterToStream}, which is also used to write the signed documents, and canonicalising the
+ * serialised form. Because the template is self contained, i.e. declares all namespaces it uses,
+ * its canonical forms do not depend on the document it is added to. This however only holds for exclusive
+ * canonicalisation, so a template can only be created for profiles that use exclusive canonicalisation. As the
+ * signature value is calculated directly, the profile must also contain the private key and DSA signature algorithms
+ * are not supported.
+ * <p>A template is immutable and can be shared by threads.
+ */
+final class SignatureTemplate {
+
+	/**
+	 * The character that starts and ends the marker of a slot in the template
+	 */
+	private static final char	MARKER = '\u00a7';
+	private static final Pattern SLOT = Pattern.compile(MARKER + "(\\d+)" + MARKER);
+	/**
+	 * The indexes of the slots, the slots of the Ids follow the fixed ones in order of generation
+	 */
+	private static final int	SIGNING_TIME = 0;
+	private static final int	DOC_DIGEST = 1;
+	private static final int	SIGNED_PROPS_DIGEST = 2;
+	private static final int	SIGNATURE_VALUE = 3;
+	private static final int	FIRST_ID = 4;
+	/**
+	 * Namespace used as default namespace of the element in which the template is serialised, so elements without
+	 * namespace get a declaration that un-declares the default namespace of the document the signature is added to
+	 */
+	private static final String	TEMPLATE_NS = "urn:duuba:xades:template";
+
+	private final SigningProfile	profile;
+	private final String			digestJCEName;
+	private final String			signatureJCEName;
+	private final boolean			isECDSA;
+	/**
+	 * The prefixes of the generated Ids, in the order they are generated
+	 */
+	private final String[]			idPrefixes;
+	/**
+	 * The slot of the Id of the <code>ds:Signature</code> element
+	 */
+	private final int				signatureIdSlot;
+	private final Fragments			output;
+	private final Fragments			signedProperties;
+	private final Fragments			signedInfo;
+
+	/**
+	 * Creates the signature template for the given profile.
+	 *
+	 * @param profile	the profile to create the template for
+	 * @throws IllegalStateException when no template can be created for the profile because it does not use exclusive
+	 * 								 canonicalisation, does not contain a private key or uses a DSA signing algorithm
+	 * @throws XMLSignatureException when the template signature could not be created
+	 */
+	SignatureTemplate(final SigningProfile profile) throws XMLSignatureException {
+		final String c14nAlg = profile.getC14nAlgorithm();
+		if (!CanonicalizationMethod.EXCLUSIVE.equals(c14nAlg)
+			&& !CanonicalizationMethod.EXCLUSIVE_WITH_COMMENTS.equals(c14nAlg))
+			throw new IllegalStateException("A signature template requires exclusive canonicalisation");
+		if (profile.getKeyForSigning() == null)
+			throw new IllegalStateException("The profile does not contain a private key");
+		this.signatureJCEName = JCEMapper.translateURItoJCEID(profile.getSigningAlgorithm());
+		if (signatureJCEName == null
+			|| (signatureJCEName.endsWith("DSA") && !signatureJCEName.endsWith("withECDSA")))
+			throw new IllegalStateException("Signature algorithm " + profile.getSigningAlgorithm()
+											+ " is not supported for signature templates");
+		this.profile = profile;
+		this.isECDSA = signatureJCEName.endsWith("withECDSA");
+		this.digestJCEName = JCEMapper.translateURItoJCEID(profile.getDigestAlgorithm());
+
+		try {
+			// Create the signature with markers for the Ids, using a pre-calculated document digest so only the
+			// signed properties are digested
+			final List<String> prefixes = new ArrayList<>();
+			final IdGenerator markers = prefix -> {
+				prefixes.add(prefix);
+				return marker(FIRST_ID + prefixes.size() - 1);
+			};
+			final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+			dbf.setNamespaceAware(true);
+			final Document doc = dbf.newDocumentBuilder().newDocument();
+			final Element wrapper = doc.createElementNS(TEMPLATE_NS, "template");
+			wrapper.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, XMLConstants.XMLNS_ATTRIBUTE, TEMPLATE_NS);
+			doc.appendChild(wrapper);
+			final XadesSignature signature = profile.withIdGenerator(markers).createEnvelopedSignature(
+								ZonedDateTime.of(2000, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC),
+								new byte[MessageDigest.getInstance(digestJCEName).getDigestLength()]);
+			signature.prepare(wrapper);
+			this.idPrefixes = prefixes.toArray(new String[prefixes.size()]);
+
+			// Replace the other variable parts with markers
+			final Element sigElement = signature.getElement();
+			final NodeList refs = sigElement.getElementsByTagNameNS(XMLSignature.XMLNS, "Reference");
+			for (int i = 0; i < refs.getLength(); i++) {
+				final Element ref = (Element) refs.item(i);
+				final Node digestValue = ref.getElementsByTagNameNS(XMLSignature.XMLNS, "DigestValue").item(0);
+				if (Constants.SIGNED_PROPS_REF_TYPE.equals(ref.getAttribute("Type")))
+					digestValue.setTextContent(marker(SIGNED_PROPS_DIGEST));
+				else if (ref.getAttribute("URI").isEmpty())
+					digestValue.setTextContent(marker(DOC_DIGEST));
+			}
+			sigElement.getElementsByTagNameNS(XMLSignature.XMLNS, "SignatureValue").item(0)
+					  .setTextContent(marker(SIGNATURE_VALUE));
+			sigElement.getElementsByTagNameNS("*", "SigningTime").item(0).setTextContent(marker(SIGNING_TIME));
+
+			// Serialise the signature, declaring all namespaces it uses, and strip the wrapper element
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream(8192);
+			final XmlWriterToStream xwriter = new XmlWriterToStream(bos);
+			xwriter.writeNode(wrapper);
+			xwriter.flush();
+			final String serialised = new String(bos.toByteArray(), StandardCharsets.UTF_8);
+			final String sigXml = serialised.substring(serialised.indexOf('>') + 1, serialised.lastIndexOf("</"));
+			this.output = new Fragments(sigXml);
+
+			// Canonicalise the parsed serialised form so the canonical forms are exactly what a verifier will see
+			final Element parsed = dbf.newDocumentBuilder().parse(
+								new ByteArrayInputStream(sigXml.getBytes(StandardCharsets.UTF_8))).getDocumentElement();
+			final Matcher sigId = SLOT.matcher(parsed.getAttribute("Id"));
+			if (!sigId.matches())
+				throw new IllegalStateException("Signature Id is not generated");
+			this.signatureIdSlot = Integer.parseInt(sigId.group(1));
+			// The same document reference to the signed properties never includes comments
+			this.signedProperties = new Fragments(new String(
+							Canonicalizer.getInstance(CanonicalizationMethod.EXCLUSIVE).canonicalizeSubtree(
+										parsed.getElementsByTagNameNS("*", "SignedProperties").item(0)),
+							StandardCharsets.UTF_8));
+			this.signedInfo = new Fragments(new String(Canonicalizer.getInstance(c14nAlg).canonicalizeSubtree(
+										parsed.getElementsByTagNameNS(XMLSignature.XMLNS, "SignedInfo").item(0)),
+							StandardCharsets.UTF_8));
+		} catch (XMLSignatureException signingFailure) {
+			throw signingFailure;
+		} catch (Exception templateFailure) {
+			throw new XMLSignatureException("The signature template could not be created", templateFailure);
+		}
+	}
+
+	/**
+	 * Creates a new signature from the template and writes it to the output.
+	 *
+	 * @param docDigest		the digest value of the signed document
+	 * @param signingTime	the time to include in the <code>SigningTime</code> qualifying property
+	 * @param out			the output to write the signature to
+	 * @return	the Id of the created signature
+	 * @throws XMLSignatureException when the signature value could not be calculated
+	 */
+	String write(final byte[] docDigest, final ZonedDateTime signingTime, final XmlStreamOutput out)
+																						throws XMLSignatureException {
+		final String[] values = new String[FIRST_ID + idPrefixes.length];
+		final IdGenerator idGenerator = profile.getIdGenerator();
+		for (int i = 0; i < idPrefixes.length; i++)
+			values[FIRST_ID + i] = idGenerator.generateId(idPrefixes[i]);
+		values[SIGNING_TIME] = XadesSignatureFactory.convertToXMLString(signingTime);
+		values[DOC_DIGEST] = XMLUtils.encodeToString(docDigest);
+		try {
+			values[SIGNED_PROPS_DIGEST] = XMLUtils.encodeToString(
+									MessageDigest.getInstance(digestJCEName).digest(signedProperties.toBytes(values)));
+			final Signature signer = Signature.getInstance(signatureJCEName);
+			signer.initSign(profile.getKeyForSigning());
+			signer.update(signedInfo.toBytes(values));
+			final byte[] signatureValue = signer.sign();
+			values[SIGNATURE_VALUE] = XMLUtils.encodeToString(isECDSA ? SignatureECDSA.convertASN1toXMLDSIG(
+																								signatureValue)
+																	  : signatureValue);
+		} catch (GeneralSecurityException | IOException signingFailure) {
+			throw new XMLSignatureException("The sign operation on the Xades signature failed", signingFailure);
+		}
+		output.write(values, out);
+		return values[signatureIdSlot];
+	}
+
+	private static String marker(final int slot) {
+		return MARKER + Integer.toString(slot) + MARKER;
+	}
+
+	/**
+	 * Is a serialised XML fragment split at its slots into constant parts.
+	 */
+	private static final class Fragments {
+		private final byte[][]	bytes;
+		private final int[]		slots;
+
+		Fragments(final String xml) {
+			final List<String> parts = new ArrayList<>();
+			final List<Integer> slotList = new ArrayList<>();
+			final Matcher m = SLOT.matcher(xml);
+			int start = 0;
+			while (m.find()) {
+				parts.add(xml.substring(start, m.start()));
+				slotList.add(Integer.valueOf(m.group(1)));
+				start = m.end();
+			}
+			parts.add(xml.substring(start));
+			this.bytes = new byte[parts.size()][];
+			for (int i = 0; i < bytes.length; i++)
+				bytes[i] = parts.get(i).getBytes(StandardCharsets.UTF_8);
+			this.slots = new int[slotList.size()];
+			for (int i = 0; i < slots.length; i++)
+				slots[i] = slotList.get(i);
+		}
+
+		/**
+		 * Gets the canonical form with the given slot values filled in. The values are base64 encoded binaries,
+		 * date times or NCNames, so only the carriage returns of the line breaks in base64 need to be escaped.
+		 */
+		byte[] toBytes(final String[] values) {
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
+			for (int i = 0; i < slots.length; i++) {
+				bos.write(bytes[i], 0, bytes[i].length);
+				final byte[] value = values[slots[i]].replace("\r", "&#xD;").getBytes(StandardCharsets.UTF_8);
+				bos.write(value, 0, value.length);
+			}
+			bos.write(bytes[slots.length], 0, bytes[slots.length].length);
+			return bos.toByteArray();
+		}
+
+		void write(final String[] values, final XmlStreamOutput out) {
+			for (int i = 0; i < slots.length; i++) {
+				out.writeMarkup(bytes[i]);
+				out.writeCharacters(values[slots[i]]);
+			}
+			out.writeMarkup(bytes[slots.length]);
+		}
+	}
+}
@@ -0,0 +1,533 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.builders;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Manifest;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLObject;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+
+import org.duuba.xades.CommitmentTypeIndication;
+import org.duuba.xades.DataObjectFormat;
+import org.duuba.xades.IObjectIdentifier;
+import org.duuba.xades.IdGenerator;
+import org.duuba.xades.QualifyingProperties;
+import org.duuba.xades.SignatureProductionPlace;
+import org.duuba.xades.SignedDataObjectProperties;
+import org.duuba.xades.SignedProperties;
+import org.duuba.xades.SignedSignatureProperties;
+import org.duuba.xades.SignerRole;
+import org.duuba.xades.SigningCertificate;
+import org.duuba.xades.SigningListener;
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XadesVersion;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * Is an immutable, "compiled" version of the settings of a {@link BasicEnvelopedSignatureBuilder} which can be used to
+ * sign any number of documents. All information that does not depend on the document being signed, like the
+ * <code>KeyInfo</code> and the qualifying properties about the signer, is checked and created once when the profile is
+ * created. Signing a document therefore only requires the creation of the document specific parts of the signature
+ * and the actual digest, canonicalisation and signing operations.
+ * <p>A profile is created by calling {@link BasicEnvelopedSignatureBuilder#buildProfile()}. Because it cannot be
+ * changed after creation it is safe to share an instance between threads, as long as each thread signs its own
+ * document.
+ *
+ * @see BasicEnvelopedSignatureBuilder
+ */
+public class SigningProfile {
+
+	private final XadesSignatureFactory	xadesFactory;
+	private final XadesVersion			version;
+	private final IdGenerator			idGenerator;
+	private final Clock					clock;
+	private final PrivateKey			keyForSigning;
+	private final String				c14nAlg;
+	private final String				digestAlg;
+	private final String				signingAlg;
+	private final KeyInfo				keyInfo;
+	private final SigningCertificate	certInfo;
+	private final SignatureProductionPlace signersLocation;
+	private final SignerRole			signerRole;
+	private final String				docDescription;
+	private final IObjectIdentifier		docOID;
+	private final List<CommitmentTypeIndication> commitments;
+	private final SigningListener		listener;
+
+	SigningProfile(final XadesSignatureFactory xadesFactory, final IdGenerator idGenerator, final Clock clock,
+				   final PrivateKey keyForSigning,
+				   final String c14nAlg, final String digestAlg, final String signingAlg, final KeyInfo keyInfo,
+				   final SigningCertificate certInfo, final SignatureProductionPlace signersLocation,
+				   final SignerRole signerRole, final String docDescription, final IObjectIdentifier docOID,
+				   final List<CommitmentTypeIndication> commitments, final SigningListener listener) {
+		this.xadesFactory = xadesFactory;
+		this.version = xadesFactory.getVersion();
+		this.idGenerator = idGenerator;
+		this.clock = clock;
+		this.keyForSigning = keyForSigning;
+		this.c14nAlg = c14nAlg;
+		this.digestAlg = digestAlg;
+		this.signingAlg = signingAlg;
+		this.keyInfo = keyInfo;
+		this.certInfo = certInfo;
+		this.signersLocation = signersLocation;
+		this.signerRole = signerRole;
+		this.docDescription = docDescription;
+		this.docOID = docOID;
+		this.commitments = commitments != null ? Collections.unmodifiableList(commitments) : null;
+		this.listener = listener;
+	}
+
+	/**
+	 * @return the Xades version of the signatures created with this profile
+	 */
+	public XadesVersion getXadesVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the generator for the Ids of the signature elements
+	 */
+	public IdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+
+	/**
+	 * @return the clock that provides the signing time
+	 */
+	public Clock getClock() {
+		return clock;
+	}
+
+	/**
+	 * @return the canonicalisation algorithm used for both the signed document and the signed properties
+	 */
+	public String getC14nAlgorithm() {
+		return c14nAlg;
+	}
+
+	/**
+	 * @return the digest algorithm used for the references and certificate digests
+	 */
+	public String getDigestAlgorithm() {
+		return digestAlg;
+	}
+
+	/**
+	 * @return the signing algorithm
+	 */
+	public String getSigningAlgorithm() {
+		return signingAlg;
+	}
+
+	/**
+	 * @return the listener that is notified of the durations of the signing phases, <code>null</code> if none
+	 */
+	public SigningListener getSigningListener() {
+		return listener;
+	}
+
+	/**
+	 * @return the private key used to sign the documents, <code>null</code> if the profile is only used for two-phase
+	 * 			signing
+	 */
+	PrivateKey getKeyForSigning() {
+		return keyForSigning;
+	}
+
+	/**
+	 * Creates a copy of this profile that uses the given generator for the Ids of the signature elements, including
+	 * the <code>SignatureValue</code> element when the Xades signature factory of this profile generates its Id.
+	 *
+	 * @param generator	the generator to use
+	 * @return	the profile with the same settings but the given Id generator
+	 */
+	SigningProfile withIdGenerator(final IdGenerator generator) {
+		return new SigningProfile(xadesFactory.getIdGenerator() != null ? new XadesSignatureFactory(version, generator)
+																		: xadesFactory,
+								  generator, clock, keyForSigning, c14nAlg, digestAlg, signingAlg, keyInfo, certInfo,
+								  signersLocation, signerRole, docDescription, docOID, commitments, listener);
+	}
+
+	/**
+	 * Signs the given document using the current time of the profile's clock as signing time. The new Xades signature
+	 * is added as last element to the document.
+	 *
+	 * @param doc2sign	the document to sign
+	 * @return	the signed Xades signature
+	 * @throws XMLSignatureException when the sign operation on the Xades signature failed
+	 */
+	public XadesSignature sign(final Document doc2sign) throws XMLSignatureException {
+		return sign(doc2sign, ZonedDateTime.now(clock));
+	}
+
+	/**
+	 * Signs the given document using the given signing time. The new Xades signature is added as last element to the
+	 * document.
+	 *
+	 * @param doc2sign		the document to sign
+	 * @param signingTime	the time to include in the <code>SigningTime</code> qualifying property
+	 * @return	the signed Xades signature
+	 * @throws XMLSignatureException when the sign operation on the Xades signature failed
+	 */
+	public XadesSignature sign(final Document doc2sign, final ZonedDateTime signingTime)
+																						throws XMLSignatureException {
+		return sign(doc2sign, signingTime, listener != null ? System.nanoTime() : 0);
+	}
+
+	/**
+	 * Signs the given document using the given signing time. When a listener is registered, the time from the given
+	 * start of the preparation until the signature objects are created is reported as the preparation phase.
+	 *
+	 * @param doc2sign			the document to sign
+	 * @param signingTime		the time to include in the <code>SigningTime</code> qualifying property
+	 * @param preparationStart	the {@link System#nanoTime()} at which the preparation of the signature started
+	 * @return	the signed Xades signature
+	 * @throws XMLSignatureException when the sign operation on the Xades signature failed
+	 */
+	XadesSignature sign(final Document doc2sign, final ZonedDateTime signingTime, final long preparationStart)
+																						throws XMLSignatureException {
+		if (doc2sign == null || doc2sign.getDocumentElement() == null)
+			throw new IllegalArgumentException("No document to sign provided");
+
+		final XadesSignature signature = createEnvelopedSignature(signingTime, null);
+		return sign(doc2sign.getDocumentElement(), signature, listener != null ? System.nanoTime() - preparationStart 
+																			   : 0);
+	}
+
+	/**
+	 * Signs the given Xades signature and adds it as last child to the given node. 
+	 * 
+	 * @param parent		the node to add the signature to
+	 * @param signature		the signature to sign 
+	 * @return	the signed Xades signature
+	 * @throws XMLSignatureException when the sign operation on the Xades signature failed
+	 * @throws IllegalStateException when the profile does not contain a private key 
+	 */
+	XadesSignature sign(final Node parent, final XadesSignature signature) throws XMLSignatureException {
+		return sign(parent, signature, 0);
+	}
+
+	/**
+	 * Signs the given Xades signature and adds it as last child to the given node. When a listener is registered, it
+	 * is notified of the durations of the signing phases, with the given duration of the preparation phase.
+	 * 
+	 * @param parent			the node to add the signature to
+	 * @param signature			the signature to sign 
+	 * @param preparationTime	the time in nanoseconds spent on creating the signature, 0 if not measured
+	 * @return	the signed Xades signature
+	 * @throws XMLSignatureException when the sign operation on the Xades signature failed
+	 * @throws IllegalStateException when the profile does not contain a private key 
+	 */
+	XadesSignature sign(final Node parent, final XadesSignature signature, final long preparationTime)
+																						throws XMLSignatureException {
+		if (keyForSigning == null)
+			throw new IllegalStateException("The profile does not contain a private key, use two-phase signing");
+		
+		final DOMSignContext dsc = new DOMSignContext(keyForSigning, parent);
+		if (listener != null) {
+			dsc.setProperty(XadesSignature.SIGNING_LISTENER_PROPERTY, listener);
+			if (preparationTime > 0)
+				dsc.setProperty(XadesSignature.PREPARATION_TIME_PROPERTY, Long.valueOf(preparationTime));
+		}
+		try {
+			signature.sign(dsc);
+		} catch (Exception signingFailure) {
+			throw new XMLSignatureException("The sign operation on the Xades signature failed", signingFailure);
+		}
+		return signature;
+	}
+	
+	/**
+	 * Executes the first phase of two-phase signing of the given document using the current time of the profile's 
+	 * clock as signing time. 
+	 * The new Xades signature is added as last element to the document, but without signature value. The data to be 
+	 * signed, or its digest, can be retrieved from the returned signature and must be signed by the external signer 
+	 * holding the private key. The signature is completed by adding the signature value using {@link 
+	 * XadesSignature#complete(byte[])}.
+	 * <p>As the signature value is not calculated by the profile, it does not need to contain a private key. 
+	 *
+	 * @param doc2sign	the document to sign
+	 * @return	the prepared Xades signature
+	 * @throws XMLSignatureException when the preparation of the Xades signature failed
+	 */
+	public XadesSignature prepare(final Document doc2sign) throws XMLSignatureException {
+		return prepare(doc2sign, ZonedDateTime.now(clock));
+	}
+
+	/**
+	 * Executes the first phase of two-phase signing of the given document using the given signing time. See {@link 
+	 * #prepare(Document)}.
+	 *
+	 * @param doc2sign		the document to sign
+	 * @param signingTime	the time to include in the <code>SigningTime</code> qualifying property
+	 * @return	the prepared Xades signature
+	 * @throws XMLSignatureException when the preparation of the Xades signature failed
+	 */
+	public XadesSignature prepare(final Document doc2sign, final ZonedDateTime signingTime) 
+																						throws XMLSignatureException {
+		if (doc2sign == null || doc2sign.getDocumentElement() == null)
+			throw new IllegalArgumentException("No document to sign provided");
+
+		final XadesSignature signature = createEnvelopedSignature(signingTime, null);
+		try {
+			signature.prepare(doc2sign.getDocumentElement());
+		} catch (MarshalException preparationFailure) {
+			throw new XMLSignatureException("The preparation of the Xades signature failed", preparationFailure);
+		}
+		return signature;
+	}
+	
+	/**
+	 * Signs the given document asynchronously using the given executor. The signing time is set to the time the
+	 * signing starts. The returned future completes with the signed Xades signature or, when signing fails, 
+	 * exceptionally with the {@link XMLSignatureException}, {@link IllegalArgumentException} or {@link Error} that 
+	 * caused the failure.
+	 * <p>The signing can be cancelled by cancelling the returned future, but only as long as it has not started. 
+	 * When cancelled in time the document is not signed at all. Once the signing has started it cannot be cancelled 
+	 * anymore as the sign operation, which changes the document, cannot be interrupted. {@link 
+	 * CompletableFuture#cancel(boolean) cancel} then returns <code>false</code> and the future completes normally. 
+	 * Therefore the document is unchanged when the future reports that it was cancelled, and is only changed by the 
+	 * signing thread until the future is completed.
+	 * 
+	 * @param doc2sign	the document to sign
+	 * @param executor	the executor that runs the sign operation
+	 * @return	the future signature
+	 */
+	public CompletableFuture<XadesSignature> signAsync(final Document doc2sign, final Executor executor) {
+		if (executor == null)
+			throw new IllegalArgumentException("An executor must be provided");
+		
+		final SigningFuture result = new SigningFuture();
+		executor.execute(() -> {
+			if (!result.start())
+				// Cancelled or completed by the caller before started
+				return;
+			try {
+				result.complete(sign(doc2sign));
+			} catch (Throwable signingFailure) {
+				// Also errors are reported so the future always completes
+				result.completeExceptionally(signingFailure);
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * The future of an asynchronous sign operation, which can only be cancelled before the signing has started.
+	 */
+	private static final class SigningFuture extends CompletableFuture<XadesSignature> {
+		private static final int NEW = 0;
+		private static final int STARTED = 1;
+		private static final int CANCELLED = 2;
+		
+		private final AtomicInteger state = new AtomicInteger(NEW);
+		
+		/**
+		 * Marks the signing as started.
+		 * 
+		 * @return	<code>true</code> if the signing can start, <code>false</code> if the future was already cancelled
+		 * 			or completed
+		 */
+		boolean start() {
+			return state.compareAndSet(NEW, STARTED) && !isDone();
+		}
+		
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			if (state.compareAndSet(NEW, CANCELLED))
+				return super.cancel(mayInterruptIfRunning);
+			return isCancelled();
+		}
+	}
+	
+	/**
+	 * Creates the <code>XadesSignature</code> object for an enveloped signature of a document with the given signing
+	 * time. Only the parts of the signature that are specific to the document are created here, the others are
+	 * re-used from the profile.
+	 *
+	 * @param signingTime	the time to include in the <code>SigningTime</code> qualifying property
+	 * @param docDigest		the pre-calculated digest value of the document, or <code>null</code> if it still needs to 
+	 * 						be calculated 
+	 * @return	the unsigned Xades signature
+	 */
+	XadesSignature createEnvelopedSignature(final ZonedDateTime signingTime, final byte[] docDigest) {
+		try {
+			final XMLSignatureFactory xmldsigFactory = xadesFactory.getXMLSignatureFactory();
+
+			// Create Id value for the main ds:Reference as it is needed by the qualifying properties
+			final String docRefId = idGenerator.generateId("DR-");
+			// Create a Reference to the enveloped document. Note that the Transform objects are created for each
+			// signature as they are not thread safe. If the digest is already calculated it is included in the 
+			// Reference so it will not be calculated again when signing
+			final DigestMethod dm = xmldsigFactory.newDigestMethod(digestAlg, null);
+			final List<Transform> transforms = Arrays.asList(new Transform[] {
+										xmldsigFactory.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null),
+										xmldsigFactory.newTransform(c14nAlg, (TransformParameterSpec) null)
+		  							});
+			final Reference docRef = docDigest == null ? 
+									xmldsigFactory.newReference("", dm, transforms, null, docRefId)
+								  : xmldsigFactory.newReference("", dm, transforms, null, docRefId, docDigest);
+			// Create the qualifying properties related to the signed document
+			final DataObjectFormat dataFormat = xadesFactory.newDataObjectFormat("#" + docRefId, docDescription, docOID,
+																				"text/xml", null);
+			return createSignature(Collections.singletonList(docRef), Collections.singletonList(dataFormat), 
+								   commitments, null, signingTime);
+		} catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException ae) {
+			// As the algorithms are checked when the profile is created, this should not happen
+			throw new IllegalStateException("A specified algorithm was invalid");
+		}
+	}
+
+	/**
+	 * Creates the <code>XadesSignature</code> object for a detached signature of the given data objects, using the 
+	 * already calculated digest values of the objects. The data objects are not accessed when the signature is signed.
+	 * <p>When a manifest is used, the references to the data objects are put in a <code>ds:Manifest</code> which is
+	 * included in the signature and the signature only references the manifest. The commitment type indications of
+	 * the profile then explicitly list the data objects they apply to.
+	 * <p>The document description and object identifier of the profile are included in the <code>DataObjectFormat
+	 * </code> of each data object, where the description of a data object takes precedence over the one of the
+	 * profile.
+	 *
+	 * @param objects		the data objects to sign
+	 * @param signingTime	the time to include in the <code>SigningTime</code> qualifying property
+	 * @param useManifest	indicates whether the references to the data objects should be put in a manifest
+	 * @return	the unsigned Xades signature
+	 * @throws IllegalArgumentException when the digest algorithm of a data object is not supported
+	 */
+	XadesSignature createDetachedSignature(final List<DetachedObject> objects, final ZonedDateTime signingTime,
+										   final boolean useManifest) {
+		final List<Reference> refs = new ArrayList<>(objects.size());
+		final List<DataObjectFormat> formats = new ArrayList<>(objects.size());
+		final List<String> objectRefs = new ArrayList<>(objects.size());
+		for (DetachedObject o : objects) {
+			final String refId = idGenerator.generateId("DR-");
+			final String objDigestAlg = o.getDigestAlgorithm() != null ? o.getDigestAlgorithm() : digestAlg;
+			try {
+				refs.add(xadesFactory.newPrecomputedReference(o.getURI(), objDigestAlg, o.getDigestValue(), null, null,
+															  refId));
+			} catch (NoSuchAlgorithmException ae) {
+				throw new IllegalArgumentException("Digest algorithm " + objDigestAlg + " is not supported");
+			}
+			final String description = o.getDescription() != null ? o.getDescription() : docDescription;
+			formats.add(xadesFactory.newDataObjectFormat("#" + refId, description, docOID, o.getMimeType(), null));
+			objectRefs.add("#" + refId);
+		}
+		try {
+			if (!useManifest)
+				return createSignature(refs, formats, commitments, null, signingTime);
+
+			final XMLSignatureFactory xmldsigFactory = xadesFactory.getXMLSignatureFactory();
+			final String manifestId = idGenerator.generateId("MF-");
+			final XMLObject manifestObject = xmldsigFactory.newXMLObject(
+												Collections.singletonList(xmldsigFactory.newManifest(refs, manifestId)),
+												null, null, null);
+			final Reference manifestRef = xmldsigFactory.newReference("#" + manifestId,
+															xmldsigFactory.newDigestMethod(digestAlg, null),
+															Collections.singletonList(xmldsigFactory.newTransform(
+																		c14nAlg, (TransformParameterSpec) null)),
+															Manifest.TYPE, null);
+			List<CommitmentTypeIndication> objCommitments = null;
+			if (commitments != null) {
+				objCommitments = new ArrayList<>(commitments.size());
+				for (CommitmentTypeIndication c : commitments)
+					objCommitments.add(xadesFactory.newCommitmentTypeIndication(objectRefs, c.getCommitmentTypeId(),
+																			c.getCommitmentTypeQualifiers()));
+			}
+			return createSignature(Collections.singletonList(manifestRef), formats, objCommitments,
+								   Collections.singletonList(manifestObject), signingTime);
+		} catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException ae) {
+			// As the algorithms are checked when the profile is created, this should not happen
+			throw new IllegalStateException("A specified algorithm was invalid");
+		}
+	}
+	
+	/**
+	 * Creates the <code>XadesSignature</code> object for the given references and adds the qualifying properties of 
+	 * the profile and the given formats of and commitments on the referenced data objects. 
+	 * 
+	 * @param refs			the references to the signed data objects
+	 * @param formats		the <code>DataObjectFormat</code> properties for the data objects
+	 * @param objCommitments the <code>CommitmentTypeIndication</code> properties for the data objects
+	 * @param otherObjects	the other <code>ds:Object</code>s to include in the signature, may be <code>null</code>
+	 * @param signingTime	the time to include in the <code>SigningTime</code> qualifying property
+	 * @return	the unsigned Xades signature
+	 * @throws NoSuchAlgorithmException when one of the algorithms is not available
+	 */
+	private XadesSignature createSignature(final List<Reference> refs, final List<DataObjectFormat> formats,
+										   final List<CommitmentTypeIndication> objCommitments,
+										   final List<XMLObject> otherObjects,
+										   final ZonedDateTime signingTime) throws NoSuchAlgorithmException {
+		// Create Id value for the ds:Signature as it is needed by the qualifying properties
+		final String signatureId = idGenerator.generateId("xadessig-");
+
+		final SignedSignatureProperties sigProps = xadesFactory.newSignedSignatureProperties(signingTime, certInfo,
+																							 null, signersLocation,
+																							 signerRole, null);
+		final SignedDataObjectProperties dataProps = xadesFactory.newSignedDataObjectProperties(formats, 
+																								objCommitments);
+		// Create the SignedProperties element
+		final String signedPropsId = idGenerator.generateId("SP-");
+		final SignedProperties signedProps = xadesFactory.newSignedProperties(signedPropsId, sigProps, dataProps);
+
+		// As there are no unsigned properties, we can now create the QualifyingProperties element
+		final QualifyingProperties qProps = xadesFactory.newQualifyingProperties("#" + signatureId, signedProps, null);
+		return xadesFactory.newXadesSignature(signatureId, digestAlg, signingAlg, c14nAlg, keyInfo, refs, qProps, 
+											  otherObjects);
+	}
+
+	/**
+	 * Checks that the algorithms configured in the profile are available. Because the algorithm objects of the XML
+	 * signature factory are not thread safe they cannot be created once and shared, so they are created and discarded
+	 * here only to detect unsupported algorithms before the first document is signed.
+	 *
+	 * @throws IllegalStateException when one of the specified algorithms is invalid
+	 */
+	void checkAlgorithms() throws IllegalStateException {
+		final XMLSignatureFactory xmldsigFactory = xadesFactory.getXMLSignatureFactory();
+		try {
+			final DigestMethod dm = xmldsigFactory.newDigestMethod(digestAlg, null);
+			xmldsigFactory.newTransform(c14nAlg, (TransformParameterSpec) null);
+			xmldsigFactory.newReference("", dm);
+			xmldsigFactory.newSignatureMethod(signingAlg, null);
+		} catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException ae) {
+			throw new IllegalStateException("A specified algorithm was invalid");
+		}
+	}
+}
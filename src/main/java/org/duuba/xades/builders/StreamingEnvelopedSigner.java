@@ -0,0 +1,418 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.builders;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.stax.ext.Transformer;
+import org.apache.xml.security.stax.ext.stax.XMLSecComment;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.ext.stax.XMLSecProcessingInstruction;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer11_OmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_ExclOmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_OmitCommentsTransformer;
+import org.duuba.xades.XadesSignature;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Creates enveloped Xades signatures for XML documents that are read from a stream, without building a DOM of the
+ * document. This significantly reduces the memory needed to sign large documents as only the signature itself is
+ * created as a DOM.
+ * <p>The document is processed in a single pass. Each event read from the input is both written to the output and
+ * canonicalised by a streaming canonicaliser to calculate the digest of the document. When the end of the document is
+ * reached the signature is created using the calculated digest and written to the output as last child of the root
+ * element, followed by the end tag of the root element and the remaining content of the document. Except for the
+ * added signature, the output document has the same XML content as the input, but it may differ in its serialisation,
+ * for example in the order of attributes or the use of empty element tags. The output is always UTF-8 encoded.
+ * <p>Documents that contain a DTD are not supported, as the DTD could change the content of the document when it is
+ * parsed for validation. Supported canonicalisation algorithms are inclusive and exclusive canonicalisation 1.0 and
+ * inclusive canonicalisation 1.1, with or without comments. Note that comments are never included in the digest of
+ * the document as the signature references the complete document using the empty URI.
+ * <p>When signing many documents with the same profile, the signatures can also be created from a pre-serialised
+ * template using {@link #signWithTemplate(InputStream, OutputStream)}. This avoids creating and marshalling the DOM of
+ * each signature, but requires a profile that uses exclusive canonicalisation.
+ * <p>A streaming signer is thread safe and can be used to sign multiple documents concurrently.
+ *
+ * @see SigningProfile
+ */
+public class StreamingEnvelopedSigner {
+
+	private final SigningProfile	profile;
+	private final String			digestJCEName;
+	private final XMLInputFactory	inputFactory;
+	private volatile SignatureTemplate	template;
+
+	/**
+	 * Creates a new streaming signer that signs documents using the given profile.
+	 *
+	 * @param profile	the profile to sign the documents with
+	 * @throws IllegalArgumentException when the canonicalisation algorithm of the profile is not supported for streaming
+	 */
+	public StreamingEnvelopedSigner(final SigningProfile profile) {
+		if (profile == null)
+			throw new IllegalArgumentException("A signing profile must be provided");
+		this.profile = profile;
+		// Check that the algorithms are supported
+		newCanonicalizer(profile.getC14nAlgorithm());
+		this.digestJCEName = JCEMapper.translateURItoJCEID(profile.getDigestAlgorithm());
+
+		this.inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	}
+
+	/**
+	 * @return the profile used to sign the documents
+	 */
+	public SigningProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Signs the XML document read from the given input stream and writes the signed document to the given output
+	 * stream. The streams are not closed.
+	 *
+	 * @param input		the stream to read the document to sign from
+	 * @param output	the stream to write the signed document to
+	 * @return	the signed Xades signature. Note that the DOM element of the signature is not part of a document that
+	 * 			contains the signed document.
+	 * @throws XMLSignatureException when the document could not be read or written or the sign operation failed
+	 */
+	public XadesSignature sign(final InputStream input, final OutputStream output) throws XMLSignatureException {
+		return sign(input, output, this::writeSignature);
+	}
+
+	/**
+	 * Signs the XML document read from the given reader and writes the signed document to the given output stream.
+	 * The reader must be positioned at the start of the document or on the start tag of the root element and is
+	 * read until the end of the document. The reader must be namespace aware.
+	 *
+	 * @param reader	the reader to read the document to sign from
+	 * @param output	the stream to write the signed document to
+	 * @return	the signed Xades signature. Note that the DOM element of the signature is not part of a document that
+	 * 			contains the signed document.
+	 * @throws XMLSignatureException when the document could not be read or written or the sign operation failed
+	 */
+	public XadesSignature sign(final XMLStreamReader reader, final OutputStream output) throws XMLSignatureException {
+		return sign(reader, output, this::writeSignature);
+	}
+
+	/**
+	 * Signs the XML document read from the given input stream using the signature template of the profile and writes
+	 * the signed document to the given output stream. The streams are not closed.
+	 * <p>The template contains the pre-serialised signature in which only the <code>Id</code>s, the signing time,
+	 * the digest values and the signature value still need to be filled in, so no DOM of the signature is created and
+	 * no XML structure needs to be marshalled. The signature is the same as the one created by {@link
+	 * #sign(InputStream, OutputStream)}, except that elements without namespace in the qualifying properties always
+	 * include an empty default namespace declaration. The template is created when it is first used and requires
+	 * that the profile uses exclusive canonicalisation, contains the private key and does not use a DSA signing
+	 * algorithm.
+	 *
+	 * @param input		the stream to read the document to sign from
+	 * @param output	the stream to write the signed document to
+	 * @return	the <code>Id</code> of the created signature
+	 * @throws XMLSignatureException when the document could not be read or written or the sign operation failed
+	 * @throws IllegalStateException when the profile cannot be used with a signature template
+	 */
+	public String signWithTemplate(final InputStream input, final OutputStream output) throws XMLSignatureException {
+		final SignatureTemplate t = getTemplate();
+		return sign(input, output, (root, docDigest, out) -> t.write(docDigest, ZonedDateTime.now(profile.getClock()),
+																	 out));
+	}
+
+	/**
+	 * Signs the XML document read from the given reader using the signature template of the profile and writes the
+	 * signed document to the given output stream. See {@link #signWithTemplate(InputStream, OutputStream)} and
+	 * {@link #sign(XMLStreamReader, OutputStream)} for the requirements on the profile and reader.
+	 *
+	 * @param reader	the reader to read the document to sign from
+	 * @param output	the stream to write the signed document to
+	 * @return	the <code>Id</code> of the created signature
+	 * @throws XMLSignatureException when the document could not be read or written or the sign operation failed
+	 * @throws IllegalStateException when the profile cannot be used with a signature template
+	 */
+	public String signWithTemplate(final XMLStreamReader reader, final OutputStream output)
+																						throws XMLSignatureException {
+		final SignatureTemplate t = getTemplate();
+		return sign(reader, output, (root, docDigest, out) -> t.write(docDigest, ZonedDateTime.now(profile.getClock()),
+																	  out));
+	}
+
+	/**
+	 * Gets the signature template of the profile, creating it when it is used for the first time. When multiple threads
+	 * use the template for the first time concurrently, each may create a template, but as these are equal only one of
+	 * them is kept.
+	 *
+	 * @return	the signature template
+	 * @throws XMLSignatureException when the template could not be created
+	 */
+	private SignatureTemplate getTemplate() throws XMLSignatureException {
+		SignatureTemplate t = template;
+		if (t == null)
+			template = t = new SignatureTemplate(profile);
+		return t;
+	}
+
+	/**
+	 * Reads the document from the given input stream and signs it, using the given writer to create the signature.
+	 */
+	private <T> T sign(final InputStream input, final OutputStream output, final SignatureWriter<T> sigWriter)
+																						throws XMLSignatureException {
+		if (input == null)
+			throw new IllegalArgumentException("No document to sign provided");
+
+		XMLStreamReader reader = null;
+		try {
+			reader = inputFactory.createXMLStreamReader(input);
+			return sign(reader, output, sigWriter);
+		} catch (XMLStreamException readFailure) {
+			throw new XMLSignatureException("The document to sign could not be read", readFailure);
+		} finally {
+			if (reader != null)
+				try {
+					reader.close();
+				} catch (XMLStreamException closeFailure) {
+					// Ignore, as the input stream is managed by the caller
+				}
+		}
+	}
+
+	/**
+	 * Reads the document from the given reader and signs it. The document is copied to the output and digested event
+	 * by event and when the end of the root element is reached the given writer is used to create the signature and
+	 * write it to the output.
+	 */
+	private <T> T sign(final XMLStreamReader reader, final OutputStream output, final SignatureWriter<T> sigWriter)
+																						throws XMLSignatureException {
+		if (reader == null)
+			throw new IllegalArgumentException("No document to sign provided");
+		if (output == null)
+			throw new IllegalArgumentException("No output stream provided");
+
+		try {
+			final MessageDigest md = MessageDigest.getInstance(digestJCEName);
+			final OutputStream digester = new BufferedOutputStream(new DigestOutputStream(new NullOutputStream(), md),
+																   8192);
+			final Transformer c14n = newCanonicalizer(profile.getC14nAlgorithm());
+			c14n.setOutputStream(digester);
+			final XmlStreamOutput out = new XmlStreamOutput(output);
+
+			XMLSecStartElement root = null;
+			XMLSecStartElement current = null;
+			int depth = 0;
+			final List<XMLSecEvent> epilog = new ArrayList<>();
+
+			out.writeXmlDeclaration();
+			int eventType = reader.getEventType();
+			while (true) {
+				if (eventType == XMLStreamConstants.DTD || eventType == XMLStreamConstants.ENTITY_REFERENCE)
+					throw new XMLSignatureException("Documents with a DTD are not supported");
+
+				final XMLSecEvent event = XMLSecEventFactory.allocate(reader, current);
+				// The same document reference does not include comments
+				if (eventType != XMLStreamConstants.COMMENT)
+					c14n.transform(event);
+
+				if (root != null && depth == 0)
+					// As the signature must be added first, the events after the root element are kept until the end
+					epilog.add(event);
+				else
+					switch (eventType) {
+					case XMLStreamConstants.START_ELEMENT :
+						current = event.asStartElement();
+						if (root == null)
+							root = current;
+						depth++;
+						out.writeStartElement(reader);
+						break;
+					case XMLStreamConstants.END_ELEMENT :
+						current = current.getParentXMLSecStartElement();
+						if (--depth > 0)
+							out.writeEndElement();
+						break;
+					case XMLStreamConstants.CHARACTERS :
+					case XMLStreamConstants.SPACE :
+					case XMLStreamConstants.CDATA :
+						if (depth > 0)
+							out.writeCharacters(reader.getTextCharacters(), reader.getTextStart(),
+												reader.getTextLength());
+						break;
+					case XMLStreamConstants.COMMENT :
+						out.writeComment(reader.getText());
+						break;
+					case XMLStreamConstants.PROCESSING_INSTRUCTION :
+						out.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+						break;
+					default:
+					}
+				if (!reader.hasNext())
+					break;
+				eventType = reader.next();
+			}
+			if (root == null || depth != 0)
+				throw new XMLSignatureException("The input does not contain a complete XML document");
+
+			c14n.doFinal();
+			digester.flush();
+			final T signature = sigWriter.write(root, md.digest(), out);
+			out.writeEndElement();
+			for (XMLSecEvent e : epilog)
+				switch (e.getEventType()) {
+				case XMLStreamConstants.COMMENT :
+					out.writeComment(((XMLSecComment) e).getText());
+					break;
+				case XMLStreamConstants.PROCESSING_INSTRUCTION :
+					final XMLSecProcessingInstruction pi = (XMLSecProcessingInstruction) e;
+					out.writeProcessingInstruction(pi.getTarget(), pi.getData());
+					break;
+				default:
+				}
+			out.flush();
+			return signature;
+		} catch (XMLStreamException | XMLSecurityException readFailure) {
+			throw new XMLSignatureException("The document to sign could not be read", readFailure);
+		} catch (IOException writeFailure) {
+			throw new XMLSignatureException("The signed document could not be written", writeFailure);
+		} catch (UncheckedIOException writeFailure) {
+			throw new XMLSignatureException("The signed document could not be written", writeFailure.getCause());
+		} catch (NoSuchAlgorithmException | ParserConfigurationException unavailable) {
+			throw new XMLSignatureException("The sign operation on the Xades signature failed", unavailable);
+		}
+	}
+
+	/**
+	 * Creates the signature using the DOM of the signature and writes it to the output.
+	 *
+	 * @param root		the root element of the document to sign
+	 * @param docDigest	the digest of the document
+	 * @param out		the output to write the signature to
+	 * @return	the signed Xades signature
+	 */
+	private XadesSignature writeSignature(final XMLSecStartElement root, final byte[] docDigest,
+										  final XmlStreamOutput out)
+								throws XMLSignatureException, IOException, ParserConfigurationException {
+		final XadesSignature signature = profile.sign(createParent(root), profile.createEnvelopedSignature(
+																	ZonedDateTime.now(profile.getClock()), docDigest));
+		out.writeNode(signature.getElement());
+		return signature;
+	}
+
+	/**
+	 * Creates the element to which the signature is added when it is created. This element has the same name,
+	 * namespace declarations and attributes in the XML namespace as the root element of the document to sign, so the
+	 * signature is created in the same context as it will have in the signed document.
+	 *
+	 * @param root	the root element of the document to sign
+	 * @return	the element to add the signature to
+	 * @throws ParserConfigurationException when no DOM implementation is available
+	 */
+	private Element createParent(final XMLSecStartElement root) throws ParserConfigurationException {
+		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		final Document doc = dbf.newDocumentBuilder().newDocument();
+		final String prefix = root.getName().getPrefix();
+		final Element parent = doc.createElementNS(root.getName().getNamespaceURI(),
+										(prefix.isEmpty() ? "" : prefix + ":") + root.getName().getLocalPart());
+		root.getOnElementDeclaredNamespaces().forEach(ns -> {
+			final String nsPrefix = ns.getPrefix();
+			parent.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, nsPrefix == null || nsPrefix.isEmpty() ?
+									XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + nsPrefix,
+								  ns.getNamespaceURI());
+		});
+		root.getOnElementDeclaredAttributes().forEach(a -> {
+			if (XMLConstants.XML_NS_URI.equals(a.getName().getNamespaceURI()))
+				parent.setAttributeNS(XMLConstants.XML_NS_URI,
+									  XMLConstants.XML_NS_PREFIX + ":" + a.getName().getLocalPart(), a.getValue());
+		});
+		doc.appendChild(parent);
+		return parent;
+	}
+
+	/**
+	 * Creates the streaming canonicaliser for the given algorithm. As comments are never included for the same
+	 * document reference, the canonicalisers that omit comments are also used for the with comments variants.
+	 *
+	 * @param c14nAlg	the canonicalisation algorithm
+	 * @return	a new canonicaliser
+	 * @throws IllegalArgumentException when the algorithm is not supported
+	 */
+	private static Transformer newCanonicalizer(final String c14nAlg) {
+		switch (c14nAlg) {
+		case CanonicalizationMethod.EXCLUSIVE :
+		case CanonicalizationMethod.EXCLUSIVE_WITH_COMMENTS :
+			return new Canonicalizer20010315_ExclOmitCommentsTransformer();
+		case CanonicalizationMethod.INCLUSIVE :
+		case CanonicalizationMethod.INCLUSIVE_WITH_COMMENTS :
+			return new Canonicalizer20010315_OmitCommentsTransformer();
+		case "http://www.w3.org/2006/12/xml-c14n11" :
+		case "http://www.w3.org/2006/12/xml-c14n11#WithComments" :
+			return new Canonicalizer11_OmitCommentsTransformer();
+		default:
+			throw new IllegalArgumentException("Canonicalisation algorithm not supported for streaming: " + c14nAlg);
+		}
+	}
+
+	/**
+	 * Creates the signature of a document of which the digest has been calculated and writes it to the output.
+	 *
+	 * @param <T>	the type of the result of signing
+	 */
+	@FunctionalInterface
+	private interface SignatureWriter<T> {
+		T write(XMLSecStartElement root, byte[] docDigest, XmlStreamOutput out)
+								throws XMLSignatureException, IOException, ParserConfigurationException;
+	}
+
+	/**
+	 * Output stream that discards all data, used as the end of the digest calculation.
+	 */
+	private static class NullOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.builders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLStreamReader;
+
+import org.duuba.xades.XmlWriterToStream;
+
+/**
+ * Writes the UTF-8 encoded XML output of the streaming signer. The content of the input document is copied event by
+ * event from a {@link XMLStreamReader} and the signature is written from its DOM representation using {@link
+ * #writeNode(org.w3c.dom.Node)}. As the XML Signature elements only specify the namespace URI of the elements and not
+ * always declare them, the namespace declarations are added where needed when a DOM element is written.
+ * <p>All characters that would be changed by the normalisation of a parser, i.e. carriage returns in text and
+ * whitespace in attribute values, are written as character references so the parsed output document has exactly the
+ * same content as the input and the signature.
+ */
+final class XmlStreamOutput extends XmlWriterToStream {
+
+	private static final byte[] XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+																					.getBytes(StandardCharsets.UTF_8);
+
+	XmlStreamOutput(final OutputStream os) {
+		super(os);
+	}
+
+	void writeXmlDeclaration() {
+		writeMarkup(XML_DECLARATION);
+	}
+
+	/**
+	 * Writes the start tag of the element the reader is currently positioned on, including all namespace declarations
+	 * and attributes.
+	 *
+	 * @param reader	the reader positioned on a <code>START_ELEMENT</code> event
+	 */
+	void writeStartElement(final XMLStreamReader reader) {
+		writeStartElement(reader.getPrefix(), reader.getLocalName(), reader.getNamespaceURI());
+		for (int i = 0; i < reader.getNamespaceCount(); i++)
+			writeNamespace(reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+		for (int i = 0; i < reader.getAttributeCount(); i++)
+			writeAttribute(reader.getAttributePrefix(i), reader.getAttributeNamespace(i),
+						   reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+	}
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Is the Flight Recorder event for getting the digest and issuer/serial information of a certificate that is included
+ * in the <code>SigningCertificate(V2)</code> qualifying property, either from the {@link CertIDCache} or by
+ * calculating it.
+ */
+@Name("org.duuba.xades.CertDigest")
+@Label("XAdES Certificate Digest")
+@Category({ "Duuba", "XAdES" })
+@Description("Digest of a certificate included in the SigningCertificate property")
+@StackTrace(false)
+final class CertDigestEvent extends jdk.jfr.Event {
+
+	@Label("Digest Algorithm")
+	String	digestAlgorithm;
+
+	@Label("Subject")
+	String	subject;
+
+	@Label("Certificate Size")
+	@DataAmount
+	int		certificateSize;
+
+	@Label("Cached")
+	@Description("Whether the information was available in the cache")
+	boolean	cached;
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Is the Flight Recorder event for the marshalling of the <code>QualifyingProperties</code> of a Xades signature,
+ * either to a DOM tree when the signature is signed or directly to a stream using the {@link XmlWriterToStream}.
+ */
+@Name("org.duuba.xades.Marshal")
+@Label("XAdES Marshalling")
+@Category({ "Duuba", "XAdES" })
+@Description("Marshalling of the QualifyingProperties of a XAdES signature")
+@StackTrace(false)
+final class XadesMarshalEvent extends jdk.jfr.Event {
+
+	@Label("XAdES Version")
+	String	xadesVersion;
+
+	@Label("Target")
+	@Description("Reference to the signature qualified by the properties")
+	String	target;
+
+	@Label("Output")
+	@Description("Type of output the properties are marshalled to, DOM or Stream")
+	String	output;
+
+	@Label("Unsigned Properties")
+	@Description("Whether the qualifying properties contain unsigned properties")
+	boolean	unsignedProperties;
+}
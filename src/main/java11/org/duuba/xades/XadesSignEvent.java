@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Is the Flight Recorder event for the creation of a Xades signature, i.e. the execution of {@link
+ * XadesSignature#sign(javax.xml.crypto.dsig.dom.DOMSignContext)}. Besides the total duration of the event it contains
+ * the durations of the signing phases as also reported to a {@link SigningListener}.
+ */
+@Name("org.duuba.xades.Sign")
+@Label("XAdES Signature Creation")
+@Category({ "Duuba", "XAdES" })
+@Description("Creation of a XAdES signature")
+@StackTrace(false)
+final class XadesSignEvent extends jdk.jfr.Event {
+
+	@Label("XAdES Version")
+	String	xadesVersion;
+
+	@Label("Signature Id")
+	String	signatureId;
+
+	@Label("Signature Algorithm")
+	String	signatureAlgorithm;
+
+	@Label("Digest Algorithm")
+	@Description("Digest algorithm of the last reference, which is the one to the SignedProperties")
+	String	digestAlgorithm;
+
+	@Label("Canonicalization Algorithm")
+	String	canonicalizationAlgorithm;
+
+	@Label("Reference Count")
+	@Description("Number of references in the SignedInfo, including the one to the SignedProperties")
+	int		referenceCount;
+
+	@Label("Streamed Bytes Digested")
+	@Description("Number of bytes of the SignedProperties and octet stream data objects streamed into a digest, "
+				 + "the size of canonicalised node sets like an enveloped document is not included")
+	@DataAmount
+	long	streamedBytesDigested;
+
+	@Label("Element Count")
+	@Description("Number of elements of the created ds:Signature")
+	int		elementCount;
+
+	@Label("Preparation Time")
+	@Timespan
+	long	preparationTime;
+
+	@Label("SignedProperties Digest Time")
+	@Timespan
+	long	signedPropertiesDigestTime;
+
+	@Label("Marshalling Time")
+	@Timespan
+	long	marshallingTime;
+
+	@Label("Reference Digest Time")
+	@Timespan
+	long	referenceDigestTime;
+
+	@Label("Signature Value Time")
+	@Timespan
+	long	signatureValueTime;
+}
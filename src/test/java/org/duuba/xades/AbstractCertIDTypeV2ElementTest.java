@@ -2,10 +2,12 @@ package org.duuba.xades;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.FileInputStream;
+import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateFactory;
@@ -58,6 +60,28 @@ class AbstractCertIDTypeV2ElementTest {
 		assertArrayEquals(b64IssuerSerial, Base64.decode(issuerSerial.getTextContent()));
 	}
 	
+	@Test
+	void testSetIssuerSerialFromCertificate() throws Exception {
+		final X509Certificate cert = new TestCryptoContext().getCertificate();
+		final TestCertIDTypeV2Element e = new TestCertIDTypeV2Element(cert, DigestMethod.SHA256);
+		assertTrue(e.getIssuerSerial() instanceof AbstractCertIDTypeV2Element.IssuerSerialV2);
+		assertEquals(new AbstractCertIDTypeV2Element.IssuerSerialV2(CertIDCache.getInstance()
+																	.get(cert, DigestMethod.SHA256)), 
+					 e.getIssuerSerial());
+		
+		// The constructor for a certificate uses the hook to set the issuer and serial number
+		final AbstractCertIDTypeElement.IssuerSerial custom = new AbstractCertIDTypeElement.IssuerSerial("CN=Custom", 
+																							   BigInteger.ONE);
+		final TestCertIDTypeV2Element overridden = new TestCertIDTypeV2Element(cert, DigestMethod.SHA256) {
+			@Override
+			protected void setIssuerSerial(X509Certificate c) throws CertificateEncodingException {
+				this.issuerSerial = custom;
+			}
+		};
+		assertEquals(custom, overridden.getIssuerSerial());
+		assertArrayEquals(e.getCertDigest().getDigestValue(), overridden.getCertDigest().getDigestValue());
+	}
+	
 	@Test
 	void testEquals() throws Throwable {
 		X509Certificate cert1 = new TestCryptoContext().getCertificate();		
@@ -6,8 +6,12 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.UUID;
 
 import javax.xml.namespace.QName;
@@ -95,7 +99,7 @@ class AbstractEncapsulatedPKIDataTypeElementTest {
 		TestEncapsulatedPKIDataTypeElement e3 = new TestEncapsulatedPKIDataTypeElement(null, data1, Encoding.PER);
 		TestEncapsulatedPKIDataTypeElement e4 = new TestEncapsulatedPKIDataTypeElement("id", data1, Encoding.DER);
 		TestEncapsulatedPKIDataTypeElement e5 = new TestEncapsulatedPKIDataTypeElement("id", data1, Encoding.CER);
-		TestEncapsulatedPKIDataTypeElement e6 = new TestEncapsulatedPKIDataTypeElement(null, null, null);
+		TestEncapsulatedPKIDataTypeElement e6 = new TestEncapsulatedPKIDataTypeElement(null, (byte[]) null, null);
 		TestEncapsulatedPKIDataTypeElement e7 = new TestEncapsulatedPKIDataTypeElement(null, data2, Encoding.DER);
 		
 		assertTrue(e1.equals(e2));
@@ -106,11 +110,45 @@ class AbstractEncapsulatedPKIDataTypeElementTest {
 		assertFalse(e1.equals(e7));		
 	}
 	
+	@Test
+	void testStreamedContent() throws ParserConfigurationException {
+		final byte[] data = new byte[3 * Base64Output.CHUNK_SIZE];
+		new Random().nextBytes(data);
+		final ContentSource content = ContentSource.of(data);
+		
+		DOMXMLWriter writer = new DOMXMLWriter();
+		TestCryptoContext context = new TestCryptoContext();
+		
+		TestEncapsulatedPKIDataTypeElement element = new TestEncapsulatedPKIDataTypeElement(null, content, 
+																							Encoding.DER);
+		assertDoesNotThrow(() -> element.marshal(writer, "", context));
+		
+		assertArrayEquals(data, Base64.decode(writer.getCreatedElement().getTextContent()));
+		assertSame(content, element.getContent());
+		assertArrayEquals(data, element.getData());
+		assertTrue(element.equals(new TestEncapsulatedPKIDataTypeElement(null, content, Encoding.DER)));
+		// The content is compared, not the source
+		assertTrue(element.equals(new TestEncapsulatedPKIDataTypeElement(null, data, Encoding.DER)));
+		assertTrue(new TestEncapsulatedPKIDataTypeElement(null, data, Encoding.DER).equals(element));
+		assertTrue(element.equals(new TestEncapsulatedPKIDataTypeElement(null, ContentSource.of(data.clone()), 
+																		 Encoding.DER)));
+		assertFalse(element.equals(new TestEncapsulatedPKIDataTypeElement(null, 
+														ContentSource.of(Arrays.copyOf(data, data.length - 1)), 
+														Encoding.DER)));
+		assertFalse(element.equals(new TestEncapsulatedPKIDataTypeElement(null, () -> {
+															throw new IOException("unreadable");
+														}, Encoding.DER)));
+	}
+	
 	static class TestEncapsulatedPKIDataTypeElement extends AbstractEncapsulatedPKIDataTypeElement {
 		public TestEncapsulatedPKIDataTypeElement(String id, byte[] data, Encoding encoding) {
 			super(id, data, encoding);
 		}
 
+		public TestEncapsulatedPKIDataTypeElement(String id, ContentSource content, Encoding encoding) {
+			super(id, content, encoding);
+		}
+
 		@Override
 		protected QName getName() {
 			return new QName("Test");
@@ -0,0 +1,66 @@
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import javax.xml.crypto.MarshalException;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.xml.security.utils.XMLUtils;
+import org.duuba.xades.test.DOMXMLWriter;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+
+class Base64OutputTest {
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 1, 2, 3, 56, 57, 58, 114, Base64Output.CHUNK_SIZE / 2, Base64Output.CHUNK_SIZE / 2 + 1,
+						  Base64Output.CHUNK_SIZE / 4 * 3, Base64Output.CHUNK_SIZE, 3 * Base64Output.CHUNK_SIZE + 7, 
+						  1024 * 1024 })
+	void testSameAsEncodeToString(int size) throws Exception {
+		final byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		final String expected = XMLUtils.encodeToString(data);
+
+		DOMXMLWriter writer = writer();
+		Base64Output.write(writer, data);
+		assertEquals(expected, writer.getCreatedElement().getTextContent());
+
+		writer = writer();
+		Base64Output.write(writer, ContentSource.of(data));
+		assertEquals(expected, writer.getCreatedElement().getTextContent());
+	}
+
+	@Test
+	void testChunked() throws Exception {
+		final byte[] data = new byte[4 * Base64Output.CHUNK_SIZE];
+		new Random().nextBytes(data);
+
+		DOMXMLWriter writer = writer();
+		Base64Output.write(writer, ContentSource.of(data));
+		Element created = writer.getCreatedElement();
+
+		assertTrue(created.getChildNodes().getLength() > 1);
+		for (int i = 0; i < created.getChildNodes().getLength(); i++)
+			assertTrue(created.getChildNodes().item(i).getNodeValue().length() <= Base64Output.CHUNK_SIZE);
+	}
+
+	@Test
+	void testReadError() throws Exception {
+		assertThrows(MarshalException.class, () -> Base64Output.write(writer(), () -> {
+			throw new IOException("Not available");
+		}));
+	}
+
+	private static DOMXMLWriter writer() throws ParserConfigurationException {
+		DOMXMLWriter writer = new DOMXMLWriter();
+		writer.writeStartElement("", "Test", "");
+		return writer;
+	}
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.duuba.xades.BulkVerifier.FileResult;
+import org.duuba.xades.BulkVerifier.Summary;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.builders.SigningProfile;
+import org.duuba.xades.test.TestCryptoContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+
+class BulkVerifierTest {
+
+	private static final PrivateKeyEntry KEYPAIR = new TestCryptoContext().getKeyPair();
+	private static final XadesVerifier VERIFIER = new XadesVerifier(XadesSignatureFactory.getInstance(
+																					XadesVersion.EN_319_132_V111));
+
+	@TempDir
+	Path	tempDir;
+
+	@Test
+	void testVerifyDirectory() throws Exception {
+		final SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(KEYPAIR).buildProfile();
+		final List<Path> valid = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			valid.add(writeSigned(profile, tempDir.resolve("dir" + i % 3).resolve("doc" + i + ".xml"), "<doc>" + i
+																										+ "</doc>"));
+		final Path tampered = writeSigned(profile, tempDir.resolve("tampered.xml"), "<doc>original</doc>");
+		Files.write(tampered, new String(Files.readAllBytes(tampered), StandardCharsets.UTF_8)
+								.replace("original", "changed").getBytes(StandardCharsets.UTF_8));
+		final Path unsigned = Files.write(tempDir.resolve("unsigned.xml"), "<doc/>".getBytes());
+		final Path notXml = Files.write(tempDir.resolve("broken.xml"), "<doc>".getBytes());
+		final Path dtd = Files.write(tempDir.resolve("dtd.xml"), "<!DOCTYPE doc [<!ENTITY e \"x\">]><doc>&e;</doc>"
+																	.getBytes());
+		Files.write(tempDir.resolve("ignored.txt"), "not verified".getBytes());
+
+		final Map<Path, FileResult> results = new ConcurrentHashMap<>();
+		final Summary summary = new BulkVerifier(VERIFIER).verifyDirectory(tempDir,
+													tempDir.getFileSystem().getPathMatcher("glob:**.xml"),
+													r -> results.put(r.getFile(), r));
+
+		assertEquals(24, summary.getFileCount());
+		assertEquals(20, summary.getValidCount());
+		assertEquals(1, summary.getInvalidCount());
+		assertEquals(3, summary.getFailedCount());
+		assertEquals(21, summary.getSignatureCount());
+		assertEquals(0, summary.getListenerFailureCount());
+		assertNull(summary.getFirstListenerFailure());
+		assertTrue(summary.getElapsedTime() > 0);
+		assertTrue(summary.getFilesPerSecond() > 0);
+
+		assertEquals(24, results.size());
+		for (Path p : valid)
+			assertTrue(results.get(p).isValid(), () -> results.get(p).toString());
+		assertFalse(results.get(tampered).isValid());
+		assertFalse(results.get(tampered).getReports().get(0).isPassed(VerificationCheck.REFERENCE_DIGESTS));
+		for (Path p : new Path[] { unsigned, notXml, dtd }) {
+			assertFalse(results.get(p).isValid());
+			assertNotNull(results.get(p).getFailureReason());
+			assertTrue(results.get(p).getReports().isEmpty());
+		}
+	}
+
+	@Test
+	void testBoundedInFlight() throws Exception {
+		final SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(KEYPAIR).buildProfile();
+		final List<Path> files = new ArrayList<>();
+		for (int i = 0; i < 30; i++)
+			files.add(writeSigned(profile, tempDir.resolve("doc" + i + ".xml"), "<doc>" + i + "</doc>"));
+
+		final AtomicInteger taken = new AtomicInteger();
+		final AtomicInteger completed = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		final Iterator<Path> source = files.iterator();
+		final Iterator<Path> counting = new Iterator<Path>() {
+			@Override
+			public boolean hasNext() {
+				return source.hasNext();
+			}
+
+			@Override
+			public Path next() {
+				final int inFlight = taken.incrementAndGet() - completed.get();
+				maxInFlight.accumulateAndGet(inFlight, Math::max);
+				return source.next();
+			}
+		};
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final Summary summary = new BulkVerifier(VERIFIER, pool, 2).verifyAll(counting,
+																				  r -> completed.incrementAndGet());
+			assertEquals(30, summary.getValidCount());
+			assertEquals(4, summary.getParallelism());
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(30, completed.get());
+		assertTrue(maxInFlight.get() <= 2);
+	}
+
+	@Test
+	void testListenerFailure() throws Exception {
+		final SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(KEYPAIR).buildProfile();
+		for (int i = 0; i < 10; i++)
+			writeSigned(profile, tempDir.resolve("doc" + i + ".xml"), "<doc>" + i + "</doc>");
+
+		final AtomicInteger reported = new AtomicInteger();
+		final Summary summary = new BulkVerifier(VERIFIER).verifyDirectory(tempDir, null, r -> {
+			if (r.getFile().getFileName().toString().matches("doc[0-2]\\.xml"))
+				throw new IllegalStateException("listener failure");
+			reported.incrementAndGet();
+		});
+
+		// The run is completed and the failures are counted
+		assertEquals(10, summary.getFileCount());
+		assertEquals(10, summary.getValidCount());
+		assertEquals(7, reported.get());
+		assertEquals(3, summary.getListenerFailureCount());
+		assertTrue(summary.getFirstListenerFailure() instanceof IllegalStateException);
+		assertTrue(summary.toString().contains("listener failures=3"));
+	}
+
+	@Test
+	void testInvalidArguments() throws Exception {
+		assertThrows(IllegalArgumentException.class, () -> new BulkVerifier(null));
+		assertThrows(IllegalArgumentException.class, () -> new BulkVerifier(VERIFIER, null, 1));
+		assertThrows(IllegalArgumentException.class, () -> new BulkVerifier(VERIFIER, ForkJoinPool.commonPool(), 0));
+		assertThrows(IllegalArgumentException.class, () -> new BulkVerifier(VERIFIER).verifyAll(null, null));
+	}
+
+	private static Path writeSigned(final SigningProfile profile, final Path file, final String xml)
+																								throws Exception {
+		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		final Document doc = dbf.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes()));
+		profile.sign(doc);
+		Files.createDirectories(file.getParent());
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc),
+																	new StreamResult(file.toFile()));
+		return file;
+	}
+}
@@ -0,0 +1,108 @@
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+
+import javax.xml.crypto.dsig.DigestMethod;
+
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.duuba.xades.test.TestCryptoContext;
+import org.holodeckb2b.commons.security.CertificateUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CertIDCacheTest {
+
+	private static X509Certificate T_CERT1;
+	private static X509Certificate T_CERT2;
+
+	@BeforeAll
+	static void setup() throws Exception {
+		JCEMapper.registerDefaultAlgorithms();
+		T_CERT1 = new TestCryptoContext().getCertificate();
+		T_CERT2 = CertificateUtils.getCertificate(Paths.get(
+								CertIDCacheTest.class.getClassLoader().getResource("other.cert").getPath()));
+	}
+
+	@Test
+	void testHitAndMiss() throws Exception {
+		CertIDCache cache = new CertIDCache(10);
+
+		CertIDCache.Entry e1 = cache.get(T_CERT1, DigestMethod.SHA256);
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		assertSame(e1, cache.get(T_CERT1, DigestMethod.SHA256));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		assertNotSame(e1, cache.get(T_CERT1, DigestMethod.SHA512));
+		assertNotSame(e1, cache.get(T_CERT2, DigestMethod.SHA256));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(3, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	@Test
+	void testContent() throws Exception {
+		CertIDCache.Entry e = new CertIDCache(10).get(T_CERT1, DigestMethod.SHA256);
+
+		assertEquals(DigestMethod.SHA256, e.getDigestMethod());
+		assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(T_CERT1.getEncoded()), e.getDigestValue());
+		assertEquals(T_CERT1.getIssuerX500Principal().getName(), e.getIssuerName());
+		assertEquals(T_CERT1.getSerialNumber(), e.getSerialNo());
+		assertEquals(new CertIDCache.Entry(T_CERT1, DigestMethod.SHA256).getIssuerSerialV2(), e.getIssuerSerialV2());
+
+		// The digest value should be protected against changes
+		e.getDigestValue()[0]++;
+		assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(T_CERT1.getEncoded()), e.getDigestValue());
+	}
+
+	@Test
+	void testBounded() throws Exception {
+		CertIDCache cache = new CertIDCache(2);
+
+		cache.get(T_CERT1, DigestMethod.SHA256);
+		cache.get(T_CERT1, DigestMethod.SHA512);
+		cache.get(T_CERT2, DigestMethod.SHA256);
+		assertEquals(2, cache.size());
+
+		cache.setMaximumSize(0);
+		cache.get(T_CERT2, DigestMethod.SHA512);
+		assertTrue(cache.size() <= 2);
+		assertEquals(4, cache.getMissCount());
+	}
+
+	@Test
+	void testUnknownAlgorithm() {
+		assertThrows(NoSuchAlgorithmException.class, () -> new CertIDCache(10).get(T_CERT1, "urn:no:digest"));
+		assertThrows(NoSuchAlgorithmException.class, () -> new CertIDCache(10).get(T_CERT1, null));
+	}
+
+	@Test
+	void testUsedBySigningCertificate() throws Exception {
+		CertIDCache cache = CertIDCache.getInstance();
+		long hits = cache.getHitCount();
+
+		SigningCertificate sc1 = new SigningCertificateV2(Collections.singletonList(T_CERT1), DigestMethod.SHA384);
+		SigningCertificate sc2 = new SigningCertificateV2(Collections.singletonList(T_CERT1), DigestMethod.SHA384);
+
+		assertTrue(cache.getHitCount() > hits);
+		assertTrue(sc1.equals(sc2));
+	}
+}
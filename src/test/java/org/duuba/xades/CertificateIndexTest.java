@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+
+import javax.xml.crypto.dsig.DigestMethod;
+
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.duuba.xades.test.TestCryptoContext;
+import org.holodeckb2b.commons.security.CertificateUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CertificateIndexTest {
+
+	private static X509Certificate T_CERT1;
+	private static X509Certificate T_CERT2;
+
+	@TempDir
+	Path	tempDir;
+
+	@BeforeAll
+	static void setup() throws Exception {
+		JCEMapper.registerDefaultAlgorithms();
+		T_CERT1 = new TestCryptoContext().getCertificate();
+		T_CERT2 = CertificateUtils.getCertificate(Paths.get(
+								CertificateIndexTest.class.getClassLoader().getResource("other.cert").getPath()));
+	}
+
+	@Test
+	void testFindByDigest() throws Exception {
+		final CertificateIndex index = new CertificateIndex();
+		assertTrue(index.add(T_CERT1));
+		assertTrue(index.add(T_CERT2));
+		assertFalse(index.add(T_CERT1));
+		assertEquals(2, index.size());
+		assertEquals(CertificateIndex.DEFAULT_DIGEST_METHODS, index.getDigestMethods());
+
+		for (X509Certificate c : Arrays.asList(T_CERT1, T_CERT2)) {
+			assertEquals(c, index.findByDigest(DigestMethod.SHA1, digest("SHA-1", c)));
+			assertEquals(c, index.findByDigest(DigestMethod.SHA256, digest("SHA-256", c)));
+			assertEquals(c, index.findByDigest(DigestMethod.SHA512, digest("SHA-512", c)));
+		}
+		assertFalse(index.isIndexed(DigestMethod.SHA384));
+		assertNull(index.findByDigest(DigestMethod.SHA384, digest("SHA-384", T_CERT1)));
+		assertNull(index.findByDigest(DigestMethod.SHA256, new byte[32]));
+		assertNull(index.findByDigest(DigestMethod.SHA256, digest("SHA-1", T_CERT1)));
+
+		index.clear();
+		assertEquals(0, index.size());
+		assertNull(index.findByDigest(DigestMethod.SHA256, digest("SHA-256", T_CERT1)));
+	}
+
+	@Test
+	void testFindByIssuerSerial() throws Exception {
+		final CertificateIndex index = new CertificateIndex(DigestMethod.SHA256);
+		index.add(T_CERT1);
+		index.add(T_CERT2);
+
+		for (X509Certificate c : Arrays.asList(T_CERT1, T_CERT2))
+			assertEquals(c, index.findByIssuerSerial(c.getIssuerX500Principal().getName(), c.getSerialNumber()));
+		assertNull(index.findByIssuerSerial(T_CERT1.getIssuerX500Principal().getName(),
+											T_CERT1.getSerialNumber().add(BigInteger.ONE)));
+		assertNull(index.findByIssuerSerial("CN=Unknown", T_CERT1.getSerialNumber()));
+		assertNull(index.findByIssuerSerial("not a name", T_CERT1.getSerialNumber()));
+	}
+
+	@Test
+	void testFindCertID() throws Exception {
+		for (XadesVersion v : XadesVersion.values()) {
+			final AbstractCertIDTypeElement certId = XadesSignatureFactory.getInstance(v)
+										.newSigningCertificate(Collections.singletonList(T_CERT1), DigestMethod.SHA256)
+										.getCertificates().get(0);
+
+			final CertificateIndex index = new CertificateIndex();
+			index.add(T_CERT2);
+			assertNull(index.find(certId));
+			index.add(T_CERT1);
+			assertEquals(T_CERT1, index.find(certId), v.name());
+
+			// Without an index for the digest algorithm the certificate is found by its issuer and serial number
+			final CertificateIndex sha512Index = new CertificateIndex(DigestMethod.SHA512);
+			sha512Index.add(T_CERT1);
+			assertEquals(T_CERT1, sha512Index.find(certId), v.name());
+		}
+	}
+
+	@Test
+	void testAddKeyStore() throws Exception {
+		final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		try (InputStream is = getClass().getClassLoader().getResourceAsStream("signkey.p12")) {
+			keyStore.load(is, "signer".toCharArray());
+		}
+		final CertificateIndex index = new CertificateIndex();
+		assertTrue(index.addAll(keyStore) > 0);
+		assertEquals(T_CERT1, index.findByDigest(DigestMethod.SHA256, digest("SHA-256", T_CERT1)));
+		assertEquals(0, index.addAll(keyStore));
+	}
+
+	@Test
+	void testAddDirectory() throws Exception {
+		Files.write(tempDir.resolve("cert1.cer"), T_CERT1.getEncoded());
+		final Path subDir = Files.createDirectory(tempDir.resolve("bundles"));
+		Files.write(subDir.resolve("bundle.pem"),
+					(toPEM(T_CERT1) + toPEM(T_CERT2)).getBytes(StandardCharsets.US_ASCII));
+		Files.write(subDir.resolve("readme.txt"), "Not a certificate".getBytes(StandardCharsets.US_ASCII));
+
+		final CertificateIndex index = new CertificateIndex();
+		assertEquals(2, index.addDirectory(tempDir, tempDir.getFileSystem().getPathMatcher("glob:**.{cer,pem}")));
+		assertEquals(2, index.size());
+		assertEquals(T_CERT2, index.findByDigest(DigestMethod.SHA1, digest("SHA-1", T_CERT2)));
+
+		assertThrows(IOException.class, () -> new CertificateIndex().addDirectory(tempDir, null));
+	}
+
+	@Test
+	void testInvalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> new CertificateIndex(new String[0]));
+		assertThrows(IllegalArgumentException.class, () -> new CertificateIndex("http://example.org/digest"));
+		assertThrows(IllegalArgumentException.class, () -> new CertificateIndex().add(null));
+		assertThrows(IllegalArgumentException.class, () -> new CertificateIndex().addAll(null));
+		assertThrows(IllegalArgumentException.class, () -> new CertificateIndex().addDirectory(null, null));
+		assertNull(new CertificateIndex().find(null));
+	}
+
+	private static byte[] digest(final String algorithm, final X509Certificate cert) throws Exception {
+		return MessageDigest.getInstance(algorithm).digest(cert.getEncoded());
+	}
+
+	private static String toPEM(final X509Certificate cert) throws Exception {
+		return "-----BEGIN CERTIFICATE-----\n" + Base64.getMimeEncoder().encodeToString(cert.getEncoded())
+				+ "\n-----END CERTIFICATE-----\n";
+	}
+}
@@ -1,8 +1,10 @@
 package org.duuba.xades;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.FileInputStream;
@@ -18,6 +20,7 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.bouncycastle.util.encoders.Base64;
 import org.duuba.xades.test.DOMXMLWriter;
 import org.duuba.xades.test.TestCryptoContext;
 import org.holodeckb2b.commons.security.CertificateUtils;
@@ -66,6 +69,25 @@ class CertifiedRoleV2Test {
 		assertEquals(0, created.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "OtherAttributeCertificate").getLength());		
 	}
 	
+	@Test
+	void testAttrCertFromSource() throws Exception {
+		DOMXMLWriter xwriter = new DOMXMLWriter();
+		TestCryptoContext ctx = new TestCryptoContext();
+		final X509Certificate cert = ctx.getCertificate();
+		
+		CertifiedRoleV2 role = new CertifiedRoleV2("attr-cert", ContentSource.of(cert.getEncoded()));
+		assertDoesNotThrow(() -> role.marshal(xwriter, null, ctx));
+		
+		Element attrCert = (Element) xwriter.getCreatedElement()
+						.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "X509AttributeCertificate").item(0);
+		assertArrayEquals(cert.getEncoded(), Base64.decode(attrCert.getTextContent()));
+		assertEquals(cert, role.getX509AttributeCertificate());
+		assertTrue(role.equals(new CertifiedRoleV2("attr-cert", cert)));
+		
+		CertifiedRoleV2 invalid = new CertifiedRoleV2(null, ContentSource.of(new byte[] { 1, 2, 3 }));
+		assertThrows(IllegalStateException.class, () -> invalid.getX509AttributeCertificate());
+	}
+	
 	@Test
 	void testOtherCert() throws ParserConfigurationException, SAXException, IOException {
 		DOMXMLWriter xwriter = new DOMXMLWriter();
@@ -0,0 +1,93 @@
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ContentSourceTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testByteArray() throws IOException {
+		final byte[] data = randomBytes(10000);
+		ContentSource source = ContentSource.of(data);
+
+		assertArrayEquals(data, source.readAll());
+		assertArrayEquals(data, source.readAll());
+		assertThrows(IllegalArgumentException.class, () -> ContentSource.of((byte[]) null));
+	}
+
+	@Test
+	void testByteBuffer() throws IOException {
+		final byte[] data = randomBytes(10000);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data).flip();
+		buffer.position(100);
+
+		ContentSource source = ContentSource.of(buffer);
+
+		assertArrayEquals(Arrays.copyOfRange(data, 100, data.length), source.readAll());
+		assertArrayEquals(Arrays.copyOfRange(data, 100, data.length), source.readAll());
+		assertEquals(100, buffer.position());
+	}
+
+	@Test
+	void testFile() throws IOException {
+		final byte[] data = randomBytes(100000);
+		Path file = Files.write(tempDir.resolve("content.bin"), data);
+
+		assertArrayEquals(data, ContentSource.of(file).readAll());
+		assertThrows(IOException.class, () -> ContentSource.of(tempDir.resolve("missing.bin")).readAll());
+	}
+
+	@Test
+	void testFileRegion() throws IOException {
+		final byte[] data = randomBytes(100000);
+		Path file = Files.write(tempDir.resolve("container.bin"), data);
+
+		assertArrayEquals(Arrays.copyOfRange(data, 1000, 51000), ContentSource.of(file, 1000, 50000).readAll());
+		assertArrayEquals(new byte[0], ContentSource.of(file, 1000, 0).readAll());
+		assertThrows(IOException.class, () -> ContentSource.of(file, 90000, 20000).readAll());
+		assertThrows(IllegalArgumentException.class, () -> ContentSource.of(file, -1, 100));
+		assertThrows(IllegalArgumentException.class, () -> ContentSource.of(file, 0, 1L + Integer.MAX_VALUE));
+	}
+
+	@Test
+	void testContentEquals() throws IOException {
+		final byte[] data = randomBytes(50000);
+		final Path file = Files.write(tempDir.resolve("content.bin"), data);
+		final ContentSource source = ContentSource.of(data);
+
+		assertTrue(source.contentEquals(source));
+		assertTrue(source.contentEquals(ContentSource.of(data.clone())));
+		assertTrue(source.contentEquals(ContentSource.of(file)));
+		assertTrue(ContentSource.of(file).contentEquals(ContentSource.of(ByteBuffer.wrap(data))));
+		assertFalse(source.contentEquals(null));
+		assertFalse(source.contentEquals(ContentSource.of(Arrays.copyOf(data, data.length - 1))));
+		assertFalse(ContentSource.of(Arrays.copyOf(data, data.length - 1)).contentEquals(source));
+		final byte[] changed = data.clone();
+		changed[40000]++;
+		assertFalse(source.contentEquals(ContentSource.of(changed)));
+		assertThrows(IOException.class, () -> source.contentEquals(ContentSource.of(tempDir.resolve("missing.bin"))));
+	}
+
+	private static byte[] randomBytes(int size) {
+		final byte[] data = new byte[size];
+		new Random().nextBytes(data);
+		return data;
+	}
+}
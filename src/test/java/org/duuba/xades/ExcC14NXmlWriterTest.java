@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignatureMethod;
+import javax.xml.crypto.dsig.SignedInfo;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+import javax.xml.crypto.dsig.spec.XPathFilterParameterSpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+class ExcC14NXmlWriterTest {
+
+	private static final String CACHE_REFERENCE = "javax.xml.crypto.dsig.cacheReference";
+	private static final TestCryptoContext CRYPTO = new TestCryptoContext();
+	private static final ZonedDateTime SIGNING_TIME = ZonedDateTime.of(2026, 3, 1, 12, 30, 0, 0, ZoneOffset.UTC);
+
+	@Test
+	void testAllSignedProperties() throws Exception {
+		assertSameAsCanonicalizer(XadesVersion.EN_319_132_V111, null, "<doc><data>signed</data></doc>");
+		assertSameAsCanonicalizer(XadesVersion.TS_101_903_V141, null, "<doc><data>signed</data></doc>");
+	}
+
+	@Test
+	void testNamespacesOfEnclosingDocument() throws Exception {
+		final String docXml = "<d:doc xmlns:d=\"urn:doc\" xmlns=\"urn:default\" xmlns:r=\"urn:roles\" "
+							+ "xmlns:xades=\"urn:not-xades\"><data xmlns:u=\"urn:undeclared\">signed</data></d:doc>";
+		assertSameAsCanonicalizer(XadesVersion.EN_319_132_V111, null, docXml);
+		assertSameAsCanonicalizer(XadesVersion.EN_319_132_V111, "", docXml);
+		assertSameAsCanonicalizer(XadesVersion.EN_319_132_V111, "dsig", docXml);
+	}
+
+	@Test
+	void testDefaultNamespaceUndeclared() throws Exception {
+		assertSameAsCanonicalizer(XadesVersion.EN_319_132_V111, "",
+								  "<doc xmlns=\"urn:default\"><data xmlns=\"\">signed</data></doc>");
+	}
+
+	@Test
+	void testInclusiveNotWrittenDirectly() throws Exception {
+		final Document doc = parse("<doc><data>signed</data></doc>");
+		final XadesSignature signature = newSignature(XadesVersion.EN_319_132_V111, CanonicalizationMethod.INCLUSIVE);
+		final SignedInfo unsigned = signature.getSignedInfo();
+		signature.sign(new DOMSignContext(CRYPTO.getKeyPair().getPrivateKey(), doc.getDocumentElement()));
+
+		assertSame(unsigned, signature.getSignedInfo());
+		assertTrue(TestDocuments.isValid(signature.getElement(), CRYPTO.getCertificate().getPublicKey()));
+	}
+
+	@Test
+	void testDisabled() throws Exception {
+		final Document doc = parse("<doc><data>signed</data></doc>");
+		final XadesSignature signature = newSignature(XadesVersion.EN_319_132_V111, CanonicalizationMethod.EXCLUSIVE);
+		final SignedInfo unsigned = signature.getSignedInfo();
+		final DOMSignContext context = new DOMSignContext(CRYPTO.getKeyPair().getPrivateKey(),
+														  doc.getDocumentElement());
+		context.setProperty(XadesSignature.DIRECT_DIGEST_PROPERTY, Boolean.FALSE);
+		signature.sign(context);
+
+		assertSame(unsigned, signature.getSignedInfo());
+		assertTrue(TestDocuments.isValid(signature.getElement(), CRYPTO.getCertificate().getPublicKey()));
+	}
+
+	/**
+	 * Signs the same Xades signature twice, first with caching of the reference data to get the result of the
+	 * canonicalisation by Santuario and then without, so the digest is calculated directly. Checks that the directly
+	 * written canonical form is the same and the signature valid.
+	 */
+	private static void assertSameAsCanonicalizer(final XadesVersion version, final String dsPrefix,
+												  final String docXml) throws Exception {
+		final Document cachedDoc = parse(docXml);
+		final XadesSignature cached = newSignature(version, CanonicalizationMethod.EXCLUSIVE);
+		final DOMSignContext cachedContext = newSignContext(cachedDoc, dsPrefix);
+		cachedContext.setProperty(CACHE_REFERENCE, Boolean.TRUE);
+		cached.sign(cachedContext);
+		final Reference cachedRef = getSignedPropertiesReference(cached);
+		final byte[] expected;
+		try (InputStream is = cachedRef.getDigestInputStream()) {
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			int r;
+			while ((r = is.read(buffer)) > 0)
+				bos.write(buffer, 0, r);
+			expected = bos.toByteArray();
+		}
+
+		final Document directDoc = parse(docXml);
+		final XadesSignature direct = newSignature(version, CanonicalizationMethod.EXCLUSIVE);
+		final SignedInfo unsigned = direct.getSignedInfo();
+		final DOMSignContext directContext = newSignContext(directDoc, dsPrefix);
+		direct.sign(directContext);
+		final ByteArrayOutputStream written = new ByteArrayOutputStream();
+		assertTrue(ExcC14NXmlWriter.writeSignedProperties(direct.getQualifyingProperties(), directContext, written));
+
+		assertEquals(new String(expected, StandardCharsets.UTF_8),
+					 new String(written.toByteArray(), StandardCharsets.UTF_8));
+		assertArrayEquals(expected, written.toByteArray());
+		assertNotSame(unsigned, direct.getSignedInfo());
+		assertArrayEquals(cachedRef.getDigestValue(), getSignedPropertiesReference(direct).getDigestValue());
+		assertTrue(TestDocuments.isValid(direct.getElement(), CRYPTO.getCertificate().getPublicKey()));
+	}
+
+	private static DOMSignContext newSignContext(final Document doc, final String dsPrefix) {
+		final Element parent = (Element) doc.getDocumentElement().getLastChild();
+		final DOMSignContext context = new DOMSignContext(CRYPTO.getKeyPair().getPrivateKey(), parent);
+		if (dsPrefix != null)
+			context.putNamespacePrefix(XMLSignature.XMLNS, dsPrefix);
+		return context;
+	}
+
+	private static Reference getSignedPropertiesReference(final XadesSignature signature) {
+		@SuppressWarnings("unchecked")
+		final List<Reference> refs = signature.getSignedInfo().getReferences();
+		return refs.stream().filter(r -> Constants.SIGNED_PROPS_REF_TYPE.equals(r.getType())).findFirst().get();
+	}
+
+	/**
+	 * Creates a Xades signature with signed properties containing all kinds of content, including DOM content with
+	 * and without namespace declarations, comments and characters that need escaping.
+	 */
+	private static XadesSignature newSignature(final XadesVersion version, final String c14nAlg) throws Exception {
+		final XadesSignatureFactory xf = XadesSignatureFactory.getInstance(version);
+		final XMLSignatureFactory f = xf.getXMLSignatureFactory();
+
+		final Document content = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		final Element role = content.createElementNS("urn:roles", "r:Role");
+		role.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "xmlns:r", "urn:roles");
+		role.setAttributeNS("urn:roles", "r:level", "senior\t&\n\"lead\"");
+		role.setAttributeNS(null, "since", "2020");
+		role.appendChild(content.createTextNode("Manager & Director\r\n"));
+		role.appendChild(content.createComment(" not canonicalised "));
+		final Element undeclared = content.createElementNS("urn:undeclared", "u:Scope");
+		undeclared.setAttributeNS("urn:undeclared", "u:unit", "<all>");
+		undeclared.appendChild(content.createTextNode("1 < 2 > 0"));
+		role.appendChild(undeclared);
+		final Element plain = content.createElementNS(null, "Plain");
+		plain.appendChild(content.createTextNode("é€😀"));
+		final Element other = content.createElementNS("urn:other", "Other");
+		other.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "xmlns", "urn:other");
+		other.appendChild(content.createElementNS(null, "Empty"));
+
+		final List<Transform> policyTransforms = Collections.singletonList(
+						f.newTransform(Transform.XPATH, new XPathFilterParameterSpec("not(ancestor-or-self::p:x)",
+															Collections.singletonMap("p", "urn:policy:ns"))));
+		final SignedSignatureProperties ssp = xf.newSignedSignatureProperties(SIGNING_TIME,
+						xf.newSigningCertificate(Collections.singletonList(CRYPTO.getCertificate()), DigestMethod.SHA256),
+						xf.newSignaturePolicyIdentifier(xf.newObjectIdentifier("urn:policy:1", null,
+																	"A <policy> & \"quotes\"\r\n", null),
+														policyTransforms, DigestMethod.SHA256, new byte[32], null),
+						xf.newSignatureProductionPlace("São Paulo", "Main St. 1 & 2", "01000-000", "SP", "Brasil 🇧🇷"),
+						xf.newSignerRole(Arrays.asList(xf.newClaimedRole(Collections.singletonList(role)),
+													   xf.newClaimedRole(Collections.singletonList(plain))), null),
+						Collections.singletonList(other));
+		final SignedDataObjectProperties sdop = xf.newSignedDataObjectProperties(
+						Collections.singletonList(xf.newDataObjectFormat("#ref-1", "A\tdocument", null, "text/xml",
+																		 null)),
+						Collections.singletonList(xf.newCommitmentTypeIndication(
+													xf.newObjectIdentifier("urn:commitment:origin"), null)));
+		final QualifyingProperties qp = xf.newQualifyingProperties("#sig-1",
+																   xf.newSignedProperties("sp-1", ssp, sdop), null);
+
+		final Reference dataRef = f.newReference("", f.newDigestMethod(DigestMethod.SHA256, null),
+							Collections.singletonList(f.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null)),
+							null, "ref-1");
+		return xf.newXadesSignature("sig-1", DigestMethod.SHA256, SignatureMethod.RSA_SHA256, c14nAlg,
+									xf.newKeyInfo(CRYPTO.getCertificate()), Collections.singletonList(dataRef), qp,
+									null);
+	}
+
+	private static Document parse(final String xml) throws Exception {
+		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		return dbf.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignatureMethod;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+class HistogramSigningListenerTest {
+
+	private static final TestCryptoContext CRYPTO = new TestCryptoContext();
+
+	@Test
+	void testBuckets() {
+		assertEquals(0, HistogramSigningListener.bucketOf(-5));
+		for (long v = 0; v < 4096; v++) {
+			final int b = HistogramSigningListener.bucketOf(v);
+			assertTrue(v <= HistogramSigningListener.upperBoundOf(b));
+			assertTrue(b == 0 || v > HistogramSigningListener.upperBoundOf(b - 1));
+			assertTrue(HistogramSigningListener.upperBoundOf(b) - v <= v / 8);
+		}
+		assertEquals(HistogramSigningListener.BUCKET_COUNT - 1, HistogramSigningListener.bucketOf(Long.MAX_VALUE));
+		assertEquals(Long.MAX_VALUE, HistogramSigningListener.upperBoundOf(HistogramSigningListener.BUCKET_COUNT - 1));
+	}
+
+	@Test
+	void testPercentiles() {
+		final HistogramSigningListener listener = new HistogramSigningListener();
+		assertEquals(0, listener.getTotalPercentile(50));
+
+		for (int i = 1; i <= 100; i++)
+			listener.signatureCreated(metrics(i * 1000L, 10));
+
+		assertEquals(100, listener.getCount());
+		assertEquals(1000, listener.getTotalStreamedBytesDigested());
+		assertEquals(1000, listener.getTotalElementCount());
+		assertInBucket(50000, listener.getPercentile(SigningPhase.SIGNATURE_VALUE, 50));
+		assertInBucket(99000, listener.getPercentile(SigningPhase.SIGNATURE_VALUE, 99));
+		assertInBucket(1000, listener.getPercentile(SigningPhase.SIGNATURE_VALUE, 0));
+		assertInBucket(100000, listener.getPercentile(SigningPhase.SIGNATURE_VALUE, 100));
+		assertInBucket(100, listener.getPercentile(SigningPhase.MARSHALLING, 50));
+		assertInBucket(50100, listener.getTotalPercentile(50));
+		assertEquals(0, listener.getPercentile(SigningPhase.PREPARATION, 99));
+		assertThrows(IllegalArgumentException.class, () -> listener.getTotalPercentile(101));
+
+		listener.reset();
+		assertEquals(0, listener.getCount());
+		assertEquals(0, listener.getTotalPercentile(50));
+	}
+
+	@Test
+	void testConcurrentRecording() throws Exception {
+		final HistogramSigningListener listener = new HistogramSigningListener();
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++)
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 10000; i++)
+						listener.signatureCreated(metrics(5000, 1));
+				}));
+			for (Future<?> f : futures)
+				f.get();
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(40000, listener.getCount());
+		assertInBucket(5000, listener.getPercentile(SigningPhase.SIGNATURE_VALUE, 99.9));
+	}
+
+	@Test
+	void testContextProperty() throws Exception {
+		final HistogramSigningListener listener = new HistogramSigningListener();
+		final XadesSignatureFactory xf = XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111);
+		final XMLSignatureFactory f = xf.getXMLSignatureFactory();
+		final QualifyingProperties qp = xf.newQualifyingProperties("#sig-1", xf.newSignedProperties("sp-1",
+							xf.newSignedSignatureProperties(ZonedDateTime.now(),
+									xf.newSigningCertificate(Collections.singletonList(CRYPTO.getCertificate()),
+															 DigestMethod.SHA256))), null);
+		final Reference dataRef = f.newReference("", f.newDigestMethod(DigestMethod.SHA256, null),
+						Collections.singletonList(f.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null)),
+						null, "ref-1");
+		final XadesSignature signature = xf.newXadesSignature("sig-1", DigestMethod.SHA256, SignatureMethod.RSA_SHA256,
+															  CanonicalizationMethod.EXCLUSIVE,
+															  xf.newKeyInfo(CRYPTO.getCertificate()),
+															  Collections.singletonList(dataRef), qp, null);
+		final Document doc = TestDocuments.load("testdoc.xml");
+
+		final DOMSignContext context = new DOMSignContext(CRYPTO.getKeyPair().getPrivateKey(),
+														  doc.getDocumentElement());
+		final KeySelector keySelector = context.getKeySelector();
+		context.setProperty(XadesSignature.SIGNING_LISTENER_PROPERTY, listener);
+		context.setProperty(XadesSignature.PREPARATION_TIME_PROPERTY, Long.valueOf(1000));
+		signature.sign(context);
+
+		assertTrue(TestDocuments.isValid(signature.getElement(), CRYPTO.getCertificate().getPublicKey()));
+		assertSame(keySelector, context.getKeySelector());
+		assertEquals(null, context.getURIDereferencer());
+		assertEquals(1, listener.getCount());
+		assertInBucket(1000, listener.getPercentile(SigningPhase.PREPARATION, 50));
+		assertTrue(listener.getPercentile(SigningPhase.SIGNATURE_VALUE, 50) > 0);
+		assertTrue(listener.getTotalStreamedBytesDigested() > 0);
+	}
+
+	private static SigningMetrics metrics(final long signatureValue, final long bytes) {
+		final long[] durations = new long[SigningPhase.values().length];
+		durations[SigningPhase.MARSHALLING.ordinal()] = 100;
+		durations[SigningPhase.SIGNATURE_VALUE.ordinal()] = signatureValue;
+		return new SigningMetrics("sig", durations, bytes, 10);
+	}
+
+	private static void assertInBucket(final long expected, final long actual) {
+		assertEquals(HistogramSigningListener.upperBoundOf(HistogramSigningListener.bucketOf(expected)), actual);
+	}
+}
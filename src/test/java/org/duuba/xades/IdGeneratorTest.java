@@ -0,0 +1,86 @@
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class IdGeneratorTest {
+
+	private static final Pattern NCNAME = Pattern.compile("[A-Za-z_][A-Za-z0-9._-]*");
+
+	@Test
+	void testRandom() throws Exception {
+		String id = RandomIdGenerator.INSTANCE.generateId("DR-");
+		assertTrue(id.startsWith("DR-"));
+		UUID uuid = UUID.fromString(id.substring(3));
+		assertEquals(4, uuid.version());
+		assertEquals(2, uuid.variant());
+		assertUniqueAndValid(RandomIdGenerator.INSTANCE);
+	}
+
+	@Test
+	void testCounter() throws Exception {
+		CounterIdGenerator generator = new CounterIdGenerator("node-1");
+		String id1 = generator.generateId("SP-");
+		String id2 = generator.generateId("SP-");
+		assertTrue(id1.startsWith("SP-node-1-"));
+		assertTrue(id1.endsWith("-1"));
+		assertTrue(id2.endsWith("-2"));
+		assertTrue(new CounterIdGenerator("").generateId("SV-").matches("SV-[0-9a-f]+-1"));
+		assertThrows(IllegalArgumentException.class, () -> new CounterIdGenerator("node 1"));
+		assertThrows(IllegalArgumentException.class, () -> new CounterIdGenerator(null));
+		assertUniqueAndValid(generator);
+	}
+
+	@Test
+	void testContentHash() throws Exception {
+		byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+		ContentHashIdGenerator generator = new ContentHashIdGenerator(content);
+		ContentHashIdGenerator same = new ContentHashIdGenerator(content);
+		ContentHashIdGenerator other = new ContentHashIdGenerator("other content".getBytes(StandardCharsets.UTF_8));
+		for (int i = 0; i < 10; i++) {
+			String id = generator.generateId("DR-");
+			assertTrue(id.matches("DR-[0-9a-f]{32}"));
+			assertEquals(id, same.generateId("DR-"));
+			assertNotEquals(id, other.generateId("DR-"));
+		}
+		assertThrows(IllegalArgumentException.class, () -> new ContentHashIdGenerator(null));
+		assertUniqueAndValid(generator);
+	}
+
+	private static void assertUniqueAndValid(IdGenerator generator) throws Exception {
+		final int threads = 8, perThread = 10000;
+		Set<String> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++)
+				results.add(executor.submit(() -> {
+					for (int i = 0; i < perThread; i++) {
+						String id = generator.generateId("xadessig-");
+						assertTrue(NCNAME.matcher(id).matches(), id);
+						ids.add(id);
+					}
+				}));
+			for (Future<?> f : results)
+				f.get();
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(threads * perThread, ids.size());
+	}
+}
@@ -1,19 +1,24 @@
 package org.duuba.xades;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Random;
 import java.util.UUID;
 
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.apache.xml.security.utils.XMLUtils;
 import org.duuba.xades.test.DOMXMLWriter;
 import org.duuba.xades.test.TestCryptoContext;
 import org.junit.jupiter.api.Test;
 import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 
 class SignaturePolicyStoreTest {
 
@@ -39,6 +44,34 @@ class SignaturePolicyStoreTest {
 		assertEquals(1, created.getElementsByTagNameNS(Constants.XADES_141_NS_URI, "SignaturePolicyDocument").getLength());
 	}
 
+	@Test
+	void testWithDocSource() throws ParserConfigurationException {
+		DOMXMLWriter xwriter = new DOMXMLWriter();
+		TestCryptoContext context = new TestCryptoContext();
+		
+		final byte[] docBytes = new byte[200 * 1024];
+		new Random().nextBytes(docBytes);
+		final ContentSource source = ContentSource.of(docBytes);
+		
+		SignaturePolicyStore sps = new SignaturePolicyStore(T_ID, source, null);
+		assertDoesNotThrow(() -> sps.marshal(xwriter, "", context));
+		
+		Element created = xwriter.getCreatedElement();
+		assertEquals(2, created.getChildNodes().getLength());
+		NodeList docElements = created.getElementsByTagNameNS(Constants.XADES_141_NS_URI, "SignaturePolicyDocument");
+		assertEquals(1, docElements.getLength());
+		assertArrayEquals(docBytes, XMLUtils.decode(docElements.item(0).getTextContent()));
+		
+		assertSame(source, sps.getSignaturePolicyDocumentSource());
+		assertArrayEquals(docBytes, sps.getSignaturePolicyDocument());
+		assertTrue(sps.equals(new SignaturePolicyStore(T_ID, source, null)));
+		// The content of the document is compared, not the source
+		assertTrue(sps.equals(new SignaturePolicyStore(T_ID, docBytes, null, null)));
+		assertTrue(new SignaturePolicyStore(T_ID, docBytes, null, null).equals(sps));
+		assertTrue(sps.equals(new SignaturePolicyStore(T_ID, ContentSource.of(docBytes.clone()), null)));
+		assertFalse(sps.equals(new SignaturePolicyStore(T_ID, ContentSource.of(new byte[docBytes.length]), null)));
+	}
+
 	@Test
 	void testWithRef() throws ParserConfigurationException {
 		DOMXMLWriter xwriter = new DOMXMLWriter();
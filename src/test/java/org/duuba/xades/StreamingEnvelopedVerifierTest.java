@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore.PrivateKeyEntry;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.builders.StreamingEnvelopedSigner;
+import org.duuba.xades.test.TestCryptoContext;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+class StreamingEnvelopedVerifierTest {
+
+	private static final PrivateKeyEntry KEYPAIR = new TestCryptoContext().getKeyPair();
+	private static final String DOCUMENT = "<p:doc xmlns:p=\"http://example.org/doc\" xmlns:q=\"http://example.org/q\""
+										 + " xml:lang=\"en\"><p:data q:attr=\"1\">signed</p:data><!-- comment -->"
+										 + "<q:data>more &amp; data</q:data></p:doc>";
+
+	private final StreamingEnvelopedVerifier verifier = new StreamingEnvelopedVerifier(
+							new XadesVerifier(XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111)));
+
+	@Test
+	void testDOMSignedDocument() throws Exception {
+		final byte[] signed = signWithBuilder(CanonicalizationMethod.EXCLUSIVE);
+
+		final VerificationReport report = verifier.verify(new ByteArrayInputStream(signed));
+		assertTrue(report.isValid(), report::toString);
+		assertEquals(KEYPAIR.getCertificate(), report.getSigningCertificate());
+		assertEquals(2, report.getReferenceResults().size());
+	}
+
+	@Test
+	void testStreamSignedDocument() throws Exception {
+		final StreamingEnvelopedSigner signer = new StreamingEnvelopedSigner(
+												new BasicEnvelopedSignatureBuilder().setKeyPair(KEYPAIR).buildProfile());
+		final ByteArrayOutputStream signed = new ByteArrayOutputStream();
+		signer.sign(new ByteArrayInputStream(DOCUMENT.getBytes(StandardCharsets.UTF_8)), signed);
+
+		final VerificationReport report = verifier.verify(new ByteArrayInputStream(signed.toByteArray()));
+		assertTrue(report.isValid(), report::toString);
+	}
+
+	@Test
+	void testInclusiveC14N() throws Exception {
+		final byte[] signed = signWithBuilder(CanonicalizationMethod.INCLUSIVE);
+
+		final StreamingEnvelopedVerifier inclusive = new StreamingEnvelopedVerifier(
+							new XadesVerifier(XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111)),
+							CanonicalizationMethod.INCLUSIVE, DigestMethod.SHA256);
+		assertTrue(inclusive.verify(new ByteArrayInputStream(signed)).isValid());
+
+		// The exclusive verifier cannot calculate the digest of the document
+		final VerificationReport report = verifier.verify(new ByteArrayInputStream(signed));
+		assertFalse(report.isValid());
+		assertFalse(report.isPassed(VerificationCheck.REFERENCE_DIGESTS));
+		assertFalse(report.getReferenceResults().get(0).isValid());
+		assertTrue(report.getReferenceResults().get(1).isValid());
+	}
+
+	@Test
+	void testModifiedDocument() throws Exception {
+		final byte[] signed = new String(signWithBuilder(CanonicalizationMethod.EXCLUSIVE), StandardCharsets.UTF_8)
+										.replace(">signed<", ">changed<").getBytes(StandardCharsets.UTF_8);
+
+		final VerificationReport report = verifier.verify(new ByteArrayInputStream(signed));
+		assertFalse(report.isValid());
+		assertFalse(report.isPassed(VerificationCheck.REFERENCE_DIGESTS));
+		assertTrue(report.isPassed(VerificationCheck.SIGNATURE_VALUE));
+		assertFalse(report.getReferenceResults().get(0).isValid());
+	}
+
+	@Test
+	void testInvalidDocuments() {
+		assertThrows(XMLSignatureException.class, () -> verifier.verify(
+								new ByteArrayInputStream(DOCUMENT.getBytes(StandardCharsets.UTF_8))));
+		assertThrows(XMLSignatureException.class, () -> verifier.verify(
+								new ByteArrayInputStream("<!DOCTYPE doc []><doc/>".getBytes(StandardCharsets.UTF_8))));
+		assertThrows(XMLSignatureException.class, () -> verifier.verify(
+								new ByteArrayInputStream("<doc><data>".getBytes(StandardCharsets.UTF_8))));
+	}
+
+	@Test
+	void testInvalidArguments() {
+		final XadesVerifier xv = new XadesVerifier(XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111));
+		assertThrows(IllegalArgumentException.class, () -> new StreamingEnvelopedVerifier(null));
+		assertThrows(IllegalArgumentException.class,
+					 () -> new StreamingEnvelopedVerifier(xv, "http://example.org/c14n", DigestMethod.SHA256));
+		assertThrows(IllegalArgumentException.class,
+					 () -> new StreamingEnvelopedVerifier(xv, CanonicalizationMethod.EXCLUSIVE, "http://example.org/d"));
+		assertThrows(IllegalArgumentException.class, () -> verifier.verify((InputStream) null));
+	}
+
+	private static byte[] signWithBuilder(final String c14nAlg) throws Exception {
+		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		final Document doc = dbf.newDocumentBuilder().parse(
+											new ByteArrayInputStream(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+		new BasicEnvelopedSignatureBuilder().setKeyPair(KEYPAIR).setC14nAlgorithm(c14nAlg).setDocumentToSign(doc)
+											.build();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(out));
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,182 @@
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+class XadesSignatureFactoryTest {
+
+	private static final PrivateKeyEntry T_KEYPAIR = new TestCryptoContext().getKeyPair();
+
+	@Test
+	void testSharedInstance() {
+		for (XadesVersion v : XadesVersion.values()) {
+			XadesSignatureFactory shared = XadesSignatureFactory.getInstance(v);
+			assertEquals(v, shared.getVersion());
+			assertSame(shared, XadesSignatureFactory.getInstance(v));
+			assertNotSame(shared, new XadesSignatureFactory(v));
+		}
+		assertNotSame(XadesSignatureFactory.getInstance(XadesVersion.TS_101_903_V141),
+					  XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111));
+
+		assertThrows(IllegalArgumentException.class, () -> XadesSignatureFactory.getInstance(null));
+	}
+
+	@Test
+	void testCertifiedRoleFromSource() throws Exception {
+		final byte[] encoded = T_KEYPAIR.getCertificate().getEncoded();
+		
+		CertifiedRole v1 = XadesSignatureFactory.getInstance(XadesVersion.TS_101_903_V141)
+												.newCertifiedRole("role", ContentSource.of(encoded));
+		assertTrue(v1 instanceof CertifiedRoleV1);
+		assertArrayEquals(encoded, ((CertifiedRoleV1) v1).getData());
+		assertEquals(T_KEYPAIR.getCertificate(), v1.getX509AttributeCertificate());
+		
+		CertifiedRole v2 = XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111)
+												.newCertifiedRole("role", ContentSource.of(encoded));
+		assertTrue(v2 instanceof CertifiedRoleV2);
+		assertEquals(T_KEYPAIR.getCertificate(), v2.getX509AttributeCertificate());
+		
+		assertThrows(IllegalArgumentException.class, () -> XadesSignatureFactory.getInstance(
+												XadesVersion.EN_319_132_V111).newCertifiedRole("role", (ContentSource) null));
+	}
+
+	@Test
+	void testPrecomputedReference() throws Exception {
+		XadesSignatureFactory factory = XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111);
+		byte[] digest = new byte[] { 1, 2, 3 };
+		Reference ref = factory.newPrecomputedReference("payload", DigestMethod.SHA256, digest, null, null, "r1");
+		assertEquals("payload", ref.getURI());
+		assertEquals("r1", ref.getId());
+		assertEquals(DigestMethod.SHA256, ref.getDigestMethod().getAlgorithm());
+		assertArrayEquals(digest, ref.getDigestValue());
+
+		ReferenceInfo refInfo = factory.newReferenceInfo(null, "other", DigestMethod.SHA512, digest);
+		ref = factory.newPrecomputedReference(refInfo, null);
+		assertEquals("other", ref.getURI());
+		assertEquals(DigestMethod.SHA512, ref.getDigestMethod().getAlgorithm());
+		assertArrayEquals(digest, ref.getDigestValue());
+
+		assertThrows(IllegalArgumentException.class,
+					 () -> factory.newPrecomputedReference("p", null, digest, null, null, null));
+		assertThrows(IllegalArgumentException.class,
+					 () -> factory.newPrecomputedReference("p", DigestMethod.SHA256, null, null, null, null));
+		assertThrows(NoSuchAlgorithmException.class,
+					 () -> factory.newPrecomputedReference("p", "urn:no:such:alg", digest, null, null, null));
+		assertThrows(IllegalArgumentException.class, () -> factory.newPrecomputedReference(null, null));
+	}
+
+	@Test
+	void testConvertToXMLString() throws Exception {
+		assertEquals("2024-02-29T13:45:07Z", XadesSignatureFactory.convertToXMLString(
+										ZonedDateTime.of(2024, 2, 29, 13, 45, 7, 999999999, ZoneOffset.UTC)));
+		assertEquals("0987-01-02T03:04:05-03:30", XadesSignatureFactory.convertToXMLString(
+										ZonedDateTime.of(987, 1, 2, 3, 4, 5, 0, ZoneOffset.ofHoursMinutes(-3, -30))));
+		assertEquals("-0001-06-01T00:00:00Z", XadesSignatureFactory.convertToXMLString(
+										ZonedDateTime.of(0, 6, 1, 0, 0, 0, 0, ZoneOffset.UTC)));
+
+		// The output must be the same as the formatting by XMLGregorianCalendar
+		DatatypeFactory dtf = DatatypeFactory.newInstance();
+		Random random = new Random(20261017);
+		List<ZoneId> zones = new ArrayList<>();
+		for (String z : ZoneId.getAvailableZoneIds())
+			zones.add(ZoneId.of(z));
+		zones.addAll(Arrays.asList(ZoneOffset.UTC, ZoneOffset.ofHoursMinutes(5, 45), ZoneOffset.ofHours(-12),
+								   ZoneOffset.ofHoursMinutesSeconds(0, 17, 30)));
+		long min = -100000000000L, max = 8000000000L;
+		for (ZoneId zone : zones)
+			for (int i = 0; i < 20; i++) {
+				ZonedDateTime dt = Instant.ofEpochSecond(min + (long) (random.nextDouble() * (max - min)),
+														 random.nextInt(1000000000)).atZone(zone);
+				XMLGregorianCalendar expected = dtf.newXMLGregorianCalendar(GregorianCalendar.from(dt));
+				expected.setFractionalSecond(null);
+				assertEquals(expected.toXMLFormat(), XadesSignatureFactory.convertToXMLString(dt), dt.toString());
+			}
+	}
+
+	@Test
+	void testConcurrentGetInstance() throws Exception {
+		final int threads = 8;
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<XadesSignatureFactory>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++)
+				results.add(executor.submit(() -> {
+					start.await();
+					return XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111);
+				}));
+			start.countDown();
+			for (Future<XadesSignatureFactory> r : results)
+				assertSame(XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111), r.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testConcurrentSigning() throws Exception {
+		final int threads = 8;
+		final int perThread = 10;
+		final XadesSignatureFactory shared = XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<Document>>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++)
+				results.add(executor.submit(() -> {
+					List<Document> signed = new ArrayList<>(perThread);
+					start.await();
+					for (int i = 0; i < perThread; i++) {
+						assertSame(shared, XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111));
+						Document d = TestDocuments.load("testdoc.xml");
+						new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).setDocumentToSign(d).build();
+						signed.add(d);
+					}
+					return signed;
+				}));
+			start.countDown();
+			List<Document> signed = new ArrayList<>(threads * perThread);
+			for (Future<List<Document>> r : results)
+				signed.addAll(r.get());
+
+			assertEquals(threads * perThread, signed.size());
+			for (Document d : signed)
+				assertTrue(TestDocuments.isValid((Element) d.getDocumentElement().getLastChild(),
+												 T_KEYPAIR.getCertificate().getPublicKey()));
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.xml.XMLConstants;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignatureMethod;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+import javax.xml.crypto.dsig.spec.XPathFilterParameterSpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.duuba.xades.UnsignedDataObjectProperties.UnsignedDataObjectProperty;
+import org.duuba.xades.test.TestCryptoContext;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+class XadesUnmarshallerTest {
+
+	private static final TestCryptoContext CRYPTO = new TestCryptoContext();
+	private static final ZonedDateTime SIGNING_TIME = ZonedDateTime.of(2026, 3, 1, 12, 30, 0, 0, ZoneOffset.UTC);
+
+	@Test
+	void testAllPropertiesV141() throws Exception {
+		assertRoundTrip(XadesVersion.TS_101_903_V141);
+	}
+
+	@Test
+	void testAllPropertiesV111() throws Exception {
+		assertRoundTrip(XadesVersion.EN_319_132_V111);
+	}
+
+	@Test
+	void testPropertiesParsedOnAccess() throws Exception {
+		final Document doc = sign(XadesVersion.EN_319_132_V111);
+		// Make the signature policy and commitment unparseable, which should only be detected on access
+		final Element policyId = (Element) doc.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "SigPolicyId")
+											  .item(0);
+		policyId.getParentNode().removeChild(policyId);
+		final Element commitmentId = (Element) doc.getElementsByTagNameNS(Constants.XADES_132_NS_URI, 
+																		  "CommitmentTypeId").item(0);
+		commitmentId.getParentNode().removeChild(commitmentId);
+
+		final XadesSignature unmarshalled = XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111)
+																 .unmarshalXadesSignature(getSignatureElement(doc));
+		final SignedProperties sp = unmarshalled.getQualifyingProperties().getSignedProperties();
+		final SignedSignatureProperties ssp = sp.getSignatureProperties();
+
+		assertEquals(SIGNING_TIME, ssp.getSigningTime());
+		assertSame(ssp.getSigningCertificate(), ssp.getSigningCertificate());
+		assertNotNull(ssp.getSignerRole());
+		assertThrows(IllegalStateException.class, () -> ssp.getSignaturePolicyIdentifier());
+		assertThrows(IllegalStateException.class, () -> sp.getDataObjectProperties());
+		assertSame(ssp, sp.getSignatureProperties());
+	}
+
+	@Test
+	void testUnmarshalElement() throws Exception {
+		final Document doc = sign(XadesVersion.EN_319_132_V111);
+		final Element sigElement = getSignatureElement(doc);
+
+		final XadesSignature unmarshalled = XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111)
+																 .unmarshalXadesSignature(sigElement);
+
+		assertSame(sigElement, unmarshalled.getElement());
+		assertTrue(unmarshalled.getOtherObjects().isEmpty());
+		assertEquals("#sig-1", unmarshalled.getQualifyingProperties().getTarget());
+		assertEquals("sp-1", unmarshalled.getQualifyingProperties().getSignedProperties().getId());
+		assertEquals(SIGNING_TIME, unmarshalled.getQualifyingProperties().getSignedProperties()
+												.getSignatureProperties().getSigningTime());
+	}
+
+	@Test
+	void testLocalSigningTime() throws Exception {
+		final Document doc = sign(XadesVersion.EN_319_132_V111);
+		doc.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "SigningTime").item(0)
+		   .setTextContent("2026-03-01T14:30:00.250");
+
+		assertEquals(SIGNING_TIME.plusHours(2).plusNanos(250_000_000),
+					 XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111)
+					 					  .unmarshalXadesSignature(getSignatureElement(doc))
+					 					  .getQualifyingProperties().getSignedProperties().getSignatureProperties()
+					 					  .getSigningTime());
+	}
+
+	@Test
+	void testNoQualifyingProperties() throws Exception {
+		final Document doc = parse("<doc><data>signed</data></doc>".getBytes("UTF-8"));
+		final XMLSignatureFactory f = XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111)
+														   .getXMLSignatureFactory();
+		final Reference ref = f.newReference("", f.newDigestMethod(DigestMethod.SHA256, null),
+							Collections.singletonList(f.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null)),
+							null, null);
+		f.newXMLSignature(f.newSignedInfo(f.newCanonicalizationMethod(CanonicalizationMethod.EXCLUSIVE,
+																	 (C14NMethodParameterSpec) null),
+										  f.newSignatureMethod(SignatureMethod.RSA_SHA256, null),
+										  Collections.singletonList(ref)), null)
+		 .sign(new DOMSignContext(CRYPTO.getKeyPair().getPrivateKey(), doc.getDocumentElement()));
+
+		assertThrows(MarshalException.class, () -> XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111)
+																	.unmarshalXadesSignature(getSignatureElement(doc)));
+	}
+
+	/**
+	 * Signs a document with a Xades signature that contains all properties, parses the serialised document and checks
+	 * that the unmarshalled signature is valid and contains the same properties.
+	 */
+	private static void assertRoundTrip(final XadesVersion version) throws Exception {
+		final XadesSignature signature = newSignature(version);
+		final Document signed = parse(serialise(sign(signature)));
+		final Element sigElement = getSignatureElement(signed);
+
+		final DOMValidateContext context = new DOMValidateContext(CRYPTO.getCertificate().getPublicKey(), sigElement);
+		final XadesSignature unmarshalled = XadesSignatureFactory.getInstance(version)
+																 .unmarshalXadesSignature(context);
+		assertTrue(unmarshalled.validate(context));
+
+		final QualifyingProperties expectedQP = signature.getQualifyingProperties();
+		final QualifyingProperties qp = unmarshalled.getQualifyingProperties();
+		assertEquals(expectedQP.getTarget(), qp.getTarget());
+		assertEquals(expectedQP.getSignedProperties().getId(), qp.getSignedProperties().getId());
+
+		final SignedSignatureProperties expected = expectedQP.getSignedProperties().getSignatureProperties();
+		final SignedSignatureProperties ssp = qp.getSignedProperties().getSignatureProperties();
+		assertEquals(expected.getSigningTime(), ssp.getSigningTime());
+		assertEquals(expected.getSigningCertificate(), ssp.getSigningCertificate());
+		assertEquals(expected.getSignaturePolicyIdentifier(), ssp.getSignaturePolicyIdentifier());
+		assertEquals(expected.getSignatureProductionPlace(), ssp.getSignatureProductionPlace());
+		assertEquals(expected.getSignerRole(), ssp.getSignerRole());
+		assertEquals(1, ssp.getOtherContent().size());
+		assertTrue(expected.getOtherContent().get(0).isEqualNode(ssp.getOtherContent().get(0)));
+		assertEquals(expectedQP.getSignedProperties().getDataObjectProperties(),
+					 qp.getSignedProperties().getDataObjectProperties());
+		assertEquals(expectedQP.getUnsignedProperties(), qp.getUnsignedProperties());
+		if (version == XadesVersion.EN_319_132_V111)
+			assertArrayEquals(expectedQP.getUnsignedProperties().getSignatureProperties().getSignaturePolicyStore()
+												.getSignaturePolicyDocument(),
+							  qp.getUnsignedProperties().getSignatureProperties().getSignaturePolicyStore()
+							  			.getSignaturePolicyDocument());
+		else
+			assertNull(qp.getUnsignedProperties().getSignatureProperties());
+	}
+
+	private static XadesSignature newSignature(final XadesVersion version) throws Exception {
+		final XadesSignatureFactory xf = XadesSignatureFactory.getInstance(version);
+		final XMLSignatureFactory f = xf.getXMLSignatureFactory();
+		final boolean v2 = version == XadesVersion.EN_319_132_V111;
+
+		final Document content = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		final Element role = newElement(content, "urn:roles", "r:Role");
+		role.setAttributeNS("urn:roles", "r:level", "senior");
+		role.appendChild(content.createTextNode("Manager"));
+		final Element other = newElement(content, "urn:other", "o:Other");
+		other.appendChild(content.createTextNode("other"));
+		final Element qualifier = newElement(content, "urn:qualifiers", "q:Qualifier");
+		qualifier.appendChild(content.createTextNode("qualified"));
+
+		final SignedSignatureProperties ssp = xf.newSignedSignatureProperties(SIGNING_TIME,
+						xf.newSigningCertificate(Collections.singletonList(CRYPTO.getCertificate()), DigestMethod.SHA256),
+						xf.newSignaturePolicyIdentifier(xf.newObjectIdentifier("urn:policy:1", QualifierType.OIDAsURN,
+											"The policy", Arrays.asList("http://policy.example/1", "urn:doc:2")),
+										Collections.singletonList(f.newTransform(Transform.XPATH,
+												new XPathFilterParameterSpec("not(ancestor-or-self::p:x)",
+															Collections.singletonMap("p", "urn:policy:ns")))),
+										DigestMethod.SHA256, new byte[32],
+										Collections.singletonList(xf.newSigPolicyQualifier(
+																		Collections.singletonList(qualifier)))),
+						xf.newSignatureProductionPlace("Amsterdam", "Dam 1", "1012 JS", "Noord-Holland", "NL"),
+						xf.newSignerRole(Collections.singletonList(xf.newClaimedRole(Collections.singletonList(role))),
+										 Collections.singletonList(xf.newCertifiedRole("cr-1", CRYPTO.getCertificate())),
+										 v2 ? Collections.singletonList(xf.newSignedAssertion(
+														Collections.singletonList(role.cloneNode(true)))) : null),
+						Collections.singletonList(other));
+		final SignedDataObjectProperties sdop = xf.newSignedDataObjectProperties(
+						Collections.singletonList(xf.newDataObjectFormat("#ref-1", "The document",
+												xf.newObjectIdentifier("urn:format:xml"), "text/xml", "UTF-8")),
+						Arrays.asList(xf.newCommitmentTypeIndication(xf.newObjectIdentifier("urn:commitment:origin"),
+												Collections.singletonList(xf.newCommitmentTypeQualifier(
+														Collections.singletonList(qualifier.cloneNode(true))))),
+									  xf.newCommitmentTypeIndication(Collections.singletonList("#ref-1"),
+											  					 xf.newObjectIdentifier("urn:commitment:receipt"),
+											  					 null)));
+		final UnsignedProperties up = xf.newUnsignedProperties("up-1",
+						v2 ? xf.newUnsignedSignatureProperties("usp-1",
+											xf.newSignaturePolicyStore(xf.newObjectIdentifier("urn:spec:1"),
+																	   new byte[] { 1, 2, 3 }))
+						   : null,
+						new UnsignedDataObjectProperties("udop-1", Collections.singletonList(
+								new UnsignedDataObjectProperty(Collections.singletonList(other.cloneNode(true))))));
+		final QualifyingProperties qp = xf.newQualifyingProperties("#sig-1", xf.newSignedProperties("sp-1", ssp, sdop),
+																   up);
+
+		final Reference dataRef = f.newReference("", f.newDigestMethod(DigestMethod.SHA256, null),
+							Collections.singletonList(f.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null)),
+							null, "ref-1");
+		return xf.newXadesSignature("sig-1", DigestMethod.SHA256, SignatureMethod.RSA_SHA256,
+									CanonicalizationMethod.EXCLUSIVE, xf.newKeyInfo(CRYPTO.getCertificate()),
+									Collections.singletonList(dataRef), qp, null);
+	}
+
+	/**
+	 * Creates an element that declares its namespace, so it is canonicalised the same in the created signature and
+	 * after parsing the serialised document. 
+	 */
+	private static Element newElement(final Document doc, final String nsURI, final String qName) {
+		final Element e = doc.createElementNS(nsURI, qName);
+		e.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, 
+						 XMLConstants.XMLNS_ATTRIBUTE + ":" + qName.substring(0, qName.indexOf(':')), nsURI);
+		return e;
+	}
+
+	private static Document sign(final XadesVersion version) throws Exception {
+		return sign(newSignature(version));
+	}
+
+	private static Document sign(final XadesSignature signature) throws Exception {
+		final Document doc = parse("<doc><data>signed</data></doc>".getBytes("UTF-8"));
+		signature.sign(new DOMSignContext(CRYPTO.getKeyPair().getPrivateKey(), doc.getDocumentElement()));
+		return doc;
+	}
+
+	private static Element getSignatureElement(final Document doc) {
+		return (Element) doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature").item(0);
+	}
+
+	private static byte[] serialise(final Document doc) throws Exception {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(bos));
+		return bos.toByteArray();
+	}
+
+	private static Document parse(final byte[] xml) throws Exception {
+		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		return dbf.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+	}
+}
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.cert.X509Certificate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignatureMethod;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.duuba.xades.VerificationReport.ReferenceResult;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.builders.DetachedSignatureBuilder;
+import org.duuba.xades.test.TestCryptoContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+class XadesVerifierTest {
+
+	private static final PrivateKeyEntry KEYPAIR = new TestCryptoContext().getKeyPair();
+	private static final XadesSignatureFactory FACTORY = XadesSignatureFactory.getInstance(
+																					XadesVersion.EN_319_132_V111);
+
+	@TempDir
+	Path	tempDir;
+
+	@Test
+	void testValidV111() throws Exception {
+		assertValidEnveloped(XadesVersion.EN_319_132_V111);
+	}
+
+	@Test
+	void testValidV141() throws Exception {
+		assertValidEnveloped(XadesVersion.TS_101_903_V141);
+	}
+
+	@Test
+	void testModifiedDocument() throws Exception {
+		final Document doc = signEnveloped(XadesVersion.EN_319_132_V111);
+		doc.getDocumentElement().getFirstChild().setTextContent("changed");
+
+		final VerificationReport report = verify(XadesVersion.EN_319_132_V111, doc);
+		assertFalse(report.isValid());
+		assertFailed(report, VerificationCheck.REFERENCE_DIGESTS);
+		assertFalse(report.getReferenceResults().get(0).isValid());
+		assertTrue(report.getReferenceResults().get(1).isValid());
+	}
+
+	@Test
+	void testOtherSigningCertificate() throws Exception {
+		final Document doc = signEnveloped(XadesVersion.EN_319_132_V111);
+		final Element certDigest = (Element) doc.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "CertDigest")
+												.item(0);
+		certDigest.getElementsByTagNameNS(XMLSignature.XMLNS, "DigestValue").item(0)
+				  .setTextContent("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+
+		final VerificationReport report = verify(XadesVersion.EN_319_132_V111, doc);
+		assertFalse(report.isValid());
+		assertFalse(report.isPassed(VerificationCheck.SIGNING_CERTIFICATE));
+		assertFalse(report.isPassed(VerificationCheck.REFERENCE_DIGESTS));
+		assertTrue(report.isPassed(VerificationCheck.SIGNATURE_VALUE));
+		assertEquals(KEYPAIR.getCertificate(), report.getSigningCertificate());
+	}
+
+	@Test
+	void testCertificateIndex() throws Exception {
+		final Document doc = signEnveloped(XadesVersion.EN_319_132_V111);
+		final Element keyInfo = (Element) doc.getElementsByTagNameNS(XMLSignature.XMLNS, "KeyInfo").item(0);
+		keyInfo.getParentNode().removeChild(keyInfo);
+		final Document withoutKeyInfo = parse(serialise(doc));
+
+		// Without the certificate in the KeyInfo the signature cannot be validated
+		assertFalse(verify(XadesVersion.EN_319_132_V111, withoutKeyInfo).isPassed(VerificationCheck.SIGNATURE_VALUE));
+
+		final CertificateIndex index = new CertificateIndex();
+		index.add((X509Certificate) KEYPAIR.getCertificate());
+		final XadesVerifier indexVerifier = new XadesVerifier(FACTORY, null, index);
+		final DOMValidateContext context = newContext(withoutKeyInfo);
+		final VerificationReport report = indexVerifier.verify(context);
+		assertTrue(report.isValid(), report::toString);
+		assertEquals(KEYPAIR.getCertificate(), report.getSigningCertificate());
+		// The selector for the signature must not be left in the context
+		assertNull(context.getKeySelector());
+
+		// A verifier without index reusing the context must not find the key using the previous selector
+		final VerificationReport reused = new XadesVerifier(FACTORY).verify(context);
+		assertFalse(reused.isPassed(VerificationCheck.SIGNATURE_VALUE));
+		assertNull(context.getKeySelector());
+
+		// With the certificate in the KeyInfo the index is used to check the SigningCertificate
+		final Document signed = parse(serialise(signEnveloped(XadesVersion.EN_319_132_V111)));
+		final VerificationReport withKeyInfo = new XadesVerifier(FACTORY, ForkJoinPool.commonPool(), index)
+																			.verify(newContext(signed));
+		assertTrue(withKeyInfo.isValid(), withKeyInfo::toString);
+		assertThrows(IllegalArgumentException.class, () -> new XadesVerifier(FACTORY, null, null));
+	}
+
+	@Test
+	void testDataObjectFormat() throws Exception {
+		assertFailed(verify(XadesVersion.EN_319_132_V111, signWithFactory(null)), VerificationCheck.DATA_OBJECT_FORMAT);
+		assertFailed(verify(XadesVersion.EN_319_132_V111, signWithFactory("#ref-1")),
+					 VerificationCheck.DATA_OBJECT_FORMAT);
+		assertFailed(verify(XadesVersion.EN_319_132_V111, signWithFactory("#unknown")),
+					 VerificationCheck.DATA_OBJECT_FORMAT);
+	}
+
+	@Test
+	void testParallelDetachedReferences() throws Exception {
+		final DetachedSignatureBuilder builder = new DetachedSignatureBuilder(
+									new BasicEnvelopedSignatureBuilder().setKeyPair(KEYPAIR).buildProfile());
+		final Path[] files = new Path[8];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = Files.write(tempDir.resolve("file" + i), ("content of file " + i).getBytes());
+			builder.addFile(files[i], "text/plain");
+		}
+		final byte[] signature = serialise(builder.build().getElement().getOwnerDocument());
+
+		final AtomicInteger submitted = new AtomicInteger();
+		final Executor executor = r -> { submitted.incrementAndGet(); ForkJoinPool.commonPool().execute(r); };
+		final XadesVerifier verifier = new XadesVerifier(FACTORY, executor);
+		VerificationReport report = verifier.verify(newContext(parse(signature)));
+		assertTrue(report.isValid(), report::toString);
+		assertEquals(files.length + 1, report.getReferenceResults().size());
+		assertEquals(files.length, submitted.get());
+
+		Files.write(files[3], "changed".getBytes());
+		report = verifier.verify(newContext(parse(signature)));
+		assertFailed(report, VerificationCheck.REFERENCE_DIGESTS);
+		for (int i = 0; i < files.length; i++)
+			assertEquals(i != 3, report.getReferenceResults().get(i).isValid());
+		assertEquals(files.length * 2, submitted.get());
+	}
+
+	@Test
+	void testManifest() throws Exception {
+		final Path file = Files.write(tempDir.resolve("data.txt"), "manifest content".getBytes());
+		final byte[] signature = serialise(new DetachedSignatureBuilder(
+								new BasicEnvelopedSignatureBuilder().setKeyPair(KEYPAIR).buildProfile())
+										.addFile(file, "text/plain").setUseManifest(true).build()
+										.getElement().getOwnerDocument());
+
+		final VerificationReport report = new XadesVerifier(FACTORY).verify(newContext(parse(signature)));
+		assertTrue(report.isValid(), report::toString);
+		assertEquals(3, report.getReferenceResults().size());
+		assertEquals(file.getFileName().toString(), report.getReferenceResults().get(2).getURI());
+		assertTrue(report.getReferenceResults().get(2).isValid());
+
+		// Changing the file must invalidate the signature, also when validating it in parallel
+		Files.write(file, "changed content".getBytes());
+		for (XadesVerifier v : new XadesVerifier[] { new XadesVerifier(FACTORY),
+													 new XadesVerifier(FACTORY, ForkJoinPool.commonPool()) }) {
+			final VerificationReport changed = v.verify(newContext(parse(signature)));
+			assertFailed(changed, VerificationCheck.REFERENCE_DIGESTS);
+			assertFalse(changed.getReferenceResults().get(2).isValid());
+			assertTrue(changed.getReferenceResults().get(0).isValid());
+		}
+	}
+
+	@Test
+	void testInvalidArguments() throws Exception {
+		assertThrows(IllegalArgumentException.class, () -> new XadesVerifier(null));
+		assertThrows(IllegalArgumentException.class, () -> new XadesVerifier(FACTORY, null));
+		assertThrows(IllegalArgumentException.class, () -> new XadesVerifier(FACTORY).verify(null));
+	}
+
+	private void assertValidEnveloped(final XadesVersion version) throws Exception {
+		final VerificationReport report = verify(version, signEnveloped(version));
+
+		assertTrue(report.isValid(), report::toString);
+		for (VerificationCheck c : VerificationCheck.values()) {
+			assertTrue(report.isPassed(c));
+			assertNull(report.getFailureReason(c));
+		}
+		assertTrue(report.getTotalDuration() > 0);
+		assertEquals(KEYPAIR.getCertificate(), report.getSigningCertificate());
+		assertEquals(2, report.getReferenceResults().size());
+		for (ReferenceResult r : report.getReferenceResults()) {
+			assertTrue(r.isValid());
+			assertNull(r.getFailureReason());
+		}
+		assertEquals("", report.getReferenceResults().get(0).getURI());
+		assertEquals(Constants.SIGNED_PROPS_REF_TYPE, report.getReferenceResults().get(1).getType());
+	}
+
+	/**
+	 * Asserts that only the given check failed.
+	 */
+	private static void assertFailed(final VerificationReport report, final VerificationCheck failed) {
+		assertFalse(report.isValid());
+		for (VerificationCheck c : VerificationCheck.values())
+			assertEquals(c != failed, report.isPassed(c), c + ": " + report.getFailureReason(c));
+	}
+
+	private VerificationReport verify(final XadesVersion version, final Document doc) throws Exception {
+		return new XadesVerifier(XadesSignatureFactory.getInstance(version)).verify(newContext(parse(serialise(doc))));
+	}
+
+	private DOMValidateContext newContext(final Document doc) {
+		final DOMValidateContext context = new DOMValidateContext(KEYPAIR.getCertificate().getPublicKey(),
+										doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature").item(0));
+		context.setKeySelector(null);
+		context.setBaseURI(tempDir.toUri().toString());
+		return context;
+	}
+
+	private static Document signEnveloped(final XadesVersion version) throws Exception {
+		final Document doc = parse("<doc><data>signed</data></doc>".getBytes());
+		new BasicEnvelopedSignatureBuilder().setXadesVersion(version).setKeyPair(KEYPAIR).setDocumentToSign(doc)
+											.build();
+		return doc;
+	}
+
+	/**
+	 * Signs a document with a Xades signature that includes a <code>DataObjectFormat</code> without MIME type for the
+	 * given reference, or no <code>DataObjectFormat</code> at all.
+	 */
+	private static Document signWithFactory(final String formatRef) throws Exception {
+		final XadesSignatureFactory xf = FACTORY;
+		final XMLSignatureFactory f = xf.getXMLSignatureFactory();
+		final Reference dataRef = f.newReference("", f.newDigestMethod(DigestMethod.SHA256, null),
+							Collections.singletonList(f.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null)),
+							null, "ref-1");
+		final X509Certificate cert = (X509Certificate) KEYPAIR.getCertificate();
+		final SignedSignatureProperties ssp = xf.newSignedSignatureProperties(ZonedDateTime.now(ZoneOffset.UTC),
+							xf.newSigningCertificate(Collections.singletonList(cert), DigestMethod.SHA256));
+		final SignedDataObjectProperties sdop = formatRef == null ? null : xf.newSignedDataObjectProperties(
+							Collections.singletonList(xf.newDataObjectFormat(formatRef, "document", null, null, null)),
+							null);
+		final XadesSignature signature = xf.newXadesSignature("sig-1", DigestMethod.SHA256, SignatureMethod.RSA_SHA256,
+							CanonicalizationMethod.EXCLUSIVE, xf.newKeyInfo(cert), Collections.singletonList(dataRef),
+							xf.newQualifyingProperties("#sig-1", xf.newSignedProperties("sp-1", ssp, sdop), null),
+							null);
+		final Document doc = parse("<doc><data>signed</data></doc>".getBytes());
+		signature.sign(new DOMSignContext(KEYPAIR.getPrivateKey(), doc.getDocumentElement()));
+		return doc;
+	}
+
+	private static byte[] serialise(final Document doc) throws Exception {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(bos));
+		return bos.toByteArray();
+	}
+
+	private static Document parse(final byte[] xml) throws Exception {
+		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		return dbf.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+	}
+}
@@ -0,0 +1,221 @@
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Security;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.spec.ExcC14NParameterSpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.jcp.xml.dsig.internal.dom.XMLDSigRI;
+import org.apache.jcp.xml.dsig.internal.dom.XmlWriterToTree;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.ls.DOMImplementationLS;
+import org.w3c.dom.ls.LSOutput;
+
+class XmlWriterToStreamTest {
+
+	private static final TestCryptoContext CONTEXT = new TestCryptoContext();
+	static {
+		CONTEXT.putNamespacePrefix(XMLSignature.XMLNS, "ds");
+		CONTEXT.putNamespacePrefix(Constants.XADES_132_NS_URI, Constants.XADES_132_NS_PREFIX);
+	}
+
+	@Test
+	void testSameAsSignature() throws Exception {
+		Document roleDoc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		Element role = roleDoc.createElementNS("urn:roles", "r:Role");
+		role.setAttributeNS("urn:roles", "r:level", "senior");
+		role.appendChild(roleDoc.createTextNode("Manager & Director"));
+
+		XadesSignature signature = new BasicEnvelopedSignatureBuilder()
+											.setKeyPair(CONTEXT.getKeyPair())
+											.setSignersLocation("Main St. 1 & 2", "01000-000", "São Paulo", "SP",
+																"Brasil 🇧🇷")
+											.setClaimedRoles(Collections.singletonList(role))
+											.setDocumentToSign(TestDocuments.load("testdoc.xml"))
+											.build();
+		final Element qpElement = (Element) signature.getElement()
+												.getElementsByTagNameNS(Constants.XADES_132_NS_URI,
+																		"QualifyingProperties").item(0);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XmlWriterToStream xwriter = new XmlWriterToStream(out);
+		signature.getQualifyingProperties().marshal(xwriter, "ds", CONTEXT);
+		xwriter.flush();
+
+		assertArrayEquals(canonicalize(serialize(qpElement)), canonicalize(parse(out.toByteArray())));
+	}
+
+	@Test
+	void testSameAsTree() throws Exception {
+		Security.addProvider(new XMLDSigRI());
+		XMLSignatureFactory factory = XMLSignatureFactory.getInstance("DOM", "ApacheXMLDSig");
+		List<Transform> transforms = Collections.singletonList(
+									factory.newTransform(CanonicalizationMethod.EXCLUSIVE,
+														 new ExcC14NParameterSpec(Collections.singletonList("ex"))));
+		XadesElement element = new SignaturePolicyIdentifier(new ObjectIdentifier("urn:policy:1", null,
+																"A <policy> with \"special\" chars\r\n", null),
+															 transforms, DigestMethod.SHA256, new byte[32], null);
+
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		XmlWriterToTree treeWriter = new XmlWriterToTree(Collections.emptyList(), doc);
+		element.marshal(treeWriter, "ds", CONTEXT);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XmlWriterToStream xwriter = new XmlWriterToStream(out);
+		element.marshal(xwriter, "ds", CONTEXT);
+		xwriter.flush();
+
+		assertArrayEquals(canonicalize(serialize(treeWriter.getCreatedElement())),
+						  canonicalize(parse(out.toByteArray())));
+	}
+
+	@Test
+	void testEscapingAndNamespaces() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(1024);
+		XmlWriterToStream xwriter = new XmlWriterToStream(buffer);
+		xwriter.writeStartElement("a", "root", "urn:a");
+		xwriter.writeAttribute("", "", "value", "<\"&\t\n\r>");
+		xwriter.writeAttribute("b", "urn:b", "attr", "x");
+		xwriter.writeStartElement("", "child", "");
+		xwriter.writeCharacters("1 < 2 & 3 > 2\r\né€😀");
+		xwriter.writeEndElement();
+		xwriter.writeStartElement("a", "empty", "urn:a");
+		assertEquals("empty", xwriter.getCurrentLocalName());
+		xwriter.writeEndElement();
+		xwriter.writeEndElement();
+		assertNull(xwriter.getCurrentLocalName());
+		xwriter.flush();
+
+		assertEquals("<a:root xmlns:a=\"urn:a\" value=\"&lt;&quot;&amp;&#x9;&#xA;&#xD;>\" xmlns:b=\"urn:b\" b:attr=\"x\">"
+					 + "<child>1 &lt; 2 &amp; 3 &gt; 2&#xD;\né€😀</child><a:empty></a:empty></a:root>",
+					 new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+
+		Element parsed = parse(buffer.array(), buffer.position());
+		assertEquals("<\"&\t\n\r>", parsed.getAttribute("value"));
+		assertEquals("1 < 2 & 3 > 2\r\né€😀", parsed.getFirstChild().getTextContent());
+	}
+
+	@Test
+	void testCharactersNotReplaced() throws Exception {
+		// A surrogate pair that crosses the boundary of the chunks in which strings are encoded
+		StringBuilder longText = new StringBuilder();
+		for (int i = 0; i < 511; i++)
+			longText.append('x');
+		longText.append("😀\r");
+		char[] chars = "[\ud800]".toCharArray();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XmlWriterToStream xwriter = new XmlWriterToStream(out);
+		xwriter.writeStartElement("", "root", "");
+		xwriter.writeCharacters(longText.toString());
+		xwriter.writeCharacters(chars, 1, 1);
+		xwriter.writeEndElement();
+		xwriter.flush();
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write(("<root>" + longText.toString().replace("\r", "&#xD;")).getBytes(StandardCharsets.UTF_8));
+		// The unpaired surrogate is encoded as a normal character, like Santuario's canonicaliser does
+		expected.write(new byte[] { (byte) 0xed, (byte) 0xa0, (byte) 0x80 });
+		expected.write("</root>".getBytes(StandardCharsets.UTF_8));
+		assertArrayEquals(expected.toByteArray(), out.toByteArray());
+	}
+
+	@Test
+	void testLongText() throws Exception {
+		// Text larger than the buffer, with characters to escape and encode at varying positions
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 5000; i++)
+			text.append(i % 7 == 0 ? "&\r" : i % 11 == 0 ? "é€😀" : "text");
+		char[] chars = text.toString().toCharArray();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XmlWriterToStream xwriter = new XmlWriterToStream(out);
+		xwriter.writeStartElement("", "root", "");
+		xwriter.writeAttribute("", "", "value", text.toString());
+		xwriter.writeCharacters(text.toString());
+		xwriter.writeCharacters(chars, 0, chars.length);
+		xwriter.writeEndElement();
+		xwriter.flush();
+
+		Element parsed = parse(out.toByteArray());
+		assertEquals(text.toString(), parsed.getAttribute("value"));
+		assertEquals(text.toString() + text.toString(), parsed.getTextContent());
+	}
+
+	@Test
+	void testDefaultNamespaceUndeclared() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XmlWriterToStream xwriter = new XmlWriterToStream(out);
+		xwriter.writeStartElement("", "root", "urn:default");
+		xwriter.writeStartElement(null, "child", null);
+		xwriter.writeEndElement();
+		xwriter.writeEndElement();
+		xwriter.flush();
+
+		assertEquals("<root xmlns=\"urn:default\"><child xmlns=\"\"></child></root>",
+					 new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void testInvalidUse() throws Exception {
+		XmlWriterToStream xwriter = new XmlWriterToStream(ByteBuffer.allocate(16));
+		xwriter.writeStartElement("", "root", "");
+		xwriter.writeCharacters("text");
+		assertThrows(IllegalStateException.class, () -> xwriter.writeAttribute("", "", "late", "value"));
+		assertThrows(IllegalStateException.class, () -> xwriter.writeNamespace("p", "urn:p"));
+		xwriter.writeCharacters("text that does not fit in the buffer");
+		xwriter.writeEndElement();
+		assertThrows(BufferOverflowException.class, () -> xwriter.flush());
+	}
+
+	private static Element parse(byte[] xml) throws Exception {
+		return parse(xml, xml.length);
+	}
+
+	private static Element parse(byte[] xml, int length) throws Exception {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		return dbf.newDocumentBuilder().parse(new ByteArrayInputStream(xml, 0, length)).getDocumentElement();
+	}
+
+	/**
+	 * Serialises the element with the namespace declarations the DOM created by the marshalling code lacks and parses 
+	 * it again.
+	 */
+	private static Element serialize(Element e) throws Exception {
+		DOMImplementationLS ls = (DOMImplementationLS) e.getOwnerDocument().getImplementation();
+		LSOutput output = ls.createLSOutput();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		output.setByteStream(out);
+		output.setEncoding("UTF-8");
+		ls.createLSSerializer().write(e, output);
+		return parse(out.toByteArray());
+	}
+
+	private static byte[] canonicalize(Element e) throws Exception {
+		return Canonicalizer.getInstance(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS).canonicalizeSubtree(e);
+	}
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.builders;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+
+import org.duuba.xades.QualifyingProperties;
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XadesVersion;
+import org.duuba.xades.XmlWriterToStream;
+import org.duuba.xades.test.AllocationMeter;
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Checks that the number of bytes allocated to create a signature in the reference scenarios stays within the
+ * recorded budget, so reductions of the allocations on the signing path are not lost by later changes. 
+ * <p>The budgets are about 25% above the allocations measured on JDK 17 when they were recorded, to allow for the
+ * inaccuracy of the measurement. As the allocations depend on the JDK's implementation of the XML and crypto APIs, the
+ * test is skipped on other JDK versions and on JVMs that do not support the allocation counters. When a change reduces
+ * the allocations, lower the budget of the scenario to keep the gain. The measured values are printed when the system
+ * property <code>allocation.report</code> is set to <code>true</code>.
+ * <p>As the test takes some time, it is not part of the default build and only runs when the <code>allocation-budget
+ * </code> profile is activated.
+ */
+@Tag("allocation")
+class AllocationBudgetTest {
+
+	/**
+	 * The Java specification version of the JDK the budgets were recorded on
+	 */
+	private static final String RECORDED_JDK = "17";
+
+	private static final int WARMUP = 200;
+	private static final int ITERATIONS = 50;
+
+	private static final long ENVELOPED_EXCLUSIVE_BUDGET = 400_000;
+	private static final long ENVELOPED_INCLUSIVE_BUDGET = 370_000;
+	private static final long STREAMING_BUDGET = 512_000;
+	private static final long STREAMING_TEMPLATE_BUDGET = 416_000;
+	private static final long MARSHAL_QUALIFYING_PROPS_BUDGET = 13_000;
+	private static final long SIGNING_CERTIFICATE_BUDGET = 2_200;
+
+	private static final PrivateKeyEntry T_KEYPAIR = new TestCryptoContext().getKeyPair();
+
+	private static byte[] testDoc;
+
+	@BeforeAll
+	static void loadDocument() throws Exception {
+		assumeTrue(RECORDED_JDK.equals(System.getProperty("java.specification.version")),
+				   "Allocation budgets are recorded on JDK " + RECORDED_JDK);
+		assumeTrue(AllocationMeter.isSupported(), "Thread allocation counters not supported");
+		try (InputStream is = AllocationBudgetTest.class.getClassLoader().getResourceAsStream("testdoc.xml")) {
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			int r;
+			while ((r = is.read(buffer)) > 0)
+				bos.write(buffer, 0, r);
+			testDoc = bos.toByteArray();
+		}
+	}
+
+	@Test
+	void testEnvelopedExclusive() throws Exception {
+		assertEnvelopedWithinBudget("enveloped-exclusive", CanonicalizationMethod.EXCLUSIVE, 
+									ENVELOPED_EXCLUSIVE_BUDGET);
+	}
+
+	@Test
+	void testEnvelopedInclusive() throws Exception {
+		assertEnvelopedWithinBudget("enveloped-inclusive", CanonicalizationMethod.INCLUSIVE, 
+									ENVELOPED_INCLUSIVE_BUDGET);
+	}
+
+	@Test
+	void testStreaming() throws Exception {
+		final StreamingEnvelopedSigner signer = new StreamingEnvelopedSigner(newProfile(
+																				CanonicalizationMethod.EXCLUSIVE));
+		final NullOutputStream out = new NullOutputStream();
+		assertWithinBudget("streaming", STREAMING_BUDGET, () -> signer.sign(new ByteArrayInputStream(testDoc), out));
+	}
+
+	@Test
+	void testStreamingTemplate() throws Exception {
+		final StreamingEnvelopedSigner signer = new StreamingEnvelopedSigner(newProfile(
+																				CanonicalizationMethod.EXCLUSIVE));
+		final NullOutputStream out = new NullOutputStream();
+		assertWithinBudget("streaming-template", STREAMING_TEMPLATE_BUDGET, 
+						   () -> signer.signWithTemplate(new ByteArrayInputStream(testDoc), out));
+	}
+
+	@Test
+	void testMarshalQualifyingProperties() throws Exception {
+		final XadesSignature signature = newProfile(CanonicalizationMethod.EXCLUSIVE).sign(
+																			TestDocuments.load("testdoc.xml"));
+		final QualifyingProperties qp = signature.getQualifyingProperties();
+		final DOMSignContext context = new DOMSignContext(T_KEYPAIR.getPrivateKey(), 
+														  signature.getElement().getOwnerDocument());
+		context.putNamespacePrefix(XMLSignature.XMLNS, "ds");
+		final NullOutputStream out = new NullOutputStream();
+		assertWithinBudget("marshal-qualifying-properties", MARSHAL_QUALIFYING_PROPS_BUDGET, () -> {
+			final XmlWriterToStream xwriter = new XmlWriterToStream(out);
+			qp.marshal(xwriter, "ds", context);
+			xwriter.flush();
+		});
+	}
+
+	@Test
+	void testSigningCertificate() throws Exception {
+		final XadesSignatureFactory xf = XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111);
+		final List<X509Certificate> certs = Collections.singletonList((X509Certificate) T_KEYPAIR.getCertificate());
+		assertWithinBudget("signing-certificate", SIGNING_CERTIFICATE_BUDGET, 
+						   () -> xf.newSigningCertificate(certs, DigestMethod.SHA256));
+	}
+
+	/**
+	 * Checks the allocations of signing a parsed document with a signing profile using the given canonicalisation
+	 * algorithm. To exclude the parsing, the same document is signed in each iteration and the signature is removed
+	 * again after signing.
+	 */
+	private static void assertEnvelopedWithinBudget(final String scenario, final String c14nAlg, final long budget)
+																								throws Exception {
+		final SigningProfile profile = newProfile(c14nAlg);
+		final Document doc = TestDocuments.load("testdoc.xml");
+		assertWithinBudget(scenario, budget, () -> {
+			final Element sigElement = profile.sign(doc).getElement();
+			sigElement.getParentNode().removeChild(sigElement);
+		});
+	}
+
+	private static void assertWithinBudget(final String scenario, final long budget, 
+										   final AllocationMeter.Operation op) throws Exception {
+		final long allocated = AllocationMeter.bytesPerOperation(WARMUP, ITERATIONS, op);
+		if (Boolean.getBoolean("allocation.report"))
+			System.out.println("Allocation of " + scenario + ": " + allocated + " bytes/op");
+		assertTrue(allocated <= budget, "Allocation of " + scenario + " is " + allocated 
+										+ " bytes per operation which exceeds the budget of " + budget + " bytes");
+	}
+
+	private static SigningProfile newProfile(final String c14nAlg) {
+		return new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+												   .setC14nAlgorithm(c14nAlg)
+												   .setSignersLocation(null, null, "Amsterdam", null, "NL")
+												   .buildProfile();
+	}
+
+	/**
+	 * Discards all output, so the allocations of the output buffer are not included.
+	 */
+	private static final class NullOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
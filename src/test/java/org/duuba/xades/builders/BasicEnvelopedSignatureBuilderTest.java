@@ -0,0 +1,225 @@
+package org.duuba.xades.builders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.KeyStore.PrivateKeyEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.duuba.xades.Constants;
+import org.duuba.xades.SigningMetrics;
+import org.duuba.xades.SigningPhase;
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+class BasicEnvelopedSignatureBuilderTest {
+
+	private static final PrivateKeyEntry T_KEYPAIR = new TestCryptoContext().getKeyPair();
+
+	@Test
+	void testBuildAsync() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			BasicEnvelopedSignatureBuilder builder = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR);
+
+			List<CompletableFuture<XadesSignature>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++)
+				futures.add(builder.setDocumentToSign(TestDocuments.load("testdoc.xml")).buildAsync(executor));
+
+			List<String> ids = new ArrayList<>();
+			for (CompletableFuture<XadesSignature> f : futures) {
+				XadesSignature signature = f.get();
+				assertTrue(TestDocuments.isValid(signature.getElement(), T_KEYPAIR.getCertificate().getPublicKey()));
+				assertTrue(!ids.contains(signature.getId()));
+				ids.add(signature.getId());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testBuildAsyncInvalidInput() {
+		ExecutionException noKey = assertThrows(ExecutionException.class, () ->
+												new BasicEnvelopedSignatureBuilder()
+														.setDocumentToSign(TestDocuments.load("testdoc.xml"))
+														.buildAsync(Runnable::run).get());
+		assertTrue(noKey.getCause() instanceof IllegalStateException);
+
+		ExecutionException noDoc = assertThrows(ExecutionException.class, () ->
+												new BasicEnvelopedSignatureBuilder()
+														.setKeyPair(T_KEYPAIR)
+														.buildAsync(Runnable::run).get());
+		assertTrue(noDoc.getCause() instanceof IllegalStateException);
+
+		assertThrows(IllegalArgumentException.class, () -> new BasicEnvelopedSignatureBuilder().buildAsync(null));
+	}
+
+	@Test
+	void testBuildAsyncSigningFailure() throws Exception {
+		Document empty = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+
+		CompletableFuture<XadesSignature> f = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+																				  .setDocumentToSign(empty)
+																				  .buildAsync(Runnable::run);
+		assertTrue(f.isCompletedExceptionally());
+	}
+
+	@Test
+	void testBuildAsyncError() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			CompletableFuture<XadesSignature> f = new BasicEnvelopedSignatureBuilder()
+															.setKeyPair(T_KEYPAIR)
+															.setSigningListener(m -> {
+																throw new AssertionError("listener failure");
+															})
+															.setDocumentToSign(TestDocuments.load("testdoc.xml"))
+															.buildAsync(executor);
+
+			ExecutionException failure = assertThrows(ExecutionException.class, () -> f.get(10, TimeUnit.SECONDS));
+			assertTrue(failure.getCause() instanceof AssertionError);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testCancelBeforeStart() throws Exception {
+		List<Runnable> queued = new ArrayList<>();
+		Document doc = TestDocuments.load("testdoc.xml");
+		int children = doc.getDocumentElement().getChildNodes().getLength();
+
+		CompletableFuture<XadesSignature> f = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+																				  .setDocumentToSign(doc)
+																				  .buildAsync(queued::add);
+		assertEquals(1, queued.size());
+		assertTrue(f.cancel(true));
+		queued.get(0).run();
+
+		assertThrows(CancellationException.class, () -> f.get());
+		assertEquals(children, doc.getDocumentElement().getChildNodes().getLength());
+	}
+
+	@Test
+	void testCancelWhileSigning() throws Exception {
+		CountDownLatch signing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Document doc = TestDocuments.load("testdoc.xml");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			CompletableFuture<XadesSignature> f = new BasicEnvelopedSignatureBuilder()
+															.setKeyPair(T_KEYPAIR)
+															.setSigningListener(m -> {
+																signing.countDown();
+																try {
+																	release.await();
+																} catch (InterruptedException e) {
+																	Thread.currentThread().interrupt();
+																}
+															})
+															.setDocumentToSign(doc)
+															.buildAsync(executor);
+			assertTrue(signing.await(10, TimeUnit.SECONDS));
+
+			// Once signing has started the future cannot be cancelled anymore
+			assertFalse(f.cancel(true));
+			assertFalse(f.isDone());
+			release.countDown();
+
+			XadesSignature signature = f.get(10, TimeUnit.SECONDS);
+			assertFalse(f.isCancelled());
+			assertSame(doc.getDocumentElement(), signature.getElement().getParentNode());
+			assertTrue(TestDocuments.isValid(signature.getElement(), T_KEYPAIR.getCertificate().getPublicKey()));
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testGetElementNodesOverride() throws Exception {
+		Document doc = TestDocuments.load("testdoc.xml");
+		Element role = doc.createElementNS("http://example.org/roles", "r:role");
+		role.setTextContent("original");
+		List<Element> overridden = new ArrayList<>();
+
+		XadesSignature signature = new BasicEnvelopedSignatureBuilder() {
+											@Override
+											protected List<Node> getElementNodes(Element e) {
+												overridden.add(e);
+												return Collections.singletonList(
+																	e.getOwnerDocument().createTextNode("overridden"));
+											}
+										}.setKeyPair(T_KEYPAIR)
+										 .setClaimedRoles(Collections.singletonList(role))
+										 .setDocumentToSign(doc)
+										 .build();
+
+		assertEquals(Collections.singletonList(role), overridden);
+		assertTrue(signature.getElement().getTextContent().contains("overridden"));
+		assertFalse(signature.getElement().getTextContent().contains("original"));
+	}
+
+	@Test
+	void testSigningListener() throws Exception {
+		List<SigningMetrics> reported = new ArrayList<>();
+		XadesSignature signature = new BasicEnvelopedSignatureBuilder()
+											.setKeyPair(T_KEYPAIR)
+											.setC14nAlgorithm(CanonicalizationMethod.EXCLUSIVE)
+											.setSigningListener(reported::add)
+											.setDocumentToSign(TestDocuments.load("testdoc.xml"))
+											.build();
+
+		assertTrue(TestDocuments.isValid(signature.getElement(), T_KEYPAIR.getCertificate().getPublicKey()));
+		assertEquals(1, reported.size());
+		SigningMetrics metrics = reported.get(0);
+		assertEquals(signature.getId(), metrics.getSignatureId());
+		for (SigningPhase p : SigningPhase.values())
+			assertTrue(metrics.getDuration(p) > 0, p.name());
+		// Only the directly digested SignedProperties are streamed, the enveloped document is digested by Santuario
+		Element signedProps = (Element) signature.getElement()
+											.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "SignedProperties")
+											.item(0);
+		assertEquals(Canonicalizer.getInstance(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS)
+								  .canonicalizeSubtree(signedProps).length, metrics.getStreamedBytesDigested());
+		assertEquals(signature.getElement().getElementsByTagNameNS("*", "*").getLength() + 1,
+					 metrics.getElementCount());
+	}
+
+	@Test
+	void testSigningListenerFailureIgnored() throws Exception {
+		XadesSignature signature = new BasicEnvelopedSignatureBuilder()
+											.setKeyPair(T_KEYPAIR)
+											.setSigningListener(m -> {
+												throw new IllegalStateException();
+											})
+											.setDocumentToSign(TestDocuments.load("testdoc.xml"))
+											.build();
+
+		assertNotNull(signature.getElement());
+		assertTrue(TestDocuments.isValid(signature.getElement(), T_KEYPAIR.getCertificate().getPublicKey()));
+	}
+}
@@ -0,0 +1,248 @@
+package org.duuba.xades.builders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.KeyStore.PrivateKeyEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+class BatchSignerTest {
+
+	private static final PrivateKeyEntry T_KEYPAIR = new TestCryptoContext().getKeyPair();
+
+	private static final SigningProfile T_PROFILE = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+																						.buildProfile();
+
+	@Test
+	void testSignCollection() throws Exception {
+		List<Document> docs = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			docs.add(TestDocuments.load("testdoc.xml"));
+
+		List<BatchSigner.Result> results = new BatchSigner(T_PROFILE).signAll(docs);
+
+		assertEquals(docs.size(), results.size());
+		for (int i = 0; i < docs.size(); i++) {
+			BatchSigner.Result r = results.get(i);
+			assertSame(docs.get(i), r.getDocument());
+			assertTrue(r.isSuccess());
+			assertNull(r.getFailure());
+			assertNotNull(r.getSignature());
+			assertTrue(TestDocuments.isValid(r.getSignature().getElement(),
+											 T_KEYPAIR.getCertificate().getPublicKey()));
+		}
+	}
+
+	@Test
+	void testSignFromSupplier() throws Exception {
+		final AtomicInteger supplied = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			List<BatchSigner.Result> results = new BatchSigner(T_PROFILE, executor).signAll(
+							() -> supplied.getAndIncrement() < 10 ? TestDocuments.load("testdoc.xml") : null);
+
+			assertEquals(10, results.size());
+			for (BatchSigner.Result r : results)
+				assertTrue(r.isSuccess());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testSupplierInFlightLimit() throws Exception {
+		// The signing tasks are only run when taken from the queue by the test
+		final BlockingQueue<Runnable> queued = new LinkedBlockingQueue<>();
+		final BatchSigner signer = new BatchSigner(T_PROFILE, queued::add, 2);
+		final AtomicInteger supplied = new AtomicInteger();
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		try {
+			Future<List<BatchSigner.Result>> batch = caller.submit(() -> signer.signAll(
+							() -> supplied.getAndIncrement() < 5 ? TestDocuments.load("testdoc.xml") : null));
+
+			List<Runnable> tasks = new ArrayList<>();
+			tasks.add(queued.poll(10, TimeUnit.SECONDS));
+			tasks.add(queued.poll(10, TimeUnit.SECONDS));
+			assertNull(queued.poll(200, TimeUnit.MILLISECONDS));
+			assertEquals(2, supplied.get());
+
+			// Completing a task allows the next document to be taken
+			tasks.get(0).run();
+			tasks.add(queued.poll(10, TimeUnit.SECONDS));
+			assertNotNull(tasks.get(2));
+			assertEquals(3, supplied.get());
+			tasks.get(1).run();
+			tasks.get(2).run();
+			while (!batch.isDone()) {
+				Runnable next = queued.poll(100, TimeUnit.MILLISECONDS);
+				if (next != null)
+					next.run();
+			}
+			assertEquals(5, batch.get().size());
+			for (BatchSigner.Result r : batch.get())
+				assertTrue(r.isSuccess());
+		} finally {
+			caller.shutdownNow();
+		}
+	}
+
+	@Test
+	void testErrorIncludedInResult() throws Exception {
+		SigningProfile failing = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+														.setSigningListener(m -> {
+															throw new AssertionError("listener failure");
+														})
+														.buildProfile();
+		final AtomicInteger supplied = new AtomicInteger();
+		List<BatchSigner.Result> results = new BatchSigner(failing).signAll(
+							() -> supplied.getAndIncrement() < 2 ? TestDocuments.load("testdoc.xml") : null);
+
+		assertEquals(2, results.size());
+		for (BatchSigner.Result r : results) {
+			assertFalse(r.isSuccess());
+			assertTrue(r.getFailure() instanceof AssertionError);
+		}
+	}
+
+	@Test
+	void testFailureDoesNotAbortBatch() throws Exception {
+		Document empty = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		List<Document> docs = new ArrayList<>();
+		docs.add(TestDocuments.load("testdoc.xml"));
+		docs.add(empty);
+		docs.add(TestDocuments.load("testdoc.xml"));
+
+		List<BatchSigner.Result> results = new BatchSigner(T_PROFILE).signAll(docs);
+
+		assertEquals(3, results.size());
+		assertTrue(results.get(0).isSuccess());
+		assertFalse(results.get(1).isSuccess());
+		assertSame(empty, results.get(1).getDocument());
+		assertNull(results.get(1).getSignature());
+		assertTrue(results.get(1).getFailure() instanceof IllegalArgumentException);
+		assertTrue(results.get(2).isSuccess());
+	}
+
+	@Test
+	void testSignToConsumer() throws Exception {
+		final AtomicInteger supplied = new AtomicInteger();
+		final AtomicInteger signed = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			new BatchSigner(T_PROFILE, executor, 2).signAll(
+							() -> supplied.getAndIncrement() < 10 ? TestDocuments.load("testdoc.xml") : null,
+							r -> {
+								if (r.isSuccess())
+									signed.incrementAndGet();
+							});
+
+			// All results are delivered before the call returns
+			assertEquals(10, signed.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testConsumerFailure() throws Exception {
+		// The signing tasks are only run when taken from the queue by the test
+		final BlockingQueue<Runnable> queued = new LinkedBlockingQueue<>();
+		final BatchSigner signer = new BatchSigner(T_PROFILE, queued::add, 2);
+		final AtomicInteger supplied = new AtomicInteger();
+		final AtomicInteger consumed = new AtomicInteger();
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> batch = caller.submit(() -> {
+				signer.signAll(() -> {
+									supplied.incrementAndGet();
+									return TestDocuments.load("testdoc.xml");
+								},
+							   r -> {
+								   throw new IllegalArgumentException("consumer failure " + consumed.incrementAndGet());
+							   });
+				return null;
+			});
+			// After the first failure no more documents are taken, but the one in flight is still signed
+			queued.poll(10, TimeUnit.SECONDS).run();
+			queued.poll(10, TimeUnit.SECONDS).run();
+			ExecutionException failure = assertThrows(ExecutionException.class, () -> batch.get(10, TimeUnit.SECONDS));
+			assertTrue(failure.getCause() instanceof IllegalArgumentException);
+			assertEquals("consumer failure 1", failure.getCause().getMessage());
+			assertEquals(1, failure.getCause().getSuppressed().length);
+			assertEquals("consumer failure 2", failure.getCause().getSuppressed()[0].getMessage());
+			assertEquals(2, supplied.get());
+			assertNull(queued.poll());
+		} finally {
+			caller.shutdownNow();
+		}
+	}
+
+	@Test
+	void testSupplierFailure() throws Exception {
+		// The signing tasks are only run when taken from the queue by the test
+		final BlockingQueue<Runnable> queued = new LinkedBlockingQueue<>();
+		final BatchSigner signer = new BatchSigner(T_PROFILE, queued::add, 2);
+		final AtomicInteger supplied = new AtomicInteger();
+		final Supplier<Document> failing = () -> {
+			if (supplied.getAndIncrement() == 1)
+				throw new IllegalStateException("supplier failure");
+			return TestDocuments.load("testdoc.xml");
+		};
+
+		// The signing of the document already supplied is cancelled
+		assertThrows(IllegalStateException.class, () -> signer.signAll(failing));
+		Runnable cancelled = queued.poll();
+		assertNotNull(cancelled);
+		cancelled.run();
+		assertNull(queued.poll());
+
+		// The document already supplied is signed and delivered before the failure is reported
+		supplied.set(0);
+		final AtomicInteger signed = new AtomicInteger();
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> batch = caller.submit(() -> {
+				signer.signAll(failing, r -> signed.incrementAndGet());
+				return null;
+			});
+			queued.poll(10, TimeUnit.SECONDS).run();
+			ExecutionException failure = assertThrows(ExecutionException.class, () -> batch.get(10, TimeUnit.SECONDS));
+			assertTrue(failure.getCause() instanceof IllegalStateException);
+			assertEquals(1, signed.get());
+		} finally {
+			caller.shutdownNow();
+		}
+	}
+
+	@Test
+	void testInvalidInput() {
+		assertThrows(IllegalArgumentException.class, () -> new BatchSigner(null));
+		assertThrows(IllegalArgumentException.class, () -> new BatchSigner(T_PROFILE, null));
+		assertThrows(IllegalArgumentException.class, () -> new BatchSigner(T_PROFILE, Runnable::run, 0));
+		assertThrows(IllegalArgumentException.class, () -> new BatchSigner(T_PROFILE).signAll((List<Document>) null));
+		assertThrows(IllegalArgumentException.class, () -> new BatchSigner(T_PROFILE).signAll((Supplier<Document>) null));
+		assertThrows(IllegalArgumentException.class, () -> new BatchSigner(T_PROFILE).signAll(() -> null, null));
+	}
+}
@@ -0,0 +1,264 @@
+package org.duuba.xades.builders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Manifest;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureException;
+
+import org.duuba.xades.Constants;
+import org.duuba.xades.ReferenceInfo;
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+class DetachedSignatureBuilderTest {
+
+	private static final PrivateKeyEntry T_KEYPAIR = new TestCryptoContext().getKeyPair();
+
+	@TempDir
+	Path	tempDir;
+
+	@Test
+	void testSignFiles() throws Exception {
+		Path xml = Files.write(tempDir.resolve("doc.xml"), "<doc>text</doc>".getBytes(StandardCharsets.UTF_8));
+		Path bin = tempDir.resolve("data file.bin");
+		byte[] data = new byte[3 * FileDigester.MAP_THRESHOLD + 17];
+		new Random(7).nextBytes(data);
+		Files.write(bin, data);
+
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).buildProfile();
+		DetachedSignatureBuilder builder = new DetachedSignatureBuilder(profile).addFile(xml, "text/xml")
+											.addFile(bin, null, "application/x-test", "Random data");
+		XadesSignature signature = builder.build();
+		assertNotNull(signature);
+		assertSame(signature, builder.build());
+
+		Element sigElement = signature.getElement();
+		assertEquals(XMLSignature.XMLNS, sigElement.getNamespaceURI());
+		assertSame(sigElement, sigElement.getOwnerDocument().getDocumentElement());
+
+		NodeList refs = sigElement.getElementsByTagNameNS(XMLSignature.XMLNS, "Reference");
+		assertEquals(3, refs.getLength());
+		assertEquals("doc.xml", ((Element) refs.item(0)).getAttribute("URI"));
+		assertEquals("data%20file.bin", ((Element) refs.item(1)).getAttribute("URI"));
+
+		NodeList mimeTypes = sigElement.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "MimeType");
+		assertEquals(2, mimeTypes.getLength());
+		assertEquals("text/xml", mimeTypes.item(0).getTextContent());
+		assertEquals("application/x-test", mimeTypes.item(1).getTextContent());
+
+		assertTrue(TestDocuments.isValid(sigElement, T_KEYPAIR.getCertificate().getPublicKey(),
+										 tempDir.toUri().toString()));
+
+		// Changing a file must invalidate the signature
+		data[data.length - 1]++;
+		Files.write(bin, data);
+		assertFalse(TestDocuments.isValid(sigElement, T_KEYPAIR.getCertificate().getPublicKey(),
+										  tempDir.toUri().toString()));
+	}
+
+	@Test
+	void testDefaultMimeType() throws Exception {
+		Path file = Files.write(tempDir.resolve("noext"), new byte[] { 1, 2, 3 });
+		XadesSignature signature = new DetachedSignatureBuilder(new BasicEnvelopedSignatureBuilder()
+																			.setKeyPair(T_KEYPAIR).buildProfile())
+												.addFile(file).build();
+		NodeList mimeTypes = signature.getElement().getElementsByTagNameNS(Constants.XADES_132_NS_URI,
+																		   "MimeType");
+		assertEquals(1, mimeTypes.getLength());
+		assertEquals(DetachedSignatureBuilder.DEFAULT_MIME_TYPE, mimeTypes.item(0).getTextContent());
+	}
+
+	@Test
+	void testMappedDigest() throws Exception {
+		for (long size : new long[] { 0, 1, FileDigester.MAP_THRESHOLD - 1, FileDigester.MAP_THRESHOLD,
+									  5L * FileDigester.MAP_THRESHOLD + 3 }) {
+			byte[] data = new byte[(int) size];
+			new Random(size).nextBytes(data);
+			Path file = Files.write(tempDir.resolve("f" + size), data);
+			assertTrue(MessageDigest.isEqual(MessageDigest.getInstance("SHA-256").digest(data),
+											 FileDigester.digest(file, MessageDigest.getInstance("SHA-256"))));
+		}
+	}
+
+	@Test
+	void testMultipleRegions() throws Exception {
+		// Sparse file spanning more than one mapped region
+		Path file = tempDir.resolve("sparse");
+		long size = FileDigester.MAP_REGION_SIZE + 1024;
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+											   StandardOpenOption.SPARSE)) {
+			fc.position(size - 1);
+			fc.write(ByteBuffer.wrap(new byte[] { 42 }));
+		}
+		MessageDigest expected = MessageDigest.getInstance("SHA-256");
+		byte[] block = new byte[64 * 1024];
+		for (long done = 0; done < size - 1; done += block.length)
+			expected.update(block, 0, (int) Math.min(block.length, size - 1 - done));
+		expected.update((byte) 42);
+		assertTrue(MessageDigest.isEqual(expected.digest(),
+										 FileDigester.digest(file, MessageDigest.getInstance("SHA-256"))));
+	}
+
+	@Test
+	void testDigestedObjects() throws Exception {
+		byte[] xml = "<doc>text</doc>".getBytes(StandardCharsets.UTF_8);
+		Files.write(tempDir.resolve("doc.xml"), xml);
+		byte[] bin = new byte[] { 1, 2, 3, 4 };
+		Files.write(tempDir.resolve("data.bin"), bin);
+
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).buildProfile();
+		ReferenceInfo refInfo = XadesSignatureFactory.getInstance(profile.getXadesVersion())
+								.newReferenceInfo(null, "doc.xml", DigestMethod.SHA512,
+												  MessageDigest.getInstance("SHA-512").digest(xml));
+		XadesSignature signature = new DetachedSignatureBuilder(profile)
+										.addDigestedObject(refInfo, "text/xml")
+										.addDigestedObject("data.bin", null,
+														   MessageDigest.getInstance("SHA-256").digest(bin), null,
+														   "Some data")
+										.build();
+
+		NodeList refs = signature.getElement().getElementsByTagNameNS(XMLSignature.XMLNS, "Reference");
+		assertEquals(3, refs.getLength());
+		assertEquals(DigestMethod.SHA512, ((Element) ((Element) refs.item(0)).getElementsByTagNameNS(
+											XMLSignature.XMLNS, "DigestMethod").item(0)).getAttribute("Algorithm"));
+		assertEquals(DigestMethod.SHA256, ((Element) ((Element) refs.item(1)).getElementsByTagNameNS(
+											XMLSignature.XMLNS, "DigestMethod").item(0)).getAttribute("Algorithm"));
+		NodeList mimeTypes = signature.getElement().getElementsByTagNameNS(Constants.XADES_132_NS_URI, "MimeType");
+		assertEquals("text/xml", mimeTypes.item(0).getTextContent());
+		assertEquals(DetachedSignatureBuilder.DEFAULT_MIME_TYPE, mimeTypes.item(1).getTextContent());
+
+		assertTrue(TestDocuments.isValid(signature.getElement(), T_KEYPAIR.getCertificate().getPublicKey(),
+										 tempDir.toUri().toString()));
+	}
+
+	@Test
+	void testDigestedObjectNotAccessed() throws Exception {
+		// The referenced object does not exist, but as the digest is given it is not needed for signing
+		XadesSignature signature = new DetachedSignatureBuilder(new BasicEnvelopedSignatureBuilder()
+																			.setKeyPair(T_KEYPAIR).buildProfile())
+										.addDigestedObject("http://not.available.example.org/payload", null,
+														   new byte[32], "application/pdf", null)
+										.build();
+		assertNotNull(signature.getElement());
+
+		assertThrows(IllegalArgumentException.class, () -> new DetachedSignatureBuilder(new
+						BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).buildProfile())
+								.addDigestedObject("x", "urn:no:such:alg", new byte[32], null, null));
+		assertThrows(IllegalArgumentException.class, () -> new DetachedSignatureBuilder(new
+						BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).buildProfile())
+								.addDigestedObject("x", null, null, null, null));
+	}
+
+	@Test
+	void testManifest() throws Exception {
+		final int n = 50;
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+									.addCommitmentIndication(XadesSignatureFactory.getInstance(
+															BasicEnvelopedSignatureBuilder.DEFAULT_VERSION)
+															.newObjectIdentifier("urn:oid:1.2.840.113549.1.9.16.6.1"))
+									.buildProfile();
+		DetachedSignatureBuilder builder = new DetachedSignatureBuilder(profile).setUseManifest(true);
+		for (int i = 0; i < n; i++) {
+			byte[] doc = ("<doc>" + i + "</doc>").getBytes(StandardCharsets.UTF_8);
+			Files.write(tempDir.resolve("doc" + i + ".xml"), doc);
+			builder.addData(doc, "doc" + i + ".xml", "text/xml", null);
+		}
+		Element sigElement = builder.build().getElement();
+
+		// The SignedInfo only references the manifest and the signed properties
+		Element signedInfo = (Element) sigElement.getElementsByTagNameNS(XMLSignature.XMLNS, "SignedInfo").item(0);
+		NodeList siRefs = signedInfo.getElementsByTagNameNS(XMLSignature.XMLNS, "Reference");
+		assertEquals(2, siRefs.getLength());
+		assertEquals(Manifest.TYPE, ((Element) siRefs.item(0)).getAttribute("Type"));
+
+		NodeList manifests = sigElement.getElementsByTagNameNS(XMLSignature.XMLNS, "Manifest");
+		assertEquals(1, manifests.getLength());
+		NodeList mfRefs = ((Element) manifests.item(0)).getElementsByTagNameNS(XMLSignature.XMLNS, "Reference");
+		assertEquals(n, mfRefs.getLength());
+
+		NodeList formats = sigElement.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "DataObjectFormat");
+		assertEquals(n, formats.getLength());
+		NodeList objRefs = sigElement.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "ObjectReference");
+		assertEquals(n, objRefs.getLength());
+		assertEquals(0, sigElement.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "AllSignedDataObjects")
+								  .getLength());
+		for (int i = 0; i < n; i++) {
+			String refId = "#" + ((Element) mfRefs.item(i)).getAttribute("Id");
+			assertEquals(refId, ((Element) formats.item(i)).getAttribute("ObjectReference"));
+			assertEquals(refId, objRefs.item(i).getTextContent());
+		}
+
+		assertTrue(TestDocuments.isValid(sigElement, T_KEYPAIR.getCertificate().getPublicKey(),
+										 tempDir.toUri().toString()));
+	}
+
+	@Test
+	void testProfileDocumentInfo() throws Exception {
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+									.setSignedDocumentDescription("Profile description")
+									.setSignedDocumentOID(XadesSignatureFactory.getInstance(
+															BasicEnvelopedSignatureBuilder.DEFAULT_VERSION)
+															.newObjectIdentifier("urn:oid:1.2.3.4"))
+									.buildProfile();
+		Element sigElement = new DetachedSignatureBuilder(profile)
+									.addData(new byte[] { 1 }, "a.bin", null, null)
+									.addData(new byte[] { 2 }, "b.bin", null, "Own description")
+									.build().getElement();
+
+		NodeList formats = sigElement.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "DataObjectFormat");
+		assertEquals(2, formats.getLength());
+		assertEquals("Profile description", ((Element) formats.item(0)).getElementsByTagNameNS(
+											Constants.XADES_132_NS_URI, "Description").item(0).getTextContent());
+		assertEquals("Own description", ((Element) formats.item(1)).getElementsByTagNameNS(
+											Constants.XADES_132_NS_URI, "Description").item(0).getTextContent());
+		for (int i = 0; i < 2; i++)
+			assertEquals("urn:oid:1.2.3.4", ((Element) ((Element) formats.item(i)).getElementsByTagNameNS(
+											Constants.XADES_132_NS_URI, "ObjectIdentifier").item(0))
+											.getElementsByTagNameNS(Constants.XADES_132_NS_URI, "Identifier")
+											.item(0).getTextContent());
+	}
+
+	@Test
+	void testInvalidInput() throws Exception {
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).buildProfile();
+		assertThrows(IllegalArgumentException.class, () -> new DetachedSignatureBuilder(null));
+		assertThrows(IllegalStateException.class, () -> new DetachedSignatureBuilder(profile).build());
+		assertThrows(IllegalArgumentException.class,
+					 () -> new DetachedSignatureBuilder(profile).addFile(tempDir.resolve("missing")));
+
+		DetachedSignatureBuilder noURI = new DetachedSignatureBuilder(profile).addData(new byte[] { 1 }, null, null,
+																					   null);
+		assertThrows(IllegalArgumentException.class, () -> noURI.addData(new byte[] { 2 }, null, null, null));
+		assertThrows(IllegalArgumentException.class,
+					 () -> noURI.addDigestedObject(null, null, new byte[32], null, null));
+		noURI.addData(new byte[] { 2 }, "data.bin", null, null);
+
+		Path file = Files.write(tempDir.resolve("deleted"), new byte[] { 1 });
+		DetachedSignatureBuilder builder = new DetachedSignatureBuilder(profile).addFile(file);
+		Files.delete(file);
+		assertThrows(XMLSignatureException.class, () -> builder.build());
+	}
+}
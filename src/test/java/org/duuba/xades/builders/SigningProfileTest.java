@@ -0,0 +1,147 @@
+package org.duuba.xades.builders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.KeyStore.PrivateKeyEntry;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.duuba.xades.CounterIdGenerator;
+import org.duuba.xades.RandomIdGenerator;
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.XadesVersion;
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+class SigningProfileTest {
+
+	private static final PrivateKeyEntry T_KEYPAIR = new TestCryptoContext().getKeyPair();
+
+	@Test
+	void testSignMultipleDocs() throws Exception {
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder()
+											.setKeyPair(T_KEYPAIR)
+											.setSignersLocation("Endless road", null, "Nowhere", null, "Universe")
+											.buildProfile();
+
+		assertEquals(XadesVersion.EN_319_132_V111, profile.getXadesVersion());
+		assertEquals(BasicEnvelopedSignatureBuilder.DEFAULT_C14N_ALG, profile.getC14nAlgorithm());
+		assertEquals(BasicEnvelopedSignatureBuilder.DEFAULT_DIGEST_ALG, profile.getDigestAlgorithm());
+		assertEquals(BasicEnvelopedSignatureBuilder.DEFAULT_SIGNING_ALG, profile.getSigningAlgorithm());
+
+		XadesSignature s1 = profile.sign(TestDocuments.load("testdoc.xml"));
+		XadesSignature s2 = profile.sign(TestDocuments.load("testdoc.xml"));
+
+		assertNotEquals(s1.getId(), s2.getId());
+		assertTrue(TestDocuments.isValid(s1.getElement(), T_KEYPAIR.getCertificate().getPublicKey()));
+		assertTrue(TestDocuments.isValid(s2.getElement(), T_KEYPAIR.getCertificate().getPublicKey()));
+	}
+
+	@Test
+	void testIdGenerator() throws Exception {
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+																	 .setIdGenerator(new CounterIdGenerator("n1"))
+																	 .buildProfile();
+		assertTrue(profile.getIdGenerator() instanceof CounterIdGenerator);
+		Document doc = TestDocuments.load("testdoc.xml");
+		XadesSignature signature = profile.sign(doc);
+
+		assertTrue(signature.getId().startsWith("xadessig-n1-"));
+		assertTrue(signature.getSignatureValue().getId().startsWith("SV-n1-"));
+		assertTrue(signature.getSignedInfo().getReferences().get(0).getId().startsWith("DR-n1-"));
+		assertTrue(signature.getQualifyingProperties().getSignedProperties().getId().startsWith("SP-n1-"));
+		assertTrue(TestDocuments.isValid(signature.getElement(), T_KEYPAIR.getCertificate().getPublicKey()));
+
+		assertTrue(new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).buildProfile().getIdGenerator()
+																			instanceof RandomIdGenerator);
+	}
+
+	@Test
+	void testSigningTime() throws Exception {
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).buildProfile();
+
+		ZonedDateTime signingTime = ZonedDateTime.of(2022, 7, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+		XadesSignature signature = profile.sign(TestDocuments.load("testdoc.xml"), signingTime);
+
+		assertEquals(signingTime, signature.getQualifyingProperties().getSignedProperties()
+																	.getSignatureProperties().getSigningTime());
+	}
+
+	@Test
+	void testClock() throws Exception {
+		ZonedDateTime batchTime = ZonedDateTime.of(2022, 7, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+																	 .setClock(Clock.fixed(batchTime.toInstant(),
+																			 			   ZoneOffset.UTC))
+																	 .buildProfile();
+		for (int i = 0; i < 3; i++) {
+			XadesSignature signature = profile.sign(TestDocuments.load("testdoc.xml"));
+			assertEquals(batchTime, signature.getQualifyingProperties().getSignedProperties()
+																	.getSignatureProperties().getSigningTime());
+			assertTrue(TestDocuments.isValid(signature.getElement(), T_KEYPAIR.getCertificate().getPublicKey()));
+		}
+
+		assertEquals(Clock.systemUTC(), new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).buildProfile()
+																			.getClock());
+	}
+
+	@Test
+	void testConcurrentSigning() throws Exception {
+		final SigningProfile profile = new BasicEnvelopedSignatureBuilder()
+													.setXadesVersion(XadesVersion.TS_101_903_V141)
+													.setKeyPair(T_KEYPAIR)
+													.buildProfile();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Document>> results = new ArrayList<>();
+			for (int i = 0; i < 16; i++)
+				results.add(executor.submit(() -> {
+					Document d = TestDocuments.load("testdoc.xml");
+					profile.sign(d);
+					return d;
+				}));
+			for (Future<Document> r : results) {
+				Document signed = r.get();
+				assertNotNull(signed.getDocumentElement().getLastChild());
+				assertTrue(TestDocuments.isValid((Element) signed.getDocumentElement().getLastChild(),
+												 T_KEYPAIR.getCertificate().getPublicKey()));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testNoDocumentNeeded() {
+		assertThrows(IllegalStateException.class, () -> new BasicEnvelopedSignatureBuilder().buildProfile());
+
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).buildProfile();
+		assertThrows(IllegalArgumentException.class, () -> profile.sign(null));
+	}
+
+	@Test
+	void testRejectInvalidAlgorithm() {
+		assertThrows(IllegalStateException.class, () -> new BasicEnvelopedSignatureBuilder()
+																.setKeyPair(T_KEYPAIR)
+																.setDigestAlgorithm("urn:not:a:digest")
+																.buildProfile());
+		assertThrows(IllegalStateException.class, () -> new BasicEnvelopedSignatureBuilder()
+																.setKeyPair(T_KEYPAIR)
+																.setSigningAlgorithm("urn:not:an:algorithm")
+																.buildProfile());
+	}
+}
@@ -0,0 +1,212 @@
+package org.duuba.xades.builders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XadesVersion;
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+class StreamingEnvelopedSignerTest {
+
+	private static final PrivateKeyEntry T_KEYPAIR = new TestCryptoContext().getKeyPair();
+
+	private static final String T_SPECIAL_DOC =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<!-- Before root --><?app before?>\n"
+			+ "<r:root xmlns:r=\"urn:test:root\" xmlns=\"urn:test:default\" xml:lang=\"en\" b=\"2\" a=\"1\">\n"
+			+ "  <child attr=\"tab&#9;nl&#10;cr&#13;quote&quot;lt&lt;\">text &amp; &lt;more&gt;&#13;</child>\n"
+			+ "  <empty/>\n"
+			+ "  <![CDATA[<cdata> & stuff]]>\n"
+			+ "  <!-- inside -->\n"
+			+ "  <o:other xmlns:o=\"urn:test:other\" o:x=\"y\"><noNS xmlns=\"\">plain</noNS></o:other>\n"
+			+ "</r:root>\n"
+			+ "<!-- After root --><?app after?>\n";
+
+	@Test
+	void testSignDocument() throws Exception {
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+																	 .setSignersLocation(null, null, "Here", null, "NL")
+																	 .buildProfile();
+		ByteArrayOutputStream signed = new ByteArrayOutputStream();
+		XadesSignature signature;
+		try (InputStream is = getClass().getClassLoader().getResourceAsStream("testdoc.xml")) {
+			signature = new StreamingEnvelopedSigner(profile).sign(is, signed);
+		}
+		assertNotNull(signature);
+
+		Document result = parse(signed.toByteArray());
+		Element sigElement = (Element) result.getDocumentElement().getLastChild();
+		assertEquals(XMLSignature.XMLNS, sigElement.getNamespaceURI());
+		assertEquals(signature.getId(), sigElement.getAttribute("Id"));
+		assertTrue(TestDocuments.isValid(sigElement, T_KEYPAIR.getCertificate().getPublicKey()));
+
+		// Except for the signature the content must be the same
+		result.getDocumentElement().removeChild(sigElement);
+		assertTrue(TestDocuments.load("testdoc.xml").getDocumentElement().isEqualNode(result.getDocumentElement()));
+	}
+
+	@Test
+	void testSpecialContent() throws Exception {
+		for (String c14n : new String[] { CanonicalizationMethod.EXCLUSIVE, CanonicalizationMethod.INCLUSIVE,
+										  CanonicalizationMethod.INCLUSIVE_WITH_COMMENTS,
+										  "http://www.w3.org/2006/12/xml-c14n11" })
+			for (XadesVersion v : XadesVersion.values()) {
+				SigningProfile profile = new BasicEnvelopedSignatureBuilder().setXadesVersion(v)
+																			 .setKeyPair(T_KEYPAIR)
+																			 .setC14nAlgorithm(c14n)
+																			 .buildProfile();
+				ByteArrayOutputStream signed = new ByteArrayOutputStream();
+				new StreamingEnvelopedSigner(profile).sign(
+						new ByteArrayInputStream(T_SPECIAL_DOC.getBytes(StandardCharsets.UTF_8)), signed);
+
+				Document result = parse(signed.toByteArray());
+				Element sigElement = (Element) result.getDocumentElement().getLastChild();
+				assertTrue(TestDocuments.isValid(sigElement, T_KEYPAIR.getCertificate().getPublicKey()),
+						   "Invalid signature using " + c14n + " for " + v);
+
+				result.getDocumentElement().removeChild(sigElement);
+				Document original = parse(T_SPECIAL_DOC.getBytes(StandardCharsets.UTF_8));
+				assertTrue(original.isEqualNode(result));
+			}
+	}
+
+	@Test
+	void testSignFromReader() throws Exception {
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).buildProfile();
+		XMLInputFactory xif = XMLInputFactory.newInstance();
+		ByteArrayOutputStream signed = new ByteArrayOutputStream();
+		try (InputStream is = getClass().getClassLoader().getResourceAsStream("testdoc.xml")) {
+			new StreamingEnvelopedSigner(profile).sign(xif.createXMLStreamReader(is), signed);
+		}
+
+		Document result = parse(signed.toByteArray());
+		assertTrue(TestDocuments.isValid((Element) result.getDocumentElement().getLastChild(),
+										 T_KEYPAIR.getCertificate().getPublicKey()));
+	}
+
+	@Test
+	void testSignWithTemplate() throws Exception {
+		for (String c14n : new String[] { CanonicalizationMethod.EXCLUSIVE,
+										  CanonicalizationMethod.EXCLUSIVE_WITH_COMMENTS })
+			for (XadesVersion v : XadesVersion.values()) {
+				StreamingEnvelopedSigner domSigner = new StreamingEnvelopedSigner(createTemplateProfile(v, c14n));
+				StreamingEnvelopedSigner templateSigner = new StreamingEnvelopedSigner(createTemplateProfile(v, c14n));
+				// Sign twice to check that the slots are filled in again for each document
+				for (int i = 0; i < 2; i++) {
+					ByteArrayOutputStream expected = new ByteArrayOutputStream();
+					XadesSignature signature = domSigner.sign(
+								new ByteArrayInputStream(T_SPECIAL_DOC.getBytes(StandardCharsets.UTF_8)), expected);
+					ByteArrayOutputStream signed = new ByteArrayOutputStream();
+					String sigId = templateSigner.signWithTemplate(
+								new ByteArrayInputStream(T_SPECIAL_DOC.getBytes(StandardCharsets.UTF_8)), signed);
+
+					assertEquals(signature.getId(), sigId);
+					assertEquals(new String(expected.toByteArray(), StandardCharsets.UTF_8),
+								 new String(signed.toByteArray(), StandardCharsets.UTF_8));
+					Document result = parse(signed.toByteArray());
+					Element sigElement = (Element) result.getDocumentElement().getLastChild();
+					assertTrue(TestDocuments.isValid(sigElement, T_KEYPAIR.getCertificate().getPublicKey()),
+							   "Invalid signature using " + c14n + " for " + v);
+				}
+			}
+	}
+
+	@Test
+	void testTemplateUndeclaresDefaultNamespace() throws Exception {
+		Document roleDoc = parse("<wrap><Role>Manager</Role></wrap>".getBytes(StandardCharsets.UTF_8));
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder()
+										.setKeyPair(T_KEYPAIR)
+										.setClaimedRoles(Collections.singletonList(roleDoc.getDocumentElement()))
+										.buildProfile();
+		ByteArrayOutputStream signed = new ByteArrayOutputStream();
+		new StreamingEnvelopedSigner(profile).signWithTemplate(
+								new ByteArrayInputStream(T_SPECIAL_DOC.getBytes(StandardCharsets.UTF_8)), signed);
+
+		Document result = parse(signed.toByteArray());
+		Element sigElement = (Element) result.getDocumentElement().getLastChild();
+		Element role = (Element) sigElement.getElementsByTagNameNS(null, "Role").item(0);
+		assertNotNull(role);
+		assertEquals("Manager", role.getTextContent());
+		assertTrue(TestDocuments.isValid(sigElement, T_KEYPAIR.getCertificate().getPublicKey()));
+	}
+
+	@Test
+	void testTemplateNotSupported() throws Exception {
+		StreamingEnvelopedSigner inclusive = new StreamingEnvelopedSigner(new BasicEnvelopedSignatureBuilder()
+													.setKeyPair(T_KEYPAIR)
+													.setC14nAlgorithm(CanonicalizationMethod.INCLUSIVE)
+													.buildProfile());
+		assertThrows(IllegalStateException.class, () -> inclusive.signWithTemplate(
+				new ByteArrayInputStream(T_SPECIAL_DOC.getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream()));
+	}
+
+	@Test
+	void testRejectInvalidInput() throws Exception {
+		StreamingEnvelopedSigner signer = new StreamingEnvelopedSigner(new BasicEnvelopedSignatureBuilder()
+																				.setKeyPair(T_KEYPAIR).buildProfile());
+		assertThrows(XMLSignatureException.class, () -> signer.sign(new ByteArrayInputStream(
+				"<!DOCTYPE r [<!ENTITY e \"x\">]><r>&e;</r>".getBytes(StandardCharsets.UTF_8)),
+				new ByteArrayOutputStream()));
+		assertThrows(XMLSignatureException.class, () -> signer.sign(new ByteArrayInputStream(
+				"<r><a></r>".getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream()));
+		assertThrows(IllegalArgumentException.class, () -> signer.sign((InputStream) null,
+																		new ByteArrayOutputStream()));
+		assertThrows(IllegalArgumentException.class, () -> new StreamingEnvelopedSigner(null));
+	}
+
+	/**
+	 * Creates a profile with all kinds of qualifying properties that generates the same Ids and signing time as any
+	 * other profile created by this method.
+	 */
+	private static SigningProfile createTemplateProfile(XadesVersion v, String c14n) throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+		Document roleDoc = parse(("<w><r:Role xmlns:r=\"urn:test:roles\" r:level=\"1\">Manager &amp; \"Director\""
+								  + "</r:Role></w>").getBytes(StandardCharsets.UTF_8));
+		return new BasicEnvelopedSignatureBuilder().setXadesVersion(v)
+												   .setKeyPair(T_KEYPAIR)
+												   .setC14nAlgorithm(c14n)
+												   .setIdGenerator(prefix -> prefix + counter.incrementAndGet())
+												   .setClock(Clock.fixed(Instant.parse("2026-03-01T12:30:00Z"),
+																		 ZoneId.of("Europe/Amsterdam")))
+												   .setSignedDocumentDescription("A <special> document")
+												   .setSignersLocation("Main St. 1 & 2", "1000 AA", "Amsterdam", null,
+																	   "NL")
+												   .setClaimedRoles(Collections.singletonList(
+																				roleDoc.getDocumentElement()))
+												   .addCommitmentIndication(XadesSignatureFactory.getInstance(v)
+														.newObjectIdentifier("urn:oid:1.2.840.113549.1.9.16.6.1"))
+												   .buildProfile();
+	}
+
+	private static Document parse(byte[] xml) throws Exception {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		dbf.setCoalescing(true);
+		return dbf.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+	}
+}
@@ -0,0 +1,204 @@
+package org.duuba.xades.builders;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+
+import org.apache.xml.security.algorithms.implementations.SignatureECDSA;
+import org.duuba.xades.VerificationReport;
+import org.duuba.xades.XadesSignature;
+import org.duuba.xades.XadesSignatureFactory;
+import org.duuba.xades.XadesVerifier;
+import org.duuba.xades.XadesVersion;
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+class TwoPhaseSigningTest {
+
+	private static final PrivateKeyEntry T_KEYPAIR = new TestCryptoContext().getKeyPair();
+
+	// DER encoding of the DigestInfo prefix for SHA-256, see RFC 8017
+	private static final byte[] SHA256_DIGEST_INFO = new byte[] { 0x30, 0x31, 0x30, 0x0d, 0x06, 0x09, 0x60,
+			(byte) 0x86, 0x48, 0x01, 0x65, 0x03, 0x04, 0x02, 0x01, 0x05, 0x00, 0x04, 0x20 };
+
+	/**
+	 * Stand-in for a remote signer that signs a batch of data in one request
+	 */
+	private static List<byte[]> remoteSign(List<byte[]> dtbs, String algorithm, PrivateKey key) throws Exception {
+		List<byte[]> values = new ArrayList<>(dtbs.size());
+		Signature signer = Signature.getInstance(algorithm);
+		for (byte[] d : dtbs) {
+			signer.initSign(key);
+			signer.update(d);
+			values.add(signer.sign());
+		}
+		return values;
+	}
+
+	@Test
+	void testSignBatch() throws Exception {
+		// The profile does not need the private key
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder()
+										.setSigningCertificate((X509Certificate) T_KEYPAIR.getCertificate())
+										.buildProfile();
+		List<Document> docs = new ArrayList<>();
+		List<XadesSignature> signatures = new ArrayList<>();
+		List<byte[]> dtbs = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			Document doc = TestDocuments.load("testdoc.xml");
+			XadesSignature signature = profile.prepare(doc);
+			assertNotNull(signature.getElement());
+			assertEquals("", signature.getElement().getElementsByTagNameNS(XMLSignature.XMLNS, "SignatureValue")
+												   .item(0).getTextContent());
+			docs.add(doc);
+			signatures.add(signature);
+			dtbs.add(signature.getDataToBeSigned());
+		}
+		List<byte[]> values = remoteSign(dtbs, "SHA256withRSA", T_KEYPAIR.getPrivateKey());
+		for (int i = 0; i < signatures.size(); i++) {
+			signatures.get(i).complete(values.get(i));
+			assertArrayEquals(values.get(i), signatures.get(i).getSignatureValue().getValue());
+			Element sigElement = (Element) docs.get(i).getDocumentElement().getLastChild();
+			assertTrue(TestDocuments.isValid(sigElement, T_KEYPAIR.getCertificate().getPublicKey()));
+		}
+	}
+
+	@Test
+	void testSignDigest() throws Exception {
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder()
+										.setSigningCertificate((X509Certificate) T_KEYPAIR.getCertificate())
+										.buildProfile();
+		Document doc = TestDocuments.load("testdoc.xml");
+		XadesSignature signature = profile.prepare(doc);
+		byte[] digest = signature.getDataToBeSignedDigest();
+		assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(signature.getDataToBeSigned()), digest);
+
+		// Stand-in for a HSM that only gets the digest
+		ByteArrayOutputStream digestInfo = new ByteArrayOutputStream();
+		digestInfo.write(SHA256_DIGEST_INFO);
+		digestInfo.write(digest);
+		Signature rawRSA = Signature.getInstance("NONEwithRSA");
+		rawRSA.initSign(T_KEYPAIR.getPrivateKey());
+		rawRSA.update(digestInfo.toByteArray());
+		signature.complete(rawRSA.sign());
+
+		assertTrue(TestDocuments.isValid((Element) doc.getDocumentElement().getLastChild(),
+										 T_KEYPAIR.getCertificate().getPublicKey()));
+	}
+
+	@Test
+	void testSameAsOnePhase() throws Exception {
+		// RSA PKCS#1 v1.5 signatures are deterministic, so both ways of signing must give the same signature value
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR).buildProfile();
+		Document doc = TestDocuments.load("testdoc.xml");
+		XadesSignature signature = profile.prepare(doc);
+		signature.complete(remoteSign(Collections.singletonList(signature.getDataToBeSigned()),
+									  "SHA256withRSA", T_KEYPAIR.getPrivateKey()).get(0));
+
+		Signature verifier = Signature.getInstance("SHA256withRSA");
+		verifier.initVerify(T_KEYPAIR.getCertificate().getPublicKey());
+		verifier.update(signature.getDataToBeSigned());
+		assertTrue(verifier.verify(signature.getSignatureValue().getValue()));
+		assertEquals(signature.getId(), ((Element) doc.getDocumentElement().getLastChild()).getAttribute("Id"));
+	}
+
+	@Test
+	void testValidateCompleted() throws Exception {
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder()
+										.setSigningCertificate((X509Certificate) T_KEYPAIR.getCertificate())
+										.buildProfile();
+		Document doc = TestDocuments.load("testdoc.xml");
+		XadesSignature signature = profile.prepare(doc);
+		signature.complete(remoteSign(Collections.singletonList(signature.getDataToBeSigned()),
+									  "SHA256withRSA", T_KEYPAIR.getPrivateKey()).get(0));
+
+		PublicKey publicKey = T_KEYPAIR.getCertificate().getPublicKey();
+		assertTrue(signature.validate(new DOMValidateContext(publicKey, signature.getElement())));
+		assertTrue(signature.getSignatureValue().validate(new DOMValidateContext(publicKey, signature.getElement())));
+
+		DOMValidateContext context = new DOMValidateContext(publicKey, signature.getElement());
+		context.setKeySelector(null);
+		XadesVerifier verifier = new XadesVerifier(XadesSignatureFactory.getInstance(XadesVersion.EN_319_132_V111));
+		VerificationReport report = verifier.verify(signature, context);
+		assertTrue(report.isValid(), report::toString);
+		assertEquals(T_KEYPAIR.getCertificate(), report.getSigningCertificate());
+	}
+
+	@Test
+	void testECDSA() throws Exception {
+		KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC");
+		kpg.initialize(256);
+		KeyPair ecKeys = kpg.generateKeyPair();
+
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder()
+										.setSigningCertificate((X509Certificate) T_KEYPAIR.getCertificate())
+										.setSigningAlgorithm("http://www.w3.org/2001/04/xmldsig-more#ecdsa-sha256")
+										.buildProfile();
+		Document doc = TestDocuments.load("testdoc.xml");
+		XadesSignature signature = profile.prepare(doc);
+		byte[] asn1 = remoteSign(Collections.singletonList(signature.getDataToBeSigned()),
+								 "SHA256withECDSA", ecKeys.getPrivate()).get(0);
+		signature.complete(SignatureECDSA.convertASN1toXMLDSIG(asn1));
+
+		assertTrue(TestDocuments.isValid((Element) doc.getDocumentElement().getLastChild(), ecKeys.getPublic()));
+	}
+
+	@Test
+	void testInvalidState() throws Exception {
+		SigningProfile profile = new BasicEnvelopedSignatureBuilder()
+										.setSigningCertificate((X509Certificate) T_KEYPAIR.getCertificate())
+										.buildProfile();
+		// Without private key only two-phase signing is possible
+		assertThrows(IllegalStateException.class, () -> profile.sign(TestDocuments.load("testdoc.xml")));
+		assertThrows(IllegalStateException.class, () -> new BasicEnvelopedSignatureBuilder()
+											.setSigningCertificate((X509Certificate) T_KEYPAIR.getCertificate())
+											.setDocumentToSign(TestDocuments.load("testdoc.xml")).build());
+
+		Document doc = TestDocuments.load("testdoc.xml");
+		XadesSignature signature = profile.prepare(doc);
+		assertThrows(IllegalStateException.class, () -> signature.prepare(doc.getDocumentElement()));
+		assertThrows(IllegalArgumentException.class, () -> signature.complete(null));
+		signature.complete(new byte[512]);
+		assertThrows(IllegalStateException.class, () -> signature.complete(new byte[512]));
+		assertFalse(TestDocuments.isValid((Element) doc.getDocumentElement().getLastChild(),
+										  T_KEYPAIR.getCertificate().getPublicKey()));
+
+		XadesSignature signed = new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+												.setDocumentToSign(TestDocuments.load("testdoc.xml")).build();
+		assertNull(signed.getDataToBeSigned());
+		assertThrows(IllegalStateException.class, () -> signed.getDataToBeSignedDigest());
+		assertThrows(IllegalStateException.class, () -> signed.complete(new byte[] { 1 }));
+
+		XadesSignature dsa = new BasicEnvelopedSignatureBuilder()
+									.setSigningCertificate((X509Certificate) T_KEYPAIR.getCertificate())
+									.setSigningAlgorithm("http://www.w3.org/2009/xmldsig11#dsa-sha256")
+									.buildProfile().createEnvelopedSignature(ZonedDateTime.now(), null);
+		assertThrows(XMLSignatureException.class, () -> dsa.prepare(TestDocuments.load("testdoc.xml")
+																				 .getDocumentElement()));
+	}
+}
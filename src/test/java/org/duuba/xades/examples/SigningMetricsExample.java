@@ -0,0 +1,91 @@
+package org.duuba.xades.examples;
+
+import java.io.FileInputStream;
+import java.nio.file.Paths;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.duuba.xades.HistogramSigningListener;
+import org.duuba.xades.SigningListener;
+import org.duuba.xades.SigningPhase;
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.builders.SigningProfile;
+import org.holodeckb2b.commons.security.KeystoreUtils;
+import org.w3c.dom.Document;
+
+/**
+ * Shows how the durations of the phases of the signature creation can be collected using a {@link SigningListener}.
+ * The example signs the given document a number of times using a signing profile with two listeners: the {@link
+ * HistogramSigningListener} provided by the library and an adapter that forwards the durations to a metrics registry,
+ * represented here by a simple function that records a named timer value. With for example Micrometer the function
+ * would be <code>(name, nanos) -> registry.timer(name).record(nanos, TimeUnit.NANOSECONDS)</code>.
+ * <p>The example takes three arguments: the PKCS#12 file containing the key pair, its password and the document to
+ * sign.
+ */
+public class SigningMetricsExample {
+
+	private static final int ITERATIONS = 200;
+
+	/**
+	 * Creates a listener that reports the duration of each phase as a timer named <i>xades.signing.«phase»</i> and
+	 * the total duration as <i>xades.signing.total</i> to the given metrics registry.
+	 */
+	static SigningListener registryAdapter(final ObjLongConsumer<String> timers) {
+		return metrics -> {
+			for (SigningPhase p : SigningPhase.values())
+				timers.accept("xades.signing." + p.name().toLowerCase(Locale.ROOT), metrics.getDuration(p));
+			timers.accept("xades.signing.total", metrics.getTotalDuration());
+		};
+	}
+
+	public static void main(String[] args) {
+		if (args == null || args.length < 3) {
+			System.err.print("Missing arguments! You must supply the key pair, its password and document to sign.");
+			System.exit(-1);
+		}
+
+		try {
+			PrivateKeyEntry keyPair = KeystoreUtils.readKeyPairFromPKCS12(Paths.get(args[0]), args[1]);
+			DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
+			builderFactory.setNamespaceAware(true);
+
+			HistogramSigningListener histograms = new HistogramSigningListener();
+			ConcurrentHashMap<String, LongAdder> registry = new ConcurrentHashMap<>();
+			SigningListener adapter = registryAdapter((name, nanos) -> registry.computeIfAbsent(name,
+																		n -> new LongAdder()).add(nanos));
+			SigningProfile profile = new BasicEnvelopedSignatureBuilder().setKeyPair(keyPair)
+																	.setSigningListener(m -> {
+																		histograms.signatureCreated(m);
+																		adapter.signatureCreated(m);
+																	})
+																	.buildProfile();
+
+			System.out.println("Signing document " + ITERATIONS + " times");
+			for (int i = 0; i < ITERATIONS; i++) {
+				Document doc2sign;
+				try (FileInputStream fis = new FileInputStream(args[2])) {
+					doc2sign = builderFactory.newDocumentBuilder().parse(fis);
+				}
+				profile.sign(doc2sign);
+			}
+
+			System.out.println("Phase                      p50 (us)   p99 (us)");
+			for (SigningPhase p : SigningPhase.values())
+				System.out.printf("%-25s %9d  %9d%n", p, histograms.getPercentile(p, 50) / 1000,
+								  histograms.getPercentile(p, 99) / 1000);
+			System.out.printf("%-25s %9d  %9d%n", "TOTAL", histograms.getTotalPercentile(50) / 1000,
+							  histograms.getTotalPercentile(99) / 1000);
+			System.out.println("Accumulated timers in registry:");
+			registry.forEach((name, total) -> System.out.println("  " + name + " = " + total.sum() / 1000000 + "ms"));
+		} catch (Exception e) {
+			System.err.println("An error occurred while signing the document");
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades.test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the number of bytes allocated by the current thread when executing an operation, using the allocation
+ * counter of the HotSpot {@link com.sun.management.ThreadMXBean}. The operation is first executed a number of times
+ * to let the JIT compiler optimise it, as escape analysis removes many allocations from compiled code. 
+ * <p>The allocation counter is updated per thread local allocation buffer, so a single execution may be reported 
+ * with a deviation of a few kilobytes. The result is therefore the average over many executions.
+ */
+public class AllocationMeter {
+
+	/**
+	 * An operation of which the allocations are measured
+	 */
+	@FunctionalInterface
+	public interface Operation {
+		void run() throws Exception;
+	}
+
+	private static final com.sun.management.ThreadMXBean THREADS = getThreadMXBean();
+
+	private static com.sun.management.ThreadMXBean getThreadMXBean() {
+		try {
+			final com.sun.management.ThreadMXBean bean = 
+						(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (!bean.isThreadAllocatedMemorySupported())
+				return null;
+			if (!bean.isThreadAllocatedMemoryEnabled())
+				bean.setThreadAllocatedMemoryEnabled(true);
+			return bean;
+		} catch (ClassCastException | UnsupportedOperationException notHotSpot) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the JVM supports measuring the allocations per thread, <code>false</code> if not 
+	 */
+	public static boolean isSupported() {
+		return THREADS != null;
+	}
+
+	/**
+	 * Measures the average number of bytes allocated by an execution of the given operation.
+	 *
+	 * @param warmup		number of executions before measuring
+	 * @param iterations	number of executions to measure
+	 * @param op			the operation
+	 * @return	the average number of bytes allocated per execution
+	 * @throws Exception	when the operation fails
+	 */
+	public static long bytesPerOperation(final int warmup, final int iterations, final Operation op) 
+																							throws Exception {
+		if (!isSupported())
+			throw new UnsupportedOperationException("Thread allocation counters are not available");
+		
+		for (int i = 0; i < warmup; i++)
+			op.run();
+		final long threadId = Thread.currentThread().getId();
+		final long start = THREADS.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < iterations; i++)
+			op.run();
+		return (THREADS.getThreadAllocatedBytes(threadId) - start) / iterations;
+	}
+}
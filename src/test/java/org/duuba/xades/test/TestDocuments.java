@@ -0,0 +1,74 @@
+package org.duuba.xades.test;
+
+import java.io.InputStream;
+import java.security.PublicKey;
+
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Utility methods to load the test documents and to check the signatures created in the tests.
+ */
+public class TestDocuments {
+
+	/**
+	 * Loads the document with the given name from the test resources.
+	 *
+	 * @param name	name of the resource containing the XML document
+	 * @return	the parsed document
+	 */
+	public static Document load(String name) {
+		try (InputStream is = TestDocuments.class.getClassLoader().getResourceAsStream(name)) {
+			final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			return factory.newDocumentBuilder().parse(is);
+		} catch (Exception e) {
+			throw new IllegalStateException("Test document " + name + " not available", e);
+		}
+	}
+
+	/**
+	 * Performs the core validation of the given <code>ds:Signature</code> element. The <code>Id</code> attributes of
+	 * the elements in the signature are registered as ID, so this also works for parsed signatures.
+	 *
+	 * @param sigElement	the signature element
+	 * @param key			the public key to validate the signature with
+	 * @return	<code>true</code> if the signature is valid, <code>false</code> otherwise
+	 * @throws Exception when the signature cannot be validated
+	 */
+	public static boolean isValid(Element sigElement, PublicKey key) throws Exception {
+		return isValid(sigElement, key, null);
+	}
+
+	/**
+	 * Performs the core validation of the given <code>ds:Signature</code> element, resolving relative references to
+	 * detached data objects against the given base URI.
+	 *
+	 * @param sigElement	the signature element
+	 * @param key			the public key to validate the signature with
+	 * @param baseURI		the base URI for the references, may be <code>null</code>
+	 * @return	<code>true</code> if the signature is valid, <code>false</code> otherwise
+	 * @throws Exception when the signature cannot be validated
+	 */
+	public static boolean isValid(Element sigElement, PublicKey key, String baseURI) throws Exception {
+		registerIds(sigElement);
+		final DOMValidateContext vc = new DOMValidateContext(key, sigElement);
+		vc.setBaseURI(baseURI);
+		final XMLSignature xmlSig = XMLSignatureFactory.getInstance("DOM", "ApacheXMLDSig").unmarshalXMLSignature(vc);
+		return xmlSig.validate(vc);
+	}
+
+	private static void registerIds(Element e) {
+		if (e.hasAttributeNS(null, "Id"))
+			e.setIdAttributeNS(null, "Id", true);
+		for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling())
+			if (n.getNodeType() == Node.ELEMENT_NODE)
+				registerIds((Element) n);
+	}
+}
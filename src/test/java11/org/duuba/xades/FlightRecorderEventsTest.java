@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Duuba team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.duuba.xades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignedInfo;
+
+import org.duuba.xades.builders.BasicEnvelopedSignatureBuilder;
+import org.duuba.xades.test.TestCryptoContext;
+import org.duuba.xades.test.TestDocuments;
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Checks that the Flight Recorder events are emitted when a signature is created. These tests are only compiled and
+ * run when building with JDK 11 or later.
+ */
+class FlightRecorderEventsTest {
+
+	private static final String SIGN_EVENT = "org.duuba.xades.Sign";
+	private static final String MARSHAL_EVENT = "org.duuba.xades.Marshal";
+	private static final String CERT_DIGEST_EVENT = "org.duuba.xades.CertDigest";
+
+	private static final PrivateKeyEntry T_KEYPAIR = new TestCryptoContext().getKeyPair();
+
+	@Test
+	void testSigningEvents() throws Exception {
+		XadesSignature first, second;
+		List<RecordedEvent> events;
+		try (Recording recording = new Recording()) {
+			recording.enable(SIGN_EVENT).withThreshold(Duration.ZERO);
+			recording.enable(MARSHAL_EVENT).withThreshold(Duration.ZERO);
+			recording.enable(CERT_DIGEST_EVENT).withThreshold(Duration.ZERO);
+			recording.start();
+			// Sign twice, so the certificate digest of the second signature is always taken from the cache
+			first = sign();
+			second = sign();
+			recording.stop();
+
+			final Path dump = Files.createTempFile("xades-events", ".jfr");
+			try {
+				recording.dump(dump);
+				events = RecordingFile.readAllEvents(dump);
+			} finally {
+				Files.delete(dump);
+			}
+		}
+
+		for (XadesSignature signature : new XadesSignature[] { first, second }) {
+			final List<RecordedEvent> signEvents = select(events, SIGN_EVENT, "signatureId", signature.getId());
+			assertEquals(1, signEvents.size());
+			final RecordedEvent sign = signEvents.get(0);
+			final SignedInfo signedInfo = signature.getSignedInfo();
+			@SuppressWarnings("unchecked")
+			final List<Reference> references = signedInfo.getReferences();
+			assertEquals(BasicEnvelopedSignatureBuilder.DEFAULT_VERSION.name(), sign.getString("xadesVersion"));
+			assertEquals(signedInfo.getSignatureMethod().getAlgorithm(), sign.getString("signatureAlgorithm"));
+			assertEquals(references.get(references.size() - 1).getDigestMethod().getAlgorithm(),
+						 sign.getString("digestAlgorithm"));
+			assertEquals(signedInfo.getCanonicalizationMethod().getAlgorithm(),
+						 sign.getString("canonicalizationAlgorithm"));
+			assertEquals(2, sign.getInt("referenceCount"));
+			assertTrue(sign.getLong("streamedBytesDigested") > 0);
+			assertEquals(signature.getElement().getElementsByTagNameNS("*", "*").getLength() + 1,
+						 sign.getInt("elementCount"));
+			assertFalse(sign.getDuration("marshallingTime").isNegative());
+			assertFalse(sign.getDuration("signatureValueTime").isNegative());
+			assertTrue(sign.getDuration().compareTo(sign.getDuration("signatureValueTime")) >= 0);
+
+			final List<RecordedEvent> marshalEvents = select(events, MARSHAL_EVENT, "target",
+															  "#" + signature.getId());
+			assertEquals(1, marshalEvents.size());
+			final RecordedEvent marshal = marshalEvents.get(0);
+			assertEquals(BasicEnvelopedSignatureBuilder.DEFAULT_VERSION.name(), marshal.getString("xadesVersion"));
+			assertEquals("DOM", marshal.getString("output"));
+			assertFalse(marshal.getBoolean("unsignedProperties"));
+		}
+
+		final X509Certificate cert = (X509Certificate) T_KEYPAIR.getCertificate();
+		final List<RecordedEvent> certEvents = select(events, CERT_DIGEST_EVENT, "subject",
+													  cert.getSubjectX500Principal().getName());
+		assertEquals(2, certEvents.size());
+		for (RecordedEvent certDigest : certEvents) {
+			assertEquals(DigestMethod.SHA256, certDigest.getString("digestAlgorithm"));
+			assertEquals(cert.getEncoded().length, certDigest.getInt("certificateSize"));
+		}
+		assertTrue(certEvents.get(1).getBoolean("cached"));
+	}
+
+	private static XadesSignature sign() throws Exception {
+		return new BasicEnvelopedSignatureBuilder().setKeyPair(T_KEYPAIR)
+												   .setDocumentToSign(TestDocuments.load("testdoc.xml"))
+												   .build();
+	}
+
+	/**
+	 * Gets the events of the given type with the given value of a string field, in the order they were committed.
+	 */
+	private static List<RecordedEvent> select(final List<RecordedEvent> events, final String type,
+											  final String field, final String value) {
+		return events.stream().filter(e -> type.equals(e.getEventType().getName())
+										   && value.equals(e.getString(field)))
+							  .sorted((e0, e1) -> e0.getEndTime().compareTo(e1.getEndTime()))
+							  .collect(Collectors.toList());
+	}
+}